@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.benchmarks;
+
+import org.openjdk.skara.vcs.*;
+import org.openjdk.skara.vcs.git.GitCombinedDiffParser;
+import org.openjdk.skara.vcs.tools.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the raw diff output produced by git for regular and merge commits.
+ * The git output is captured once from a generated repository so that only the
+ * parsing is measured, not the git processes. The parsers are internal to the vcs
+ * module, the build exports their packages to this module.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiffBenchmarks {
+    @Param({"20", "200"})
+    int files;
+
+    private byte[] diff;
+    private byte[] combinedDiff;
+    private List<Hash> parents;
+    private Hash merge;
+
+    @Setup
+    public void setup() throws IOException {
+        var dir = Files.createTempDirectory("diff-benchmarks");
+        try {
+            var history = new Fixtures().history(dir, files, 200);
+            // The same options as used by GitRepository
+            diff = Fixtures.git(dir, "diff", "--patch",
+                                         "--find-renames=99%",
+                                         "--find-copies=99%",
+                                         "--find-copies-harder",
+                                         "--binary",
+                                         "--raw",
+                                         "--no-abbrev",
+                                         "--unified=0",
+                                         "--no-color",
+                                         history.base.hex(), history.head.hex());
+            combinedDiff = Fixtures.git(dir, "show", "--format=",
+                                                 "--patch",
+                                                 "--find-renames=99%",
+                                                 "--find-copies=99%",
+                                                 "--find-copies-harder",
+                                                 "--binary",
+                                                 "-c",
+                                                 "--raw",
+                                                 "--no-abbrev",
+                                                 "--unified=0",
+                                                 "--no-color",
+                                                 history.merge.hex());
+            parents = List.of(history.head, history.other);
+            merge = history.merge;
+        } finally {
+            Fixtures.delete(dir);
+        }
+    }
+
+    @Benchmark
+    public List<Patch> parseGitRaw() throws IOException {
+        return UnifiedDiffParser.parseGitRaw(new ByteArrayInputStream(diff));
+    }
+
+    @Benchmark
+    public List<Diff> parseCombined() throws IOException {
+        var reader = new UnixStreamReader(new ByteArrayInputStream(combinedDiff));
+        return new GitCombinedDiffParser(parents, merge, null).parse(reader);
+    }
+}
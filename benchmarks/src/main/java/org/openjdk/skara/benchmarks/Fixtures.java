@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.benchmarks;
+
+import org.openjdk.skara.email.*;
+import org.openjdk.skara.json.*;
+import org.openjdk.skara.mailinglist.Mbox;
+import org.openjdk.skara.vcs.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+
+/**
+ * Generates the input data for the benchmarks. All fixtures are derived from a
+ * fixed seed so that results are comparable between runs and machines, and none
+ * of them require network access.
+ */
+class Fixtures {
+    private static final ZonedDateTime EPOCH = ZonedDateTime.of(2019, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+    private static final String[] WORDS = {
+        "repository", "census", "reviewer", "commit", "branch", "merge", "webrev", "mailing",
+        "list", "bridge", "issue", "project", "integrate", "sponsor", "hunk", "patch", "the",
+        "a", "of", "to", "in", "is", "for", "with", "should", "when", "update", "fix", "check"
+    };
+
+    private final Random random = new Random(4711);
+
+    private String words(int count) {
+        var sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private String sourceLine(int file, int line) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return "";
+            case 1:
+                return "    // " + words(6 + random.nextInt(6));
+            case 2:
+                return "    private int field" + line + " = " + random.nextInt(1000) + ";";
+            case 3:
+                return "    void method" + line + "() { call(\"" + words(3) + "\", " + file + "); }";
+            default:
+                return "        var value" + line + " = compute(" + random.nextInt(100) + ", \"" + words(2) + "\");";
+        }
+    }
+
+    private List<String> sourceFile(int file, int lines) {
+        var content = new ArrayList<String>(lines);
+        content.add("package org.openjdk.bench;");
+        content.add("");
+        content.add("class File" + file + " {");
+        for (int i = 3; i < lines - 1; i++) {
+            content.add(sourceLine(file, i));
+        }
+        content.add("}");
+        return content;
+    }
+
+    /**
+     * Returns a JSON document shaped like a page of pull requests from the GitHub REST API.
+     */
+    String pullRequests(int count) {
+        var prs = JSON.array();
+        for (int i = 0; i < count; i++) {
+            var user = JSON.object()
+                           .put("login", "user" + random.nextInt(100))
+                           .put("id", 100000 + random.nextInt(100000))
+                           .put("type", "User")
+                           .put("site_admin", false);
+            var labels = JSON.array();
+            for (int j = 0; j < random.nextInt(4); j++) {
+                labels.add(JSON.object()
+                               .put("id", random.nextInt(1000000))
+                               .put("name", WORDS[random.nextInt(WORDS.length)])
+                               .put("color", "ededed")
+                               .put("default", false));
+            }
+            var repo = JSON.object()
+                           .put("id", 12345)
+                           .put("full_name", "openjdk/skara")
+                           .put("private", false)
+                           .put("clone_url", "https://github.com/openjdk/skara.git");
+            var head = JSON.object()
+                           .put("ref", "branch" + i)
+                           .put("sha", String.format("%040x", random.nextLong() & Long.MAX_VALUE))
+                           .put("repo", repo);
+            var base = JSON.object()
+                           .put("ref", "master")
+                           .put("sha", String.format("%040x", random.nextLong() & Long.MAX_VALUE))
+                           .put("repo", repo);
+            prs.add(JSON.object()
+                        .put("id", 300000000L + i)
+                        .put("number", i + 1)
+                        .put("state", "open")
+                        .put("locked", false)
+                        .put("title", words(8) + " åäö ☃")
+                        .put("body", words(120) + "\n\n<!-- Anything below this marker will be automatically updated -->\n" + words(40))
+                        .put("user", user)
+                        .put("labels", labels)
+                        .put("created_at", EPOCH.plusHours(i).toInstant().toString())
+                        .put("updated_at", EPOCH.plusHours(i + 5).toInstant().toString())
+                        .put("closed_at", JSON.of())
+                        .put("merge_commit_sha", JSON.of())
+                        .put("draft", random.nextBoolean())
+                        .put("score", random.nextDouble())
+                        .put("head", head)
+                        .put("base", base));
+        }
+        return prs.toString();
+    }
+
+    /**
+     * Writes a census directory with the given number of contributors, divided into
+     * groups and projects of roughly equal size.
+     */
+    Path census(Path dir, int contributors) throws IOException {
+        var groups = Math.max(1, contributors / 50);
+
+        var contributorsContent = new ArrayList<String>();
+        contributorsContent.add("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>");
+        contributorsContent.add("<contributors>");
+        for (int i = 1; i <= contributors; i++) {
+            contributorsContent.add("    <contributor username=\"user" + i + "\" full-name=\"User Number " + i + "\" />");
+        }
+        contributorsContent.add("</contributors>");
+        Files.write(dir.resolve("contributors.xml"), contributorsContent);
+
+        var groupsDir = Files.createDirectories(dir.resolve("groups"));
+        var projectsDir = Files.createDirectories(dir.resolve("projects"));
+        for (int g = 0; g < groups; g++) {
+            var groupContent = new ArrayList<String>();
+            groupContent.add("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>");
+            groupContent.add("<group name=\"group" + g + "\" full-name=\"Group " + g + "\">");
+            groupContent.add("    <lead username=\"user" + (g + 1) + "\" />");
+            var projectContent = new ArrayList<String>();
+            projectContent.add("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>");
+            var name = g == 0 ? "test" : "project" + g;
+            projectContent.add("<project name=\"" + name + "\" full-name=\"Project " + g + "\" sponsor=\"group" + g + "\">");
+            projectContent.add("    <lead username=\"user" + (g + 1) + "\" since=\"1\" />");
+            for (int i = 1; i <= contributors; i++) {
+                if (i % groups != g) {
+                    continue;
+                }
+                groupContent.add("    <member username=\"user" + i + "\" since=\"" + (1 + i % 10) + "\" />");
+                var role = i % 3 == 0 ? "reviewer" : i % 3 == 1 ? "committer" : "author";
+                projectContent.add("    <" + role + " username=\"user" + i + "\" since=\"" + (1 + i % 10) + "\" />");
+            }
+            groupContent.add("</group>");
+            projectContent.add("</project>");
+            Files.write(groupsDir.resolve("group" + g + ".xml"), groupContent);
+            Files.write(projectsDir.resolve(name + ".xml"), projectContent);
+        }
+
+        var namespacesDir = Files.createDirectories(dir.resolve("namespaces"));
+        var namespaceContent = new ArrayList<String>();
+        namespaceContent.add("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>");
+        namespaceContent.add("<namespace name=\"github.com\">");
+        for (int i = 1; i <= contributors; i += 2) {
+            namespaceContent.add("    <user id=\"" + (1000000 + i) + "\" census=\"user" + i + "\" />");
+        }
+        namespaceContent.add("</namespace>");
+        Files.write(namespacesDir.resolve("github.xml"), namespaceContent);
+
+        Files.write(dir.resolve("version.xml"), List.of(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>",
+                "<version format=\"1\" timestamp=\"" + EPOCH.toInstant().toString() + "\" />"));
+        return dir;
+    }
+
+    private Email mail(Email parent, int conversation, int index) {
+        var author = EmailAddress.from("User Number " + index, "user" + index + "@openjdk.java.net");
+        var id = EmailAddress.from(conversation + "." + index + "@mail.openjdk.java.net");
+        var body = new StringBuilder();
+        if (parent != null) {
+            body.append("On ").append(parent.date()).append(", ").append(parent.author().fullName().orElse("someone")).append(" wrote:\n");
+            parent.body().lines().limit(10).forEach(line -> body.append("> ").append(line).append("\n"));
+            body.append("\n");
+        }
+        for (int i = 0; i < 20; i++) {
+            body.append(words(10)).append("\n");
+        }
+        body.append("\nFrom the looks of it, this should work.\n\n/").append(author.localPart()).append("\n");
+
+        var builder = parent == null ?
+                Email.create(author, conversation + ": " + words(6), body.toString()) :
+                Email.reply(parent, "Re: " + parent.subject(), body.toString()).author(author);
+        return builder.id(id)
+                      .recipient(EmailAddress.from("Dev List", "dev@openjdk.java.net"))
+                      .date(EPOCH.plusMinutes(conversation * 60 + index))
+                      .header("X-Mailer", "skara-benchmarks")
+                      .build();
+    }
+
+    /**
+     * Returns a single message in mbox format.
+     */
+    String message() {
+        return Mbox.fromMail(mail(null, 1, 1)).stripLeading();
+    }
+
+    /**
+     * Returns an mbox archive with the given number of conversations, each with the
+     * given number of replies where every reply answers the previous message.
+     */
+    String mbox(int conversations, int replies) {
+        var sb = new StringBuilder();
+        for (int c = 0; c < conversations; c++) {
+            var parent = mail(null, c, 0);
+            sb.append(Mbox.fromMail(parent));
+            for (int r = 1; r <= replies; r++) {
+                var reply = mail(parent, c, r);
+                sb.append(Mbox.fromMail(reply));
+                parent = reply;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A git repository with a linear change from {@code base} to {@code head} and a
+     * merge of {@code head} and {@code other} that touches the same files.
+     */
+    static class History {
+        final Repository repository;
+        final Hash base;
+        final Hash head;
+        final Hash other;
+        final Hash merge;
+
+        private History(Repository repository, Hash base, Hash head, Hash other, Hash merge) {
+            this.repository = repository;
+            this.base = base;
+            this.head = head;
+            this.other = other;
+            this.merge = merge;
+        }
+    }
+
+    private void edit(Path file, int from, int to, int index) throws IOException {
+        var lines = new ArrayList<>(Files.readAllLines(file));
+        for (int i = Math.max(3, from); i < Math.min(lines.size() - 1, to); i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    lines.set(i, sourceLine(index, i));
+                    break;
+                case 1:
+                    lines.add(i, sourceLine(index, i));
+                    break;
+                default:
+                    break;
+            }
+        }
+        Files.write(file, lines);
+    }
+
+    History history(Path dir, int files, int lines) throws IOException {
+        var repo = Repository.init(dir, VCS.GIT);
+        var src = Files.createDirectories(dir.resolve("src"));
+        var paths = new ArrayList<Path>();
+        for (int i = 0; i < files; i++) {
+            var path = src.resolve("File" + i + ".java");
+            Files.write(path, sourceFile(i, lines));
+            paths.add(path);
+        }
+        repo.add(paths);
+        var base = repo.commit("Initial commit", "duke", "duke@openjdk.java.net", EPOCH);
+
+        for (int i = 0; i < files; i += 2) {
+            edit(paths.get(i), 0, lines / 2, i);
+        }
+        var added = src.resolve("Added.java");
+        Files.write(added, sourceFile(files, lines));
+        repo.add(paths);
+        repo.add(added);
+        repo.move(paths.get(1), src.resolve("Renamed.java"));
+        var head = repo.commit("Change the first half", "duke", "duke@openjdk.java.net", EPOCH.plusHours(1));
+
+        repo.checkout(base, false);
+        for (int i = 0; i < files; i += 2) {
+            edit(paths.get(i), lines / 2, lines, i);
+        }
+        repo.add(paths);
+        var other = repo.commit("Change the second half", "duke", "duke@openjdk.java.net", EPOCH.plusHours(2));
+
+        repo.checkout(head, false);
+        repo.merge(other);
+        var merge = repo.commit("Merge", "duke", "duke@openjdk.java.net", EPOCH.plusHours(3));
+
+        return new History(repo, base, head, other, merge);
+    }
+
+    /**
+     * Creates a git repository configured for jcheck with the given number of commits
+     * on top of the initial configuration commit.
+     */
+    Repository checkableRepository(Path dir, int commits) throws IOException {
+        var repo = Repository.init(dir, VCS.GIT);
+        var conf = Files.createDirectories(dir.resolve(".jcheck")).resolve("conf");
+        Files.write(conf, List.of(
+                "[general]",
+                "project=test",
+                "jbs=JDK",
+                "",
+                "[checks]",
+                "error=author,committer,reviewers,merge,message,issues,executable,blacklist,whitespace",
+                "",
+                "[census]",
+                "version=10",
+                "domain=openjdk.java.net",
+                "",
+                "[checks \"whitespace\"]",
+                "files=.*\\.java$",
+                "",
+                "[checks \"reviewers\"]",
+                "minimum=1"));
+        repo.add(conf);
+        repo.commit("Initial commit", "duke", "duke@openjdk.java.net", EPOCH);
+
+        var src = Files.createDirectories(dir.resolve("src"));
+        for (int i = 0; i < commits; i++) {
+            var file = src.resolve("File" + (i % 10) + ".java");
+            if (Files.exists(file)) {
+                edit(file, 0, 40, i);
+            } else {
+                Files.write(file, sourceFile(i, 40));
+            }
+            repo.add(file);
+            // With a census of 100 contributors, every sixth user is a reviewer in the project
+            var committer = "user" + (6 * (1 + i % 10));
+            var message = (1000000 + i) + ": " + words(6) + "\n\nReviewed-by: user" + (6 * (1 + (i + 1) % 10));
+            repo.commit(message, committer, committer + "@openjdk.java.net", EPOCH.plusMinutes(i + 1));
+        }
+        return repo;
+    }
+
+    /**
+     * Runs git in the given directory and returns everything it printed on stdout.
+     */
+    static byte[] git(Path dir, String... args) throws IOException {
+        var cmd = new ArrayList<String>();
+        cmd.add("git");
+        cmd.addAll(Arrays.asList(args));
+        var pb = new ProcessBuilder(cmd);
+        pb.directory(dir.toFile());
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        var p = pb.start();
+        try (var stdout = p.getInputStream()) {
+            var bytes = stdout.readAllBytes();
+            if (p.waitFor() != 0) {
+                throw new IOException("Unexpected exit code from " + String.join(" ", cmd));
+            }
+            return bytes;
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    static void delete(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (var paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder())
+                 .map(Path::toFile)
+                 .forEach(File::delete);
+        }
+    }
+}
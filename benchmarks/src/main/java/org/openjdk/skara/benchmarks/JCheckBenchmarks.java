@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.benchmarks;
+
+import org.openjdk.skara.census.Census;
+import org.openjdk.skara.jcheck.JCheck;
+import org.openjdk.skara.vcs.*;
+import org.openjdk.skara.vcs.openjdk.CommitMessageParsers;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs all configured jcheck checks over a generated repository. This includes
+ * the git processes needed to read the commits, as it does for the bots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JCheckBenchmarks {
+    @Param({"10", "100"})
+    int commits;
+
+    private Path dir;
+    private Repository repository;
+    private Census census;
+    private String range;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("jcheck-benchmarks");
+        var fixtures = new Fixtures();
+        census = Census.parse(fixtures.census(Files.createDirectories(dir.resolve("census")), 100));
+        repository = fixtures.checkableRepository(Files.createDirectories(dir.resolve("repo")), commits);
+        var first = repository.resolve("master~" + commits).orElseThrow();
+        range = first.hex() + "..master";
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.delete(dir);
+    }
+
+    @Benchmark
+    public long check() throws IOException {
+        try (var issues = JCheck.check(repository, census, CommitMessageParsers.v1, range)) {
+            return issues.stream().count();
+        }
+    }
+}
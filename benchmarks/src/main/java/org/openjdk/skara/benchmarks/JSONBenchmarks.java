@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.benchmarks;
+
+import org.openjdk.skara.json.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and serialization of REST API payloads. The {@code parseString} and
+ * {@code parseBytes} benchmarks compare the {@code JSONParser} based path that
+ * decodes the body into a string first with the streaming UTF-8 parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JSONBenchmarks {
+    @Param({"30", "100"})
+    int pullRequests;
+
+    private String text;
+    private byte[] bytes;
+    private JSONValue value;
+
+    @Setup
+    public void setup() {
+        text = new Fixtures().pullRequests(pullRequests);
+        bytes = text.getBytes(StandardCharsets.UTF_8);
+        value = JSON.parse(text);
+    }
+
+    @Benchmark
+    public JSONValue parseString() {
+        return JSON.parse(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public JSONValue parseBytes() {
+        return JSON.parse(ByteBuffer.wrap(bytes));
+    }
+
+    @Benchmark
+    public String serialize() {
+        return value.toString();
+    }
+}
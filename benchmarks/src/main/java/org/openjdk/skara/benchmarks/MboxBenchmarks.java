@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.benchmarks;
+
+import org.openjdk.skara.email.Email;
+import org.openjdk.skara.mailinglist.Mbox;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Splitting of a large (about 50 MB) mailing list archive into messages, comparing the
+ * streaming splitter with the regular expression based one it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Xss16m"})
+public class MboxBenchmarks {
+    private static final int SIZE = 50 * 1024 * 1024;
+
+    private final static Pattern mboxMessagePattern = Pattern.compile(
+            "^(From (?:.(?!^\\R^From ))*)", Pattern.MULTILINE | Pattern.DOTALL);
+    private final static Pattern fromStringDecodePattern = Pattern.compile("^>(>*From )", Pattern.MULTILINE);
+
+    private String mbox;
+
+    @Setup
+    public void setup() {
+        var fixtures = new Fixtures();
+        var chunk = fixtures.mbox(100, 5);
+        var sb = new StringBuilder(SIZE + chunk.length());
+        while (sb.length() < SIZE) {
+            sb.append(chunk);
+        }
+        mbox = sb.toString();
+    }
+
+    private static List<Email> regexSplit(String mbox) {
+        var messages = mboxMessagePattern.matcher(mbox).results()
+                                         .map(match -> match.group(1))
+                                         .filter(message -> message.length() > 0)
+                                         .map(message -> fromStringDecodePattern.matcher(message).replaceAll("$1"))
+                                         .collect(Collectors.toList());
+
+        var messageBuilder = new StringBuilder();
+        var parsedMails = new ArrayList<Email>();
+        Collections.reverse(messages);
+        for (var message : messages) {
+            messageBuilder.insert(0, message);
+            try {
+                parsedMails.add(Email.parse(messageBuilder.toString()));
+                messageBuilder.setLength(0);
+            } catch (RuntimeException ignored) {
+            }
+        }
+        Collections.reverse(parsedMails);
+        return parsedMails;
+    }
+
+    @Benchmark
+    public List<Email> regex() {
+        return regexSplit(mbox);
+    }
+
+    @Benchmark
+    public List<Email> streaming() {
+        return Mbox.streamMbox(new StringReader(mbox), null).collect(Collectors.toList());
+    }
+}
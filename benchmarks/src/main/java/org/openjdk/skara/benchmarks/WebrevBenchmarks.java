@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.benchmarks;
+
+import org.openjdk.skara.webrev.Webrev;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of a webrev for a change touching many files of a generated repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WebrevBenchmarks {
+    @Param({"20", "100"})
+    int files;
+
+    private Path dir;
+    private Path output;
+    private Fixtures.History history;
+    private int invocation;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("webrev-benchmarks");
+        history = new Fixtures().history(Files.createDirectories(dir.resolve("repo")), files, 200);
+        output = Files.createDirectories(dir.resolve("webrevs"));
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearOutput() throws IOException {
+        Fixtures.delete(output);
+        Files.createDirectories(output);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.delete(dir);
+    }
+
+    @Benchmark
+    public Path generate() throws IOException {
+        var webrev = output.resolve(Integer.toString(invocation++));
+        Webrev.repository(history.repository)
+              .output(webrev)
+              .title("benchmark")
+              .generate(history.base, history.head);
+        return webrev;
+    }
+}
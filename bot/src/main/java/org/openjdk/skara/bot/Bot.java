@@ -31,4 +31,22 @@ public interface Bot {
     default List<WorkItem> processWebHook(JSONValue body) {
         return List.of();
     };
+
+    /**
+     * Whether webhooks deliver every update this bot acts on. While webhooks for such a bot are arriving,
+     * its periodic items are only used for a full reconciliation at a long interval.
+     * @return
+     */
+    default boolean isWebHookDriven() {
+        return false;
+    }
+
+    /**
+     * Whether the given webhook is about something this bot handles, even if it results in no work.
+     * @param body
+     * @return
+     */
+    default boolean isWebHookFor(JSONValue body) {
+        return false;
+    }
 }
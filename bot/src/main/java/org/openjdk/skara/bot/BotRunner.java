@@ -22,15 +22,18 @@
  */
 package org.openjdk.skara.bot;
 
+import org.openjdk.skara.forge.PullRequestUpdateCache;
 import org.openjdk.skara.json.JSONValue;
+import org.openjdk.skara.network.*;
+import org.openjdk.skara.vcs.SharedObjectStore;
 
-import java.io.IOException;
+import java.io.*;
 import java.nio.file.Path;
 import java.time.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.*;
-import java.util.stream.Collectors;
 
 class BotRunnerError extends RuntimeException {
     BotRunnerError(String msg) {
@@ -49,8 +52,23 @@ public class BotRunner {
         END
     }
 
+    private static RateLimiter.Priority requestPriority(WorkItem.Priority priority) {
+        switch (priority) {
+            case INTERACTIVE:
+                return RateLimiter.Priority.INTERACTIVE;
+            case NORMAL:
+                return RateLimiter.Priority.NORMAL;
+            case BACKGROUND:
+                return RateLimiter.Priority.BACKGROUND;
+            default:
+                throw new IllegalArgumentException("Unknown work item priority: " + priority);
+        }
+    }
+
     private class RunnableWorkItem implements Runnable {
         private final WorkItem item;
+        private Path scratchPath;
+        private boolean holdsProcessPermit;
 
         RunnableWorkItem(WorkItem wrappedItem) {
             item = wrappedItem;
@@ -60,93 +78,129 @@ public class BotRunner {
             return item;
         }
 
-        @Override
-        public void run() {
-            Path scratchPath;
-
-            synchronized (executor) {
-                if (scratchPaths.isEmpty()) {
-                    log.finer("No scratch paths available - postponing " + item);
-                    pending.put(item, Optional.empty());
-                    return;
+        /**
+         * Takes the limited resources that the item needs without blocking. Only called while holding the
+         * lock of the waiting queue.
+         * @return false if a resource is not currently available, in which case nothing is held
+         */
+        private boolean reserve() {
+            var resources = item.resources();
+            var needsScratch = resources.contains(WorkItem.Resource.SCRATCH);
+            if (needsScratch && !scratchPermits.tryAcquire()) {
+                log.finer("No scratch path available - " + item + " is waiting");
+                return false;
+            }
+            if (resources.contains(WorkItem.Resource.PROCESS)) {
+                if (!processPermits.tryAcquire()) {
+                    log.finer("No process permit available - " + item + " is waiting");
+                    if (needsScratch) {
+                        scratchPermits.release();
+                    }
+                    return false;
                 }
-                scratchPath = scratchPaths.removeFirst();
+                holdsProcessPermit = true;
+            }
+            if (needsScratch) {
+                scratchPath = scratchPaths.acquire(item.scratchAffinity());
             }
+            return true;
+        }
 
-            log.log(Level.FINE, "Executing item " + item + " on repository " + scratchPath, TaskPhases.BEGIN);
-            try {
-                item.run(scratchPath);
-            } catch (RuntimeException e) {
-                log.severe("Exception during item execution (" + item + "): " + e.getMessage());
-                item.handleRuntimeException(e);
-                log.throwing(item.toString(), "run", e);
-            } finally {
-                log.log(Level.FINE, "Item " + item + " is now done", TaskPhases.END);
+        private void releaseResources() {
+            if (holdsProcessPermit) {
+                processPermits.release();
+                holdsProcessPermit = false;
             }
+            if (scratchPath != null) {
+                scratchPaths.release(scratchPath, item.scratchAffinity());
+                scratchPermits.release();
+                scratchPath = null;
+            }
+        }
 
-            synchronized (executor) {
-                scratchPaths.addLast(scratchPath);
-                active.remove(item);
-
-                // Some of the pending items may now be eligible for execution
-                var candidateItems = pending.entrySet().stream()
-                                            .filter(e -> e.getValue().isEmpty() || !active.containsKey(e.getValue().get()))
-                                            .map(Map.Entry::getKey)
-                                            .collect(Collectors.toList());
-
-                // Try the candidates against the current active set
-                for (var candidate : candidateItems) {
-                    boolean maySubmit = true;
-                    for (var activeItem : active.keySet()) {
-                        if (!activeItem.concurrentWith(candidate)) {
-                            // Still can't run this candidate, leave it pending
-                            log.finer("Cannot submit candidate " + candidate + " - not concurrent with " + activeItem);
-                            maySubmit = false;
-                            break;
-                        }
-                    }
+        private void drop() {
+            log.warning("Dropping " + item + " - runner is shutting down");
+            releaseResources();
+            scheduler.done(item);
+            startWaiting();
+        }
 
-                    if (maySubmit) {
-                        pending.remove(candidate);
-                        executor.submit(new RunnableWorkItem(candidate));
-                        active.put(candidate, Instant.now());
-                        log.finer("Submitting candidate: " + candidate);
-                    }
+        @Override
+        public void run() {
+            try {
+                log.log(Level.FINE, "Executing item " + item + " on repository " + scratchPath, TaskPhases.BEGIN);
+                try {
+                    RateLimiter.setPriority(requestPriority(item.priority()));
+                    item.run(scratchPath);
+                } catch (RuntimeException e) {
+                    log.severe("Exception during item execution (" + item + "): " + e.getMessage());
+                    item.handleRuntimeException(e);
+                    log.throwing(item.toString(), "run", e);
+                } finally {
+                    RateLimiter.setPriority(RateLimiter.Priority.NORMAL);
+                    log.log(Level.FINE, "Item " + item + " is now done", TaskPhases.END);
                 }
+            } finally {
+                releaseResources();
+                scheduler.done(item);
+                startWaiting();
             }
         }
     }
 
-    private final Map<WorkItem, Optional<WorkItem>> pending;
-    private final Map<WorkItem, Instant> active;
-    private final Deque<Path> scratchPaths;
+    // Dispatched items that have not yet been given their resources, in dispatch order - guarded by itself
+    private final Deque<RunnableWorkItem> waiting = new ArrayDeque<>();
 
-    private void submitOrSchedule(WorkItem item) {
-        synchronized (executor) {
-            for (var activeItem : active.keySet()) {
-                if (!activeItem.concurrentWith(item)) {
-
-                    for (var pendingItem : pending.entrySet()) {
-                        // If there are pending items of the same type that we cannot run concurrently with, replace them.
-                        if (pendingItem.getKey().getClass().equals(item.getClass()) && !pendingItem.getKey().concurrentWith(item)) {
-                            log.finer("Discarding obsoleted item " + pendingItem.getKey() +
-                                              " in favor of item " + item);
-                            pending.remove(pendingItem.getKey());
-                            // There can't be more than one
-                            break;
-                        }
-                    }
+    /**
+     * Queues a dispatched item until its resources are available. Items are only handed to the executor
+     * once they hold their resources, so no executor thread is ever blocked waiting for them.
+     */
+    private void admit(RunnableWorkItem runnable) {
+        synchronized (waiting) {
+            waiting.addLast(runnable);
+        }
+        startWaiting();
+    }
 
-                    pending.put(item, Optional.of(activeItem));
-                    return;
+    /**
+     * Starts the waiting items whose resources are available, in dispatch order. An item that cannot get
+     * its resources holds back all later items needing any of the same resources, so that none is starved.
+     */
+    private void startWaiting() {
+        var startable = new ArrayList<RunnableWorkItem>();
+        synchronized (waiting) {
+            var blocked = EnumSet.noneOf(WorkItem.Resource.class);
+            for (var iterator = waiting.iterator(); iterator.hasNext(); ) {
+                var candidate = iterator.next();
+                var resources = candidate.item.resources();
+                if (!Collections.disjoint(blocked, resources) || !candidate.reserve()) {
+                    blocked.addAll(resources);
+                    continue;
                 }
+                iterator.remove();
+                startable.add(candidate);
+            }
+        }
+        for (var runnable : startable) {
+            // The watchdog measures execution time, not time spent waiting for resources
+            scheduler.active().replace(runnable.item, Instant.now());
+            try {
+                itemExecutor.submit(runnable);
+            } catch (RejectedExecutionException e) {
+                runnable.drop();
             }
-
-            executor.submit(new RunnableWorkItem(item));
-            active.put(item, Instant.now());
         }
     }
 
+    private final WorkItemScheduler scheduler;
+    private final ScratchAllocator scratchPaths;
+    private final Semaphore scratchPermits;
+    private final Semaphore processPermits;
+
+    private void submitOrSchedule(WorkItem item) {
+        scheduler.submit(item);
+    }
+
     private void drain(Duration timeout) throws TimeoutException {
         Instant start = Instant.now();
 
@@ -167,13 +221,11 @@ public class BotRunner {
                 }
             }
 
-            synchronized (executor) {
-                if (pending.isEmpty() && active.isEmpty()) {
-                    log.fine("Nothing awaiting scheduling - drain is finished");
-                    return;
-                } else {
-                    log.finest("Waiting for flighted tasks");
-                }
+            if (scheduler.isIdle()) {
+                log.fine("Nothing awaiting scheduling - drain is finished");
+                return;
+            } else {
+                log.finest("Waiting for flighted tasks");
             }
             try {
                 Thread.sleep(1);
@@ -189,29 +241,94 @@ public class BotRunner {
     private final BotRunnerConfiguration config;
     private final List<Bot> bots;
     private final ScheduledThreadPoolExecutor executor;
+    private final ExecutorService itemExecutor;
+    private final Optional<SharedObjectStore> objectStore;
     private final Logger log;
 
+    private volatile WebHookQueue webHookQueue;
+    private Instant lastReconciliation = Instant.EPOCH;
+    private final Map<Bot, Instant> lastWebHook = new ConcurrentHashMap<>();
+
     public BotRunner(BotRunnerConfiguration config, List<Bot> bots) {
         this.config = config;
         this.bots = bots;
 
-        pending = new HashMap<>();
-        active = new HashMap<>();
-        scratchPaths = new LinkedList<>();
-
-        for (int i = 0; i < config.concurrency(); ++i) {
-            var folder = config.scratchFolder().resolve("scratch-" + i);
-            scratchPaths.addLast(folder);
+        var folders = new ArrayList<Path>();
+        for (int i = 0; i < config.scratchLimit(); ++i) {
+            folders.add(config.scratchFolder().resolve("scratch-" + i));
+        }
+        scratchPaths = new ScratchAllocator(folders);
+        scratchPermits = new Semaphore(config.scratchLimit(), true);
+        processPermits = new Semaphore(config.processLimit(), true);
+        if (config.httpLimit() > 0) {
+            HttpClientPool.setMaxRequestsPerHost(config.httpLimit());
         }
+        objectStore = config.objectStoreFolder().map(SharedObjectStore::enable);
+        CensusCache.setCheckInterval(config.censusCheckInterval());
+        config.pullRequestCacheFile().ifPresent(PullRequestUpdateCache::setStorage);
 
         executor = new ScheduledThreadPoolExecutor(config.concurrency());
+        if (config.executionMode() == BotRunnerConfiguration.ExecutionMode.ELASTIC) {
+            itemExecutor = elasticExecutor();
+        } else {
+            itemExecutor = executor;
+        }
+        scheduler = new WorkItemScheduler(item -> admit(new RunnableWorkItem(item)));
         log = Logger.getLogger("org.openjdk.skara.bot");
     }
 
+    /**
+     * Runs each item on a thread of its own. Virtual threads are used when the runtime provides them, as
+     * most items spend their time waiting for remote hosts and processes.
+     */
+    private static ExecutorService elasticExecutor() {
+        try {
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            var count = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                var thread = new Thread(runnable, "botrunner-item-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private boolean reconciliationDue() {
+        var period = config.webHookReconciliationPeriod();
+        if (webHookQueue == null || period.isEmpty()) {
+            return true;
+        }
+        var now = Instant.now();
+        if (now.isBefore(lastReconciliation.plus(period.get()))) {
+            return false;
+        }
+        lastReconciliation = now;
+        return true;
+    }
+
+    /**
+     * Without any recent webhook for a bot they may not be arriving for its repositories at all, so it
+     * is polled as usual.
+     */
+    private boolean receivingWebHooks(Bot bot) {
+        var period = config.webHookReconciliationPeriod();
+        if (period.isEmpty()) {
+            return false;
+        }
+        var last = lastWebHook.getOrDefault(bot, Instant.EPOCH);
+        return Instant.now().isBefore(last.plus(period.get()));
+    }
+
     private void checkPeriodicItems() {
         log.log(Level.FINE, "Starting of checking for periodic items", TaskPhases.BEGIN);
         try {
+            var reconcile = reconciliationDue();
             for (var bot : bots) {
+                if (bot.isWebHookDriven() && !reconcile && receivingWebHooks(bot)) {
+                    continue;
+                }
                 var items = bot.getPeriodicItems();
                 for (var item : items) {
                     submitOrSchedule(item);
@@ -225,17 +342,55 @@ public class BotRunner {
         }
     }
 
+    private void logRateLimits() {
+        for (var entry : RateLimiter.limiters().entrySet()) {
+            var limiter = entry.getValue();
+            if (limiter.limit() < 0) {
+                continue;
+            }
+            log.fine("Request budget for " + entry.getKey() + ": " + limiter.remaining() + "/" + limiter.limit() +
+                             " - waiting: " + limiter.queueDepth() + " - total wait: " + limiter.totalWait());
+        }
+    }
+
     private void watchdog() {
-        synchronized (executor) {
-            for (var activeItem : active.entrySet()) {
-                var activeDuration = Duration.between(activeItem.getValue(), Instant.now());
-                if (activeDuration.compareTo(config.watchdogTimeout()) > 0) {
-                    log.severe("Item " + activeItem.getKey() + " has been active more than " + activeDuration +
-                                       " - this may be an error!");
-                    // Reset the counter to avoid continuous reporting - once every watchdogTimeout is enough
-                    activeItem.setValue(Instant.now());
-                }
+        var waitingItems = new HashSet<WorkItem>();
+        synchronized (waiting) {
+            for (var runnable : waiting) {
+                waitingItems.add(runnable.item);
+            }
+        }
+        if (!waitingItems.isEmpty()) {
+            log.fine("Items waiting for resources: " + waitingItems.size());
+        }
+        for (var activeItem : scheduler.active().entrySet()) {
+            if (waitingItems.contains(activeItem.getKey())) {
+                continue;
             }
+            var activeDuration = Duration.between(activeItem.getValue(), Instant.now());
+            if (activeDuration.compareTo(config.watchdogTimeout()) > 0) {
+                log.severe("Item " + activeItem.getKey() + " has been active more than " + activeDuration +
+                                   " - this may be an error!");
+                // Reset the counter to avoid continuous reporting - once every watchdogTimeout is enough
+                scheduler.active().replace(activeItem.getKey(), activeItem.getValue(), Instant.now());
+            }
+        }
+        logRateLimits();
+        log.fine("Scratch folder affinity: " + scratchPaths.hits() + " hits, " + scratchPaths.misses() + " misses");
+        if (webHookQueue != null) {
+            log.fine("Queued webhooks: " + webHookQueue.size() + " - coalesced: " + webHookQueue.coalesced());
+        }
+    }
+
+    private void maintainObjectStore() {
+        log.log(Level.FINE, "Starting maintenance of the shared object store", TaskPhases.BEGIN);
+        try {
+            objectStore.get().maintain(config.objectStorePruneAge());
+        } catch (IOException | RuntimeException e) {
+            log.severe("Exception during object store maintenance: " + e.getMessage());
+            log.throwing("BotRunner", "maintainObjectStore", e);
+        } finally {
+            log.log(Level.FINE, "Done maintaining the shared object store", TaskPhases.END);
         }
     }
 
@@ -244,6 +399,9 @@ public class BotRunner {
         log.fine("Request: " + request);
         try {
             for (var bot : bots) {
+                if (bot.isWebHookFor(request)) {
+                    lastWebHook.put(bot, Instant.now());
+                }
                 var items = bot.processWebHook(request);
                 for (var item : items) {
                     submitOrSchedule(item);
@@ -257,20 +415,31 @@ public class BotRunner {
         }
     }
 
+    private void processWebHooks() {
+        for (var event : webHookQueue.ready(Instant.now())) {
+            processRestRequest(event.body());
+            webHookQueue.done(event);
+        }
+    }
+
     public void run() {
         run(Duration.ofDays(10 * 365));
     }
 
     public void run(Duration timeout) {
         log.info("Periodic task interval: " + config.scheduledExecutionPeriod());
-        log.info("Concurrency: " + config.concurrency());
+        log.info("Concurrency: " + config.concurrency() + " (" + config.executionMode() + ")");
+        log.info("Limits: scratch " + config.scratchLimit() + ", process " + config.processLimit() +
+                         ", http " + (config.httpLimit() > 0 ? config.httpLimit() : "unlimited"));
 
         RestReceiver restReceiver = null;
         if (config.restReceiverPort().isPresent()) {
             log.info("Listening for webhooks on port: " + config.restReceiverPort().get());
             try {
-                restReceiver = new RestReceiver(config.restReceiverPort().get(), this::processRestRequest);
-            } catch (IOException e) {
+                var queue = new WebHookQueue(config.webHookDebounce(), config.webHookQueueFolder().orElse(null));
+                restReceiver = new RestReceiver(config.restReceiverPort().get(), queue::offer);
+                webHookQueue = queue;
+            } catch (IOException | UncheckedIOException e) {
                 log.warning("Failed to create RestReceiver");
                 log.throwing("BotRunner", "run", e);
             }
@@ -280,6 +449,14 @@ public class BotRunner {
                                      config.scheduledExecutionPeriod().toMillis(), TimeUnit.MILLISECONDS);
         executor.scheduleAtFixedRate(this::checkPeriodicItems, 0,
                                      config.scheduledExecutionPeriod().toMillis(), TimeUnit.MILLISECONDS);
+        if (webHookQueue != null) {
+            var period = Math.max(100, config.webHookDebounce().toMillis() / 2);
+            executor.scheduleAtFixedRate(this::processWebHooks, period, period, TimeUnit.MILLISECONDS);
+        }
+        if (objectStore.isPresent()) {
+            var period = config.objectStoreMaintenancePeriod().toMillis();
+            executor.scheduleAtFixedRate(this::maintainObjectStore, period, period, TimeUnit.MILLISECONDS);
+        }
 
         try {
             executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
@@ -291,12 +468,15 @@ public class BotRunner {
             restReceiver.close();
         }
         executor.shutdown();
+        itemExecutor.shutdown();
     }
 
     public void runOnce(Duration timeout) throws TimeoutException {
         log.info("Starting BotRunner execution, will run once");
         log.info("Timeout: " + timeout);
-        log.info("Concurrency: " + config.concurrency());
+        log.info("Concurrency: " + config.concurrency() + " (" + config.executionMode() + ")");
+        log.info("Limits: scratch " + config.scratchLimit() + ", process " + config.processLimit() +
+                         ", http " + (config.httpLimit() > 0 ? config.httpLimit() : "unlimited"));
 
         var periodics = executor.submit(this::checkPeriodicItems);
         try {
@@ -313,5 +493,6 @@ public class BotRunner {
 
         log.fine("Done waiting for all tasks");
         executor.shutdown();
+        itemExecutor.shutdown();
     }
 }
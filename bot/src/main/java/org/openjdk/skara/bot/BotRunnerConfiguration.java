@@ -39,12 +39,24 @@ import java.util.*;
 import java.util.logging.Logger;
 
 public class BotRunnerConfiguration {
+    enum ExecutionMode {
+        /**
+         * WorkItems run on a fixed number of threads.
+         */
+        POOLED,
+        /**
+         * Each WorkItem runs on its own thread, concurrency is only bounded by the resource limits.
+         */
+        ELASTIC
+    }
+
     private final Logger log;
     private final JSONObject config;
     private final Map<String, Forge> repositoryHosts;
     private final Map<String, IssueTracker> issueHosts;
     private final Map<String, ContinuousIntegration> continuousIntegrations;
     private final Map<String, HostedRepository> repositories;
+    private final ExecutionMode executionMode;
 
     private BotRunnerConfiguration(JSONObject config, Path cwd) throws ConfigurationError {
         this.config = config;
@@ -54,6 +66,7 @@ public class BotRunnerConfiguration {
         issueHosts = parseIssueHosts(config, cwd);
         continuousIntegrations = parseContinuousIntegrations(config, cwd);
         repositories = parseRepositories(config);
+        executionMode = parseExecutionMode(config);
     }
 
     private Map<String, Forge> parseRepositoryHosts(JSONObject config, Path cwd) throws ConfigurationError {
@@ -328,6 +341,58 @@ public class BotRunnerConfiguration {
         }
     }
 
+    private ExecutionMode parseExecutionMode(JSONObject config) throws ConfigurationError {
+        if (!config.contains("runner") || !config.get("runner").contains("mode")) {
+            return ExecutionMode.POOLED;
+        }
+        var mode = config.get("runner").get("mode").asString();
+        try {
+            return ExecutionMode.valueOf(mode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationError("Unknown runner mode: " + mode);
+        }
+    }
+
+    /**
+     * How WorkItems are mapped to threads.
+     * @return
+     */
+    ExecutionMode executionMode() {
+        return executionMode;
+    }
+
+    private Optional<Integer> limit(String resource) {
+        if (!config.contains("runner") || !config.get("runner").contains("limits") ||
+                !config.get("runner").get("limits").contains(resource)) {
+            return Optional.empty();
+        }
+        return Optional.of(config.get("runner").get("limits").get(resource).asInt());
+    }
+
+    /**
+     * Number of scratch folders, and thereby WorkItems requiring one that may run in parallel.
+     * @return
+     */
+    Integer scratchLimit() {
+        return limit("scratch").orElseGet(this::concurrency);
+    }
+
+    /**
+     * Number of WorkItems that may spawn processes in parallel.
+     * @return
+     */
+    Integer processLimit() {
+        return limit("process").orElseGet(this::concurrency);
+    }
+
+    /**
+     * Number of requests that may be in flight to a single remote host, zero meaning no limit.
+     * @return
+     */
+    Integer httpLimit() {
+        return limit("http").orElse(0);
+    }
+
     /**
      * Folder that WorkItems may use to store temporary data.
      * @return
@@ -344,6 +409,61 @@ public class BotRunnerConfiguration {
         return Paths.get(config.get("scratch").get("path").asString());
     }
 
+    /**
+     * Folder holding the shared git object store, if one should be used.
+     * @return
+     */
+    Optional<Path> objectStoreFolder() {
+        if (!config.contains("objectstore") || !config.get("objectstore").contains("path")) {
+            return Optional.empty();
+        }
+        return Optional.of(Paths.get(config.get("objectstore").get("path").asString()));
+    }
+
+    /**
+     * How long objects that are no longer referenced are kept in the shared object store.
+     * @return
+     */
+    Duration objectStorePruneAge() {
+        if (!config.contains("objectstore") || !config.get("objectstore").contains("prune")) {
+            return Duration.ofDays(14);
+        }
+        return Duration.parse(config.get("objectstore").get("prune").asString());
+    }
+
+    /**
+     * The amount of time between each garbage collection of the shared object store.
+     * @return
+     */
+    Duration objectStoreMaintenancePeriod() {
+        if (!config.contains("objectstore") || !config.get("objectstore").contains("interval")) {
+            return Duration.ofDays(1);
+        }
+        return Duration.parse(config.get("objectstore").get("interval").asString());
+    }
+
+    /**
+     * File where pull request fingerprints are kept between restarts.
+     * @return
+     */
+    Optional<Path> pullRequestCacheFile() {
+        if (!config.contains("storage") || !config.get("storage").contains("path")) {
+            return Optional.empty();
+        }
+        return Optional.of(Paths.get(config.get("storage").get("path").asString()).resolve("pullrequests.cache"));
+    }
+
+    /**
+     * How long a cached census snapshot is used before checking the census repository for updates.
+     * @return
+     */
+    Duration censusCheckInterval() {
+        if (!config.contains("census") || !config.get("census").contains("interval")) {
+            return Duration.ofSeconds(30);
+        }
+        return Duration.parse(config.get("census").get("interval").asString());
+    }
+
     Optional<Integer> restReceiverPort() {
         if (!config.contains("webhooks")) {
             return Optional.empty();
@@ -351,6 +471,39 @@ public class BotRunnerConfiguration {
         return Optional.of(config.get("webhooks").get("port").asInt());
     }
 
+    /**
+     * How long to wait for further webhooks concerning the same pull request before processing one.
+     * @return
+     */
+    Duration webHookDebounce() {
+        if (!config.contains("webhooks") || !config.get("webhooks").contains("debounce")) {
+            return Duration.ofSeconds(5);
+        }
+        return Duration.parse(config.get("webhooks").get("debounce").asString());
+    }
+
+    /**
+     * Folder where received webhooks are kept until they have been processed.
+     * @return
+     */
+    Optional<Path> webHookQueueFolder() {
+        if (!config.contains("webhooks") || !config.get("webhooks").contains("queue")) {
+            return Optional.empty();
+        }
+        return Optional.of(Path.of(config.get("webhooks").get("queue").asString()));
+    }
+
+    /**
+     * How often bots driven by webhooks perform a full scan while webhooks are being received.
+     * @return
+     */
+    Optional<Duration> webHookReconciliationPeriod() {
+        if (!config.contains("webhooks") || !config.get("webhooks").contains("reconcile")) {
+            return Optional.empty();
+        }
+        return Optional.of(Duration.parse(config.get("webhooks").get("reconcile").asString()));
+    }
+
     Duration watchdogTimeout() {
         if (!config.contains("runner") || !config.get("runner").contains("watchdog")) {
             log.info("No WorkItem watchdog timeout defined, using default value");
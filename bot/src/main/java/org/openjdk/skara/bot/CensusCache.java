@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.bot;
+
+import org.openjdk.skara.census.*;
+import org.openjdk.skara.forge.HostedRepository;
+import org.openjdk.skara.vcs.*;
+
+import java.io.*;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide cache of parsed census snapshots. All bots reading the same census
+ * repository and ref share one snapshot, which is only re-parsed when the census
+ * branch has moved, and then only for the files that actually changed.
+ */
+public class CensusCache {
+    private static final Logger log = Logger.getLogger("org.openjdk.skara.bot");
+    private static final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private static volatile Duration checkInterval = Duration.ZERO;
+
+    private static class Entry {
+        private final CensusLoader loader = new CensusLoader();
+        private Hash hash;
+        private Census census;
+        private Instant lastCheck = Instant.EPOCH;
+    }
+
+    private CensusCache() {
+    }
+
+    /**
+     * Sets how long a snapshot is handed out before the census branch is checked for updates again.
+     * Defaults to zero, meaning that the (cheap) branch hash comparison is done on every call.
+     * @param interval
+     */
+    public static void setCheckInterval(Duration interval) {
+        checkInterval = interval;
+    }
+
+    private static Repository initialize(HostedRepository repo, String ref, Path folder) {
+        try {
+            return Repository.materialize(folder, repo.url(), "+" + ref + ":census_" + repo.name());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to retrieve census to " + folder, e);
+        }
+    }
+
+    private static Hash update(HostedRepository censusRepo, String ref, Path repoFolder) {
+        try {
+            var localRepo = Repository.get(repoFolder)
+                                      .or(() -> Optional.of(initialize(censusRepo, ref, repoFolder)))
+                                      .orElseThrow();
+            var hash = localRepo.fetch(censusRepo.url(), ref);
+            localRepo.checkout(hash, true);
+            return hash;
+        } catch (IOException e) {
+            var localRepo = initialize(censusRepo, ref, repoFolder);
+            try {
+                return localRepo.head();
+            } catch (IOException e1) {
+                throw new UncheckedIOException(e1);
+            }
+        }
+    }
+
+    /**
+     * Returns the census snapshot for the given repository and ref. The returned census
+     * must be treated as immutable, as it is shared between all callers.
+     * @param censusRepo
+     * @param ref
+     * @param folder folder in which the census repository is checked out when it needs updating
+     * @return
+     */
+    public static Census census(HostedRepository censusRepo, String ref, Path folder) {
+        // The url may contain credentials that change over time, the web url identifies the repository
+        var entry = entries.computeIfAbsent(censusRepo.webUrl() + "#" + ref, key -> new Entry());
+        synchronized (entry) {
+            var now = Instant.now();
+            if (entry.census != null && now.isBefore(entry.lastCheck.plus(checkInterval))) {
+                return entry.census;
+            }
+            if (entry.census != null) {
+                try {
+                    var remoteHash = censusRepo.branchHash(ref);
+                    if (remoteHash.equals(entry.hash)) {
+                        entry.lastCheck = now;
+                        return entry.census;
+                    }
+                } catch (RuntimeException e) {
+                    log.fine("Unable to check census branch " + ref + " for updates: " + e.getMessage());
+                }
+            }
+
+            var repoName = censusRepo.url().getHost() + "/" + censusRepo.name();
+            var repoFolder = folder.resolve(URLEncoder.encode(repoName, StandardCharsets.UTF_8));
+            var hash = update(censusRepo, ref, repoFolder);
+            if (entry.census == null || !hash.equals(entry.hash)) {
+                try {
+                    entry.census = entry.loader.load(repoFolder);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot parse census at " + repoFolder, e);
+                }
+                entry.hash = hash;
+                log.fine("Loaded census at " + hash.hex() + " (" + entry.loader.parsedFiles() + " files parsed, " +
+                         entry.loader.reusedFiles() + " reused)");
+            }
+            entry.lastCheck = now;
+            return entry.census;
+        }
+    }
+}
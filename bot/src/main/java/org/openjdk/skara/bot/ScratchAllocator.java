@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.bot;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Hands out scratch folders, preferring a free folder that was last used for the same affinity so that
+ * local clones and other materialized state can be reused. Otherwise an unused folder, or the least
+ * recently used one, is picked.
+ */
+class ScratchAllocator {
+    private static class Slot {
+        private final Path path;
+        private String affinity;
+        private long lastUsed;
+        private boolean inUse;
+
+        Slot(Path path) {
+            this.path = path;
+        }
+    }
+
+    private final Map<Path, Slot> slots = new LinkedHashMap<>();
+    private long useCount = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    ScratchAllocator(List<Path> paths) {
+        for (var path : paths) {
+            slots.put(path, new Slot(path));
+        }
+    }
+
+    /**
+     * Returns a free scratch folder. The caller must make sure that one is available.
+     * @param affinity what the caller would like the folder to already contain, if anything
+     * @return a folder that is now in use
+     */
+    synchronized Path acquire(Optional<String> affinity) {
+        Slot victim = null;
+        for (var slot : slots.values()) {
+            if (slot.inUse) {
+                continue;
+            }
+            if (affinity.isPresent() && affinity.get().equals(slot.affinity)) {
+                hits++;
+                return use(slot);
+            }
+            if (victim == null || isBetterVictim(slot, victim)) {
+                victim = slot;
+            }
+        }
+        if (victim == null) {
+            throw new IllegalStateException("No scratch folder available");
+        }
+        if (affinity.isPresent()) {
+            misses++;
+        }
+        return use(victim);
+    }
+
+    private static boolean isBetterVictim(Slot candidate, Slot current) {
+        // Folders without any known contents are the cheapest to take over
+        if ((candidate.affinity == null) != (current.affinity == null)) {
+            return candidate.affinity == null;
+        }
+        return candidate.lastUsed < current.lastUsed;
+    }
+
+    private Path use(Slot slot) {
+        slot.inUse = true;
+        slot.lastUsed = ++useCount;
+        return slot.path;
+    }
+
+    /**
+     * Returns a scratch folder, recording what it now contains.
+     * @param path a folder previously returned by acquire
+     * @param affinity what the folder now contains; if empty, the folder keeps its previous affinity
+     */
+    synchronized void release(Path path, Optional<String> affinity) {
+        var slot = slots.get(path);
+        slot.inUse = false;
+        if (affinity.isPresent()) {
+            slot.affinity = affinity.get();
+        }
+    }
+
+    /**
+     * Number of times a folder last used for the requested affinity could be reused.
+     * @return the number of hits
+     */
+    synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Number of times an affinity was requested but no matching folder was free.
+     * @return the number of misses
+     */
+    synchronized long misses() {
+        return misses;
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.bot;
+
+import org.openjdk.skara.json.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Queue of incoming webhooks waiting to be handed to the bots. Webhooks concerning the same
+ * pull request are coalesced into the most recent one, and a webhook is only released once
+ * no newer webhook for the same pull request has arrived for the debounce period. If a folder
+ * is given, queued webhooks are also kept on disk until they have been processed, so that they
+ * survive a restart.
+ */
+class WebHookQueue {
+    private final Duration debounce;
+    private final Duration maxDelay;
+    private final Path folder;
+    private final Map<String, Event> pending = new LinkedHashMap<>();
+    private final Logger log = Logger.getLogger("org.openjdk.skara.bot");
+    private long coalesced = 0;
+
+    static class Event {
+        private final String key;
+        private final JSONValue body;
+        private final Instant first;
+        private final Instant last;
+
+        private Event(String key, JSONValue body, Instant first, Instant last) {
+            this.key = key;
+            this.body = body;
+            this.first = first;
+            this.last = last;
+        }
+
+        JSONValue body() {
+            return body;
+        }
+    }
+
+    WebHookQueue(Duration debounce, Path folder) {
+        this.debounce = debounce;
+        this.maxDelay = debounce.multipliedBy(10);
+        this.folder = folder;
+
+        if (folder != null) {
+            load();
+        }
+    }
+
+    private static Optional<String> number(JSONValue body, String object, String field) {
+        if (!body.contains(object) || !body.get(object).isObject() || !body.get(object).contains(field)) {
+            return Optional.empty();
+        }
+        var value = body.get(object).get(field);
+        return Optional.of(value.isInt() ? Integer.toString(value.asInt()) : value.toString());
+    }
+
+    /**
+     * The pull request a webhook concerns, in the payload formats of GitLab and GitHub.
+     * @param body
+     * @return
+     */
+    static Optional<String> key(JSONValue body) {
+        if (!body.isObject()) {
+            return Optional.empty();
+        }
+        if (body.contains("project") && body.get("project").isObject() && body.get("project").contains("path_with_namespace")) {
+            var project = body.get("project").get("path_with_namespace").asString();
+            return number(body, "merge_request", "iid")
+                    .or(() -> number(body, "object_attributes", "iid")
+                            .filter(iid -> body.contains("object_kind") && body.get("object_kind").asString().equals("merge_request")))
+                    .map(iid -> project + "#" + iid);
+        }
+        if (body.contains("repository") && body.get("repository").isObject() && body.get("repository").contains("full_name")) {
+            var repository = body.get("repository").get("full_name").asString();
+            return number(body, "pull_request", "number")
+                    .or(() -> number(body, "issue", "number"))
+                    .map(number -> repository + "#" + number);
+        }
+        return Optional.empty();
+    }
+
+    private Path file(String key) {
+        return folder.resolve(URLEncoder.encode(key, StandardCharsets.UTF_8) + ".json");
+    }
+
+    private void load() {
+        try {
+            Files.createDirectories(folder);
+            try (var files = Files.list(folder)) {
+                var now = Instant.now();
+                files.filter(file -> file.getFileName().toString().endsWith(".json"))
+                     .sorted()
+                     .forEach(file -> {
+                         try {
+                             var body = JSON.parse(Files.readString(file, StandardCharsets.UTF_8));
+                             var name = file.getFileName().toString();
+                             var key = URLDecoder.decode(name.substring(0, name.length() - 5), StandardCharsets.UTF_8);
+                             // Already waited long enough before the restart
+                             var restored = now.minus(maxDelay);
+                             pending.put(key, new Event(key, body, restored, restored));
+                         } catch (IOException | RuntimeException e) {
+                             log.warning("Dropping unreadable queued webhook " + file + ": " + e.getMessage());
+                             try {
+                                 Files.deleteIfExists(file);
+                             } catch (IOException ignored) {
+                             }
+                         }
+                     });
+            }
+            if (!pending.isEmpty()) {
+                log.info("Restored " + pending.size() + " queued webhooks");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void store(Event event) {
+        if (folder == null) {
+            return;
+        }
+        try {
+            var file = file(event.key);
+            var tmpFile = folder.resolve(file.getFileName() + ".tmp");
+            Files.writeString(tmpFile, event.body.toString(), StandardCharsets.UTF_8);
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warning("Failed to persist webhook " + event.key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Add an incoming webhook, replacing any queued webhook for the same pull request.
+     * @param body
+     */
+    synchronized void offer(JSONValue body) {
+        var now = Instant.now();
+        var key = key(body).orElse("event-" + UUID.randomUUID());
+        var existing = pending.remove(key);
+        if (existing != null) {
+            coalesced++;
+        }
+        var event = new Event(key, body, existing != null ? existing.first : now, now);
+        pending.put(key, event);
+        store(event);
+    }
+
+    /**
+     * Remove and return all webhooks that are ready to be processed. The returned events must be
+     * handed back to done() once processed.
+     * @param now
+     * @return
+     */
+    synchronized List<Event> ready(Instant now) {
+        var ret = new ArrayList<Event>();
+        var iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+            var event = iterator.next();
+            if (!now.isBefore(event.last.plus(debounce)) || !now.isBefore(event.first.plus(maxDelay))) {
+                ret.add(event);
+                iterator.remove();
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Mark a webhook as processed, removing it from permanent storage unless a newer webhook for
+     * the same pull request has been queued in the meantime.
+     * @param event
+     */
+    synchronized void done(Event event) {
+        if (folder == null || pending.containsKey(event.key)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file(event.key));
+        } catch (IOException e) {
+            log.warning("Failed to remove processed webhook " + event.key + ": " + e.getMessage());
+        }
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+
+    synchronized long coalesced() {
+        return coalesced;
+    }
+}
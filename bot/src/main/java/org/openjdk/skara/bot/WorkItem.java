@@ -23,8 +23,31 @@
 package org.openjdk.skara.bot;
 
 import java.nio.file.Path;
+import java.util.*;
 
 public interface WorkItem {
+    enum Priority {
+        /**
+         * Work triggered directly by a user, which should be processed as soon as possible.
+         */
+        INTERACTIVE,
+        NORMAL,
+        /**
+         * Housekeeping work that can be delayed when resources are scarce.
+         */
+        BACKGROUND
+    }
+
+    enum Resource {
+        /**
+         * A private scratch folder, typically used for local repositories.
+         */
+        SCRATCH,
+        /**
+         * Permission to spawn external processes, such as git.
+         */
+        PROCESS
+    }
 
     /**
      * Return true if this item can run concurrently with <code>other</code>, otherwise false.
@@ -33,12 +56,49 @@ public interface WorkItem {
      */
     boolean concurrentWith(WorkItem other);
 
+    /**
+     * An optional key describing the resource this item operates on, such as a repository and pull request id.
+     * Items with the same key are never run concurrently, and items with different keys are always considered
+     * concurrent with each other. Items without a key are scheduled using <code>concurrentWith</code>.
+     * @return
+     */
+    default Optional<String> conflictKey() {
+        return Optional.empty();
+    }
+
     /**
      * Execute the appropriate tasks with the provided scratch folder.
-     * @param scratchPath
+     * @param scratchPath null unless the item requires the <code>SCRATCH</code> resource
      */
     void run(Path scratchPath);
 
+    /**
+     * Items with the same affinity, such as the url of the repository they materialize, are preferably given
+     * the same scratch folder, so that they can reuse what was left there by earlier items.
+     * @return
+     */
+    default Optional<String> scratchAffinity() {
+        return Optional.empty();
+    }
+
+    /**
+     * The limited resources this item needs while running. Items that only talk to remote hosts should
+     * return an empty set, so that they are never held up by items waiting for scratch folders or processes.
+     * @return
+     */
+    default Set<Resource> resources() {
+        return EnumSet.allOf(Resource.class);
+    }
+
+    /**
+     * The priority of this item when competing with other items for limited resources, such as the
+     * request budget of a remote host.
+     * @return
+     */
+    default Priority priority() {
+        return Priority.NORMAL;
+    }
+
     /**
      * The BotRunner will catch <code>RuntimeException</code>s, implementing this method allows a WorkItem to
      * perform additional cleanup if necessary (avoiding the need for catching and rethrowing the exception).
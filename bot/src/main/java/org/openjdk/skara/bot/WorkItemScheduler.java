@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.bot;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Decides when work items may be dispatched. Items declaring a conflict key are tracked in a per-key slot,
+ * making submission and completion independent of the number of other pending and active items. Items
+ * without a key fall back to pairwise <code>concurrentWith</code> checks against all active items.
+ */
+class WorkItemScheduler {
+    private static class Slot {
+        private WorkItem active;
+        private final Map<Class<?>, WorkItem> pending = new LinkedHashMap<>();
+        private boolean retired;
+    }
+
+    private final Consumer<WorkItem> dispatcher;
+    private final Logger log = Logger.getLogger("org.openjdk.skara.bot");
+
+    // Keyed items hold the read lock (and the monitor of their slot), keyless items the write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<WorkItem, Instant> active = new ConcurrentHashMap<>();
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final Set<String> blockedByFallback = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger keyedPending = new AtomicInteger();
+
+    // Only accessed while holding the write lock, or read while holding the read lock
+    private final Set<WorkItem> fallbackActive = new LinkedHashSet<>();
+    private final Map<WorkItem, Optional<WorkItem>> fallbackPending = new LinkedHashMap<>();
+    private final AtomicInteger fallbackPendingCount = new AtomicInteger();
+
+    WorkItemScheduler(Consumer<WorkItem> dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Dispatch the item if nothing conflicting is active, otherwise keep it pending. A pending item of the
+     * same type that conflicts with the new item is considered obsolete and is discarded.
+     * @param item
+     */
+    void submit(WorkItem item) {
+        var key = item.conflictKey();
+        if (key.isPresent()) {
+            lock.readLock().lock();
+            try {
+                submitKeyed(key.get(), item);
+            } finally {
+                lock.readLock().unlock();
+            }
+        } else {
+            lock.writeLock().lock();
+            try {
+                submitFallback(item);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Mark a previously dispatched item as done, dispatching any pending items it was blocking.
+     * @param item
+     */
+    void done(WorkItem item) {
+        var key = item.conflictKey();
+        if (key.isPresent()) {
+            lock.readLock().lock();
+            try {
+                var slot = slots.get(key.get());
+                synchronized (slot) {
+                    slot.active = null;
+                    active.remove(item);
+                    promote(key.get(), slot);
+                    retireIfIdle(key.get(), slot);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (fallbackPendingCount.get() == 0) {
+                return;
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (key.isEmpty()) {
+                fallbackActive.remove(item);
+                active.remove(item);
+            }
+            promoteFallback();
+            if (key.isEmpty()) {
+                for (var blockedKey : new ArrayList<>(blockedByFallback)) {
+                    var slot = slots.get(blockedKey);
+                    blockedByFallback.remove(blockedKey);
+                    if (slot != null) {
+                        synchronized (slot) {
+                            promote(blockedKey, slot);
+                            retireIfIdle(blockedKey, slot);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The currently dispatched items along with the time they were dispatched.
+     * @return
+     */
+    Map<WorkItem, Instant> active() {
+        return active;
+    }
+
+    boolean isIdle() {
+        return keyedPending.get() == 0 && fallbackPendingCount.get() == 0 && active.isEmpty();
+    }
+
+    private void dispatch(WorkItem item) {
+        active.put(item, Instant.now());
+        dispatcher.accept(item);
+    }
+
+    private Optional<WorkItem> fallbackConflict(WorkItem item) {
+        for (var activeItem : fallbackActive) {
+            if (!activeItem.concurrentWith(item)) {
+                return Optional.of(activeItem);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void submitKeyed(String key, WorkItem item) {
+        while (true) {
+            var slot = slots.computeIfAbsent(key, k -> new Slot());
+            synchronized (slot) {
+                if (slot.retired) {
+                    continue;
+                }
+                if (slot.active == null && slot.pending.isEmpty()) {
+                    var conflict = fallbackConflict(item);
+                    if (conflict.isEmpty()) {
+                        slot.active = item;
+                        dispatch(item);
+                        return;
+                    }
+                    log.finer("Cannot submit " + item + " - not concurrent with " + conflict.get());
+                    blockedByFallback.add(key);
+                }
+                var obsolete = slot.pending.put(item.getClass(), item);
+                if (obsolete != null) {
+                    log.finer("Discarding obsoleted item " + obsolete + " in favor of item " + item);
+                } else {
+                    keyedPending.incrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    private void promote(String key, Slot slot) {
+        if (slot.active != null) {
+            return;
+        }
+        for (var pendingItem : slot.pending.values()) {
+            var conflict = fallbackConflict(pendingItem);
+            if (conflict.isEmpty()) {
+                slot.pending.remove(pendingItem.getClass());
+                slot.active = pendingItem;
+                dispatch(pendingItem);
+                keyedPending.decrementAndGet();
+                log.finer("Submitting candidate: " + pendingItem);
+                return;
+            }
+            log.finer("Cannot submit candidate " + pendingItem + " - not concurrent with " + conflict.get());
+        }
+        if (!slot.pending.isEmpty()) {
+            blockedByFallback.add(key);
+        }
+    }
+
+    private void retireIfIdle(String key, Slot slot) {
+        if (slot.active == null && slot.pending.isEmpty()) {
+            slot.retired = true;
+            slots.remove(key, slot);
+        }
+    }
+
+    private void submitFallback(WorkItem item) {
+        for (var activeItem : active.keySet()) {
+            if (!activeItem.concurrentWith(item)) {
+                for (var pendingItem : fallbackPending.keySet()) {
+                    // If there are pending items of the same type that we cannot run concurrently with, replace them.
+                    if (pendingItem.getClass().equals(item.getClass()) && !pendingItem.concurrentWith(item)) {
+                        log.finer("Discarding obsoleted item " + pendingItem + " in favor of item " + item);
+                        fallbackPending.remove(pendingItem);
+                        fallbackPendingCount.decrementAndGet();
+                        // There can't be more than one
+                        break;
+                    }
+                }
+
+                fallbackPending.put(item, Optional.of(activeItem));
+                fallbackPendingCount.incrementAndGet();
+                return;
+            }
+        }
+
+        fallbackActive.add(item);
+        dispatch(item);
+    }
+
+    private void promoteFallback() {
+        if (fallbackPending.isEmpty()) {
+            return;
+        }
+
+        // Some of the pending items may now be eligible for execution
+        var candidateItems = fallbackPending.entrySet().stream()
+                                            .filter(e -> e.getValue().isEmpty() || !active.containsKey(e.getValue().get()))
+                                            .map(Map.Entry::getKey)
+                                            .collect(Collectors.toList());
+
+        // Try the candidates against the current active set
+        for (var candidate : candidateItems) {
+            Optional<WorkItem> blocker = Optional.empty();
+            for (var activeItem : active.keySet()) {
+                if (!activeItem.concurrentWith(candidate)) {
+                    blocker = Optional.of(activeItem);
+                    break;
+                }
+            }
+
+            if (blocker.isPresent()) {
+                // Still can't run this candidate, leave it pending
+                log.finer("Cannot submit candidate " + candidate + " - not concurrent with " + blocker.get());
+                fallbackPending.put(candidate, blocker);
+            } else {
+                fallbackPending.remove(candidate);
+                fallbackActive.add(candidate);
+                dispatch(candidate);
+                fallbackPendingCount.decrementAndGet();
+                log.finer("Submitting candidate: " + candidate);
+            }
+        }
+    }
+}
@@ -79,6 +79,43 @@ class TestWorkItemChild extends TestWorkItem {
     }
 }
 
+class TestKeyedWorkItem extends TestWorkItem {
+    private final String key;
+
+    TestKeyedWorkItem(String key, String description) {
+        super(i -> false, description);
+        this.key = key;
+    }
+
+    @Override
+    public Optional<String> conflictKey() {
+        return Optional.of(key);
+    }
+}
+
+class TestResourceWorkItem extends TestWorkItem {
+    private final Set<Resource> resources;
+    private final Runnable runnable;
+
+    TestResourceWorkItem(Set<Resource> resources, Runnable runnable, String description) {
+        super(i -> true, description);
+        this.resources = resources;
+        this.runnable = runnable;
+    }
+
+    @Override
+    public Set<Resource> resources() {
+        return resources;
+    }
+
+    @Override
+    public void run(Path scratchPath) {
+        assertEquals(resources.contains(Resource.SCRATCH), scratchPath != null);
+        runnable.run();
+        super.run(scratchPath);
+    }
+}
+
 class TestBlockedWorkItem implements WorkItem {
     private final CountDownLatch countDownLatch;
 
@@ -275,6 +312,74 @@ class BotRunnerTests {
         assertTrue(item7.hasRun);
     }
 
+    @Test
+    void keyedItems() throws TimeoutException {
+        var item1 = new TestKeyedWorkItem("a", "Item 1");
+        var item2 = new TestKeyedWorkItem("a", "Item 2");
+        var item3 = new TestKeyedWorkItem("a", "Item 3");
+        var item4 = new TestKeyedWorkItem("b", "Item 4");
+        var item5 = new TestKeyedWorkItem("c", "Item 5");
+        var bot = new TestBot(item1, item2, item3, item4, item5);
+        var runner = new BotRunner(config(), List.of(bot));
+
+        runner.runOnce(Duration.ofSeconds(10));
+
+        assertTrue(item1.hasRun);
+        assertTrue(item3.hasRun);
+        assertTrue(item4.hasRun);
+        assertTrue(item5.hasRun);
+    }
+
+    @Test
+    void elasticResourceFreeItemsAreNotBlocked() throws TimeoutException {
+        var released = new CountDownLatch(1);
+        var waited = new ArrayList<Boolean>();
+        var item1 = new TestResourceWorkItem(EnumSet.allOf(WorkItem.Resource.class), () -> {
+            try {
+                waited.add(released.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }, "Item 1");
+        var item2 = new TestResourceWorkItem(EnumSet.of(WorkItem.Resource.SCRATCH), () -> {}, "Item 2");
+        var item3 = new TestResourceWorkItem(Set.of(), released::countDown, "Item 3");
+        var bot = new TestBot(item1, item2, item3);
+        var runner = new BotRunner(config("{ \"runner\": { \"mode\": \"elastic\", \"limits\": { \"scratch\": 1 } } }"), List.of(bot));
+
+        runner.runOnce(Duration.ofSeconds(20));
+
+        assertTrue(item1.hasRun);
+        assertTrue(item2.hasRun);
+        assertTrue(item3.hasRun);
+        assertEquals(List.of(true), waited);
+    }
+
+    @Test
+    void pooledWaitingItemsDoNotOccupyThreads() throws TimeoutException {
+        var released = new CountDownLatch(1);
+        var order = Collections.synchronizedList(new ArrayList<String>());
+        var item1 = new TestResourceWorkItem(EnumSet.of(WorkItem.Resource.SCRATCH), () -> {
+            try {
+                assertTrue(released.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            order.add("Item 1");
+        }, "Item 1");
+        var item2 = new TestResourceWorkItem(EnumSet.of(WorkItem.Resource.SCRATCH), () -> order.add("Item 2"), "Item 2");
+        var item3 = new TestResourceWorkItem(Set.of(), () -> {
+            order.add("Item 3");
+            released.countDown();
+        }, "Item 3");
+        var bot = new TestBot(item1, item2, item3);
+        var runner = new BotRunner(config("{ \"runner\": { \"concurrency\": 2, \"limits\": { \"scratch\": 1 } } }"), List.of(bot));
+
+        runner.runOnce(Duration.ofSeconds(20));
+
+        // Item 2 waits for the scratch folder without taking the thread that item 3 needs
+        assertEquals(List.of("Item 3", "Item 1", "Item 2"), order);
+    }
+
     @Test
     void watchdogTrigger() throws TimeoutException {
         var countdownLatch = new CountDownLatch(1);
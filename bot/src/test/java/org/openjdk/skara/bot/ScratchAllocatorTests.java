@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.bot;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScratchAllocatorTests {
+    private final Path first = Path.of("scratch-0");
+    private final Path second = Path.of("scratch-1");
+    private final Path third = Path.of("scratch-2");
+
+    @Test
+    void reuseFolderWithSameAffinity() {
+        var allocator = new ScratchAllocator(List.of(first, second));
+        var a = allocator.acquire(Optional.of("a"));
+        var b = allocator.acquire(Optional.of("b"));
+        allocator.release(a, Optional.of("a"));
+        allocator.release(b, Optional.of("b"));
+
+        assertEquals(b, allocator.acquire(Optional.of("b")));
+        assertEquals(a, allocator.acquire(Optional.of("a")));
+        assertEquals(2, allocator.hits());
+        assertEquals(2, allocator.misses());
+    }
+
+    @Test
+    void preferUnusedThenLeastRecentlyUsed() {
+        var allocator = new ScratchAllocator(List.of(first, second, third));
+        allocator.release(allocator.acquire(Optional.of("a")), Optional.of("a"));
+        allocator.release(allocator.acquire(Optional.of("b")), Optional.of("b"));
+
+        // The third folder has never been used
+        assertEquals(third, allocator.acquire(Optional.of("c")));
+        // Both remaining folders are warm, "a" was used longest ago
+        assertEquals(first, allocator.acquire(Optional.of("d")));
+        assertEquals(0, allocator.hits());
+        assertEquals(4, allocator.misses());
+    }
+
+    @Test
+    void itemsWithoutAffinityAreNotCounted() {
+        var allocator = new ScratchAllocator(List.of(first));
+        var path = allocator.acquire(Optional.empty());
+        allocator.release(path, Optional.empty());
+        assertEquals(first, allocator.acquire(Optional.empty()));
+        assertEquals(0, allocator.hits());
+        assertEquals(0, allocator.misses());
+        assertThrows(IllegalStateException.class, () -> allocator.acquire(Optional.of("a")));
+    }
+
+    @Test
+    void releaseWithoutAffinityKeepsContents() {
+        var allocator = new ScratchAllocator(List.of(first));
+        allocator.release(allocator.acquire(Optional.of("a")), Optional.of("a"));
+        allocator.release(allocator.acquire(Optional.empty()), Optional.empty());
+
+        assertEquals(first, allocator.acquire(Optional.of("a")));
+        assertEquals(1, allocator.hits());
+        assertEquals(1, allocator.misses());
+    }
+}
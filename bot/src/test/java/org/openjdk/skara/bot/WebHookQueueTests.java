@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.bot;
+
+import org.openjdk.skara.json.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebHookQueueTests {
+    private JSONValue mergeRequestHook(int iid, String action) {
+        return JSON.object().put("object_kind", "merge_request")
+                   .put("project", JSON.object().put("path_with_namespace", "test/repo"))
+                   .put("object_attributes", JSON.object().put("iid", iid).put("action", action));
+    }
+
+    @Test
+    void key() {
+        assertEquals(Optional.of("test/repo#17"), WebHookQueue.key(mergeRequestHook(17, "open")));
+        var note = JSON.object().put("object_kind", "note")
+                       .put("project", JSON.object().put("path_with_namespace", "test/repo"))
+                       .put("merge_request", JSON.object().put("iid", 3));
+        assertEquals(Optional.of("test/repo#3"), WebHookQueue.key(note));
+        var github = JSON.object().put("repository", JSON.object().put("full_name", "org/repo"))
+                         .put("pull_request", JSON.object().put("number", 5));
+        assertEquals(Optional.of("org/repo#5"), WebHookQueue.key(github));
+        assertEquals(Optional.empty(), WebHookQueue.key(JSON.object().put("zen", "hello")));
+    }
+
+    @Test
+    void coalesceAndDebounce() {
+        var queue = new WebHookQueue(Duration.ofMinutes(1), null);
+        queue.offer(mergeRequestHook(1, "open"));
+        queue.offer(mergeRequestHook(1, "update"));
+        queue.offer(mergeRequestHook(2, "open"));
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.coalesced());
+
+        assertEquals(List.of(), queue.ready(Instant.now()));
+
+        var ready = queue.ready(Instant.now().plus(Duration.ofMinutes(2)));
+        assertEquals(2, ready.size());
+        assertEquals("update", ready.get(0).body().get("object_attributes").get("action").asString());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void unkeyedAreNotCoalesced() {
+        var queue = new WebHookQueue(Duration.ZERO, null);
+        queue.offer(JSON.object().put("zen", "hello"));
+        queue.offer(JSON.object().put("zen", "hello"));
+        assertEquals(2, queue.ready(Instant.now()).size());
+    }
+
+    @Test
+    void durable() throws IOException {
+        var folder = Files.createTempDirectory("webhooks");
+        var queue = new WebHookQueue(Duration.ofMinutes(1), folder);
+        queue.offer(mergeRequestHook(1, "open"));
+        queue.offer(mergeRequestHook(2, "open"));
+
+        // Survives a restart, and is then ready without further delay
+        var restarted = new WebHookQueue(Duration.ofMinutes(1), folder);
+        assertEquals(2, restarted.size());
+        var ready = restarted.ready(Instant.now());
+        assertEquals(2, ready.size());
+
+        // Newer webhooks for the same pull request are kept when the old one is done
+        restarted.offer(mergeRequestHook(1, "update"));
+        for (var event : ready) {
+            restarted.done(event);
+        }
+        var again = new WebHookQueue(Duration.ofMinutes(1), folder);
+        assertEquals(1, again.size());
+        var event = again.ready(Instant.now()).get(0);
+        assertEquals("update", event.body().get("object_attributes").get("action").asString());
+        again.done(event);
+        assertEquals(0, new WebHookQueue(Duration.ofMinutes(1), folder).size());
+    }
+}
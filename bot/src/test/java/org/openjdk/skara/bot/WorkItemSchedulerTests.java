@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.bot;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkItemSchedulerTests {
+    private static class Item implements WorkItem {
+        private final String name;
+        private final String key;
+        private final boolean concurrent;
+
+        Item(String name, String key, boolean concurrent) {
+            this.name = name;
+            this.key = key;
+            this.concurrent = concurrent;
+        }
+
+        @Override
+        public boolean concurrentWith(WorkItem other) {
+            return concurrent;
+        }
+
+        @Override
+        public Optional<String> conflictKey() {
+            return Optional.ofNullable(key);
+        }
+
+        @Override
+        public void run(Path scratchPath) {
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static class OtherItem extends Item {
+        OtherItem(String name, String key) {
+            super(name, key, false);
+        }
+    }
+
+    private static Item keyed(String name, String key) {
+        return new Item(name, key, false);
+    }
+
+    @Test
+    void sameKeyIsSerialized() {
+        var dispatched = new ArrayList<WorkItem>();
+        var scheduler = new WorkItemScheduler(dispatched::add);
+        var a1 = keyed("a1", "a");
+        var a2 = keyed("a2", "a");
+        var b1 = keyed("b1", "b");
+
+        scheduler.submit(a1);
+        scheduler.submit(a2);
+        scheduler.submit(b1);
+        assertEquals(List.of(a1, b1), dispatched);
+
+        scheduler.done(a1);
+        assertEquals(List.of(a1, b1, a2), dispatched);
+
+        scheduler.done(b1);
+        scheduler.done(a2);
+        assertTrue(scheduler.isIdle());
+    }
+
+    @Test
+    void obsoletePendingItemIsReplaced() {
+        var dispatched = new ArrayList<WorkItem>();
+        var scheduler = new WorkItemScheduler(dispatched::add);
+        var a1 = keyed("a1", "a");
+        var a2 = keyed("a2", "a");
+        var a3 = keyed("a3", "a");
+        var other = new OtherItem("other", "a");
+
+        scheduler.submit(a1);
+        scheduler.submit(a2);
+        scheduler.submit(other);
+        scheduler.submit(a3);
+
+        scheduler.done(a1);
+        assertEquals(List.of(a1, a3), dispatched);
+        scheduler.done(a3);
+        assertEquals(List.of(a1, a3, other), dispatched);
+        scheduler.done(other);
+        assertTrue(scheduler.isIdle());
+    }
+
+    @Test
+    void keylessItemsBlockKeyedItems() {
+        var dispatched = new ArrayList<WorkItem>();
+        var scheduler = new WorkItemScheduler(dispatched::add);
+        var keyless = new Item("keyless", null, false);
+        var a1 = keyed("a1", "a");
+        var b1 = keyed("b1", "b");
+
+        scheduler.submit(keyless);
+        scheduler.submit(a1);
+        scheduler.submit(b1);
+        assertEquals(List.of(keyless), dispatched);
+        assertFalse(scheduler.isIdle());
+
+        scheduler.done(keyless);
+        assertEquals(Set.of(keyless, a1, b1), new HashSet<>(dispatched));
+        scheduler.done(a1);
+        scheduler.done(b1);
+        assertTrue(scheduler.isIdle());
+    }
+
+    @Test
+    void keyedItemsBlockKeylessItems() {
+        var dispatched = new ArrayList<WorkItem>();
+        var scheduler = new WorkItemScheduler(dispatched::add);
+        var a1 = keyed("a1", "a");
+        var keyless = new Item("keyless", null, true);
+
+        scheduler.submit(a1);
+        scheduler.submit(keyless);
+        assertEquals(List.of(a1), dispatched);
+
+        scheduler.done(a1);
+        assertEquals(List.of(a1, keyless), dispatched);
+        scheduler.done(keyless);
+        assertTrue(scheduler.isIdle());
+    }
+}
@@ -47,9 +47,8 @@ class PullRequestCloserBotWorkItem implements WorkItem {
     private void checkWelcomeMessage() {
         log.info("Checking welcome message of " + pr);
 
-        var comments = pr.comments();
-        var welcomePosted = comments.stream()
-                                    .anyMatch(comment -> comment.body().contains(welcomeMarker));
+        var welcomePosted = pr.streamComments()
+                              .anyMatch(comment -> comment.body().contains(welcomeMarker));
 
         if (!welcomePosted) {
             var message = "Welcome to the OpenJDK organization on GitHub!\n\n" +
@@ -82,6 +81,16 @@ class PullRequestCloserBotWorkItem implements WorkItem {
         return false;
     }
 
+    @Override
+    public Optional<String> conflictKey() {
+        return Optional.of(PullRequestCloserBotWorkItem.class.getName() + ":" + repository.name() + "#" + pr.id());
+    }
+
+    @Override
+    public Set<Resource> resources() {
+        return Set.of();
+    }
+
     @Override
     public void run(Path scratchPath) {
         checkWelcomeMessage();
@@ -57,6 +57,21 @@ class PullRequestPrunerBotWorkItem implements WorkItem {
         return false;
     }
 
+    @Override
+    public Optional<String> conflictKey() {
+        return Optional.of(PullRequestPrunerBotWorkItem.class.getName() + ":" + repository.name() + "#" + pr.id());
+    }
+
+    @Override
+    public Set<Resource> resources() {
+        return Set.of();
+    }
+
+    @Override
+    public Priority priority() {
+        return Priority.BACKGROUND;
+    }
+
     // Prune durations are on the order of days and weeks
     private String formatDuration(Duration duration) {
         var count = duration.toDays();
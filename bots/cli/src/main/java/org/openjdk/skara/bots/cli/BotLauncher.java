@@ -24,7 +24,7 @@ package org.openjdk.skara.bots.cli;
 
 import org.openjdk.skara.args.*;
 import org.openjdk.skara.bot.*;
-import org.openjdk.skara.network.URIBuilder;
+import org.openjdk.skara.network.*;
 import org.openjdk.skara.json.*;
 import org.openjdk.skara.proxy.HttpProxy;
 import org.openjdk.skara.version.Version;
@@ -103,6 +103,22 @@ public class BotLauncher {
         }
     }
 
+    private static void applyRestCache(JSONObject config, Path cwd) {
+        if (!config.contains("cache")) {
+            return;
+        }
+        var cacheConfig = config.get("cache");
+        var maxBytes = 32L * 1024 * 1024;
+        if (cacheConfig.contains("size")) {
+            maxBytes = cacheConfig.get("size").asLong();
+        }
+        if (cacheConfig.contains("path")) {
+            RestRequest.setDefaultCache(RestResponseCache.persistent(cwd.resolve(cacheConfig.get("path").asString()), maxBytes));
+        } else {
+            RestRequest.setDefaultCache(RestResponseCache.inMemory(maxBytes));
+        }
+    }
+
     private static JSONObject readConfiguration(Path jsonFile) {
         try {
             return JSON.parse(Files.readString(jsonFile, StandardCharsets.UTF_8)).asObject();
@@ -159,6 +175,7 @@ public class BotLauncher {
 
         applyLogging(jsonConfig);
         var log = Logger.getLogger("org.openjdk.skara.bots.cli");
+        applyRestCache(jsonConfig, jsonFile.getParent());
 
         BotRunnerConfiguration runnerConfig = null;
         try {
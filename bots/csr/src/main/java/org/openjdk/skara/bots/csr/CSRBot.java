@@ -30,6 +30,7 @@ import org.openjdk.skara.issuetracker.Issue;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Logger;
 
 class CSRBot implements Bot, WorkItem {
@@ -52,6 +53,11 @@ class CSRBot implements Bot, WorkItem {
         return !repo.webUrl().equals(((CSRBot) other).repo.webUrl());
     }
 
+    @Override
+    public Set<Resource> resources() {
+        return Set.of();
+    }
+
     private String describe(PullRequest pr) {
         return repo.name() + "#" + pr.id();
     }
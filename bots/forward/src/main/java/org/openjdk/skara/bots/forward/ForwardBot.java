@@ -33,6 +33,7 @@ import java.nio.file.Path;
 import java.nio.file.Files;
 import java.net.URLEncoder;
 import java.util.List;
+import java.util.Optional;
 import java.util.logging.Logger;
 
 class ForwardBot implements Bot, WorkItem {
@@ -64,6 +65,11 @@ class ForwardBot implements Bot, WorkItem {
         return !toHostedRepo.name().equals(otherBot.toHostedRepo.name());
     }
 
+    @Override
+    public Optional<String> conflictKey() {
+        return Optional.of(ForwardBot.class.getName() + ":" + toHostedRepo.name());
+    }
+
     @Override
     public void run(Path scratchPath) {
         try {
@@ -30,6 +30,7 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.List;
+import java.util.Optional;
 import java.util.logging.Logger;
 
 public class JBridgeBot implements Bot, WorkItem {
@@ -62,6 +63,16 @@ public class JBridgeBot implements Bot, WorkItem {
         }
     }
 
+    @Override
+    public Optional<String> conflictKey() {
+        return Optional.of(JBridgeBot.class.getName() + ":" + exporterConfig.source());
+    }
+
+    @Override
+    public Optional<String> scratchAffinity() {
+        return Optional.of(exporterConfig.source().toString());
+    }
+
     private void pushMarks(Path markSource, String destName, Path markScratchPath) throws IOException {
         var marksRepo = Repository.materialize(markScratchPath, exporterConfig.marksRepo().url(),
                                                "+" + exporterConfig.marksRef() + ":hgbridge_marks");
@@ -222,6 +222,11 @@ class MergeBot implements Bot, WorkItem {
         return !target.name().equals(otherBot.target.name());
     }
 
+    @Override
+    public Optional<String> conflictKey() {
+        return Optional.of(MergeBot.class.getName() + ":" + target.name());
+    }
+
     @Override
     public void run(Path scratchPath) {
         try {
@@ -33,6 +33,7 @@ import java.nio.file.Path;
 import java.nio.file.Files;
 import java.net.URLEncoder;
 import java.util.List;
+import java.util.Optional;
 import java.util.logging.Logger;
 
 class MirrorBot implements Bot, WorkItem {
@@ -56,6 +57,11 @@ class MirrorBot implements Bot, WorkItem {
         return !from.name().equals(otherBot.from.name());
     }
 
+    @Override
+    public Optional<String> conflictKey() {
+        return Optional.of(MirrorBot.class.getName() + ":" + from.name());
+    }
+
     @Override
     public void run(Path scratchPath) {
         try {
@@ -27,6 +27,7 @@ import org.openjdk.skara.mailinglist.MailingList;
 
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Set;
 
 public class ArchiveReaderWorkItem implements WorkItem {
     private final MailingListArchiveReaderBot bot;
@@ -54,6 +55,11 @@ public class ArchiveReaderWorkItem implements WorkItem {
         return false;
     }
 
+    @Override
+    public Set<Resource> resources() {
+        return Set.of();
+    }
+
     @Override
     public void run(Path scratchPath) {
         // Give the bot a chance to act on all found messages
@@ -23,6 +23,7 @@
 package org.openjdk.skara.bots.mlbridge;
 
 import org.openjdk.skara.bot.WorkItem;
+import org.openjdk.skara.census.CensusView;
 import org.openjdk.skara.email.*;
 import org.openjdk.skara.forge.*;
 import org.openjdk.skara.host.HostUser;
@@ -72,6 +73,16 @@ class ArchiveWorkItem implements WorkItem {
         return false;
     }
 
+    @Override
+    public Optional<String> conflictKey() {
+        return Optional.of(ArchiveWorkItem.class.getName() + ":" + bot.codeRepo().name() + "#" + pr.id());
+    }
+
+    @Override
+    public Optional<String> scratchAffinity() {
+        return Optional.of(bot.codeRepo().webUrl().toString());
+    }
+
     private void pushMbox(Repository localRepo, String message) {
         try {
             localRepo.add(localRepo.root().resolve("."));
@@ -180,16 +191,17 @@ class ArchiveWorkItem implements WorkItem {
 
     private String getAuthorRole(CensusInstance censusInstance, HostUser originalAuthor) {
         var version = censusInstance.configuration().census().version();
-        var contributor = censusInstance.namespace().get(originalAuthor.id());
-        if (contributor == null) {
+        var id = censusInstance.view(version).id(censusInstance.namespace().name(), originalAuthor.id());
+        var roles = censusInstance.roles(version);
+        if (id == CensusView.UNKNOWN) {
             return "no known OpenJDK username";
-        } else if (censusInstance.project().isLead(contributor.username(), version)) {
+        } else if (roles.isLead(id)) {
             return "Lead";
-        } else if (censusInstance.project().isReviewer(contributor.username(), version)) {
+        } else if (roles.isReviewer(id)) {
             return "Reviewer";
-        } else if (censusInstance.project().isCommitter(contributor.username(), version)) {
+        } else if (roles.isCommitter(id)) {
             return "Committer";
-        } else if (censusInstance.project().isAuthor(contributor.username(), version)) {
+        } else if (roles.isAuthor(id)) {
             return "Author";
         }
         return "no project role";
@@ -252,7 +264,11 @@ class ArchiveWorkItem implements WorkItem {
             var baseHash = localRepo.mergeBase(targetHash, headHash);
 
             var webrevPath = scratchPath.resolve("mlbridge-webrevs");
-            var listServer = MailingListServerFactory.createMailmanServer(bot.listArchive(), bot.smtpServer(), bot.sendInterval());
+            var listServer = bot.outbox()
+                                .map(outbox -> MailingListServerFactory.createMailmanServer(bot.listArchive(), bot.smtpServer(),
+                                                                                             bot.sendInterval(), outbox))
+                                .orElseGet(() -> MailingListServerFactory.createMailmanServer(bot.listArchive(), bot.smtpServer(),
+                                                                                               bot.sendInterval()));
             var list = listServer.getList(bot.listAddress().address());
 
             var archiver = new ReviewArchive(pr, bot.emailAddress(), baseHash, headHash);
@@ -22,16 +22,12 @@
  */
 package org.openjdk.skara.bots.mlbridge;
 
+import org.openjdk.skara.bot.CensusCache;
 import org.openjdk.skara.census.*;
 import org.openjdk.skara.forge.*;
 import org.openjdk.skara.jcheck.JCheckConfiguration;
-import org.openjdk.skara.vcs.*;
 
-import java.io.*;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 class CensusInstance {
@@ -47,14 +43,6 @@ class CensusInstance {
         this.namespace = namespace;
     }
 
-    private static Repository initialize(HostedRepository repo, String ref, Path folder) {
-        try {
-            return Repository.materialize(folder, repo.url(), "+" + ref + ":" + "mlbridge_census_" + repo.name());
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to retrieve census to " + folder, e);
-        }
-    }
-
     private static Project project(JCheckConfiguration configuration, Census census) {
         var project = census.project(configuration.general().project());
 
@@ -81,27 +69,11 @@ class CensusInstance {
     }
 
     static CensusInstance create(HostedRepository censusRepo, String censusRef, Path folder, PullRequest pr) {
-        var repoName = censusRepo.url().getHost() + "/" + censusRepo.name();
-        var repoFolder = folder.resolve(URLEncoder.encode(repoName, StandardCharsets.UTF_8));
-        try {
-            var localRepo = Repository.get(repoFolder)
-                                      .or(() -> Optional.of(initialize(censusRepo, censusRef, repoFolder)))
-                                      .orElseThrow();
-            var hash = localRepo.fetch(censusRepo.url(), censusRef);
-            localRepo.checkout(hash, true);
-        } catch (IOException e) {
-            initialize(censusRepo, censusRef, repoFolder);
-        }
-
-        try {
-            var configuration = configuration(pr.repository(), pr.targetRef());
-            var census = Census.parse(repoFolder);
-            var project = project(configuration, census);
-            var namespace = namespace(census, pr.repository().namespace());
-            return new CensusInstance(census, configuration, project, namespace);
-        } catch (IOException e) {
-            throw new UncheckedIOException("Cannot parse census at " + repoFolder, e);
-        }
+        var configuration = configuration(pr.repository(), pr.targetRef());
+        var census = CensusCache.census(censusRepo, censusRef, folder);
+        var project = project(configuration, census);
+        var namespace = namespace(census, pr.repository().namespace());
+        return new CensusInstance(census, configuration, project, namespace);
     }
 
     JCheckConfiguration configuration() {
@@ -115,4 +87,12 @@ class CensusInstance {
     Namespace namespace() {
         return namespace;
     }
+
+    CensusView view(int version) {
+        return census.view(version);
+    }
+
+    CensusView.Roles roles(int version) {
+        return census.view(version).project(project.name());
+    }
 }
@@ -38,15 +38,17 @@ public class CommentPosterWorkItem implements WorkItem {
     private final PullRequest pr;
     private final List<Email> newMessages;
     private final Consumer<RuntimeException> errorHandler;
+    private final Runnable completionHandler;
     private final Logger log = Logger.getLogger("org.openjdk.skara.bots.mlbridge");
 
     private final String bridgedMailMarker = "<!-- Bridged id (%s) -->";
     private final Pattern bridgedMailId = Pattern.compile("^<!-- Bridged id \\(([=\\w]+)\\) -->");
 
-    CommentPosterWorkItem(PullRequest pr, List<Email> newMessages, Consumer<RuntimeException> errorHandler) {
+    CommentPosterWorkItem(PullRequest pr, List<Email> newMessages, Consumer<RuntimeException> errorHandler, Runnable completionHandler) {
         this.pr = pr;
         this.newMessages = newMessages;
         this.errorHandler = errorHandler;
+        this.completionHandler = completionHandler;
     }
 
     @Override
@@ -73,6 +75,11 @@ public class CommentPosterWorkItem implements WorkItem {
         return overlap.isEmpty();
     }
 
+    @Override
+    public Set<Resource> resources() {
+        return Set.of();
+    }
+
     private void postNewMessage(Email email) {
         var marker = String.format(bridgedMailMarker,
                                  Base64.getEncoder().encodeToString(email.id().address().getBytes(StandardCharsets.UTF_8)));
@@ -116,6 +123,7 @@ public class CommentPosterWorkItem implements WorkItem {
             log.info("Bridging new message from " + message.author() + " to " + pr);
             postNewMessage(message);
         }
+        completionHandler.run();
     }
 
     @Override
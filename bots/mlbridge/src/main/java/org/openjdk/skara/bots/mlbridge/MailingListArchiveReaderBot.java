@@ -27,6 +27,7 @@ import org.openjdk.skara.email.*;
 import org.openjdk.skara.forge.*;
 import org.openjdk.skara.mailinglist.*;
 
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.logging.Logger;
@@ -37,85 +38,142 @@ public class MailingListArchiveReaderBot implements Bot {
     private final EmailAddress archivePoster;
     private final Set<MailingList> lists;
     private final Set<HostedRepository> repositories;
-    private final Map<EmailAddress, PullRequest> parsedConversations = new HashMap<>();
-    private final Set<EmailAddress> parsedEmailIds = new HashSet<>();
+    private final MessageIndex index;
+    private final Map<EmailAddress, PullRequest> pullRequests = new HashMap<>();
+    private final Set<EmailAddress> queuedEmailIds = new HashSet<>();
     private final Queue<CommentPosterWorkItem> commentQueue = new ConcurrentLinkedQueue<>();
     private final Pattern pullRequestLinkPattern = Pattern.compile("^(?:PR: |Pull request:\\R)(.*?)$", Pattern.MULTILINE);
     private final Logger log = Logger.getLogger("org.openjdk.skara.bots.mlbridge");
 
     MailingListArchiveReaderBot(EmailAddress archivePoster, Set<MailingList> lists, Set<HostedRepository> repositories) {
+        this(archivePoster, lists, repositories, null);
+    }
+
+    /**
+     * @param indexFile where to persist which messages have been seen, or null to only keep
+     *                  track of this in memory
+     */
+    MailingListArchiveReaderBot(EmailAddress archivePoster, Set<MailingList> lists, Set<HostedRepository> repositories, Path indexFile) {
         this.archivePoster = archivePoster;
         this.lists = lists;
         this.repositories = repositories;
+        this.index = new MessageIndex(indexFile);
     }
 
     private synchronized void invalidate(List<Email> messages) {
-        messages.forEach(m -> parsedEmailIds.remove(m.id()));
+        messages.forEach(m -> queuedEmailIds.remove(m.id()));
     }
 
-    synchronized void inspect(Conversation conversation) {
-        // Is this a new conversation?
-        if (!parsedConversations.containsKey(conversation.first().id())) {
-            var first = conversation.first();
+    private void markBridged(EmailAddress root, String link, EmailAddress id) {
+        // Only the root entry refers to the pull request
+        index.put(id, new MessageIndex.Entry(root, id.equals(root) ? link : null, true));
+    }
 
-            // This conversation has already been parsed without finding any matching PR
-            if (parsedEmailIds.contains(first.id())) {
-                return;
-            }
+    private synchronized void bridged(EmailAddress root, String link, List<Email> messages) {
+        for (var message : messages) {
+            markBridged(root, link, message.id());
+            queuedEmailIds.remove(message.id());
+        }
+    }
 
-            parsedEmailIds.add(first.id());
+    private Optional<String> pullRequestLink(Email first) {
+        // Not an RFR - cannot match a PR
+        if (!first.subject().startsWith("RFR")) {
+            return Optional.empty();
+        }
 
-            // Not an RFR - cannot match a PR
-            if (!conversation.first().subject().startsWith("RFR")) {
-                return;
-            }
+        // Look for a pull request link
+        var matcher = pullRequestLinkPattern.matcher(first.body());
+        if (!matcher.find()) {
+            log.fine("RFR email without valid pull request link: " + first.date() + " - " + first.subject());
+            return Optional.empty();
+        }
+        return Optional.of(matcher.group(1));
+    }
 
-            // Look for a pull request link
-            var matcher = pullRequestLinkPattern.matcher(first.body());
-            if (!matcher.find()) {
-                log.fine("RFR email without valid pull request link: " + first.date() + " - " + first.subject());
-                return;
+    private Optional<PullRequest> pullRequest(EmailAddress root, String link) {
+        var pr = pullRequests.get(root);
+        if (pr == null) {
+            var found = repositories.stream()
+                                    .map(repository -> repository.parsePullRequestUrl(link))
+                                    .filter(Optional::isPresent)
+                                    .map(Optional::get)
+                                    .findAny();
+            if (found.isEmpty()) {
+                return Optional.empty();
             }
+            pr = found.get();
+            pullRequests.put(root, pr);
+        }
+        return Optional.of(pr);
+    }
 
-            var pr = repositories.stream()
-                    .map(repository -> repository.parsePullRequestUrl(matcher.group(1)))
-                    .filter(Optional::isPresent)
-                    .map(Optional::get)
-                    .findAny();
-            if (pr.isEmpty()) {
-                log.info("PR link that can't be matched to an actual PR: " + matcher.group(1));
+    private boolean isNew(Email email) {
+        if (queuedEmailIds.contains(email.id())) {
+            return false;
+        }
+        return index.get(email.id()).map(entry -> !entry.bridged()).orElse(true);
+    }
+
+    synchronized void inspect(Conversation conversation) {
+        var first = conversation.first();
+        var root = index.get(first.id());
+
+        // Is this a new conversation?
+        if (root.isEmpty()) {
+            var link = pullRequestLink(first);
+            if (link.isPresent() && pullRequest(first.id(), link.get()).isEmpty()) {
+                log.info("PR link that can't be matched to an actual PR: " + link.get());
+                link = Optional.empty();
+            }
+            if (link.isEmpty()) {
+                // Never look at this conversation again
+                index.put(first.id(), new MessageIndex.Entry(first.id(), null, true));
                 return;
             }
 
             // Matching pull request found!
-            parsedConversations.put(conversation.first().id(), pr.get());
-            parsedEmailIds.remove(first.id());
+            root = Optional.of(new MessageIndex.Entry(first.id(), link.get(), false));
+            index.put(first.id(), root.get());
+        }
+
+        var link = root.get().pullRequest();
+        if (link.isEmpty()) {
+            return;
         }
 
         // Are there any new messages?
         var newMessages = conversation.allMessages().stream()
-                                      .filter(email -> !parsedEmailIds.contains(email.id()))
+                                      .filter(this::isNew)
                                       .collect(Collectors.toList());
         if (newMessages.isEmpty()) {
             return;
         }
 
-        for (var newMessage : newMessages) {
-            parsedEmailIds.add(newMessage.id());
+        var pr = pullRequest(first.id(), link.get());
+        if (pr.isEmpty()) {
+            log.info("PR link that can't be matched to an actual PR: " + link.get());
+            return;
         }
-
-        var pr = parsedConversations.get(conversation.first().id());
-        var bridgeIdPattern = Pattern.compile("^[^.]+\\.[^.]+@" + pr.repository().url().getHost() + "$");
+        var bridgeIdPattern = Pattern.compile("^[^.]+\\.[^.]+@" + pr.get().repository().url().getHost() + "$");
 
         // Filter out already bridged comments
-        var bridgeCandidates = newMessages.stream()
-                .filter(email -> !bridgeIdPattern.matcher(email.id().address()).matches())
-                .collect(Collectors.toList());
+        var bridgeCandidates = new ArrayList<Email>();
+        for (var newMessage : newMessages) {
+            if (bridgeIdPattern.matcher(newMessage.id().address()).matches()) {
+                markBridged(first.id(), link.get(), newMessage.id());
+            } else {
+                bridgeCandidates.add(newMessage);
+            }
+        }
         if (bridgeCandidates.isEmpty()) {
             return;
         }
 
-        var workItem = new CommentPosterWorkItem(pr, bridgeCandidates, e -> invalidate(bridgeCandidates));
+        queuedEmailIds.addAll(bridgeCandidates.stream().map(Email::id).collect(Collectors.toList()));
+        var workItem = new CommentPosterWorkItem(pr.get(), bridgeCandidates,
+                                                 e -> invalidate(bridgeCandidates),
+                                                 () -> bridged(first.id(), link.get(), bridgeCandidates));
         commentQueue.add(workItem);
     }
 
@@ -52,6 +52,7 @@ public class MailingListBridgeBot implements Bot {
     private final PullRequestUpdateCache updateCache;
     private final Duration sendInterval;
     private final Duration cooldown;
+    private final Path outbox;
 
     MailingListBridgeBot(EmailAddress from, HostedRepository repo, HostedRepository archive, String archiveRef,
                          HostedRepository censusRepo, String censusRef, EmailAddress list,
@@ -59,7 +60,7 @@ public class MailingListBridgeBot implements Bot {
                          HostedRepository webrevStorageRepository, String webrevStorageRef,
                          Path webrevStorageBase, URI webrevStorageBaseUri, Set<String> readyLabels,
                          Map<String, Pattern> readyComments, URI issueTracker, Map<String, String> headers,
-                         Duration sendInterval, Duration cooldown) {
+                         Duration sendInterval, Duration cooldown, Path outbox) {
         emailAddress = from;
         codeRepo = repo;
         archiveRepo = archive;
@@ -77,10 +78,11 @@ public class MailingListBridgeBot implements Bot {
         this.issueTracker = issueTracker;
         this.sendInterval = sendInterval;
         this.cooldown = cooldown;
+        this.outbox = outbox;
 
         this.webrevStorage = new WebrevStorage(webrevStorageRepository, webrevStorageRef, webrevStorageBase,
                                                webrevStorageBaseUri, from);
-        this.updateCache = new PullRequestUpdateCache();
+        this.updateCache = new PullRequestUpdateCache("mlbridge");
     }
 
     static MailingListBridgeBotBuilder newBuilder() {
@@ -123,6 +125,14 @@ public class MailingListBridgeBot implements Bot {
         return cooldown;
     }
 
+    /**
+     * Journal of the queue used to deliver outgoing mail in the background, if any.
+     * @return
+     */
+    Optional<Path> outbox() {
+        return Optional.ofNullable(outbox);
+    }
+
     Set<String> ignoredUsers() {
         return ignoredUsers;
     }
@@ -165,7 +175,7 @@ public class MailingListBridgeBot implements Bot {
 
         for (var pr : codeRepo.pullRequests()) {
             if (updateCache.needsUpdate(pr)) {
-                ret.add(new ArchiveWorkItem(pr, this, e -> updateCache.invalidate(pr)));
+                ret.add(new ArchiveWorkItem(PullRequestSnapshot.of(pr), this, e -> updateCache.invalidate(pr)));
             }
         }
 
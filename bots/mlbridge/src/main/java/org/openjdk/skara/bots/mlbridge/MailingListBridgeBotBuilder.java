@@ -52,6 +52,7 @@ public class MailingListBridgeBotBuilder {
     private URI issueTracker;
     private Map<String, String> headers = Map.of();
     private Duration sendInterval = Duration.ZERO;
+    private Path outbox;
     private Duration cooldown = Duration.ZERO;
 
     MailingListBridgeBotBuilder() {
@@ -162,10 +163,15 @@ public class MailingListBridgeBotBuilder {
         return this;
     }
 
+    public MailingListBridgeBotBuilder outbox(Path outbox) {
+        this.outbox = outbox;
+        return this;
+    }
+
     public MailingListBridgeBot build() {
         return new MailingListBridgeBot(from, repo, archive, archiveRef, censusRepo, censusRef, list,
                                         ignoredUsers, ignoredComments, listArchive, smtpServer,
                                         webrevStorageRepository, webrevStorageRef, webrevStorageBase, webrevStorageBaseUri,
-                                        readyLabels, readyComments, issueTracker, headers, sendInterval, cooldown);
+                                        readyLabels, readyComments, issueTracker, headers, sendInterval, cooldown, outbox);
     }
 }
\ No newline at end of file
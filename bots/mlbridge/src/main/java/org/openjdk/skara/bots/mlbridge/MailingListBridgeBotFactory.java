@@ -111,6 +111,7 @@ public class MailingListBridgeBotFactory implements BotFactory {
                                           .headers(headers)
                                           .sendInterval(interval)
                                           .cooldown(cooldown)
+                                          .outbox(configuration.storageFolder().resolve("outbox.journal"))
                                           .build();
             ret.add(bot);
 
@@ -123,7 +124,8 @@ public class MailingListBridgeBotFactory implements BotFactory {
                                    .map(name -> mailmanServer.getList(name.toString()))
                                    .collect(Collectors.toSet());
 
-        var bot = new MailingListArchiveReaderBot(from, allLists, allRepositories);
+        var bot = new MailingListArchiveReaderBot(from, allLists, allRepositories,
+                                                  configuration.storageFolder().resolve("messages.idx"));
         ret.add(bot);
 
         return ret;
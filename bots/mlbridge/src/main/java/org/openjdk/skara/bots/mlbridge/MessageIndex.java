@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.bots.mlbridge;
+
+import org.openjdk.skara.email.EmailAddress;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Maps the Message-Id of every mailing list message that has been inspected to the root of its
+ * conversation, the pull request that conversation belongs to, and whether the message has been
+ * dealt with. If backed by a file, the index is kept as an append-only log of changed entries
+ * that is loaded into memory on startup and compacted when it grows too large.
+ */
+class MessageIndex {
+    private static final int minimumCompactionSize = 64;
+    private final Logger log = Logger.getLogger("org.openjdk.skara.bots.mlbridge");
+
+    private final Path file;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private int logLines;
+
+    static class Entry {
+        private final EmailAddress root;
+        private final String pullRequest;
+        private final boolean bridged;
+
+        Entry(EmailAddress root, String pullRequest, boolean bridged) {
+            this.root = root;
+            this.pullRequest = pullRequest;
+            this.bridged = bridged;
+        }
+
+        EmailAddress root() {
+            return root;
+        }
+
+        /**
+         * Link to the pull request of the conversation, only present on root entries.
+         * @return
+         */
+        Optional<String> pullRequest() {
+            return Optional.ofNullable(pullRequest);
+        }
+
+        boolean bridged() {
+            return bridged;
+        }
+
+        private String serialize(String id) {
+            return id + "\t" + root.address() + "\t" + (pullRequest == null ? "" : pullRequest) + "\t" + bridged + "\n";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            var entry = (Entry) o;
+            return bridged == entry.bridged &&
+                    root.equals(entry.root) &&
+                    Objects.equals(pullRequest, entry.pullRequest);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(root, pullRequest, bridged);
+        }
+    }
+
+    /**
+     * Create an index, backed by the given file if it is not null.
+     * @param file
+     */
+    MessageIndex(Path file) {
+        this.file = file;
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        try {
+            for (var line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                logLines++;
+                var fields = line.split("\t", -1);
+                if (fields.length == 4) {
+                    var pullRequest = fields[2].isEmpty() ? null : fields[2];
+                    entries.put(fields[0],
+                                new Entry(EmailAddress.from(fields[1]), pullRequest, Boolean.parseBoolean(fields[3])));
+                }
+            }
+            log.info("Loaded " + entries.size() + " messages from " + file);
+        } catch (IOException e) {
+            log.warning("Failed to read message index " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void append(String id, Entry entry) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            if (logLines > minimumCompactionSize && logLines > 2 * entries.size()) {
+                var tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+                try (var writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+                    for (var e : entries.entrySet()) {
+                        writer.write(e.getValue().serialize(e.getKey()));
+                    }
+                }
+                Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                logLines = entries.size();
+            } else {
+                Files.writeString(file, entry.serialize(id), StandardCharsets.UTF_8,
+                                  StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+                logLines++;
+            }
+        } catch (IOException e) {
+            log.warning("Failed to update message index " + file + ": " + e.getMessage());
+        }
+    }
+
+    synchronized Optional<Entry> get(EmailAddress id) {
+        return Optional.ofNullable(entries.get(id.address()));
+    }
+
+    synchronized void put(EmailAddress id, Entry entry) {
+        if (entry.equals(entries.put(id.address(), entry))) {
+            return;
+        }
+        append(id.address(), entry);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
@@ -25,7 +25,7 @@ package org.openjdk.skara.bots.mlbridge;
 import org.openjdk.skara.email.EmailAddress;
 import org.openjdk.skara.forge.HostedRepository;
 import org.openjdk.skara.forge.PullRequest;
-import org.openjdk.skara.network.URIBuilder;
+import org.openjdk.skara.network.*;
 import org.openjdk.skara.vcs.Repository;
 import org.openjdk.skara.vcs.Hash;
 import org.openjdk.skara.webrev.Webrev;
@@ -176,9 +176,6 @@ class WebrevStorage {
     private void awaitPublication(URI uri, Duration timeout) throws IOException {
         var end = Instant.now().plus(timeout);
         var uriBuilder = URIBuilder.base(uri);
-        var client = HttpClient.newBuilder()
-                               .connectTimeout(Duration.ofSeconds(30))
-                               .build();
         while (Instant.now().isBefore(end)) {
             var uncachedUri = uriBuilder.setQuery(Map.of("nocache", UUID.randomUUID().toString())).build();
             log.fine("Validating webrev URL: " + uncachedUri);
@@ -187,7 +184,7 @@ class WebrevStorage {
                                      .GET()
                                      .build();
             try {
-                var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                var response = HttpClientPool.send(request, HttpResponse.BodyHandlers.ofString(), Duration.ofSeconds(30));
                 if (response.statusCode() < 300) {
                     log.info(response.statusCode() + " when checking " + uncachedUri + " - success!");
                     return;
@@ -205,6 +205,88 @@ class MailingListArchiveReaderBotTests {
         }
     }
 
+    @Test
+    void persistedIndex(TestInfo testInfo) throws IOException {
+        try (var credentials = new HostCredentials(testInfo);
+             var tempFolder = new TemporaryDirectory();
+             var listServer = new TestMailmanServer();
+             var webrevServer = new TestWebrevServer()) {
+            var author = credentials.getHostedRepository();
+            var archive = credentials.getHostedRepository();
+            var ignored = credentials.getHostedRepository();
+            var listAddress = EmailAddress.parse(listServer.createList("test"));
+            var censusBuilder = credentials.getCensusBuilder()
+                                           .addAuthor(author.forge().currentUser().id());
+            var from = EmailAddress.from("test", "test@test.mail");
+            var mlBot = MailingListBridgeBot.newBuilder()
+                                            .from(from)
+                                            .repo(author)
+                                            .archive(archive)
+                                            .censusRepo(censusBuilder.build())
+                                            .list(listAddress)
+                                            .ignoredUsers(Set.of(ignored.forge().currentUser().userName()))
+                                            .listArchive(listServer.getArchive())
+                                            .smtpServer(listServer.getSMTP())
+                                            .webrevStorageRepository(archive)
+                                            .webrevStorageRef("webrev")
+                                            .webrevStorageBase(Path.of("test"))
+                                            .webrevStorageBaseUri(webrevServer.uri())
+                                            .issueTracker(URIBuilder.base("http://issues.test/browse/").build())
+                                            .build();
+
+            // The mailing list as well
+            var mailmanServer = MailingListServerFactory.createMailmanServer(listServer.getArchive(), listServer.getSMTP(),
+                                                                             Duration.ZERO);
+            var mailmanList = mailmanServer.getList(listAddress.address());
+            var indexFile = tempFolder.path().resolve("index").resolve("messages.idx");
+            var readerBot = new MailingListArchiveReaderBot(from, Set.of(mailmanList), Set.of(archive), indexFile);
+
+            // Populate the projects repository
+            var localRepo = CheckableRepository.init(tempFolder.path().resolve("repo"), author.repositoryType());
+            var masterHash = localRepo.resolve("master").orElseThrow();
+            localRepo.push(masterHash, author.url(), "master", true);
+            localRepo.push(masterHash, archive.url(), "webrev", true);
+
+            // Make a change with a corresponding PR
+            var editHash = CheckableRepository.appendAndCommit(localRepo, "A simple change",
+                                                               "Change msg\n\nWith several lines");
+            localRepo.push(editHash, author.url(), "edit", true);
+            var pr = credentials.createPullRequest(archive, "master", "edit", "This is a pull request");
+            pr.setBody("This should now be ready");
+
+            // Run an archive pass
+            TestBotRunner.runPeriodicItems(mlBot);
+            listServer.processIncoming();
+
+            // Post a reply directly to the list
+            var conversations = mailmanList.conversations(Duration.ofDays(1));
+            assertEquals(1, conversations.size());
+            addReply(conversations.get(0), mailmanList, pr);
+            listServer.processIncoming();
+
+            // Another archive reader pass - has to be done twice
+            TestBotRunner.runPeriodicItems(readerBot);
+            TestBotRunner.runPeriodicItems(readerBot);
+            assertEquals(2, pr.comments().size());
+
+            // After a restart, nothing is queued for bridging again
+            var newReaderBot = new MailingListArchiveReaderBot(from, Set.of(mailmanList), Set.of(archive), indexFile);
+            TestBotRunner.runPeriodicItems(newReaderBot);
+            assertEquals(1, newReaderBot.getPeriodicItems().size());
+            assertEquals(2, pr.comments().size());
+
+            // But new replies are
+            conversations = mailmanList.conversations(Duration.ofDays(1));
+            addReply(conversations.get(0), mailmanList, pr, "Another reply");
+            listServer.processIncoming();
+            TestBotRunner.runPeriodicItems(newReaderBot);
+            TestBotRunner.runPeriodicItems(newReaderBot);
+            var updated = pr.comments();
+            assertEquals(3, updated.size());
+            assertTrue(updated.get(2).body().contains("Another reply"));
+        }
+    }
+
     @Test
     void largeEmail(TestInfo testInfo) throws IOException {
         try (var credentials = new HostCredentials(testInfo);
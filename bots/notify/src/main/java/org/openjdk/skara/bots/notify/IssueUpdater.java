@@ -274,11 +274,10 @@ public class IssueUpdater implements RepositoryUpdateConsumer, PullRequestUpdate
                     }
                 }
 
-                var existingComments = issue.comments();
                 var hashUrl = repository.webUrl(commit.hash()).toString();
-                var alreadyPostedComment = existingComments.stream()
-                                                           .filter(comment -> comment.author().equals(issueProject.issueTracker().currentUser()))
-                                                           .anyMatch(comment -> comment.body().contains(hashUrl));
+                var alreadyPostedComment = issue.streamComments()
+                                                .filter(comment -> comment.author().equals(issueProject.issueTracker().currentUser()))
+                                                .anyMatch(comment -> comment.body().contains(hashUrl));
                 if (!alreadyPostedComment) {
                     issue.addComment(commitNotification);
                 }
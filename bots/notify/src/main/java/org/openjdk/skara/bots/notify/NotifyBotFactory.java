@@ -30,7 +30,8 @@ import org.openjdk.skara.network.URIBuilder;
 import org.openjdk.skara.storage.StorageBuilder;
 import org.openjdk.skara.vcs.Tag;
 
-import java.net.URI;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.*;
@@ -56,6 +57,7 @@ public class NotifyBotFactory implements BotFactory {
         var databaseRef = configuration.repositoryRef(database.get("repository").asString());
         var databaseName = database.get("name").asString();
         var databaseEmail = database.get("email").asString();
+        var databaseWriteBehind = database.contains("writebehind") ? Duration.parse(database.get("writebehind").asString()) : Duration.ofMinutes(1);
 
         var readyLabels = specific.get("ready").get("labels").stream()
                                   .map(JSONValue::asString)
@@ -98,7 +100,10 @@ public class NotifyBotFactory implements BotFactory {
                 var sender = EmailAddress.parse(email.get("sender").asString());
                 var archive = URIBuilder.base(email.get("archive").asString()).build();
                 var interval = email.contains("interval") ? Duration.parse(email.get("interval").asString()) : Duration.ofSeconds(1);
-                var listServer = MailingListServerFactory.createMailmanServer(archive, smtp, interval);
+                // Each queue is bound to one server and interval
+                var journal = "outbox-" + URLEncoder.encode(smtp, StandardCharsets.UTF_8) + "-" + interval.toMillis() + ".journal";
+                var listServer = MailingListServerFactory.createMailmanServer(archive, smtp, interval,
+                                                                              configuration.storageFolder().resolve(journal));
 
                 for (var mailinglist : repo.value().get("mailinglists").asArray()) {
                     var recipient = mailinglist.get("recipient").asString();
@@ -177,9 +182,11 @@ public class NotifyBotFactory implements BotFactory {
             var baseName = repo.value().contains("basename") ? repo.value().get("basename").asString() : configuration.repositoryName(repoName);
 
             var tagStorageBuilder = new StorageBuilder<Tag>(baseName + ".tags.txt")
-                    .remoteRepository(databaseRepo, databaseRef, databaseName, databaseEmail, "Added tag for " + repoName);
+                    .remoteRepository(databaseRepo, databaseRef, databaseName, databaseEmail, "Added tag for " + repoName)
+                    .writeBehind(databaseWriteBehind);
             var branchStorageBuilder = new StorageBuilder<ResolvedBranch>(baseName + ".branches.txt")
-                    .remoteRepository(databaseRepo, databaseRef, databaseName, databaseEmail, "Added branch hash for " + repoName);
+                    .remoteRepository(databaseRepo, databaseRef, databaseName, databaseEmail, "Added branch hash for " + repoName)
+                    .writeBehind(databaseWriteBehind);
             var issueStorageBuilder = new StorageBuilder<PullRequestIssues>(baseName + ".prissues.txt")
                     .remoteRepository(databaseRepo, databaseRef, databaseName, databaseEmail, "Added pull request issue info for " + repoName);
             var bot = new NotifyBot(configuration.repository(repoName), configuration.storageFolder(), branchPattern,
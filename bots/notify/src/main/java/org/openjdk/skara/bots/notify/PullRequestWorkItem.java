@@ -109,6 +109,16 @@ public class PullRequestWorkItem implements WorkItem {
         return false;
     }
 
+    @Override
+    public Optional<String> conflictKey() {
+        return Optional.of(PullRequestWorkItem.class.getName() + ":" + pr.repository().name() + "#" + pr.id());
+    }
+
+    @Override
+    public Optional<String> scratchAffinity() {
+        return Optional.of(pr.repository().webUrl().toString());
+    }
+
     private void notifyListenersAdded(String issueId) {
         pullRequestUpdateConsumers.forEach(c -> c.handleNewIssue(pr, new Issue(issueId, "")));
     }
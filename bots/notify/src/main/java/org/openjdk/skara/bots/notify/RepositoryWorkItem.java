@@ -256,6 +256,16 @@ public class RepositoryWorkItem implements WorkItem {
         return false;
     }
 
+    @Override
+    public Optional<String> conflictKey() {
+        return Optional.of(RepositoryWorkItem.class.getName() + ":" + repository.name());
+    }
+
+    @Override
+    public Optional<String> scratchAffinity() {
+        return Optional.of(repository.webUrl().toString());
+    }
+
     @Override
     public void run(Path scratchPath) {
         var sanitizedUrl = URLEncoder.encode(repository.webUrl().toString() + "v2", StandardCharsets.UTF_8);
@@ -265,22 +275,27 @@ public class RepositoryWorkItem implements WorkItem {
         try {
             var localRepo = fetchAll(path, repository.url());
             var history = UpdateHistory.create(tagStorageBuilder, historyPath.resolve("tags"), branchStorageBuilder, historyPath.resolve("branches"));
-            handleTags(localRepo, history);
-
-            var knownRefs = localRepo.remoteBranches("origin")
-                                     .stream()
-                                     .filter(ref -> branches.matcher(ref.name()).matches())
-                                     .collect(Collectors.toList());
-            boolean hasBranchHistory = knownRefs.stream()
-                                                .map(ref -> history.branchHash(new Branch(ref.name())))
-                                                .anyMatch(Optional::isPresent);
-            for (var ref : knownRefs) {
-                if (!hasBranchHistory) {
-                    log.warning("No previous history found for any branch - resetting mark for '" + ref.name() + "'");
-                    history.setBranchHash(new Branch(ref.name()), ref.hash());
-                } else {
-                    handleRef(localRepo, history, ref, knownRefs);
+            try {
+                handleTags(localRepo, history);
+
+                var knownRefs = localRepo.remoteBranches("origin")
+                                         .stream()
+                                         .filter(ref -> branches.matcher(ref.name()).matches())
+                                         .collect(Collectors.toList());
+                boolean hasBranchHistory = knownRefs.stream()
+                                                    .map(ref -> history.branchHash(new Branch(ref.name())))
+                                                    .anyMatch(Optional::isPresent);
+                for (var ref : knownRefs) {
+                    if (!hasBranchHistory) {
+                        log.warning("No previous history found for any branch - resetting mark for '" + ref.name() + "'");
+                        history.setBranchHash(new Branch(ref.name()), ref.hash());
+                    } else {
+                        handleRef(localRepo, history, ref, knownRefs);
+                    }
                 }
+            } finally {
+                // Everything that has been notified so far must be recorded, even if a later update failed
+                history.flush();
             }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
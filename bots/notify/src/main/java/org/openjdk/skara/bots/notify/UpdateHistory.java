@@ -27,6 +27,7 @@ import org.openjdk.skara.vcs.*;
 
 import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.*;
 
 class UpdateHistory {
@@ -82,11 +83,13 @@ class UpdateHistory {
         this.tagStorage = tagStorageBuilder
                 .serializer(this::serializeTags)
                 .deserializer(this::loadTags)
+                .appendOnly(Function.identity())
                 .materialize(tagLocation);
 
         this.branchStorage = branchStorageBuilder
                 .serializer(this::serializeBranches)
                 .deserializer(this::loadBranches)
+                .appendOnly(ResolvedBranch::branch)
                 .materialize(branchLocation);
 
         tags = currentTags();
@@ -133,6 +136,14 @@ class UpdateHistory {
         branches = newBranchHashes;
     }
 
+    /**
+     * Write all deferred history updates to permanent storage.
+     */
+    void flush() {
+        tagStorage.flush();
+        branchStorage.flush();
+    }
+
     Optional<Hash> branchHash(Branch branch) {
         var hash = branches.get(branch);
         return Optional.ofNullable(hash);
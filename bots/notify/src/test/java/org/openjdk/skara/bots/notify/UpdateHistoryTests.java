@@ -32,6 +32,7 @@ import org.junit.jupiter.api.*;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.time.Duration;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -49,11 +50,17 @@ class UpdateHistoryTests {
     }
 
     private UpdateHistory createHistory(HostedRepository repository, String ref) throws IOException {
+        return createHistory(repository, ref, null);
+    }
+
+    private UpdateHistory createHistory(HostedRepository repository, String ref, Duration writeBehind) throws IOException {
         var folder = Files.createTempDirectory("updatehistory");
         var tagStorage = new StorageBuilder<Tag>("tags.txt")
-                                       .remoteRepository(repository, ref, "Duke", "duke@openjdk.java.net", "Updated tags");
+                                       .remoteRepository(repository, ref, "Duke", "duke@openjdk.java.net", "Updated tags")
+                                       .writeBehind(writeBehind);
         var branchStorage = new StorageBuilder<ResolvedBranch>("branches.txt")
-                .remoteRepository(repository, ref, "Duke", "duke@openjdk.java.net", "Updated branches");
+                .remoteRepository(repository, ref, "Duke", "duke@openjdk.java.net", "Updated branches")
+                .writeBehind(writeBehind);
         return UpdateHistory.create(tagStorage,folder.resolve("tags"), branchStorage, folder.resolve("branches"));
     }
 
@@ -131,4 +138,37 @@ class UpdateHistoryTests {
             assertTrue(history2.hasTag(new Tag("4")));
         }
     }
+
+    @Test
+    void writeBehind(TestInfo testInfo) throws IOException {
+        try (var credentials = new HostCredentials(testInfo)) {
+            var repository = credentials.getHostedRepository();
+            var ref = resetHostedRepository(repository);
+            var history = createHistory(repository, ref, Duration.ofDays(1));
+            var initialHash = repository.branchHash(ref);
+
+            history.addTags(List.of(new Tag("1")));
+            history.addTags(List.of(new Tag("2")));
+            history.setBranchHash(new Branch("1"), new Hash("a"));
+            history.setBranchHash(new Branch("1"), new Hash("b"));
+
+            // Visible locally, but nothing pushed yet
+            assertTrue(history.hasTag(new Tag("1")));
+            assertTrue(history.hasTag(new Tag("2")));
+            assertEquals(new Hash("b"), history.branchHash(new Branch("1")).orElseThrow());
+            assertEquals(initialHash, repository.branchHash(ref));
+
+            // Concurrent update by someone else
+            var otherHistory = createHistory(repository, ref);
+            otherHistory.addTags(List.of(new Tag("3")));
+
+            history.flush();
+
+            var newHistory = createHistory(repository, ref);
+            assertTrue(newHistory.hasTag(new Tag("1")));
+            assertTrue(newHistory.hasTag(new Tag("2")));
+            assertTrue(newHistory.hasTag(new Tag("3")));
+            assertEquals(new Hash("b"), newHistory.branchHash(new Branch("1")).orElseThrow());
+        }
+    }
 }
@@ -226,13 +226,14 @@ class CheckRun {
     }
 
     private String getRole(String username) {
-        var project = censusInstance.project();
         var version = censusInstance.census().version().format();
-        if (project.isReviewer(username, version)) {
+        var roles = censusInstance.roles(version);
+        var id = censusInstance.view(version).id(username);
+        if (roles.isReviewer(id)) {
             return "**Reviewer**";
-        } else if (project.isCommitter(username, version)) {
+        } else if (roles.isCommitter(id)) {
             return "Committer";
-        } else if (project.isAuthor(username, version)) {
+        } else if (roles.isAuthor(id)) {
             return "Author";
         } else {
             return "no project role";
@@ -22,6 +22,7 @@
  */
 package org.openjdk.skara.bots.pr;
 
+import org.openjdk.skara.census.CensusView;
 import org.openjdk.skara.forge.*;
 import org.openjdk.skara.host.*;
 import org.openjdk.skara.issuetracker.*;
@@ -47,18 +48,15 @@ class CheckWorkItem extends PullRequestWorkItem {
     }
 
     private String encodeReviewer(HostUser reviewer, CensusInstance censusInstance) {
-        var census = censusInstance.census();
-        var project = censusInstance.project();
-        var namespace = censusInstance.namespace();
-        var contributor = namespace.get(reviewer.id());
-        if (contributor == null) {
+        var censusVersion = censusInstance.census().version().format();
+        var view = censusInstance.view(censusVersion);
+        var roles = censusInstance.roles(censusVersion);
+        var id = view.id(censusInstance.namespace().name(), reviewer.id());
+        if (id == CensusView.UNKNOWN) {
             return "unknown-" + reviewer.id();
         } else {
-            var censusVersion = census.version().format();
-            var userName = contributor.username();
-            return contributor.username() + project.isLead(userName, censusVersion) +
-                    project.isReviewer(userName, censusVersion) + project.isCommitter(userName, censusVersion) +
-                    project.isAuthor(userName, censusVersion);
+            return view.contributor(id).username() + roles.isLead(id) + roles.isReviewer(id) +
+                    roles.isCommitter(id) + roles.isAuthor(id);
         }
     }
 
@@ -70,8 +68,9 @@ class CheckWorkItem extends PullRequestWorkItem {
                                         .map(review -> encodeReviewer(review.reviewer(), censusInstance) + review.hash().hex())
                                         .sorted()
                                         .collect(Collectors.joining());
+            var botUserId = pr.repository().forge().currentUser().id();
             var commentString = comments.stream()
-                                        .filter(comment -> comment.author().id().equals(pr.repository().forge().currentUser().id()))
+                                        .filter(comment -> comment.author().id().equals(botUserId))
                                         .flatMap(comment -> comment.body().lines())
                                         .filter(line -> metadataComments.matcher(line).find())
                                         .collect(Collectors.joining());
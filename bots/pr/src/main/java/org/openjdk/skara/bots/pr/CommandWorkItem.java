@@ -125,6 +125,11 @@ public class CommandWorkItem extends PullRequestWorkItem {
         pr.addComment(writer.toString());
     }
 
+    @Override
+    public Priority priority() {
+        return Priority.INTERACTIVE;
+    }
+
     @Override
     public void run(Path scratchPath) {
         log.info("Looking for merge commands");
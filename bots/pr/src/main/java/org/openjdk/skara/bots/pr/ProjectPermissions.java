@@ -26,31 +26,14 @@ import org.openjdk.skara.host.HostUser;
 
 class ProjectPermissions {
     static boolean mayCommit(CensusInstance censusInstance, HostUser user) {
-        var census = censusInstance.census();
-        var project = censusInstance.project();
-        var namespace = censusInstance.namespace();
-        int version = census.version().format();
-
-        var contributor = namespace.get(user.id());
-        if (contributor == null) {
-            return false;
-        }
-        return project.isCommitter(contributor.username(), version) ||
-                project.isReviewer(contributor.username(), version) ||
-                project.isLead(contributor.username(), version);
+        var version = censusInstance.census().version().format();
+        var id = censusInstance.view(version).id(censusInstance.namespace().name(), user.id());
+        return censusInstance.roles(version).isCommitter(id);
     }
 
     static boolean mayReview(CensusInstance censusInstance, HostUser user) {
-        var census = censusInstance.census();
-        var project = censusInstance.project();
-        var namespace = censusInstance.namespace();
-        int version = census.version().format();
-
-        var contributor = namespace.get(user.id());
-        if (contributor == null) {
-            return false;
-        }
-        return project.isReviewer(contributor.username(), version) ||
-                project.isLead(contributor.username(), version);
+        var version = censusInstance.census().version().format();
+        var id = censusInstance.view(version).id(censusInstance.namespace().name(), user.id());
+        return censusInstance.roles(version).isReviewer(id);
     }
 }
@@ -67,7 +67,7 @@ class PullRequestBot implements Bot {
         this.allowedTargetBranches = allowedTargetBranches;
 
         this.currentLabels = new ConcurrentHashMap<>();
-        this.updateCache = new PullRequestUpdateCache();
+        this.updateCache = new PullRequestUpdateCache("pr");
     }
 
     static PullRequestBotBuilder newBuilder() {
@@ -107,8 +107,10 @@ class PullRequestBot implements Bot {
     private List<WorkItem> getWorkItems(List<PullRequest> pullRequests) {
         var ret = new LinkedList<WorkItem>();
 
-        for (var pr : pullRequests) {
-            if (updateCache.needsUpdate(pr)) {
+        for (var updatedPr : pullRequests) {
+            if (updateCache.needsUpdate(updatedPr)) {
+                // All items for this update share the data fetched for it
+                var pr = PullRequestSnapshot.of(updatedPr);
                 if (!isReady(pr)) {
                     continue;
                 }
@@ -129,6 +131,9 @@ class PullRequestBot implements Bot {
 
     @Override
     public List<WorkItem> processWebHook(JSONValue body) {
+        if (!remoteRepo.supportsWebHooks()) {
+            return new ArrayList<>();
+        }
         var webHook = remoteRepo.parseWebHook(body);
         if (webHook.isEmpty()) {
             return new ArrayList<>();
@@ -137,6 +142,16 @@ class PullRequestBot implements Bot {
         return getWorkItems(webHook.get().updatedPullRequests());
     }
 
+    @Override
+    public boolean isWebHookDriven() {
+        return remoteRepo.supportsWebHooks();
+    }
+
+    @Override
+    public boolean isWebHookFor(JSONValue body) {
+        return remoteRepo.supportsWebHooks() && remoteRepo.parseWebHook(body).isPresent();
+    }
+
     HostedRepository censusRepo() {
         return censusRepo;
     }
@@ -81,13 +81,13 @@ class PullRequestInstance {
                                      .collect(Collectors.toList());
 
         var comments = pr.comments();
-        var additionalContributors = Contributors.contributors(pr.repository().forge().currentUser(),
-                                                               comments).stream()
+        var botUser = pr.repository().forge().currentUser();
+        var additionalContributors = Contributors.contributors(botUser, comments).stream()
                                                  .map(email -> Author.fromString(email.toString()))
                                                  .collect(Collectors.toList());
 
-        var additionalIssues = SolvesTracker.currentSolved(pr.repository().forge().currentUser(), comments);
-        var summary = Summary.summary(pr.repository().forge().currentUser(), comments);
+        var additionalIssues = SolvesTracker.currentSolved(botUser, comments);
+        var summary = Summary.summary(botUser, comments);
         var issue = Issue.fromString(pr.title());
         var commitMessageBuilder = issue.map(CommitMessage::title).orElseGet(() -> CommitMessage.title(isMerge ? "Merge" : pr.title()));
         if (issue.isPresent()) {
@@ -25,6 +25,7 @@ package org.openjdk.skara.bots.pr;
 import org.openjdk.skara.bot.WorkItem;
 import org.openjdk.skara.forge.PullRequest;
 
+import java.util.Optional;
 import java.util.function.Consumer;
 
 abstract class PullRequestWorkItem implements WorkItem {
@@ -53,6 +54,16 @@ abstract class PullRequestWorkItem implements WorkItem {
         return false;
     }
 
+    @Override
+    public final Optional<String> conflictKey() {
+        return Optional.of(PullRequestWorkItem.class.getName() + ":" + pr.repository().name() + "#" + pr.id());
+    }
+
+    @Override
+    public final Optional<String> scratchAffinity() {
+        return Optional.of(pr.repository().webUrl().toString());
+    }
+
     @Override
     public final void handleRuntimeException(RuntimeException e) {
         errorHandler.accept(e);
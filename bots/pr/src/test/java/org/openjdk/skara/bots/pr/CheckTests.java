@@ -90,6 +90,53 @@ class CheckTests {
         }
     }
 
+    @Test
+    void batchFetched(TestInfo testInfo) throws IOException {
+        try (var credentials = new HostCredentials(testInfo);
+             var tempFolder = new TemporaryDirectory()) {
+            var author = credentials.getHostedRepository();
+            var reviewer = credentials.getHostedRepository();
+            assumeTrue(author.forge() instanceof TestHost);
+            ((TestHost) author.forge()).setBatchFetch(true);
+
+            var censusBuilder = credentials.getCensusBuilder()
+                                           .addAuthor(author.forge().currentUser().id())
+                                           .addReviewer(reviewer.forge().currentUser().id());
+            var checkBot = PullRequestBot.newBuilder().repo(author).censusRepo(censusBuilder.build()).build();
+
+            // Populate the projects repository
+            var localRepo = CheckableRepository.init(tempFolder.path(), author.repositoryType());
+            var masterHash = localRepo.resolve("master").orElseThrow();
+            localRepo.push(masterHash, author.url(), "master", true);
+
+            // Make a change with a corresponding PR
+            var editHash = CheckableRepository.appendAndCommit(localRepo);
+            localRepo.push(editHash, author.url(), "refs/heads/edit", true);
+            var pr = credentials.createPullRequest(author, "master", "edit", "This is a pull request");
+
+            // Check the status
+            TestBotRunner.runPeriodicItems(checkBot);
+
+            // Verify that the check succeeded
+            var checks = pr.checks(editHash);
+            assertEquals(1, checks.size());
+            assertEquals(CheckStatus.SUCCESS, checks.get("jcheck").status());
+            assertTrue(pr.labels().contains("rfr"));
+            assertFalse(pr.labels().contains("ready"));
+
+            // Approve it as another user
+            var approvalPr = reviewer.pullRequest(pr.id());
+            approvalPr.addReview(Review.Verdict.APPROVED, "Approved");
+
+            // The approval is picked up from the next listing
+            TestBotRunner.runPeriodicItems(checkBot);
+            checks = pr.checks(editHash);
+            assertEquals(1, checks.size());
+            assertEquals(CheckStatus.SUCCESS, checks.get("jcheck").status());
+            assertTrue(pr.labels().contains("ready"));
+        }
+    }
+
     @Test
     void whitespaceIssue(TestInfo testInfo) throws IOException {
         try (var credentials = new HostCredentials(testInfo);
@@ -29,6 +29,7 @@ import org.openjdk.skara.vcs.Repository;
 import java.io.*;
 import java.nio.file.Path;
 import java.time.*;
+import java.util.Optional;
 import java.util.logging.Logger;
 
 public class SubmitBotWorkItem implements WorkItem {
@@ -66,6 +67,16 @@ public class SubmitBotWorkItem implements WorkItem {
         return false;
     }
 
+    @Override
+    public Optional<String> conflictKey() {
+        return Optional.of(SubmitBotWorkItem.class.getName() + ":" + bot.repository().name() + "#" + pr.id() + "/" + executor.checkName());
+    }
+
+    @Override
+    public Optional<String> scratchAffinity() {
+        return Optional.of(pr.repository().webUrl().toString());
+    }
+
     @Override
     public void run(Path scratchPath) {
         // Is the check already up to date?
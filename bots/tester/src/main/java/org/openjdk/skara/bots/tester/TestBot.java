@@ -67,7 +67,7 @@ public class TestBot implements Bot {
         this.name = name;
         this.storage = storage;
         this.repo = repo;
-        this.cache = new PullRequestUpdateCache();
+        this.cache = new PullRequestUpdateCache("test");
         this.states = new HashMap<>();
     }
 
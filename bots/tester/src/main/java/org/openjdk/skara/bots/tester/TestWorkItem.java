@@ -71,6 +71,11 @@ public class TestWorkItem implements WorkItem {
         return !pr.id().equals(o.pr.id());
     }
 
+    @Override
+    public Optional<String> conflictKey() {
+        return Optional.of(TestWorkItem.class.getName() + ":" + repository.url() + "#" + pr.id());
+    }
+
 
     private String jobId(State state) {
         var host = repository.webUrl().getHost();
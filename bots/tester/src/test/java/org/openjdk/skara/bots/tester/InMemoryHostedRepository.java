@@ -110,6 +110,11 @@ class InMemoryHostedRepository implements HostedRepository {
         return null;
     }
 
+    @Override
+    public boolean supportsWebHooks() {
+        return false;
+    }
+
     @Override
     public HostedRepository fork() {
         return null;
@@ -34,6 +34,7 @@ import java.nio.file.Files;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -64,6 +65,11 @@ class TopologicalBot implements Bot, WorkItem {
         return !hostedRepo.name().equals(otherBot.hostedRepo.name());
     }
 
+    @Override
+    public Optional<String> conflictKey() {
+        return Optional.of(TopologicalBot.class.getName() + ":" + hostedRepo.name());
+    }
+
     @Override
     public void run(Path scratchPath) {
         log.info("Starting topobot run");
@@ -25,6 +25,7 @@ package org.openjdk.skara.census;
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import java.util.stream.*;
 import java.net.URI;
@@ -42,6 +43,7 @@ public class Census {
     private final Map<String, Project> projects;
     private final Map<String, Namespace> namespaces;
     private final Version version;
+    private final Map<Integer, CensusView> views = new ConcurrentHashMap<>();
 
     Census(Map<String, Contributor> contributors, Map<String, Group> groups, List<Project> projects, List<Namespace> namespaces, Version version) {
         this.contributors = contributors;
@@ -107,45 +109,19 @@ public class Census {
         return version;
     }
 
-    private static List<Path> xmlFiles(Path dir) throws IOException {
-        var files = new ArrayList<Path>();
-
-        if (Files.isDirectory(dir)) {
-            try (var stream = Files.newDirectoryStream(dir, "*.xml")) {
-                for (var xmlFile : stream) {
-                    files.add(xmlFile);
-                }
-            }
-        }
-
-        return files;
+    /**
+     * The compiled view of this census for the given census version. The view is
+     * only built once per version, so the census must not be modified afterwards.
+     * @param version
+     * @return
+     */
+    public CensusView view(int version) {
+        return views.computeIfAbsent(version, v -> new CensusView(this, v));
     }
 
     private static Census parseDirectory(Path p) throws IOException {
         log.finer("Parsing directory " + p.toString());
-        var contributorsFile = p.resolve("contributors.xml");
-        var contributors = Files.exists(contributorsFile) ?
-            Contributors.parse(contributorsFile) : new HashMap<String, Contributor>();
-
-        var groups = new ArrayList<Group>();
-        for (var file : xmlFiles(p.resolve("groups"))) {
-            groups.add(Group.parse(file, contributors));
-        }
-        var groupMap = groups.stream().collect(toMap(Group::name, identity()));
-
-        var projects = new ArrayList<Project>();
-        for (var file : xmlFiles(p.resolve("projects"))) {
-            projects.add(Project.parse(file, groupMap, contributors));
-        }
-
-        var namespaces = new ArrayList<Namespace>();
-        for (var file : xmlFiles(p.resolve("namespaces"))) {
-            namespaces.add(Namespace.parse(file, contributors));
-        }
-
-        var version = Version.parse(p.resolve("version.xml"));
-
-        return new Census(contributors, groupMap, projects, namespaces, version);
+        return new CensusLoader().load(p);
     }
 
     private static Census parseDocument(Document document) throws IOException {
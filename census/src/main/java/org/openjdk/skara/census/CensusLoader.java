@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.census;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Parses census directories, reusing the parsed form of every file whose content is unchanged since the
+ * previous load. Files are identified by their git blob hash. The returned Census instances are never
+ * modified afterwards, and can be shared freely between threads.
+ */
+public class CensusLoader {
+    private static final Logger log = Logger.getLogger("org.openjdk.skara.census");
+
+    private static class Parsed<T> {
+        private final String hash;
+        private final T value;
+
+        Parsed(String hash, T value) {
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    private Parsed<Map<String, Contributor>> contributors;
+    private Map<Path, Parsed<Group>> groups = new HashMap<>();
+    private Map<Path, Parsed<Project>> projects = new HashMap<>();
+    private Map<Path, Parsed<Namespace>> namespaces = new HashMap<>();
+    private Set<String> usernames = Set.of();
+    private long parsedFiles = 0;
+    private long reusedFiles = 0;
+
+    public CensusLoader() {
+    }
+
+    static String blobHash(Path file) throws IOException {
+        var content = Files.readAllBytes(file);
+        try {
+            var digest = MessageDigest.getInstance("SHA-1");
+            digest.update(("blob " + content.length + "\0").getBytes(StandardCharsets.US_ASCII));
+            digest.update(content);
+            var hex = new StringBuilder();
+            for (var b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<Path> xmlFiles(Path dir) throws IOException {
+        var files = new ArrayList<Path>();
+        if (Files.isDirectory(dir)) {
+            try (var stream = Files.newDirectoryStream(dir, "*.xml")) {
+                for (var xmlFile : stream) {
+                    files.add(xmlFile);
+                }
+            }
+        }
+        return files;
+    }
+
+    private interface FileParser<T> {
+        T parse(Path file) throws IOException;
+    }
+
+    private <T> Parsed<T> reuseOrParse(Map<Path, Parsed<T>> previous, Path relative, Path file, FileParser<T> parser) throws IOException {
+        var hash = blobHash(file);
+        var cached = previous.get(relative);
+        if (cached != null && cached.hash.equals(hash)) {
+            reusedFiles++;
+            return cached;
+        }
+        parsedFiles++;
+        return new Parsed<>(hash, parser.parse(file));
+    }
+
+    /**
+     * Parses the census in directory <code>p</code>.
+     * @param p
+     * @return
+     * @throws IOException
+     */
+    public synchronized Census load(Path p) throws IOException {
+        log.finer("Loading census directory " + p.toString());
+        var contributorsFile = p.resolve("contributors.xml");
+        var contributorsHash = Files.exists(contributorsFile) ? blobHash(contributorsFile) : "";
+        if (contributors == null || !contributors.hash.equals(contributorsHash)) {
+            // Every other file refers to the contributors, so nothing can be reused
+            parsedFiles++;
+            contributors = new Parsed<>(contributorsHash, Files.exists(contributorsFile) ?
+                    Contributors.parse(contributorsFile) : Map.of());
+            groups = new HashMap<>();
+            projects = new HashMap<>();
+            namespaces = new HashMap<>();
+        } else {
+            reusedFiles++;
+        }
+        var contributorMap = new HashMap<>(contributors.value);
+
+        var newGroups = new HashMap<Path, Parsed<Group>>();
+        var groupsChanged = false;
+        for (var file : xmlFiles(p.resolve("groups"))) {
+            var relative = p.relativize(file);
+            var parsed = reuseOrParse(groups, relative, file, f -> Group.parse(f, contributorMap));
+            for (var member : parsed.value.members()) {
+                contributorMap.putIfAbsent(member.username(), member);
+            }
+            groupsChanged |= parsed != groups.get(relative);
+            newGroups.put(relative, parsed);
+        }
+        if (groupsChanged || newGroups.size() != groups.size()) {
+            // Projects refer to their sponsoring group
+            projects = new HashMap<>();
+        }
+        groups = newGroups;
+        var groupMap = groups.values().stream()
+                             .map(g -> g.value)
+                             .collect(toMap(Group::name, identity()));
+
+        var newProjects = new HashMap<Path, Parsed<Project>>();
+        for (var file : xmlFiles(p.resolve("projects"))) {
+            var relative = p.relativize(file);
+            var parsed = reuseOrParse(projects, relative, file, f -> Project.parse(f, groupMap, contributorMap));
+            for (var contributor : parsed.value.contributors()) {
+                contributorMap.putIfAbsent(contributor.username(), contributor);
+            }
+            newProjects.put(relative, parsed);
+        }
+        projects = newProjects;
+
+        if (!contributorMap.keySet().equals(usernames)) {
+            // Namespaces may only refer to known contributors
+            namespaces = new HashMap<>();
+            usernames = Set.copyOf(contributorMap.keySet());
+        }
+        var newNamespaces = new HashMap<Path, Parsed<Namespace>>();
+        for (var file : xmlFiles(p.resolve("namespaces"))) {
+            var relative = p.relativize(file);
+            newNamespaces.put(relative, reuseOrParse(namespaces, relative, file, f -> Namespace.parse(f, contributorMap)));
+        }
+        namespaces = newNamespaces;
+
+        var version = Version.parse(p.resolve("version.xml"));
+
+        return new Census(Collections.unmodifiableMap(contributorMap),
+                          Collections.unmodifiableMap(groupMap),
+                          projects.values().stream().map(parsed -> parsed.value).collect(Collectors.toList()),
+                          namespaces.values().stream().map(parsed -> parsed.value).collect(Collectors.toList()),
+                          version);
+    }
+
+    /**
+     * Number of files that have been parsed.
+     * @return
+     */
+    public synchronized long parsedFiles() {
+        return parsedFiles;
+    }
+
+    /**
+     * Number of files whose earlier parsed form could be reused.
+     * @return
+     */
+    public synchronized long reusedFiles() {
+        return reusedFiles;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.census;
+
+import java.util.*;
+
+/**
+ * A compiled, read-only view of a census for a single census version. Contributors are
+ * interned to dense integer ids, and the project roles are stored as bitsets over these
+ * ids, so that role queries do not allocate and do not depend on the number of roles.
+ */
+public class CensusView {
+    public static final int UNKNOWN = -1;
+
+    private final int version;
+    private final Contributor[] contributors;
+    private final Map<String, Integer> ids;
+    private final Map<String, Map<String, Integer>> namespaces;
+    private final Map<String, Roles> projects;
+
+    public static class Roles {
+        private final Project project;
+        private final BitSet leads;
+        private final BitSet reviewers;
+        private final BitSet committers;
+        private final BitSet authors;
+        private final Contributor lead;
+        private final Set<Contributor> reviewerSet;
+        private final Set<Contributor> committerSet;
+        private final Set<Contributor> authorSet;
+
+        private Roles(Project project, int version, Map<String, Integer> ids) {
+            this.project = project;
+            leads = new BitSet(ids.size());
+            reviewers = new BitSet(ids.size());
+            committers = new BitSet(ids.size());
+            authors = new BitSet(ids.size());
+            for (var contributor : project.contributors()) {
+                var username = contributor.username();
+                int id = ids.get(username);
+                if (project.isLead(username, version)) {
+                    leads.set(id);
+                }
+                if (project.isReviewer(username, version)) {
+                    reviewers.set(id);
+                }
+                if (project.isCommitter(username, version)) {
+                    committers.set(id);
+                }
+                if (project.isAuthor(username, version)) {
+                    authors.set(id);
+                }
+            }
+            lead = project.lead(version);
+            reviewerSet = Collections.unmodifiableSet(project.reviewers(version));
+            committerSet = Collections.unmodifiableSet(project.committers(version));
+            authorSet = Collections.unmodifiableSet(project.authors(version));
+        }
+
+        private static boolean test(BitSet roles, int id) {
+            return id >= 0 && roles.get(id);
+        }
+
+        public Project project() {
+            return project;
+        }
+
+        public boolean isLead(int id) {
+            return test(leads, id);
+        }
+
+        public boolean isReviewer(int id) {
+            return test(reviewers, id);
+        }
+
+        public boolean isCommitter(int id) {
+            return test(committers, id);
+        }
+
+        public boolean isAuthor(int id) {
+            return test(authors, id);
+        }
+
+        public Contributor lead() {
+            return lead;
+        }
+
+        public Set<Contributor> reviewers() {
+            return reviewerSet;
+        }
+
+        public Set<Contributor> committers() {
+            return committerSet;
+        }
+
+        public Set<Contributor> authors() {
+            return authorSet;
+        }
+    }
+
+    CensusView(Census census, int version) {
+        this.version = version;
+
+        var usernames = new TreeSet<String>();
+        for (var contributor : census.contributors()) {
+            usernames.add(contributor.username());
+        }
+        for (var project : census.projects()) {
+            for (var contributor : project.contributors()) {
+                usernames.add(contributor.username());
+            }
+        }
+
+        contributors = new Contributor[usernames.size()];
+        var ids = new HashMap<String, Integer>();
+        for (var username : usernames) {
+            var id = ids.size();
+            ids.put(username, id);
+            contributors[id] = census.contributor(username);
+        }
+        for (var project : census.projects()) {
+            for (var contributor : project.contributors()) {
+                var id = ids.get(contributor.username());
+                if (contributors[id] == null) {
+                    contributors[id] = contributor;
+                }
+            }
+        }
+        this.ids = Collections.unmodifiableMap(ids);
+
+        var namespaces = new HashMap<String, Map<String, Integer>>();
+        for (var namespace : census.namespaces()) {
+            var table = new HashMap<String, Integer>();
+            for (var entry : namespace.mapping().entrySet()) {
+                var id = ids.get(entry.getValue().username());
+                if (id != null) {
+                    table.put(entry.getKey(), id);
+                }
+            }
+            namespaces.put(namespace.name(), Collections.unmodifiableMap(table));
+        }
+        this.namespaces = Collections.unmodifiableMap(namespaces);
+
+        var projects = new HashMap<String, Roles>();
+        for (var project : census.projects()) {
+            projects.put(project.name(), new Roles(project, version, ids));
+        }
+        this.projects = Collections.unmodifiableMap(projects);
+    }
+
+    public int version() {
+        return version;
+    }
+
+    /**
+     * The interned id of the contributor with the given census username.
+     * @param username
+     * @return the id, or UNKNOWN if there is no such contributor
+     */
+    public int id(String username) {
+        var id = ids.get(username);
+        return id == null ? UNKNOWN : id;
+    }
+
+    /**
+     * The interned id of the contributor mapped to the given user id in a namespace.
+     * @param namespace
+     * @param userId
+     * @return the id, or UNKNOWN if the namespace or user is not known
+     */
+    public int id(String namespace, String userId) {
+        var table = namespaces.get(namespace);
+        if (table == null) {
+            return UNKNOWN;
+        }
+        var id = table.get(userId);
+        return id == null ? UNKNOWN : id;
+    }
+
+    public Contributor contributor(int id) {
+        if (id < 0 || id >= contributors.length) {
+            return null;
+        }
+        return contributors[id];
+    }
+
+    public Roles project(String name) {
+        return projects.get(name);
+    }
+}
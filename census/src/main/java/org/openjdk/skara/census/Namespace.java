@@ -49,6 +49,10 @@ public class Namespace {
         return reverse.get(contributor);
     }
 
+    Map<String, Contributor> mapping() {
+        return Collections.unmodifiableMap(mapping);
+    }
+
     static Namespace parse(Path p, Map<String, Contributor> contributors) throws IOException {
         var mapping = new HashMap<String, Contributor>();
         var reverse = new HashMap<Contributor, String>();
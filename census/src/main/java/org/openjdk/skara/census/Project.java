@@ -110,6 +110,20 @@ public class Project {
         return result;
     }
 
+    /**
+     * All contributors having any role in this project, at any version.
+     * @return
+     */
+    Set<Contributor> contributors() {
+        var result = new HashSet<Contributor>();
+        for (var category : List.of(leaders, reviewers, committers, authors)) {
+            for (var member : category.values()) {
+                result.add(member.contributor());
+            }
+        }
+        return result;
+    }
+
     public Contributor lead(int version) {
         var leadersAtVersion = members(leaders, version);
         if (leadersAtVersion.size() != 1) {
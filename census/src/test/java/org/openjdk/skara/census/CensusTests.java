@@ -167,4 +167,77 @@ class CensusTests {
 
         Files.delete(tmpFile);
     }
+
+    @Test
+    void testBlobHash() throws IOException {
+        var file = Files.createTempFile("census", ".xml");
+        Files.writeString(file, "hello\n");
+        assertEquals("ce013625030ba8dba906f756967f9e9ca394464a", CensusLoader.blobHash(file));
+    }
+
+    @Test
+    void testLoaderReusesUnchangedFiles() throws IOException {
+        var censusDir = createCensusDirectory();
+        var loader = new CensusLoader();
+
+        var first = loader.load(censusDir);
+        assertEquals(4, loader.parsedFiles());
+        assertEquals(0, loader.reusedFiles());
+
+        var second = loader.load(censusDir);
+        assertEquals(4, loader.parsedFiles());
+        assertEquals(4, loader.reusedFiles());
+        assertEquals(first.projects(), second.projects());
+        assertSame(first.namespace("github.com"), second.namespace("github.com"));
+
+        var projectFile = censusDir.resolve("projects").resolve("test.xml");
+        Files.writeString(projectFile, Files.readString(projectFile).replace("<reviewer username=\"user2\" since=\"1\" />",
+                                                                            "<reviewer username=\"user2\" since=\"2\" />"));
+        var third = loader.load(censusDir);
+        assertEquals(5, loader.parsedFiles());
+        assertFalse(third.project("project1").isReviewer("user2", 1));
+        assertTrue(third.project("project1").isReviewer("user2", 2));
+        assertEquals(Census.parse(censusDir).projects(), third.projects());
+
+        var contributorsFile = censusDir.resolve("contributors.xml");
+        Files.writeString(contributorsFile, Files.readString(contributorsFile).replace("User One", "User Uno"));
+        var fourth = loader.load(censusDir);
+        assertEquals(9, loader.parsedFiles());
+        assertEquals("User Uno", fourth.contributor("user1").fullName().orElseThrow());
+        assertEquals("User Uno", fourth.namespace("github.com").get("1234567").fullName().orElseThrow());
+    }
+
+    @Test
+    void testView() throws IOException {
+        var censusDir = createCensusDirectory();
+        var census = Census.parse(censusDir);
+        var view = census.view(1);
+        assertSame(view, census.view(1));
+
+        var project = census.project("project1");
+        var roles = view.project("project1");
+        for (var username : List.of("user1", "user2", "user3", "user4", "unknown")) {
+            var id = view.id(username);
+            assertEquals(project.isLead(username, 1), roles.isLead(id));
+            assertEquals(project.isReviewer(username, 1), roles.isReviewer(id));
+            assertEquals(project.isCommitter(username, 1), roles.isCommitter(id));
+            assertEquals(project.isAuthor(username, 1), roles.isAuthor(id));
+        }
+        assertEquals(CensusView.UNKNOWN, view.id("unknown"));
+        assertEquals(project.lead(1), roles.lead());
+        assertEquals(project.reviewers(1), roles.reviewers());
+        assertEquals(project.committers(1), roles.committers());
+        assertEquals(project.authors(1), roles.authors());
+
+        var user2 = view.id("github.com", "2345678");
+        assertEquals("user2", view.contributor(user2).username());
+        assertTrue(roles.isReviewer(user2));
+        assertFalse(roles.isLead(user2));
+        assertEquals(CensusView.UNKNOWN, view.id("github.com", "0"));
+        assertEquals(CensusView.UNKNOWN, view.id("gitlab.com", "2345678"));
+
+        var before = census.view(0).project("project1");
+        assertFalse(before.isAuthor(view.id("user4")));
+        assertNull(before.lead());
+    }
 }
@@ -96,6 +96,7 @@ public class Email {
         List<EmailAddress> recipients;
         if (message.headers.containsKey("To")) {
             recipients = Arrays.stream(message.headers.get("To").split(","))
+                               .map(String::strip)
                                .map(MimeText::decode)
                                .map(EmailAddress::parse)
                                .collect(Collectors.toList());
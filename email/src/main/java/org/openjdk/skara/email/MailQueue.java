@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.email;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Outbound mail queue, drained by a dedicated sender thread. Messages are appended to a journal
+ * file before {@link #enqueue} returns, and removed from it once delivered, so that nothing is
+ * lost if the process is restarted while the mail server is unavailable. Failed deliveries are
+ * retried with exponential backoff. A message that the server rejects permanently (a 5xx reply),
+ * or that still fails after {@value #maximumAttempts} attempts, is moved from the journal to a
+ * dead letter file next to it. A message that is a reply (through its In-Reply-To header) to
+ * a message that is still queued is never sent before its parent, while unrelated conversations
+ * keep flowing.
+ */
+public class MailQueue implements AutoCloseable {
+    private static final Logger log = Logger.getLogger("org.openjdk.skara.email");
+    private static final int minimumCompactionSize = 64;
+    private static final Duration initialBackoff = Duration.ofSeconds(1);
+    private static final Duration maximumBackoff = Duration.ofMinutes(10);
+    private static final int maximumAttempts = 50;
+    private static final Duration statisticsInterval = Duration.ofMinutes(10);
+
+    @FunctionalInterface
+    public interface Sender {
+        void send(List<EmailAddress> recipients, Email email) throws IOException;
+    }
+
+    private static class Entry {
+        private final long sequence;
+        private final Instant enqueued;
+        private final List<EmailAddress> recipients;
+        private final Email email;
+        private final String thread;
+        private int attempts;
+        private Instant notBefore;
+
+        Entry(long sequence, Instant enqueued, List<EmailAddress> recipients, Email email, String thread) {
+            this.sequence = sequence;
+            this.enqueued = enqueued;
+            this.recipients = recipients;
+            this.email = email;
+            this.thread = thread;
+            this.notBefore = enqueued;
+        }
+    }
+
+    private final Path journal;
+    private final Sender sender;
+    private final Duration sendInterval;
+    private final Thread senderThread;
+
+    // Guarded by this
+    private final LinkedHashMap<Long, Entry> pending = new LinkedHashMap<>();
+    private final Map<String, String> threads = new HashMap<>();
+    private long nextSequence;
+    private int journalLines;
+    private boolean closed;
+    private long sent;
+    private long failures;
+    private long dropped;
+    private Duration totalLatency = Duration.ZERO;
+    private Instant lastStatistics = Instant.now();
+
+    /**
+     * Create a queue backed by the given journal, restoring any messages left in it. Messages are
+     * passed to the sender one at a time, at most once per send interval.
+     * @param journal
+     * @param sender
+     * @param sendInterval
+     */
+    public MailQueue(Path journal, Sender sender, Duration sendInterval) {
+        this.journal = journal;
+        this.sender = sender;
+        this.sendInterval = sendInterval;
+
+        load();
+        senderThread = new Thread(this::drain, "mail-queue-" + journal.getFileName());
+        senderThread.setDaemon(true);
+        senderThread.start();
+    }
+
+    private static String encode(String value) {
+        return Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        return new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+
+    private static String serialize(Entry entry) {
+        var recipients = entry.recipients.stream()
+                                         .map(EmailAddress::toString)
+                                         .collect(Collectors.joining("\n"));
+        var email = String.join("\n", SMTP.headers(entry.email.recipients(), entry.email)) + "\n\n" + entry.email.body();
+        return "+\t" + entry.sequence + "\t" + entry.enqueued.toEpochMilli() + "\t" + encode(recipients) + "\t" + encode(email) + "\n";
+    }
+
+    private void load() {
+        if (!Files.exists(journal)) {
+            return;
+        }
+        try {
+            for (var line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+                journalLines++;
+                var fields = line.split("\t");
+                if (fields.length == 2 && fields[0].equals("-")) {
+                    pending.remove(Long.parseLong(fields[1]));
+                } else if (fields.length == 5 && fields[0].equals("+")) {
+                    var sequence = Long.parseLong(fields[1]);
+                    var enqueued = Instant.ofEpochMilli(Long.parseLong(fields[2]));
+                    var recipients = decode(fields[3]).lines()
+                                                      .map(EmailAddress::parse)
+                                                      .collect(Collectors.toList());
+                    var email = Email.parse(decode(fields[4]));
+                    pending.put(sequence, new Entry(sequence, enqueued, recipients, email, thread(email)));
+                    nextSequence = Math.max(nextSequence, sequence + 1);
+                } else {
+                    log.warning("Ignoring malformed line in mail queue journal " + journal);
+                }
+            }
+            if (!pending.isEmpty()) {
+                log.info("Restored " + pending.size() + " queued messages from " + journal);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warning("Failed to read mail queue journal " + journal + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * A key shared by all queued messages that must be delivered in order: a reply belongs to
+     * the same thread as its parent for as long as the parent is queued.
+     */
+    private String thread(Email email) {
+        var id = email.id().toString();
+        var thread = id;
+        if (email.hasHeader("In-Reply-To")) {
+            var parent = email.headerValue("In-Reply-To");
+            thread = threads.getOrDefault(parent, parent);
+        }
+        threads.put(id, thread);
+        return thread;
+    }
+
+    private void append(String line) throws IOException {
+        if (pending.isEmpty()) {
+            Files.deleteIfExists(journal);
+            journalLines = 0;
+        } else if (journalLines > minimumCompactionSize && journalLines > 2 * pending.size()) {
+            var tmpFile = journal.resolveSibling(journal.getFileName() + ".tmp");
+            try (var writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+                for (var entry : pending.values()) {
+                    writer.write(serialize(entry));
+                }
+            }
+            Files.move(tmpFile, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journalLines = pending.size();
+        } else {
+            Files.createDirectories(journal.toAbsolutePath().getParent());
+            Files.writeString(journal, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                              StandardOpenOption.APPEND, StandardOpenOption.WRITE, StandardOpenOption.DSYNC);
+            journalLines++;
+        }
+    }
+
+    /**
+     * Queue a message for delivery to the given recipients.
+     * @param recipients
+     * @param email
+     * @throws UncheckedIOException if the message could not be written to the journal
+     */
+    public synchronized void enqueue(List<EmailAddress> recipients, Email email) {
+        if (closed) {
+            throw new IllegalStateException("Mail queue " + journal + " is closed");
+        }
+        var entry = new Entry(nextSequence++, Instant.now(), List.copyOf(recipients), email, thread(email));
+        pending.put(entry.sequence, entry);
+        try {
+            append(serialize(entry));
+        } catch (IOException e) {
+            pending.remove(entry.sequence);
+            throw new UncheckedIOException(e);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Removes a message from the queue, which releases any later messages in its thread.
+     */
+    private void remove(Entry entry) {
+        pending.remove(entry.sequence);
+        if (pending.values().stream().noneMatch(e -> e.thread.equals(entry.thread))) {
+            threads.values().removeIf(thread -> thread.equals(entry.thread));
+        }
+        try {
+            append("-\t" + entry.sequence + "\n");
+        } catch (IOException e) {
+            // The message may be handled again after a restart, but is not lost
+            log.warning("Failed to update mail queue journal " + journal + ": " + e.getMessage());
+        }
+        notifyAll();
+    }
+
+    private synchronized void complete(Entry entry) {
+        var latency = Duration.between(entry.enqueued, Instant.now());
+        sent++;
+        totalLatency = totalLatency.plus(latency);
+        log.fine("Delivered " + entry.email.id() + " after " + latency + " (" + (pending.size() - 1) + " still queued)");
+        remove(entry);
+    }
+
+    private void deadLetter(Entry entry, IOException e) {
+        var file = journal.resolveSibling(journal.getFileName() + ".failed");
+        log.severe("Giving up on delivering " + entry.email.id() + " after " + entry.attempts + " attempts, saving it in " +
+                           file + ": " + e.getMessage());
+        dropped++;
+        try {
+            Files.writeString(file, serialize(entry), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                              StandardOpenOption.APPEND, StandardOpenOption.WRITE, StandardOpenOption.DSYNC);
+        } catch (IOException writeFailure) {
+            log.severe("Failed to write mail queue dead letter file " + file + " - message lost: " +
+                               String.join("\n", SMTP.headers(entry.email.recipients(), entry.email)) + "\n\n" +
+                               entry.email.body());
+        }
+        remove(entry);
+    }
+
+    private synchronized void fail(Entry entry, IOException e) {
+        failures++;
+        entry.attempts++;
+        var permanent = e instanceof SMTPReplyException && ((SMTPReplyException) e).isPermanent();
+        if (permanent || entry.attempts >= maximumAttempts) {
+            deadLetter(entry, e);
+            return;
+        }
+        var backoff = initialBackoff.multipliedBy(1L << Math.min(entry.attempts - 1, 20));
+        if (backoff.compareTo(maximumBackoff) > 0) {
+            backoff = maximumBackoff;
+        }
+        entry.notBefore = Instant.now().plus(backoff);
+        log.warning("Failed to deliver " + entry.email.id() + " (attempt " + entry.attempts + "), retrying in " +
+                            backoff + ": " + e.getMessage());
+    }
+
+    /**
+     * Waits until a message may be sent.
+     * @return the oldest message that is not held back by an earlier message in the same thread
+     * or by a pending retry, or empty if the queue has been closed
+     */
+    private synchronized Optional<Entry> next() throws InterruptedException {
+        while (!closed) {
+            var now = Instant.now();
+            var blocked = new HashSet<String>();
+            Instant wakeup = null;
+            for (var entry : pending.values()) {
+                if (blocked.contains(entry.thread)) {
+                    continue;
+                }
+                if (!entry.notBefore.isAfter(now)) {
+                    return Optional.of(entry);
+                }
+                blocked.add(entry.thread);
+                if (wakeup == null || entry.notBefore.isBefore(wakeup)) {
+                    wakeup = entry.notBefore;
+                }
+            }
+            if (wakeup == null) {
+                wait();
+            } else {
+                wait(Math.max(1, Duration.between(now, wakeup).toMillis()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                var entry = next();
+                if (entry.isEmpty()) {
+                    return;
+                }
+                try {
+                    sender.send(entry.get().recipients, entry.get().email);
+                    complete(entry.get());
+                } catch (IOException e) {
+                    fail(entry.get(), e);
+                } catch (RuntimeException e) {
+                    fail(entry.get(), new IOException(e));
+                }
+                logStatistics();
+                if (!sendInterval.isZero() && !sendInterval.isNegative()) {
+                    Thread.sleep(sendInterval.toMillis());
+                }
+            }
+        } catch (InterruptedException e) {
+            log.fine("Mail queue " + journal + " interrupted");
+        }
+    }
+
+    private synchronized void logStatistics() {
+        var now = Instant.now();
+        if (now.isBefore(lastStatistics.plus(statisticsInterval))) {
+            return;
+        }
+        lastStatistics = now;
+        log.info("Mail queue " + journal + ": " + depth() + " queued, " + sent() + " delivered (average latency " +
+                         averageLatency() + "), " + failures() + " failed attempts, " + dropped() + " given up");
+    }
+
+    /**
+     * Waits until all queued messages have been delivered or given up on.
+     * @param timeout
+     * @return true if the queue is empty
+     */
+    public synchronized boolean awaitEmpty(Duration timeout) throws InterruptedException {
+        var deadline = Instant.now().plus(timeout);
+        while (!pending.isEmpty()) {
+            var remaining = Duration.between(Instant.now(), deadline);
+            if (remaining.isNegative() || remaining.isZero()) {
+                return false;
+            }
+            wait(Math.max(1, remaining.toMillis()));
+        }
+        return true;
+    }
+
+    /**
+     * Number of messages waiting to be delivered.
+     * @return
+     */
+    public synchronized int depth() {
+        return pending.size();
+    }
+
+    /**
+     * Number of messages delivered since the queue was opened.
+     * @return
+     */
+    public synchronized long sent() {
+        return sent;
+    }
+
+    /**
+     * Number of failed delivery attempts since the queue was opened.
+     * @return
+     */
+    public synchronized long failures() {
+        return failures;
+    }
+
+    /**
+     * Number of messages given up on since the queue was opened.
+     * @return
+     */
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Average time from enqueueing to delivery for the messages delivered since the queue was opened.
+     * @return
+     */
+    public synchronized Duration averageLatency() {
+        return sent == 0 ? Duration.ZERO : totalLatency.dividedBy(sent);
+    }
+
+    /**
+     * Stops the sender thread. Messages still queued remain in the journal.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        senderThread.interrupt();
+        try {
+            senderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -27,6 +27,7 @@ import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.format.DateTimeFormatter;
+import java.util.*;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -46,6 +47,47 @@ public class SMTP {
         send(server, recipient, email, Duration.ofMinutes(30));
     }
 
+    /**
+     * The header lines of a message, as sent after the DATA command.
+     * @param recipients
+     * @param email
+     * @return
+     */
+    static List<String> headers(List<EmailAddress> recipients, Email email) {
+        var ret = new ArrayList<String>();
+        ret.add("From: " + MimeText.encode(email.author().toString()));
+        ret.add("Message-Id: " + email.id());
+        ret.add("Date: " + email.date().format(DateTimeFormatter.RFC_1123_DATE_TIME));
+        ret.add("Sender: " + MimeText.encode(email.sender().toString()));
+        if (!recipients.isEmpty()) {
+            ret.add("To: " + recipients.stream()
+                                       .map(EmailAddress::toString)
+                                       .map(MimeText::encode)
+                                       .collect(Collectors.joining(", ")));
+        }
+        for (var header : email.headers()) {
+            ret.add(header + ": " + MimeText.encode(email.headerValue(header)));
+        }
+        ret.add("Subject: " + MimeText.encode(email.subject()));
+        ret.add("Content-type: text/plain; charset=utf-8");
+        return ret;
+    }
+
+    /**
+     * The lines sent after the DATA command, except for the terminating ".".
+     * @param recipients
+     * @param email
+     * @return
+     */
+    static List<String> data(List<EmailAddress> recipients, Email email) {
+        var ret = new ArrayList<>(headers(recipients, email));
+        ret.add("");
+        email.body().lines()
+             .map(line -> line.startsWith(".") ? "." + line : line)
+             .forEach(ret::add);
+        return ret;
+    }
+
     public static void send(String server, EmailAddress recipient, Email email, Duration timeout) throws IOException {
         var port = 25;
         if (server.contains(":")) {
@@ -64,21 +106,9 @@ public class SMTP {
             session.sendCommand("MAIL FROM:" + email.sender().address(), mailReply);
             session.sendCommand("RCPT TO:<" + recipient.address() + ">", rcptReply);
             session.sendCommand("DATA", dataReply);
-            session.sendCommand("From: " + MimeText.encode(email.author().toString()));
-            session.sendCommand("Message-Id: " + email.id());
-            session.sendCommand("Date: " + email.date().format(DateTimeFormatter.RFC_1123_DATE_TIME));
-            session.sendCommand("Sender: " + MimeText.encode(email.sender().toString()));
-            session.sendCommand("To: " + MimeText.encode(recipient.toString()));
-            for (var header : email.headers()) {
-                session.sendCommand(header + ": " + MimeText.encode(email.headerValue(header)));
+            for (var line : data(List.of(recipient), email)) {
+                session.sendCommand(line);
             }
-            session.sendCommand("Subject: " + MimeText.encode(email.subject()));
-            session.sendCommand("Content-type: text/plain; charset=utf-8");
-            session.sendCommand("");
-            var escapedBody = email.body().lines()
-                                   .map(line -> line.startsWith(".") ? "." + line : line)
-                                   .collect(Collectors.joining("\n"));
-            session.sendCommand(escapedBody);
             session.sendCommand(".", doneReply);
             session.sendCommand("QUIT");
         }
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.email;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide pool of SMTP connections, kept open between messages so that each message
+ * after the first one on a connection is a single MAIL/RCPT/DATA transaction instead of a
+ * full connect, EHLO and QUIT. If the server supports PIPELINING, the commands of a
+ * transaction are sent without waiting for the replies in between.
+ */
+public class SMTPPool {
+    private static final Logger log = Logger.getLogger("org.openjdk.skara.email");
+
+    private static final Duration idleTimeout = Duration.ofMinutes(1);
+    private static final int maxIdlePerServer = 4;
+
+    private static final ConcurrentMap<String, Deque<Connection>> idle = new ConcurrentHashMap<>();
+    private static final AtomicLong opened = new AtomicLong();
+
+    private static class Reply {
+        private final int code;
+        private final List<String> lines;
+
+        Reply(int code, List<String> lines) {
+            this.code = code;
+            this.lines = lines;
+        }
+    }
+
+    private static class Connection implements Closeable {
+        private final String server;
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+        private boolean pipelining;
+        private Instant lastUsed = Instant.now();
+
+        Connection(String server, Duration timeout) throws IOException {
+            this.server = server;
+            var host = server;
+            var port = 25;
+            if (server.contains(":")) {
+                var parts = server.split(":", 2);
+                host = parts[0];
+                port = Integer.parseInt(parts[1]);
+            }
+            socket = new Socket();
+            try {
+                var millis = (int) Math.max(1, Math.min(Integer.MAX_VALUE, timeout.toMillis()));
+                socket.connect(new InetSocketAddress(host, port), millis);
+                socket.setSoTimeout(millis);
+                in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            opened.incrementAndGet();
+        }
+
+        void greet(String domain) throws IOException {
+            expect(220);
+            write("EHLO " + domain);
+            out.flush();
+            var ehlo = expect(250);
+            pipelining = ehlo.lines.stream()
+                                   .map(line -> line.length() > 4 ? line.substring(4).trim().toUpperCase() : "")
+                                   .anyMatch(extension -> extension.equals("PIPELINING"));
+        }
+
+        private void write(String line) throws IOException {
+            log.fine("> " + line);
+            out.write(line);
+            out.write("\r\n");
+        }
+
+        private Reply read() throws IOException {
+            var lines = new ArrayList<String>();
+            while (true) {
+                var line = in.readLine();
+                if (line == null) {
+                    throw new EOFException("Connection closed by " + server);
+                }
+                log.fine("< " + line);
+                lines.add(line);
+                if (line.length() < 4 || line.charAt(3) != '-') {
+                    try {
+                        return new Reply(Integer.parseInt(line.substring(0, 3)), lines);
+                    } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                        throw new IOException("Malformed reply from " + server + ": " + line);
+                    }
+                }
+            }
+        }
+
+        private Reply check(Reply reply, int code) throws IOException {
+            if (reply.code != code) {
+                throw new SMTPReplyException("Unexpected reply from " + server + " (expected " + code + "): " +
+                                                     String.join(" ", reply.lines), reply.code);
+            }
+            return reply;
+        }
+
+        private Reply expect(int code) throws IOException {
+            return check(read(), code);
+        }
+
+        /**
+         * Sends a single message. Returns false if the connection turned out to be unusable
+         * before any part of the message was accepted, in which case it is safe to retry. This
+         * is the case if sending the first command or reading its reply fails, or if the server
+         * replies that it is closing the connection (421), as it does after an idle timeout.
+         */
+        boolean transaction(List<EmailAddress> recipients, Email email) throws IOException {
+            var commands = new ArrayList<String>();
+            commands.add("MAIL FROM:" + email.sender().address());
+            for (var recipient : recipients) {
+                commands.add("RCPT TO:<" + recipient.address() + ">");
+            }
+            commands.add("DATA");
+
+            Reply first;
+            try {
+                if (pipelining) {
+                    for (var command : commands) {
+                        write(command);
+                    }
+                } else {
+                    write(commands.get(0));
+                }
+                out.flush();
+                first = read();
+            } catch (IOException e) {
+                log.fine("No reply from " + server + ": " + e.getMessage());
+                return false;
+            }
+            if (first.code == 421) {
+                return false;
+            }
+            check(first, 250);
+
+            for (int i = 1; i < commands.size(); ++i) {
+                if (!pipelining) {
+                    write(commands.get(i));
+                    out.flush();
+                }
+                expect(i < commands.size() - 1 ? 250 : 354);
+            }
+
+            for (var line : SMTP.data(recipients, email)) {
+                write(line);
+            }
+            write(".");
+            out.flush();
+            expect(250);
+            lastUsed = Instant.now();
+            return true;
+        }
+
+        boolean isExpired(Instant now) {
+            return lastUsed.plus(idleTimeout).isBefore(now);
+        }
+
+        @Override
+        public void close() {
+            try {
+                write("QUIT");
+                out.flush();
+            } catch (IOException ignored) {
+            }
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private SMTPPool() {
+    }
+
+    private static Optional<Connection> takeIdle(String server) {
+        var now = Instant.now();
+        for (var connections : idle.values()) {
+            synchronized (connections) {
+                connections.removeIf(connection -> {
+                    if (connection.isExpired(now)) {
+                        connection.close();
+                        return true;
+                    }
+                    return false;
+                });
+            }
+        }
+        var connections = idle.get(server);
+        if (connections == null) {
+            return Optional.empty();
+        }
+        synchronized (connections) {
+            return Optional.ofNullable(connections.pollFirst());
+        }
+    }
+
+    private static void release(Connection connection) {
+        var connections = idle.computeIfAbsent(connection.server, s -> new ArrayDeque<>());
+        synchronized (connections) {
+            if (connections.size() < maxIdlePerServer) {
+                connections.addFirst(connection);
+                return;
+            }
+        }
+        connection.close();
+    }
+
+    public static void send(String server, EmailAddress recipient, Email email) throws IOException {
+        send(server, List.of(recipient), email, Duration.ofMinutes(30));
+    }
+
+    /**
+     * Sends a message to all recipients in a single transaction, reusing an open connection
+     * to the server if there is one.
+     * @param server host, optionally followed by ":" and a port
+     * @param recipients
+     * @param email
+     * @param timeout maximum time to wait for each reply
+     * @throws IOException
+     */
+    public static void send(String server, List<EmailAddress> recipients, Email email, Duration timeout) throws IOException {
+        var pooled = takeIdle(server);
+        if (pooled.isPresent()) {
+            var connection = pooled.get();
+            try {
+                if (connection.transaction(recipients, email)) {
+                    release(connection);
+                    return;
+                }
+                log.fine("Pooled connection to " + server + " is no longer usable - reconnecting");
+                connection.close();
+            } catch (IOException | RuntimeException e) {
+                connection.close();
+                throw e;
+            }
+        }
+
+        var connection = new Connection(server, timeout);
+        try {
+            connection.greet(email.sender().domain());
+            if (!connection.transaction(recipients, email)) {
+                throw new IOException("Connection to " + server + " closed unexpectedly");
+            }
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        release(connection);
+    }
+
+    /**
+     * Closes all idle connections.
+     */
+    public static void closeIdle() {
+        for (var connections : idle.values()) {
+            synchronized (connections) {
+                connections.forEach(Connection::close);
+                connections.clear();
+            }
+        }
+    }
+
+    /**
+     * Number of connections opened so far, for diagnostics.
+     * @return
+     */
+    public static long opened() {
+        return opened.get();
+    }
+}
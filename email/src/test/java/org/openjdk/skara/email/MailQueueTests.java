@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.email;
+
+import org.openjdk.skara.test.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailQueueTests {
+    private final EmailAddress sender = EmailAddress.from("Test", "test@test.email");
+    private final EmailAddress recipient = EmailAddress.from("Dest", "dest@dest.email");
+
+    @Test
+    void delivered() throws IOException, InterruptedException {
+        try (var tempFolder = new TemporaryDirectory();
+             var server = new SMTPServer();
+             var queue = new MailQueue(tempFolder.path().resolve("outbox"),
+                                       (recipients, email) -> SMTPPool.send(server.address(), recipients, email, Duration.ofSeconds(10)),
+                                       Duration.ZERO)) {
+            var sentMails = new ArrayList<Email>();
+            for (int i = 0; i < 3; ++i) {
+                var sentMail = Email.create(sender, "Subject " + i, "Body " + i).recipient(recipient).build();
+                queue.enqueue(List.of(recipient), sentMail);
+                sentMails.add(sentMail);
+            }
+            assertTrue(queue.awaitEmpty(Duration.ofSeconds(10)));
+            for (var sentMail : sentMails) {
+                assertEquals(sentMail, server.receive(Duration.ofSeconds(10)));
+            }
+            assertEquals(3, queue.sent());
+            assertEquals(0, queue.depth());
+            assertFalse(Files.exists(tempFolder.path().resolve("outbox")));
+        }
+    }
+
+    @Test
+    void persisted() throws IOException, InterruptedException {
+        try (var tempFolder = new TemporaryDirectory()) {
+            var journal = tempFolder.path().resolve("outbox");
+            var first = Email.create(sender, "First", "Body\n.\nWith dot").recipient(recipient).header("Extra", "Header").build();
+            var second = Email.create(sender, "Second", "Body").recipient(recipient).build();
+
+            try (var queue = new MailQueue(journal, (recipients, email) -> {
+                throw new IOException("Server unavailable");
+            }, Duration.ZERO)) {
+                queue.enqueue(List.of(recipient), first);
+                queue.enqueue(List.of(recipient), second);
+                assertFalse(queue.awaitEmpty(Duration.ofMillis(100)));
+                assertEquals(2, queue.depth());
+            }
+
+            var delivered = new LinkedBlockingQueue<Email>();
+            try (var queue = new MailQueue(journal, (recipients, email) -> {
+                assertEquals(List.of(recipient), recipients);
+                delivered.add(email);
+            }, Duration.ZERO)) {
+                assertTrue(queue.awaitEmpty(Duration.ofSeconds(10)));
+            }
+            assertEquals(List.of(first, second), new ArrayList<>(delivered));
+            assertFalse(Files.exists(journal));
+        }
+    }
+
+    @Test
+    void threadOrder() throws IOException, InterruptedException {
+        try (var tempFolder = new TemporaryDirectory()) {
+            var parent = Email.create(sender, "Parent", "Body").recipient(recipient).build();
+            var reply = Email.reply(parent, "Re: Parent", "Reply").author(sender).recipient(recipient).build();
+            var unrelated = Email.create(sender, "Unrelated", "Body").recipient(recipient).build();
+
+            var attempts = new ConcurrentHashMap<EmailAddress, Integer>();
+            var delivered = new LinkedBlockingQueue<Email>();
+            try (var queue = new MailQueue(tempFolder.path().resolve("outbox"), (recipients, email) -> {
+                // The first attempt to deliver the parent fails
+                if (attempts.merge(email.id(), 1, Integer::sum) == 1 && email.id().equals(parent.id())) {
+                    throw new IOException("Temporary failure");
+                }
+                delivered.add(email);
+            }, Duration.ZERO)) {
+                queue.enqueue(List.of(recipient), parent);
+                queue.enqueue(List.of(recipient), reply);
+                queue.enqueue(List.of(recipient), unrelated);
+                assertTrue(queue.awaitEmpty(Duration.ofSeconds(10)));
+                assertEquals(1, queue.failures());
+            }
+            assertEquals(List.of(unrelated, parent, reply), new ArrayList<>(delivered));
+        }
+    }
+
+    @Test
+    void permanentFailure() throws IOException, InterruptedException {
+        try (var tempFolder = new TemporaryDirectory()) {
+            var journal = tempFolder.path().resolve("outbox");
+            var parent = Email.create(sender, "Parent", "Body").recipient(recipient).build();
+            var reply = Email.reply(parent, "Re: Parent", "Reply").author(sender).recipient(recipient).build();
+
+            var delivered = new LinkedBlockingQueue<Email>();
+            try (var queue = new MailQueue(journal, (recipients, email) -> {
+                if (email.id().equals(parent.id())) {
+                    throw new SMTPReplyException("Mailbox unavailable", 550);
+                }
+                delivered.add(email);
+            }, Duration.ZERO)) {
+                queue.enqueue(List.of(recipient), parent);
+                queue.enqueue(List.of(recipient), reply);
+                assertTrue(queue.awaitEmpty(Duration.ofSeconds(10)));
+                assertEquals(1, queue.failures());
+                assertEquals(1, queue.dropped());
+            }
+            assertEquals(List.of(reply), new ArrayList<>(delivered));
+            assertFalse(Files.exists(journal));
+            assertEquals(1, Files.readAllLines(tempFolder.path().resolve("outbox.failed")).size());
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.junit.jupiter.api.condition.*;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -104,4 +105,69 @@ class SMTPTests {
             assertEquals(sentMail, email);
         }
     }
+
+    @Test
+    void pooled() throws IOException {
+        try (var server = new SMTPServer()) {
+            var sender = EmailAddress.from("Test", "test@test.email");
+            var recipient = EmailAddress.from("Dest", "dest@dest.email");
+            for (int i = 0; i < 5; ++i) {
+                var sentMail = Email.create(sender, "Subject " + i, "Body\n.\nMore text " + i).recipient(recipient).build();
+                SMTPPool.send(server.address(), recipient, sentMail);
+                var email = server.receive(Duration.ofSeconds(10));
+                assertEquals(sentMail, email);
+            }
+            assertEquals(1, server.connections());
+        }
+    }
+
+    @Test
+    void pooledReconnect() throws IOException {
+        var sender = EmailAddress.from("Test", "test@test.email");
+        var recipient = EmailAddress.from("Dest", "dest@dest.email");
+        try (var server = new SMTPServer()) {
+            var sentMail = Email.create(sender, "Subject", "Body").recipient(recipient).build();
+            SMTPPool.send(server.address(), recipient, sentMail);
+            assertEquals(sentMail, server.receive(Duration.ofSeconds(10)));
+
+            // Drop the idle connection on the server side, the pool should transparently reconnect
+            server.disconnectAll();
+            var nextMail = Email.create(sender, "Subject 2", "Body 2").recipient(recipient).build();
+            SMTPPool.send(server.address(), recipient, nextMail);
+            assertEquals(nextMail, server.receive(Duration.ofSeconds(10)));
+            assertEquals(2, server.connections());
+        }
+    }
+
+    @Test
+    void pooledReconnectAfterServiceUnavailable() throws IOException {
+        var sender = EmailAddress.from("Test", "test@test.email");
+        var recipient = EmailAddress.from("Dest", "dest@dest.email");
+        try (var server = new SMTPServer()) {
+            var sentMail = Email.create(sender, "Subject", "Body").recipient(recipient).build();
+            SMTPPool.send(server.address(), recipient, sentMail);
+            assertEquals(sentMail, server.receive(Duration.ofSeconds(10)));
+
+            // The server has timed out the idle connection, the pool should transparently reconnect
+            server.rejectNextCommand("421 4.4.2 localhost Error: timeout exceeded");
+            var nextMail = Email.create(sender, "Subject 2", "Body 2").recipient(recipient).build();
+            SMTPPool.send(server.address(), recipient, nextMail);
+            assertEquals(nextMail, server.receive(Duration.ofSeconds(10)));
+            assertEquals(2, server.connections());
+        }
+    }
+
+    @Test
+    void multipleRecipients() throws IOException {
+        try (var server = new SMTPServer()) {
+            var sender = EmailAddress.from("Test", "test@test.email");
+            var first = EmailAddress.from("First", "first@dest.email");
+            var second = EmailAddress.from("Second", "second@dest.email");
+            var sentMail = Email.create(sender, "Subject", "Body").recipients(List.of(first, second)).build();
+
+            SMTPPool.send(server.address(), List.of(first, second), sentMail, Duration.ofSeconds(10));
+            var email = server.receive(Duration.ofSeconds(10));
+            assertEquals(sentMail, email);
+        }
+    }
 }
@@ -27,6 +27,7 @@ import org.openjdk.skara.vcs.*;
 
 import java.net.URI;
 import java.util.*;
+import java.util.stream.Stream;
 
 public interface HostedRepository {
     Forge forge();
@@ -49,10 +50,19 @@ public interface HostedRepository {
     String fileContents(String filename, String ref);
     String namespace();
     Optional<WebHook> parseWebHook(JSONValue body);
+    boolean supportsWebHooks();
     HostedRepository fork();
     long id();
     Hash branchHash(String ref);
 
+    /**
+     * All open pull requests, fetched lazily as the stream is consumed.
+     * @return
+     */
+    default Stream<PullRequest> streamPullRequests() {
+        return pullRequests().stream();
+    }
+
     default PullRequest createPullRequest(HostedRepository target,
                                           String targetRef,
                                           String sourceRef,
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.forge;
+
+import org.openjdk.skara.host.HostUser;
+import org.openjdk.skara.issuetracker.*;
+import org.openjdk.skara.json.JSONValue;
+import org.openjdk.skara.vcs.Hash;
+
+import java.net.URI;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * A PullRequest that fetches each of its comments, reviews, review comments, labels and checks
+ * at most once. All work items created for the same pull request update can share a snapshot.
+ * Updates made through the snapshot discard the cached data they affect, so that later reads see
+ * them. Updates made by others are not seen until a new snapshot is created.
+ */
+public class PullRequestSnapshot implements PullRequest {
+    private final PullRequest pr;
+
+    private List<Comment> comments;
+    private List<Review> reviews;
+    private List<ReviewComment> reviewComments;
+    private List<String> labels;
+    private final Map<Hash, Map<String, Check>> checks = new HashMap<>();
+
+    private PullRequestSnapshot(PullRequest pr) {
+        this.pr = pr;
+    }
+
+    public static PullRequestSnapshot of(PullRequest pr) {
+        if (pr instanceof PullRequestSnapshot) {
+            return (PullRequestSnapshot) pr;
+        }
+        return new PullRequestSnapshot(pr);
+    }
+
+    /**
+     * The pull request this snapshot was created from.
+     * @return
+     */
+    public PullRequest pullRequest() {
+        return pr;
+    }
+
+    private synchronized void commentsChanged() {
+        comments = null;
+        // Some forges store check results as comments
+        checks.clear();
+    }
+
+    @Override
+    public HostedRepository repository() {
+        return pr.repository();
+    }
+
+    @Override
+    public IssueProject project() {
+        return pr.project();
+    }
+
+    @Override
+    public String id() {
+        return pr.id();
+    }
+
+    @Override
+    public HostUser author() {
+        return pr.author();
+    }
+
+    @Override
+    public synchronized List<Review> reviews() {
+        if (reviews == null) {
+            reviews = List.copyOf(pr.reviews());
+        }
+        return new ArrayList<>(reviews);
+    }
+
+    @Override
+    public void addReview(Review.Verdict verdict, String body) {
+        pr.addReview(verdict, body);
+        synchronized (this) {
+            reviews = null;
+        }
+    }
+
+    @Override
+    public ReviewComment addReviewComment(Hash base, Hash hash, String path, int line, String body) {
+        var ret = pr.addReviewComment(base, hash, path, line, body);
+        synchronized (this) {
+            reviewComments = null;
+        }
+        return ret;
+    }
+
+    @Override
+    public ReviewComment addReviewCommentReply(ReviewComment parent, String body) {
+        var ret = pr.addReviewCommentReply(parent, body);
+        synchronized (this) {
+            reviewComments = null;
+        }
+        return ret;
+    }
+
+    @Override
+    public synchronized List<ReviewComment> reviewComments() {
+        if (reviewComments == null) {
+            reviewComments = List.copyOf(pr.reviewComments());
+        }
+        return new ArrayList<>(reviewComments);
+    }
+
+    @Override
+    public Hash headHash() {
+        return pr.headHash();
+    }
+
+    @Override
+    public String fetchRef() {
+        return pr.fetchRef();
+    }
+
+    @Override
+    public String sourceRef() {
+        return pr.sourceRef();
+    }
+
+    @Override
+    public HostedRepository sourceRepository() {
+        return pr.sourceRepository();
+    }
+
+    @Override
+    public String targetRef() {
+        return pr.targetRef();
+    }
+
+    @Override
+    public Hash targetHash() {
+        return pr.targetHash();
+    }
+
+    @Override
+    public synchronized Map<String, Check> checks(Hash hash) {
+        if (!checks.containsKey(hash)) {
+            checks.put(hash, Map.copyOf(pr.checks(hash)));
+        }
+        return new HashMap<>(checks.get(hash));
+    }
+
+    @Override
+    public void createCheck(Check check) {
+        pr.createCheck(check);
+        commentsChanged();
+    }
+
+    @Override
+    public void updateCheck(Check check) {
+        pr.updateCheck(check);
+        commentsChanged();
+    }
+
+    @Override
+    public URI changeUrl() {
+        return pr.changeUrl();
+    }
+
+    @Override
+    public URI changeUrl(Hash base) {
+        return pr.changeUrl(base);
+    }
+
+    @Override
+    public boolean isDraft() {
+        return pr.isDraft();
+    }
+
+    @Override
+    public String title() {
+        return pr.title();
+    }
+
+    @Override
+    public void setTitle(String title) {
+        pr.setTitle(title);
+    }
+
+    @Override
+    public String body() {
+        return pr.body();
+    }
+
+    @Override
+    public void setBody(String body) {
+        pr.setBody(body);
+    }
+
+    @Override
+    public synchronized List<Comment> comments() {
+        if (comments == null) {
+            comments = List.copyOf(pr.comments());
+        }
+        return new ArrayList<>(comments);
+    }
+
+    @Override
+    public Comment addComment(String body) {
+        var ret = pr.addComment(body);
+        commentsChanged();
+        return ret;
+    }
+
+    @Override
+    public Comment updateComment(String id, String body) {
+        var ret = pr.updateComment(id, body);
+        commentsChanged();
+        return ret;
+    }
+
+    @Override
+    public ZonedDateTime createdAt() {
+        return pr.createdAt();
+    }
+
+    @Override
+    public ZonedDateTime updatedAt() {
+        return pr.updatedAt();
+    }
+
+    @Override
+    public State state() {
+        return pr.state();
+    }
+
+    @Override
+    public void setState(State state) {
+        pr.setState(state);
+    }
+
+    @Override
+    public void addLabel(String label) {
+        pr.addLabel(label);
+        synchronized (this) {
+            labels = null;
+        }
+    }
+
+    @Override
+    public void removeLabel(String label) {
+        pr.removeLabel(label);
+        synchronized (this) {
+            labels = null;
+        }
+    }
+
+    @Override
+    public synchronized List<String> labels() {
+        if (labels == null) {
+            labels = List.copyOf(pr.labels());
+        }
+        return new ArrayList<>(labels);
+    }
+
+    @Override
+    public URI webUrl() {
+        return pr.webUrl();
+    }
+
+    @Override
+    public List<HostUser> assignees() {
+        return pr.assignees();
+    }
+
+    @Override
+    public void setAssignees(List<HostUser> assignees) {
+        pr.setAssignees(assignees);
+    }
+
+    @Override
+    public List<Link> links() {
+        return pr.links();
+    }
+
+    @Override
+    public void addLink(Link link) {
+        pr.addLink(link);
+    }
+
+    @Override
+    public void removeLink(Link link) {
+        pr.removeLink(link);
+    }
+
+    @Override
+    public Map<String, JSONValue> properties() {
+        return pr.properties();
+    }
+
+    @Override
+    public void setProperty(String name, JSONValue value) {
+        pr.setProperty(name, value);
+    }
+
+    @Override
+    public void removeProperty(String name) {
+        pr.removeProperty(name);
+    }
+
+    @Override
+    public String toString() {
+        return pr.toString();
+    }
+}
@@ -22,50 +22,235 @@
  */
 package org.openjdk.skara.forge;
 
+import org.openjdk.skara.forge.github.GitHubPullRequest;
 import org.openjdk.skara.forge.gitlab.GitLabMergeRequest;
 
-import java.time.ZonedDateTime;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.*;
 import java.util.*;
 import java.util.logging.Logger;
 
+/**
+ * Keeps track of which pull requests have changed since they were last processed. A pull request
+ * is identified by a fingerprint of what is known about it without further requests: its head hash,
+ * target branch, labels, title, body, state and update time, and on GitHub also its review count, latest
+ * comment and check states when these were fetched along with the pull request. On GitHub, new reviews
+ * and comments also change the update time. For GitLab the fingerprint also covers the latest note and
+ * the awards, as GitLab does not change the update time for those, but these are only fetched when
+ * nothing else has changed.
+ *
+ * Named caches are persisted in a file shared by all caches of the process (see setStorage), so that
+ * a restart does not cause every open pull request to be processed again. A fingerprint is only
+ * persisted once a later check has seen it unchanged, so that pull requests that were being processed
+ * when the process stopped are processed again.
+ */
 public class PullRequestUpdateCache {
-    private final Map<HostedRepository, String> repositoryIds = new HashMap<>();
-    private final Map<String, ZonedDateTime> lastUpdates = new HashMap<>();
+    private static final Logger log = Logger.getLogger("org.openjdk.skara.host");
+    private static final Map<Path, Store> stores = new HashMap<>();
+    private static Path storageFile;
+
+    private final String consumer;
+    private final Map<String, String> handedOut = new HashMap<>();
+
+    private static class Store {
+        private static final int minimumCompactionSize = 64;
+
+        private final Path file;
+        private final Map<String, String> fingerprints = new HashMap<>();
+        private int logLines;
+
+        private Store(Path file) {
+            this.file = file;
+            try {
+                Files.createDirectories(file.getParent());
+                if (Files.exists(file)) {
+                    for (var line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                        logLines++;
+                        var separator = line.indexOf('\t');
+                        if (separator < 0) {
+                            continue;
+                        }
+                        var key = line.substring(0, separator);
+                        var fingerprint = line.substring(separator + 1);
+                        if (fingerprint.isEmpty()) {
+                            fingerprints.remove(key);
+                        } else {
+                            fingerprints.put(key, fingerprint);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.warning("Failed to read pull request cache " + file + ": " + e.getMessage());
+            }
+        }
+
+        private void append(String key, String fingerprint) {
+            try {
+                if (logLines > minimumCompactionSize && logLines > 2 * fingerprints.size()) {
+                    var tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+                    try (var writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+                        for (var entry : fingerprints.entrySet()) {
+                            writer.write(entry.getKey() + "\t" + entry.getValue() + "\n");
+                        }
+                    }
+                    Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    logLines = fingerprints.size();
+                } else {
+                    Files.writeString(file, key + "\t" + fingerprint + "\n", StandardCharsets.UTF_8,
+                                      StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+                    logLines++;
+                }
+            } catch (IOException e) {
+                log.warning("Failed to update pull request cache " + file + ": " + e.getMessage());
+            }
+        }
+
+        synchronized String get(String key) {
+            return fingerprints.get(key);
+        }
+
+        synchronized void put(String key, String fingerprint) {
+            if (fingerprint.equals(fingerprints.put(key, fingerprint))) {
+                return;
+            }
+            append(key, fingerprint);
+        }
+
+        synchronized void remove(String key) {
+            if (fingerprints.remove(key) == null) {
+                return;
+            }
+            append(key, "");
+        }
+    }
 
-    private final Logger log = Logger.getLogger("org.openjdk.skara.host");
+    /**
+     * Persist the fingerprints of all named caches in the given file. Caches that were created
+     * before this call are also affected.
+     * @param file
+     */
+    public static synchronized void setStorage(Path file) {
+        storageFile = file;
+    }
 
-    private String getUniqueId(PullRequest pr) {
-        var repo = pr.repository();
-        if (!repositoryIds.containsKey(repo)) {
-            repositoryIds.put(repo, Integer.toString(repositoryIds.size()));
+    private static synchronized Optional<Store> store() {
+        if (storageFile == null) {
+            return Optional.empty();
         }
-        return repositoryIds.get(repo) + ";" + pr.id();
+        return Optional.of(stores.computeIfAbsent(storageFile, Store::new));
     }
 
-    public synchronized boolean needsUpdate(PullRequest pr) {
-        // GitLab CE does not update this field on events such as adding an award
+    /**
+     * Create a cache that is only kept in memory.
+     */
+    public PullRequestUpdateCache() {
+        this(null);
+    }
+
+    /**
+     * Create a cache that is persisted if a storage file has been set. Each user of the shared
+     * storage must use a distinct consumer name.
+     * @param consumer
+     */
+    public PullRequestUpdateCache(String consumer) {
+        this.consumer = consumer;
+    }
+
+    private Optional<Store> persisted() {
+        return consumer == null ? Optional.empty() : store();
+    }
+
+    private String key(PullRequest pr) {
+        return (consumer == null ? "" : consumer) + ";" + pr.repository().webUrl() + ";" + pr.id();
+    }
+
+    private static List<String> listingState(PullRequest pr) {
+        if (pr instanceof GitHubPullRequest) {
+            return ((GitHubPullRequest) pr).listingState();
+        }
         if (pr instanceof GitLabMergeRequest) {
-            return true;
+            return ((GitLabMergeRequest) pr).listingState();
         }
+        return List.of(pr.updatedAt().toString(),
+                       pr.state().toString(),
+                       Boolean.toString(pr.isDraft()),
+                       pr.title(),
+                       pr.body(),
+                       pr.headHash().hex(),
+                       pr.targetRef(),
+                       String.join(",", new TreeSet<>(pr.labels())));
+    }
 
-        var uniqueId = getUniqueId(pr);
-        var update = pr.updatedAt();
+    private static String digest(List<String> components) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            for (var component : components) {
+                digest.update(component.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            var hex = new StringBuilder();
+            for (var b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-        if (!lastUpdates.containsKey(uniqueId)) {
-            lastUpdates.put(uniqueId, update);
-            return true;
+    private synchronized Optional<String> previous(String key) {
+        var previous = handedOut.get(key);
+        if (previous == null) {
+            return persisted().map(store -> store.get(key));
         }
-        var lastUpdate = lastUpdates.get(uniqueId);
-        if (lastUpdate.isBefore(update)) {
-            lastUpdates.put(uniqueId, update);
+        return Optional.of(previous);
+    }
+
+    private String fingerprint(String key, PullRequest pr) {
+        var raw = pr instanceof PullRequestSnapshot ? ((PullRequestSnapshot) pr).pullRequest() : pr;
+        var fingerprint = digest(listingState(raw));
+        if (!(raw instanceof GitLabMergeRequest)) {
+            return fingerprint;
+        }
+
+        // GitLab does not change the update time on events such as adding an award, which takes extra
+        // requests to find out - these are only made when the listing itself shows no change. A fingerprint
+        // without the activity part never matches one with it, so the first poll after a change that
+        // shows no change in the listing hands the pull request out once more.
+        var listed = fingerprint + "/";
+        if (previous(key).map(p -> p.startsWith(listed)).orElse(false)) {
+            return listed + digest(List.of(((GitLabMergeRequest) raw).activity()));
+        }
+        return listed;
+    }
+
+    public boolean needsUpdate(PullRequest pr) {
+        var key = key(pr);
+        var fingerprint = fingerprint(key, pr);
+
+        synchronized (this) {
+            var previous = handedOut.get(key);
+            if (fingerprint.equals(previous)) {
+                // Unchanged since it was last handed out, so it is safe to remember across restarts
+                persisted().ifPresent(store -> store.put(key, fingerprint));
+                log.info("Skipping update for " + pr.repository().name() + "#" + pr.id());
+                return false;
+            }
+            if (previous == null && persisted().map(store -> fingerprint.equals(store.get(key))).orElse(false)) {
+                handedOut.put(key, fingerprint);
+                log.info("Skipping update for " + pr.repository().name() + "#" + pr.id() + " (processed before restart)");
+                return false;
+            }
+            handedOut.put(key, fingerprint);
             return true;
         }
-        log.info("Skipping update for " + pr.repository().name() + "#" + pr.id());
-        return false;
     }
 
     public synchronized void invalidate(PullRequest pr) {
-        var uniqueId = getUniqueId(pr);
-        lastUpdates.remove(uniqueId);
+        var key = key(pr);
+        handedOut.remove(key);
+        persisted().ifPresent(store -> store.remove(key));
     }
 }
@@ -23,7 +23,7 @@
 package org.openjdk.skara.forge.github;
 
 import org.openjdk.skara.json.*;
-import org.openjdk.skara.network.URIBuilder;
+import org.openjdk.skara.network.*;
 
 import java.io.*;
 import java.net.URI;
@@ -174,12 +174,8 @@ public class GitHubApplication {
 
     private String generateInstallationToken() throws Token.GeneratorError {
         var tokens = URIBuilder.base(apiBase).setPath("/installations/" + id + "/access_tokens").build();
-        var client = HttpClient.newBuilder()
-                               .connectTimeout(Duration.ofSeconds(10))
-                               .build();
-
         try {
-            var response = client.send(
+            var response = HttpClientPool.send(
                     HttpRequest.newBuilder()
                                .uri(tokens)
                                .timeout(Duration.ofSeconds(30))
@@ -202,18 +198,18 @@ public class GitHubApplication {
         }
     }
 
+    String id() {
+        return issue + ";" + id;
+    }
+
     public String getInstallationToken() {
         return installationToken.toString();
     }
 
     JSONObject getAppDetails() {
         var details = URIBuilder.base(apiBase).setPath("/app").build();
-        var client = HttpClient.newBuilder()
-                               .connectTimeout(Duration.ofSeconds(10))
-                               .build();
-
         try {
-            var response = client.send(
+            var response = HttpClientPool.send(
                     HttpRequest.newBuilder()
                                .uri(details)
                                .timeout(Duration.ofSeconds(30))
@@ -28,18 +28,24 @@ public class GitHubForgeFactory implements ForgeFactory {
             webUriReplacement = configuration.get("weburl").get("replacement").asString();
         }
 
+        GitHubHost host;
         if (credential != null) {
             if (credential.username().contains(";")) {
                 var separator = credential.username().indexOf(";");
                 var id = credential.username().substring(0, separator);
                 var installation = credential.username().substring(separator + 1);
                 var app = new GitHubApplication(credential.password(), id, installation);
-                return new GitHubHost(uri, app, webUriPattern, webUriReplacement);
+                host = new GitHubHost(uri, app, webUriPattern, webUriReplacement);
             } else {
-                return new GitHubHost(uri, credential, webUriPattern, webUriReplacement);
+                host = new GitHubHost(uri, credential, webUriPattern, webUriReplacement);
             }
         } else {
-            return new GitHubHost(uri, webUriPattern, webUriReplacement);
+            host = new GitHubHost(uri, webUriPattern, webUriReplacement);
         }
+
+        if (configuration != null && configuration.contains("graphql")) {
+            host.useGraphQL(configuration.get("graphql").asBoolean());
+        }
+        return host;
     }
 }
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.forge.github;
+
+import org.openjdk.skara.json.*;
+import org.openjdk.skara.network.RestRequest;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Fetches the state of many pull requests with a single GraphQL query per page, instead of
+ * one REST round-trip per pull request and facet. The result of the query is translated into
+ * the same JSON shape as the REST API returns, so that GitHubPullRequest can parse both.
+ */
+class GitHubGraphQL {
+    private static final int PAGE_SIZE = 20;
+
+    private static final String USER = "__typename login ... on User { databaseId } ... on Bot { databaseId }";
+    private static final String QUERY =
+            "query($owner: String!, $name: String!, $cursor: String) {" +
+            "  repository(owner: $owner, name: $name) {" +
+            "    pullRequests(states: OPEN, first: " + PAGE_SIZE + ", after: $cursor, orderBy: {field: CREATED_AT, direction: DESC}) {" +
+            "      pageInfo { hasNextPage endCursor }" +
+            "      nodes {" +
+            "        number title body state isDraft createdAt updatedAt" +
+            "        author { " + USER + " }" +
+            "        headRefName headRefOid baseRefName" +
+            "        headRepository { nameWithOwner }" +
+            "        labels(first: 100) { nodes { name } }" +
+            "        assignees(first: 20) { nodes { " + USER + " } }" +
+            "        reviews(first: 100) { pageInfo { hasNextPage }" +
+            "          nodes { databaseId state body submittedAt commit { oid } author { " + USER + " } } }" +
+            "        comments(first: 100) { pageInfo { hasNextPage }" +
+            "          nodes { databaseId body createdAt updatedAt author { " + USER + " } } }" +
+            "        reviewThreads(first: 50) { pageInfo { hasNextPage }" +
+            "          nodes { diffSide comments(first: 50) { pageInfo { hasNextPage }" +
+            "            nodes { databaseId body createdAt updatedAt path originalLine originalCommit { oid }" +
+            "                    replyTo { databaseId } author { " + USER + " } } } } }" +
+            "        commits(last: 1) { nodes { commit { oid checkSuites(first: 20) { pageInfo { hasNextPage }" +
+            "          nodes { checkRuns(first: 50) { pageInfo { hasNextPage }" +
+            "            nodes { name status conclusion startedAt completedAt externalId title summary } } } } } } }" +
+            "      }" +
+            "    }" +
+            "  }" +
+            "}";
+
+    private final RestRequest request;
+    private final Logger log = Logger.getLogger("org.openjdk.skara.forge.github");
+
+    GitHubGraphQL(RestRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * All open pull requests in the repository, with reviews, comments, review comments and the
+     * checks of the head commit already fetched.
+     * @param repository
+     * @param repositoryRequest
+     * @return
+     */
+    List<GitHubPullRequest> openPullRequests(GitHubRepository repository, RestRequest repositoryRequest) {
+        var separator = repository.name().indexOf('/');
+        var variables = JSON.object()
+                            .put("owner", repository.name().substring(0, separator))
+                            .put("name", repository.name().substring(separator + 1));
+        var ret = new ArrayList<GitHubPullRequest>();
+        while (true) {
+            var response = request.post("graphql")
+                                  .body(JSON.object().put("query", QUERY).put("variables", variables))
+                                  .execute();
+            if (response.contains("errors")) {
+                throw new RuntimeException("GraphQL query failed: " + response.get("errors"));
+            }
+            var pullRequests = response.get("data").get("repository").get("pullRequests");
+            for (var node : pullRequests.get("nodes").asArray()) {
+                ret.add(new GitHubPullRequest(repository, pullRequest(node), repositoryRequest, prefetched(node)));
+            }
+            var pageInfo = pullRequests.get("pageInfo");
+            if (!pageInfo.get("hasNextPage").asBoolean()) {
+                break;
+            }
+            variables.put("cursor", pageInfo.get("endCursor"));
+        }
+        log.fine("Fetched " + ret.size() + " pull requests from " + repository.name() + " using GraphQL");
+        return ret;
+    }
+
+    private static JSONObject user(JSONValue author) {
+        if (author == null || author.isNull()) {
+            return JSON.object().put("id", 0).put("login", "ghost");
+        }
+        var login = author.get("login").asString();
+        // The REST API identifies GitHub Apps as "name[bot]", which is what the bots compare against
+        if (author.get("__typename").asString().equals("Bot")) {
+            login += "[bot]";
+        }
+        var id = author.contains("databaseId") ? author.get("databaseId") : JSON.of(0);
+        return JSON.object().put("id", id).put("login", login);
+    }
+
+    private static JSONValue lowerCase(JSONValue value) {
+        return value.isNull() ? value : JSON.of(value.asString().toLowerCase());
+    }
+
+    /**
+     * Translates a GraphQL pull request node into the shape returned by the REST "pulls" endpoint.
+     * @param node
+     * @return
+     */
+    static JSONObject pullRequest(JSONValue node) {
+        var labels = JSON.array();
+        node.get("labels").get("nodes").stream()
+            .forEach(label -> labels.add(JSON.object().put("name", label.get("name"))));
+        var assignees = JSON.array();
+        node.get("assignees").get("nodes").stream()
+            .forEach(assignee -> assignees.add(user(assignee)));
+
+        var head = JSON.object()
+                       .put("ref", node.get("headRefName"))
+                       .put("sha", node.get("headRefOid"));
+        var headRepository = node.get("headRepository");
+        if (headRepository.isNull()) {
+            head.putNull("repo");
+        } else {
+            head.put("repo", JSON.object().put("full_name", headRepository.get("nameWithOwner")));
+        }
+
+        return JSON.object()
+                   .put("number", node.get("number"))
+                   .put("title", node.get("title"))
+                   .put("body", node.get("body"))
+                   .put("state", node.get("state").asString().equals("OPEN") ? "open" : "closed")
+                   .put("draft", node.get("isDraft"))
+                   .put("created_at", node.get("createdAt"))
+                   .put("updated_at", node.get("updatedAt"))
+                   .put("user", user(node.get("author")))
+                   .put("head", head)
+                   .put("base", JSON.object().put("ref", node.get("baseRefName")))
+                   .put("labels", labels)
+                   .put("assignees", assignees);
+    }
+
+    private static boolean truncated(JSONValue connection) {
+        return connection.get("pageInfo").get("hasNextPage").asBoolean();
+    }
+
+    /**
+     * Translates the nested connections of a GraphQL pull request node into the shapes returned
+     * by the corresponding REST endpoints. A facet that did not fit in a single page is left out,
+     * so that it is fetched through REST instead.
+     * @param node
+     * @return
+     */
+    static JSONObject prefetched(JSONValue node) {
+        var ret = JSON.object();
+
+        var reviews = node.get("reviews");
+        if (!truncated(reviews)) {
+            var array = JSON.array();
+            for (var review : reviews.get("nodes").asArray()) {
+                // Reviews that are not yet submitted are not returned by the REST API
+                if (review.get("state").asString().equals("PENDING") || review.get("commit").isNull()) {
+                    continue;
+                }
+                array.add(JSON.object()
+                              .put("id", review.get("databaseId"))
+                              .put("state", review.get("state"))
+                              .put("body", review.get("body"))
+                              .put("submitted_at", review.get("submittedAt"))
+                              .put("commit_id", review.get("commit").get("oid"))
+                              .put("user", user(review.get("author"))));
+            }
+            ret.put("reviews", array);
+        }
+
+        var comments = node.get("comments");
+        if (!truncated(comments)) {
+            var array = JSON.array();
+            for (var comment : comments.get("nodes").asArray()) {
+                array.add(JSON.object()
+                              .put("id", comment.get("databaseId"))
+                              .put("body", comment.get("body"))
+                              .put("created_at", comment.get("createdAt"))
+                              .put("updated_at", comment.get("updatedAt"))
+                              .put("user", user(comment.get("author"))));
+            }
+            ret.put("comments", array);
+        }
+
+        var threads = node.get("reviewThreads");
+        if (!truncated(threads) && threads.get("nodes").stream().noneMatch(t -> truncated(t.get("comments")))) {
+            var array = new ArrayList<JSONObject>();
+            for (var thread : threads.get("nodes").asArray()) {
+                for (var comment : thread.get("comments").get("nodes").asArray()) {
+                    var obj = JSON.object()
+                                  .put("id", comment.get("databaseId"))
+                                  .put("body", comment.get("body"))
+                                  .put("path", comment.get("path"))
+                                  .put("side", thread.get("diffSide"))
+                                  .put("original_line", comment.get("originalLine"))
+                                  .put("original_commit_id", comment.get("originalCommit").get("oid"))
+                                  .put("created_at", comment.get("createdAt"))
+                                  .put("updated_at", comment.get("updatedAt"))
+                                  .put("user", user(comment.get("author")));
+                    if (!comment.get("replyTo").isNull()) {
+                        obj.put("in_reply_to_id", comment.get("replyTo").get("databaseId"));
+                    }
+                    array.add(obj);
+                }
+            }
+            // The REST API returns review comments in creation order, which parents rely on
+            array.sort(Comparator.comparing(obj -> obj.get("created_at").asString()));
+            ret.put("review_comments", new JSONArray(new ArrayList<>(array)));
+        }
+
+        var commits = node.get("commits").get("nodes").asArray();
+        if (commits.size() > 0) {
+            var commit = commits.get(0).get("commit");
+            var suites = commit.get("checkSuites");
+            if (!truncated(suites) && suites.get("nodes").stream().noneMatch(s -> truncated(s.get("checkRuns")))) {
+                var array = JSON.array();
+                for (var suite : suites.get("nodes").asArray()) {
+                    for (var run : suite.get("checkRuns").get("nodes").asArray()) {
+                        var output = JSON.object();
+                        if (!run.get("title").isNull()) {
+                            output.put("title", run.get("title"));
+                        }
+                        if (!run.get("summary").isNull()) {
+                            output.put("summary", run.get("summary"));
+                        }
+                        var obj = JSON.object()
+                                      .put("name", run.get("name"))
+                                      .put("head_sha", commit.get("oid"))
+                                      .put("status", lowerCase(run.get("status")))
+                                      .put("conclusion", lowerCase(run.get("conclusion")))
+                                      .put("started_at", run.get("startedAt"))
+                                      .put("completed_at", run.get("completedAt"))
+                                      .put("output", output);
+                        if (!run.get("externalId").isNull()) {
+                            obj.put("external_id", run.get("externalId"));
+                        }
+                        array.add(obj);
+                    }
+                }
+                ret.put("check_runs", array);
+            }
+        }
+
+        return ret;
+    }
+}
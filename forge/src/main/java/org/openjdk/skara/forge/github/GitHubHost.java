@@ -42,6 +42,7 @@ public class GitHubHost implements Forge {
     private final Credential pat;
     private final RestRequest request;
     private HostUser currentUser;
+    private GitHubGraphQL graphQL;
     private final Logger log = Logger.getLogger("org.openjdk.skara.forge.github");
 
     public GitHubHost(URI uri, GitHubApplication application, Pattern webUriPattern, String webUriReplacement) {
@@ -56,7 +57,7 @@ public class GitHubHost implements Forge {
                 .setPath("/")
                 .build();
 
-        request = new RestRequest(baseApi, () -> Arrays.asList(
+        request = new RestRequest(baseApi, authId(), () -> Arrays.asList(
                 "Authorization", "token " + getInstallationToken().orElseThrow(),
                 "Accept", "application/vnd.github.machine-man-preview+json",
                 "Accept", "application/vnd.github.antiope-preview+json"));
@@ -74,7 +75,7 @@ public class GitHubHost implements Forge {
                                 .setPath("/")
                                 .build();
 
-        request = new RestRequest(baseApi, () -> Arrays.asList(
+        request = new RestRequest(baseApi, authId(), () -> Arrays.asList(
                 "Authorization", "token " + getInstallationToken().orElseThrow()));
     }
 
@@ -97,6 +98,21 @@ public class GitHubHost implements Forge {
         return uri;
     }
 
+    /**
+     * Identity of the credentials used for requests, which (unlike the tokens themselves) stays
+     * the same across token renewals.
+     * @return
+     */
+    String authId() {
+        if (application != null) {
+            return "app:" + application.id();
+        } else if (pat != null) {
+            return "user:" + pat.username();
+        } else {
+            return null;
+        }
+    }
+
     URI getWebURI(String endpoint) {
         var baseWebUri = URIBuilder.base(uri)
                                    .setPath(endpoint)
@@ -114,6 +130,18 @@ public class GitHubHost implements Forge {
         return URIBuilder.base(matcher.replaceAll(webUriReplacement)).build();
     }
 
+    /**
+     * Fetch the state of open pull requests in batches through the GraphQL API.
+     * @param enabled
+     */
+    void useGraphQL(boolean enabled) {
+        graphQL = enabled ? new GitHubGraphQL(request) : null;
+    }
+
+    Optional<GitHubGraphQL> graphQL() {
+        return Optional.ofNullable(graphQL);
+    }
+
     Optional<String> getInstallationToken() {
         if (application != null) {
             return Optional.of(application.getInstallationToken());
@@ -34,7 +34,7 @@ import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
+import java.util.stream.*;
 
 public class GitHubPullRequest implements PullRequest {
     private final JSONValue json;
@@ -45,12 +45,27 @@ public class GitHubPullRequest implements PullRequest {
 
     private List<String> labels = null;
 
+    // REST shaped results of a GraphQL query, dropped as soon as they may be outdated
+    private JSONValue prefetchedReviews = null;
+    private JSONValue prefetchedComments = null;
+    private JSONValue prefetchedReviewComments = null;
+    private JSONValue prefetchedChecks = null;
+
     GitHubPullRequest(GitHubRepository repository, JSONValue jsonValue, RestRequest request) {
+        this(repository, jsonValue, request, JSON.object());
+    }
+
+    GitHubPullRequest(GitHubRepository repository, JSONValue jsonValue, RestRequest request, JSONObject prefetched) {
         this.host = (GitHubHost)repository.forge();
         this.repository = repository;
         this.request = request;
         this.json = jsonValue;
 
+        prefetchedReviews = prefetched.get("reviews");
+        prefetchedComments = prefetched.get("comments");
+        prefetchedReviewComments = prefetched.get("review_comments");
+        prefetchedChecks = prefetched.get("check_runs");
+
         labels = json.get("labels")
                      .stream()
                      .map(v -> v.get("name").asString())
@@ -80,7 +95,9 @@ public class GitHubPullRequest implements PullRequest {
 
     @Override
     public List<Review> reviews() {
-        var reviews = request.get("pulls/" + json.get("number").toString() + "/reviews").execute().stream()
+        var fetched = prefetchedReviews != null ? prefetchedReviews :
+                request.get("pulls/" + json.get("number").toString() + "/reviews").execute();
+        var reviews = fetched.stream()
                              .map(JSONValue::asObject)
                              .filter(obj -> !(obj.get("state").asString().equals("COMMENTED") && obj.get("body").asString().isEmpty()))
                              .map(obj -> {
@@ -109,6 +126,7 @@ public class GitHubPullRequest implements PullRequest {
 
     @Override
     public void addReview(Review.Verdict verdict, String body) {
+        prefetchedReviews = null;
         var query = JSON.object();
         switch (verdict) {
             case APPROVED:
@@ -166,6 +184,7 @@ public class GitHubPullRequest implements PullRequest {
 
     @Override
     public ReviewComment addReviewComment(Hash base, Hash hash, String path, int line, String body) {
+        prefetchedReviewComments = null;
         var query = JSON.object()
                         .put("body", body)
                         .put("commit_id", hash.hex())
@@ -180,6 +199,7 @@ public class GitHubPullRequest implements PullRequest {
 
     @Override
     public ReviewComment addReviewCommentReply(ReviewComment parent, String body) {
+        prefetchedReviewComments = null;
         var query = JSON.object()
                         .put("body", body)
                         .put("in_reply_to", Integer.parseInt(parent.threadId()));
@@ -192,7 +212,9 @@ public class GitHubPullRequest implements PullRequest {
     @Override
     public List<ReviewComment> reviewComments() {
         var ret = new ArrayList<ReviewComment>();
-        var reviewComments = request.get("pulls/" + json.get("number").toString() + "/comments").execute().stream()
+        var fetched = prefetchedReviewComments != null ? prefetchedReviewComments :
+                request.get("pulls/" + json.get("number").toString() + "/comments").execute();
+        var reviewComments = fetched.stream()
                                     .map(JSONValue::asObject)
                                     .collect(Collectors.toList());
         var idToComment = new HashMap<String, ReviewComment>();
@@ -279,13 +301,28 @@ public class GitHubPullRequest implements PullRequest {
 
     @Override
     public List<Comment> comments() {
+        if (prefetchedComments != null) {
+            return prefetchedComments.stream()
+                                     .map(this::parseComment)
+                                     .collect(Collectors.toList());
+        }
         return request.get("issues/" + json.get("number").toString() + "/comments").execute().stream()
                 .map(this::parseComment)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Stream<Comment> streamComments() {
+        if (prefetchedComments != null) {
+            return comments().stream();
+        }
+        return request.get("issues/" + json.get("number").toString() + "/comments").stream()
+                .map(this::parseComment);
+    }
+
     @Override
     public Comment addComment(String body) {
+        prefetchedComments = null;
         var comment = request.post("issues/" + json.get("number").toString() + "/comments")
                 .body("body", body)
                 .execute();
@@ -294,6 +331,7 @@ public class GitHubPullRequest implements PullRequest {
 
     @Override
     public Comment updateComment(String id, String body) {
+        prefetchedComments = null;
         var comment = request.patch("issues/comments/" + id)
                 .body("body", body)
                 .execute();
@@ -305,6 +343,51 @@ public class GitHubPullRequest implements PullRequest {
         return ZonedDateTime.parse(json.get("created_at").asString());
     }
 
+    private static String lastId(JSONValue items) {
+        var array = items.asArray();
+        if (array.size() == 0) {
+            return "none";
+        }
+        var last = array.get(array.size() - 1);
+        return last.get("id").toString() + (last.contains("updated_at") ? "@" + last.get("updated_at").asString() : "");
+    }
+
+    /**
+     * The state of this pull request as far as it is known without any further requests: the fields of
+     * the listing it was created from, and the review count, latest comment and check states if these
+     * were fetched along with it.
+     * @return
+     */
+    public List<String> listingState() {
+        var ret = new ArrayList<String>();
+        for (var field : List.of("updated_at", "state", "draft", "title", "body")) {
+            ret.add(json.contains(field) ? json.get(field).toString() : "");
+        }
+        ret.add(json.get("head").get("sha").asString());
+        ret.add(json.get("base").get("ref").asString());
+        ret.add(json.get("labels").stream()
+                    .map(label -> label.get("name").asString())
+                    .sorted()
+                    .collect(Collectors.joining(",")));
+        if (prefetchedReviews != null) {
+            ret.add("reviews:" + prefetchedReviews.asArray().size());
+        }
+        if (prefetchedComments != null) {
+            ret.add("comment:" + lastId(prefetchedComments));
+        }
+        if (prefetchedReviewComments != null) {
+            ret.add("review comment:" + lastId(prefetchedReviewComments));
+        }
+        if (prefetchedChecks != null) {
+            ret.add("checks:" + prefetchedChecks.stream()
+                                                .map(check -> check.get("name").asString() + "=" +
+                                                              check.get("status").toString() + "/" + check.get("conclusion").toString())
+                                                .sorted()
+                                                .collect(Collectors.joining(",")));
+        }
+        return ret;
+    }
+
     @Override
     public ZonedDateTime updatedAt() {
         return ZonedDateTime.parse(json.get("updated_at").asString());
@@ -320,9 +403,10 @@ public class GitHubPullRequest implements PullRequest {
 
     @Override
     public Map<String, Check> checks(Hash hash) {
-        var checks = request.get("commits/" + hash.hex() + "/check-runs").execute();
+        var checks = prefetchedChecks != null && hash.equals(headHash()) ? prefetchedChecks :
+                request.get("commits/" + hash.hex() + "/check-runs").execute().get("check_runs");
 
-        return checks.get("check_runs").stream()
+        return checks.stream()
                 .collect(Collectors.toMap(c -> c.get("name").asString(),
                         c -> {
                             var checkBuilder = CheckBuilder.create(c.get("name").asString(), new Hash(c.get("head_sha").asString()));
@@ -375,6 +459,7 @@ public class GitHubPullRequest implements PullRequest {
 
     @Override
     public void updateCheck(Check check) {
+        prefetchedChecks = null;
         var completedQuery = JSON.object();
         completedQuery.put("name", check.name());
         completedQuery.put("head_branch", json.get("head").get("ref"));
@@ -31,7 +31,7 @@ import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.stream.*;
 
 public class GitHubRepository implements HostedRepository {
     private final GitHubHost gitHubHost;
@@ -50,7 +50,7 @@ public class GitHubRepository implements HostedRepository {
                 .appendSubDomain("api")
                 .setPath("/repos/" + repository + "/")
                 .build();
-        request = new RestRequest(apiBase, () -> {
+        request = new RestRequest(apiBase, gitHubHost.authId(), () -> {
             var headers = new ArrayList<>(List.of(
                 "Accept", "application/vnd.github.machine-man-preview+json",
                 "Accept", "application/vnd.github.antiope-preview+json",
@@ -124,11 +124,24 @@ public class GitHubRepository implements HostedRepository {
 
     @Override
     public List<PullRequest> pullRequests() {
+        var graphQL = gitHubHost.graphQL();
+        if (graphQL.isPresent()) {
+            return new ArrayList<>(graphQL.get().openPullRequests(this, request));
+        }
         return request.get("pulls").execute().asArray().stream()
                       .map(jsonValue -> new GitHubPullRequest(this, jsonValue, request))
                       .collect(Collectors.toList());
     }
 
+    @Override
+    public Stream<PullRequest> streamPullRequests() {
+        if (gitHubHost.graphQL().isPresent()) {
+            return pullRequests().stream();
+        }
+        return request.get("pulls").stream()
+                      .map(jsonValue -> new GitHubPullRequest(this, jsonValue, request));
+    }
+
     @Override
     public List<PullRequest> findPullRequestsWithComment(String author, String body) {
         var query = "\"" + body + "\" in:comments type:pr repo:" + repository;
@@ -205,6 +218,11 @@ public class GitHubRepository implements HostedRepository {
         throw new RuntimeException("not implemented yet");
     }
 
+    @Override
+    public boolean supportsWebHooks() {
+        return false;
+    }
+
     @Override
     public HostedRepository fork() {
         var response = request.post("forks").execute();
@@ -38,6 +38,7 @@ public class GitLabHost implements Forge {
     private final Credential pat;
     private final RestRequest request;
     private final Logger log = Logger.getLogger("org.openjdk.skara.forge.gitlab");
+    private HostUser currentUser;
 
     GitLabHost(URI uri, Credential pat) {
         this.uri = uri;
@@ -129,8 +130,11 @@ public class GitLabHost implements Forge {
 
     @Override
     public HostUser currentUser() {
-        var details = request.get("user").execute().asObject();
-        return parseUserDetails(details);
+        if (currentUser == null) {
+            var details = request.get("user").execute().asObject();
+            currentUser = parseUserDetails(details);
+        }
+        return currentUser;
     }
 
     @Override
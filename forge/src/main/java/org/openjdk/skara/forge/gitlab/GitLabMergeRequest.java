@@ -356,6 +356,45 @@ public class GitLabMergeRequest implements PullRequest {
         return ZonedDateTime.parse(json.get("created_at").asString());
     }
 
+    /**
+     * The state of this merge request as far as it is known without any further requests, from the fields
+     * of the listing it was created from.
+     * @return
+     */
+    public List<String> listingState() {
+        var ret = new ArrayList<String>();
+        for (var field : List.of("updated_at", "state", "work_in_progress", "title", "description", "sha", "target_branch")) {
+            ret.add(json.contains(field) ? json.get(field).toString() : "");
+        }
+        ret.add(json.get("labels").stream()
+                    .map(JSONValue::asString)
+                    .sorted()
+                    .collect(Collectors.joining(",")));
+        return ret;
+    }
+
+    /**
+     * Summary of the activity on this merge request that does not change its update time, such as
+     * awards and edited notes. Used to detect changes without fetching all comments and reviews.
+     * @return
+     */
+    public String activity() {
+        var latestNote = request.get("notes")
+                                .param("order_by", "updated_at")
+                                .param("sort", "desc")
+                                .param("per_page", "1")
+                                .maxPages(1)
+                                .execute().stream()
+                                .map(note -> note.get("id").toString() + "@" + note.get("updated_at").asString())
+                                .findFirst()
+                                .orElse("none");
+        var awards = request.get("award_emoji").execute().stream()
+                            .map(award -> award.get("id").toString() + award.get("name").asString())
+                            .sorted()
+                            .collect(Collectors.joining(","));
+        return latestNote + ";" + awards;
+    }
+
     @Override
     public ZonedDateTime updatedAt() {
         return ZonedDateTime.parse(json.get("updated_at").asString());
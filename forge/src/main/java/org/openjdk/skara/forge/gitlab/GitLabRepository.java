@@ -181,6 +181,11 @@ public class GitLabRepository implements HostedRepository {
         return URIBuilder.base(gitLabHost.getUri()).build().getHost();
     }
 
+    @Override
+    public boolean supportsWebHooks() {
+        return true;
+    }
+
     @Override
     public Optional<WebHook> parseWebHook(JSONValue body) {
         if (!body.contains("object_kind")) {
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.forge;
+
+import org.openjdk.skara.test.*;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PullRequestSnapshotTests {
+    @Test
+    void memoizesUntilWritten(TestInfo testInfo) throws IOException {
+        try (var credentials = new HostCredentials(testInfo);
+             var tempFolder = new TemporaryDirectory()) {
+            var repo = credentials.getHostedRepository();
+            var localRepo = CheckableRepository.init(tempFolder.path(), repo.repositoryType());
+            var masterHash = localRepo.resolve("master").orElseThrow();
+            localRepo.push(masterHash, repo.url(), "master", true);
+            var editHash = CheckableRepository.appendAndCommit(localRepo);
+            localRepo.push(editHash, repo.url(), "edit", true);
+            var pr = credentials.createPullRequest(repo, "master", "edit", "This is a pull request");
+
+            var snapshot = PullRequestSnapshot.of(pr);
+            assertSame(snapshot, PullRequestSnapshot.of(snapshot));
+            assertEquals(List.of(), snapshot.comments());
+            assertEquals(List.of(), snapshot.labels());
+
+            // Changes made elsewhere are not seen
+            var other = repo.pullRequest(pr.id());
+            other.addComment("Elsewhere");
+            other.addLabel("elsewhere");
+            assertEquals(List.of(), snapshot.comments());
+            assertEquals(List.of(), snapshot.labels());
+
+            // Changes made through the snapshot refresh the affected data only
+            snapshot.addComment("Through snapshot");
+            assertEquals(2, snapshot.comments().size());
+            assertEquals(List.of(), snapshot.labels());
+            snapshot.addLabel("rfr");
+            assertEquals(2, snapshot.labels().size());
+
+            // Returned lists belong to the caller
+            snapshot.comments().clear();
+            assertEquals(2, snapshot.comments().size());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.forge;
+
+import org.openjdk.skara.test.*;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PullRequestUpdateCacheTests {
+    private PullRequest createPullRequest(HostCredentials credentials, TemporaryDirectory tempFolder) throws IOException {
+        var repo = credentials.getHostedRepository();
+        var localRepo = CheckableRepository.init(tempFolder.path(), repo.repositoryType());
+        var masterHash = localRepo.resolve("master").orElseThrow();
+        localRepo.push(masterHash, repo.url(), "master", true);
+        var editHash = CheckableRepository.appendAndCommit(localRepo);
+        localRepo.push(editHash, repo.url(), "edit", true);
+        return credentials.createPullRequest(repo, "master", "edit", "This is a pull request");
+    }
+
+    @Test
+    void fingerprint(TestInfo testInfo) throws IOException {
+        try (var credentials = new HostCredentials(testInfo);
+             var tempFolder = new TemporaryDirectory()) {
+            var pr = createPullRequest(credentials, tempFolder);
+            var cache = new PullRequestUpdateCache();
+
+            assertTrue(cache.needsUpdate(pr));
+            assertFalse(cache.needsUpdate(pr));
+
+            pr.addLabel("rfr");
+            assertTrue(cache.needsUpdate(pr));
+            assertFalse(cache.needsUpdate(pr));
+
+            cache.invalidate(pr);
+            assertTrue(cache.needsUpdate(pr));
+        }
+    }
+
+    @Test
+    void persisted(TestInfo testInfo) throws IOException {
+        try (var credentials = new HostCredentials(testInfo);
+             var tempFolder = new TemporaryDirectory();
+             var storageFolder = new TemporaryDirectory()) {
+            var pr = createPullRequest(credentials, tempFolder);
+            PullRequestUpdateCache.setStorage(storageFolder.path().resolve("cache").resolve("pullrequests.cache"));
+            try {
+                var cache = new PullRequestUpdateCache("first");
+                assertTrue(cache.needsUpdate(pr));
+
+                // Not yet known to have been processed, so a restart processes it again
+                assertTrue(new PullRequestUpdateCache("first").needsUpdate(pr));
+
+                assertFalse(cache.needsUpdate(pr));
+                var restarted = new PullRequestUpdateCache("first");
+                assertFalse(restarted.needsUpdate(pr));
+
+                // Other consumers keep track of their own updates
+                assertTrue(new PullRequestUpdateCache("second").needsUpdate(pr));
+
+                restarted.invalidate(pr);
+                assertTrue(new PullRequestUpdateCache("first").needsUpdate(pr));
+            } finally {
+                PullRequestUpdateCache.setStorage(null);
+            }
+        }
+    }
+}
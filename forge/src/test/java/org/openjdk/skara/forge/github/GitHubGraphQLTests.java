@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.forge.github;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.skara.forge.*;
+import org.openjdk.skara.issuetracker.Issue;
+import org.openjdk.skara.json.JSON;
+import org.openjdk.skara.network.*;
+import org.openjdk.skara.vcs.Hash;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitHubGraphQLTests {
+    private static final String USER = "{\"__typename\": \"User\", \"login\": \"duke\", \"databaseId\": 17}";
+    private static final String BOT = "{\"__typename\": \"Bot\", \"login\": \"openjdk\", \"databaseId\": 42}";
+    private static final String HEAD = "0123456789012345678901234567890123456789";
+
+    private static final String NODE = "{" +
+            "\"number\": 7, \"title\": \"Fix it\", \"body\": \"Body\", \"state\": \"OPEN\", \"isDraft\": false," +
+            "\"createdAt\": \"2020-01-01T10:00:00Z\", \"updatedAt\": \"2020-01-02T10:00:00Z\"," +
+            "\"author\": " + USER + "," +
+            "\"headRefName\": \"edit\", \"headRefOid\": \"" + HEAD + "\", \"baseRefName\": \"master\"," +
+            "\"headRepository\": {\"nameWithOwner\": \"duke/fork\"}," +
+            "\"labels\": {\"nodes\": [{\"name\": \"rfr\"}]}," +
+            "\"assignees\": {\"nodes\": []}," +
+            "\"reviews\": {\"pageInfo\": {\"hasNextPage\": false}, \"nodes\": [" +
+            "  {\"databaseId\": 1, \"state\": \"APPROVED\", \"body\": \"\", \"submittedAt\": \"2020-01-02T09:00:00Z\"," +
+            "   \"commit\": {\"oid\": \"" + HEAD + "\"}, \"author\": " + USER + "}," +
+            "  {\"databaseId\": 2, \"state\": \"PENDING\", \"body\": \"\", \"submittedAt\": null," +
+            "   \"commit\": {\"oid\": \"" + HEAD + "\"}, \"author\": " + USER + "}]}," +
+            "\"comments\": {\"pageInfo\": {\"hasNextPage\": false}, \"nodes\": [" +
+            "  {\"databaseId\": 3, \"body\": \"Hello\", \"createdAt\": \"2020-01-01T11:00:00Z\"," +
+            "   \"updatedAt\": \"2020-01-01T11:00:00Z\", \"author\": " + BOT + "}]}," +
+            "\"reviewThreads\": {\"pageInfo\": {\"hasNextPage\": false}, \"nodes\": [" +
+            "  {\"diffSide\": \"RIGHT\", \"comments\": {\"pageInfo\": {\"hasNextPage\": false}, \"nodes\": [" +
+            "    {\"databaseId\": 5, \"body\": \"Reply\", \"createdAt\": \"2020-01-01T13:00:00Z\", \"updatedAt\": \"2020-01-01T13:00:00Z\"," +
+            "     \"path\": \"a.txt\", \"originalLine\": 3, \"originalCommit\": {\"oid\": \"" + HEAD + "\"}," +
+            "     \"replyTo\": {\"databaseId\": 4}, \"author\": " + USER + "}," +
+            "    {\"databaseId\": 4, \"body\": \"Why?\", \"createdAt\": \"2020-01-01T12:00:00Z\", \"updatedAt\": \"2020-01-01T12:00:00Z\"," +
+            "     \"path\": \"a.txt\", \"originalLine\": 3, \"originalCommit\": {\"oid\": \"" + HEAD + "\"}," +
+            "     \"replyTo\": null, \"author\": " + USER + "}]}}]}," +
+            "\"commits\": {\"nodes\": [{\"commit\": {\"oid\": \"" + HEAD + "\", \"checkSuites\": {\"pageInfo\": {\"hasNextPage\": false}, \"nodes\": [" +
+            "  {\"checkRuns\": {\"pageInfo\": {\"hasNextPage\": false}, \"nodes\": [" +
+            "    {\"name\": \"jcheck\", \"status\": \"COMPLETED\", \"conclusion\": \"SUCCESS\", \"startedAt\": \"2020-01-01T10:00:00Z\"," +
+            "     \"completedAt\": \"2020-01-01T10:01:00Z\", \"externalId\": \"meta\", \"title\": \"Title\", \"summary\": null}]}}]}}}]}" +
+            "}";
+
+    private GitHubPullRequest parse(String node) {
+        var host = new GitHubHost(URIBuilder.base("http://www.example.com").build(), null, null);
+        var repository = new GitHubRepository(host, "openjdk/test");
+        var json = JSON.parse(node);
+        return new GitHubPullRequest(repository, GitHubGraphQL.pullRequest(json),
+                                     new RestRequest(URIBuilder.base("http://localhost:1").build()),
+                                     GitHubGraphQL.prefetched(json));
+    }
+
+    @Test
+    void pullRequest() {
+        var pr = parse(NODE);
+        assertEquals("7", pr.id());
+        assertEquals("Fix it", pr.title());
+        assertEquals("Body", pr.body());
+        assertEquals(Issue.State.OPEN, pr.state());
+        assertFalse(pr.isDraft());
+        assertEquals("duke", pr.author().userName());
+        assertEquals("edit", pr.sourceRef());
+        assertEquals("master", pr.targetRef());
+        assertEquals(new Hash(HEAD), pr.headHash());
+        assertEquals("duke/fork", pr.sourceRepository().name());
+        assertEquals(List.of("rfr"), pr.labels());
+    }
+
+    @Test
+    void prefetched() {
+        var pr = parse(NODE);
+
+        var reviews = pr.reviews();
+        assertEquals(1, reviews.size());
+        assertEquals(Review.Verdict.APPROVED, reviews.get(0).verdict());
+
+        var comments = pr.comments();
+        assertEquals(1, comments.size());
+        assertEquals("openjdk[bot]", comments.get(0).author().userName());
+        assertEquals("42", comments.get(0).author().id());
+
+        var reviewComments = pr.reviewComments();
+        assertEquals(2, reviewComments.size());
+        assertEquals("Why?", reviewComments.get(0).body());
+        assertEquals("Reply", reviewComments.get(1).body());
+        assertEquals(reviewComments.get(0).id(), reviewComments.get(1).parent().orElseThrow().id());
+        assertEquals(reviewComments.get(0).threadId(), reviewComments.get(1).threadId());
+
+        var checks = pr.checks(new Hash(HEAD));
+        assertEquals(1, checks.size());
+        var check = checks.get("jcheck");
+        assertEquals(CheckStatus.SUCCESS, check.status());
+        assertEquals("meta", check.metadata().orElseThrow());
+        assertEquals("Title", check.title().orElseThrow());
+    }
+
+    @Test
+    void truncated() {
+        var prefetched = GitHubGraphQL.prefetched(JSON.parse(NODE.replace("\"reviews\": {\"pageInfo\": {\"hasNextPage\": false}",
+                                                                          "\"reviews\": {\"pageInfo\": {\"hasNextPage\": true}")));
+        assertFalse(prefetched.contains("reviews"));
+        assertTrue(prefetched.contains("comments"));
+    }
+}
@@ -28,6 +28,7 @@ import org.openjdk.skara.json.JSONValue;
 import java.net.URI;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.stream.Stream;
 
 public interface Issue {
     /**
@@ -78,6 +79,15 @@ public interface Issue {
      */
     List<Comment> comments();
 
+    /**
+     * All comments on the issue, in ascending creation time order, fetched lazily as the
+     * stream is consumed.
+     * @return
+     */
+    default Stream<Comment> streamComments() {
+        return comments().stream();
+    }
+
     /**
      * Posts a new comment.
      * @param body
@@ -22,11 +22,32 @@
  */
 package org.openjdk.skara.json;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
 public class JSON {
     public static JSONValue parse(String s) {
         return new JSONParser().parse(s);
     }
 
+    /**
+     * Parses UTF-8 encoded JSON read from the given stream.
+     * @param input
+     * @return
+     */
+    public static JSONValue parse(InputStream input) {
+        return new JSONStreamParser(input).parse();
+    }
+
+    /**
+     * Parses UTF-8 encoded JSON from the remaining content of the given buffer.
+     * @param input
+     * @return
+     */
+    public static JSONValue parse(ByteBuffer input) {
+        return new JSONStreamParser(input).parse();
+    }
+
     public static JSONValue of(int i) {
         return JSONValue.from(i);
     }
@@ -0,0 +1,631 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.json;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * A pull parser for UTF-8 encoded JSON that reads directly from an InputStream or a ByteBuffer,
+ * without first decoding the input into a String. The input is consumed as a sequence of
+ * events through {@link #next()}, or converted into a tree of JSONValues by {@link #readValue()}.
+ */
+public class JSONStreamParser implements AutoCloseable {
+    public enum Event {
+        START_OBJECT,
+        END_OBJECT,
+        START_ARRAY,
+        END_ARRAY,
+        /**
+         * A field name, available through {@link #string()}.
+         */
+        KEY,
+        /**
+         * A string value, available through {@link #string()}.
+         */
+        STRING,
+        /**
+         * An integral number, available through {@link #number()}.
+         */
+        NUMBER,
+        /**
+         * A number with a fraction or exponent, available through {@link #decimal()}.
+         */
+        DECIMAL,
+        TRUE,
+        FALSE,
+        NULL
+    }
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int KEY_CACHE_SIZE = 256;
+
+    // Parser states for each nesting level
+    private static final byte AFTER_START = 0;
+    private static final byte EXPECT_VALUE = 1;
+    private static final byte AFTER_VALUE = 2;
+
+    private final InputStream stream;
+    private final ByteBuffer source;
+    private byte[] buffer;
+    private int pos;
+    private int limit;
+    private long consumed;
+    private boolean eof;
+
+    private boolean[] isObject = new boolean[16];
+    private byte[] states = new byte[16];
+    private int depth;
+    private boolean started;
+    private boolean done;
+
+    private char[] scratch = new char[256];
+    private int scratchLength;
+    private final String[] keyCache = new String[KEY_CACHE_SIZE];
+    private String string;
+    private long number;
+    private double decimal;
+
+    public JSONStreamParser(InputStream stream) {
+        this.stream = stream;
+        this.source = null;
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    public JSONStreamParser(ByteBuffer source) {
+        this.stream = null;
+        if (source.hasArray()) {
+            // Parse the backing array in place
+            this.source = null;
+            this.buffer = source.array();
+            this.pos = source.arrayOffset() + source.position();
+            this.limit = source.arrayOffset() + source.limit();
+            this.consumed = -pos;
+            this.eof = true;
+        } else {
+            this.source = source;
+            this.buffer = new byte[Math.min(BUFFER_SIZE, Math.max(16, source.remaining()))];
+        }
+    }
+
+    private IllegalStateException failure(String message) {
+        return new IllegalStateException(String.format("[%d]: %s", consumed + pos, message));
+    }
+
+    private boolean fill() {
+        if (eof) {
+            return false;
+        }
+        consumed += limit;
+        pos = 0;
+        limit = 0;
+        if (stream != null) {
+            try {
+                var read = stream.read(buffer);
+                if (read <= 0) {
+                    eof = true;
+                    return false;
+                }
+                limit = read;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            var count = Math.min(buffer.length, source.remaining());
+            if (count == 0) {
+                eof = true;
+                return false;
+            }
+            source.get(buffer, 0, count);
+            limit = count;
+        }
+        return true;
+    }
+
+    private int peek() {
+        if (pos >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos] & 0xff;
+    }
+
+    private int read(String message) {
+        if (pos >= limit && !fill()) {
+            throw failure(message);
+        }
+        return buffer[pos++] & 0xff;
+    }
+
+    private void skipWhitespace() {
+        while (true) {
+            while (pos < limit) {
+                var c = buffer[pos];
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                    return;
+                }
+                pos++;
+            }
+            if (!fill()) {
+                return;
+            }
+        }
+    }
+
+    private void expectLiteral(String rest) {
+        for (int i = 0; i < rest.length(); ++i) {
+            if (read("unexpected end of input") != rest.charAt(i)) {
+                throw failure("invalid literal");
+            }
+        }
+    }
+
+    private void append(char c) {
+        if (scratchLength == scratch.length) {
+            var grown = new char[scratch.length * 2];
+            System.arraycopy(scratch, 0, grown, 0, scratchLength);
+            scratch = grown;
+        }
+        scratch[scratchLength++] = c;
+    }
+
+    private int hexDigit(int c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        throw failure("invalid unicode escape");
+    }
+
+    private void readString() {
+        var missingEndChar = "string is not terminated with '\"'";
+        scratchLength = 0;
+        pos++; // step beyond opening "
+        while (true) {
+            // Fast path for plain ASCII runs
+            while (pos < limit) {
+                var b = buffer[pos];
+                if (b < 0 || b == '"' || b == '\\') {
+                    break;
+                }
+                append((char) b);
+                pos++;
+            }
+
+            var c = read(missingEndChar);
+            if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                var n = read(missingEndChar);
+                switch (n) {
+                    case '"':
+                        append('"');
+                        break;
+                    case '\\':
+                        append('\\');
+                        break;
+                    case '/':
+                        append('/');
+                        break;
+                    case 'b':
+                        append('\b');
+                        break;
+                    case 'f':
+                        append('\f');
+                        break;
+                    case 'n':
+                        append('\n');
+                        break;
+                    case 'r':
+                        append('\r');
+                        break;
+                    case 't':
+                        append('\t');
+                        break;
+                    case 'u':
+                        var cp = 0;
+                        for (int i = 0; i < 4; ++i) {
+                            cp = (cp << 4) | hexDigit(read(missingEndChar));
+                        }
+                        append((char) cp);
+                        break;
+                    default:
+                        throw failure(String.format("Unexpected escaped character '%c'", n));
+                }
+            } else if (c < 0x80) {
+                append((char) c);
+            } else {
+                int continuations;
+                int cp;
+                if ((c & 0xe0) == 0xc0) {
+                    continuations = 1;
+                    cp = c & 0x1f;
+                } else if ((c & 0xf0) == 0xe0) {
+                    continuations = 2;
+                    cp = c & 0x0f;
+                } else if ((c & 0xf8) == 0xf0) {
+                    continuations = 3;
+                    cp = c & 0x07;
+                } else {
+                    throw failure("invalid UTF-8 sequence");
+                }
+                for (int i = 0; i < continuations; ++i) {
+                    var cc = read(missingEndChar);
+                    if ((cc & 0xc0) != 0x80) {
+                        throw failure("invalid UTF-8 sequence");
+                    }
+                    cp = (cp << 6) | (cc & 0x3f);
+                }
+                if (cp >= 0x10000) {
+                    append(Character.highSurrogate(cp));
+                    append(Character.lowSurrogate(cp));
+                } else {
+                    append((char) cp);
+                }
+            }
+        }
+    }
+
+    /**
+     * Field names repeat a lot, so reuse previously created Strings for them where possible.
+     */
+    private String key() {
+        var hash = 0;
+        for (int i = 0; i < scratchLength; ++i) {
+            hash = 31 * hash + scratch[i];
+        }
+        var slot = (hash ^ (hash >>> 16)) & (KEY_CACHE_SIZE - 1);
+        var cached = keyCache[slot];
+        if (cached != null && cached.length() == scratchLength) {
+            var matches = true;
+            for (int i = 0; i < scratchLength; ++i) {
+                if (cached.charAt(i) != scratch[i]) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                return cached;
+            }
+        }
+        var key = new String(scratch, 0, scratchLength);
+        keyCache[slot] = key;
+        return key;
+    }
+
+    private boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private Event readNumber() {
+        scratchLength = 0;
+        var negative = false;
+        var integral = true;
+        var value = 0L;
+
+        if (peek() == '-') {
+            negative = true;
+            append('-');
+            pos++;
+        }
+        var c = peek();
+        if (!isDigit(c)) {
+            throw failure("a number must start with a digit");
+        }
+        if (c == '0') {
+            append('0');
+            pos++;
+            if (isDigit(peek())) {
+                throw failure("a number cannot have leading zeroes");
+            }
+        } else {
+            while (isDigit(c)) {
+                var digit = c - '0';
+                if (value > (Long.MAX_VALUE - digit) / 10) {
+                    throw failure("number out of range");
+                }
+                value = value * 10 + digit;
+                append((char) c);
+                pos++;
+                c = peek();
+            }
+        }
+
+        if (peek() == '.') {
+            integral = false;
+            append('.');
+            pos++;
+            if (!isDigit(peek())) {
+                throw failure("must be at least one digit after '.'");
+            }
+            while (isDigit(peek())) {
+                append((char) buffer[pos++]);
+            }
+        }
+
+        c = peek();
+        if (c == 'e' || c == 'E') {
+            integral = false;
+            append('e');
+            pos++;
+            c = peek();
+            if (c == '+' || c == '-') {
+                append((char) c);
+                pos++;
+            }
+            if (!isDigit(peek())) {
+                throw failure("a digit must follow {'e','E'}{'+','-'}");
+            }
+            while (isDigit(peek())) {
+                append((char) buffer[pos++]);
+            }
+        }
+
+        if (integral) {
+            number = negative ? -value : value;
+            return Event.NUMBER;
+        }
+        decimal = Double.parseDouble(new String(scratch, 0, scratchLength));
+        return Event.DECIMAL;
+    }
+
+    private void push(boolean object) {
+        if (depth == states.length) {
+            var grownStates = new byte[depth * 2];
+            System.arraycopy(states, 0, grownStates, 0, depth);
+            states = grownStates;
+            var grownIsObject = new boolean[depth * 2];
+            System.arraycopy(isObject, 0, grownIsObject, 0, depth);
+            isObject = grownIsObject;
+        }
+        isObject[depth] = object;
+        states[depth] = AFTER_START;
+        depth++;
+    }
+
+    private void valueCompleted() {
+        if (depth == 0) {
+            done = true;
+        } else {
+            states[depth - 1] = AFTER_VALUE;
+        }
+    }
+
+    private Event readValue(int c) {
+        Event event;
+        switch (c) {
+            case '{':
+                pos++;
+                push(true);
+                return Event.START_OBJECT;
+            case '[':
+                pos++;
+                push(false);
+                return Event.START_ARRAY;
+            case '"':
+                readString();
+                string = new String(scratch, 0, scratchLength);
+                event = Event.STRING;
+                break;
+            case 't':
+                pos++;
+                expectLiteral("rue");
+                event = Event.TRUE;
+                break;
+            case 'f':
+                pos++;
+                expectLiteral("alse");
+                event = Event.FALSE;
+                break;
+            case 'n':
+                pos++;
+                expectLiteral("ull");
+                event = Event.NULL;
+                break;
+            default:
+                if (c == '-' || isDigit(c)) {
+                    event = readNumber();
+                    break;
+                }
+                throw failure("not a valid start of a JSON value");
+        }
+        valueCompleted();
+        return event;
+    }
+
+    private Event endContainer() {
+        pos++;
+        depth--;
+        var event = isObject[depth] ? Event.END_OBJECT : Event.END_ARRAY;
+        valueCompleted();
+        return event;
+    }
+
+    /**
+     * Returns true if there are more events to read.
+     * @return
+     */
+    public boolean hasNext() {
+        if (!started) {
+            skipWhitespace();
+            started = true;
+            if (peek() == -1) {
+                done = true;
+            }
+        }
+        if (done) {
+            skipWhitespace();
+            if (peek() != -1) {
+                throw failure("can only have one top-level JSON value");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the next event.
+     * @return
+     */
+    public Event next() {
+        if (!hasNext()) {
+            throw failure("no more input");
+        }
+        skipWhitespace();
+        var c = peek();
+        if (c == -1) {
+            throw failure(depth > 0 && isObject[depth - 1] ? "object is not terminated with '}'" :
+                                                             "array is not terminated with ']'");
+        }
+        if (depth == 0) {
+            return readValue(c);
+        }
+
+        var level = depth - 1;
+        var object = isObject[level];
+        var end = object ? '}' : ']';
+        switch (states[level]) {
+            case AFTER_START:
+                if (c == end) {
+                    return endContainer();
+                }
+                break;
+            case AFTER_VALUE:
+                if (c == end) {
+                    return endContainer();
+                }
+                if (c != ',') {
+                    throw failure(object ? "expected ',' or '}'" : "expected ',' or ']'");
+                }
+                pos++;
+                skipWhitespace();
+                c = peek();
+                break;
+            default:
+                // EXPECT_VALUE, only within objects after a key
+                return readValue(c);
+        }
+
+        if (!object) {
+            return readValue(c);
+        }
+        if (c != '"') {
+            throw failure("a field must of type string");
+        }
+        readString();
+        string = key();
+        skipWhitespace();
+        if (peek() != ':') {
+            throw failure("a field must be followed by ':'");
+        }
+        pos++;
+        states[level] = EXPECT_VALUE;
+        return Event.KEY;
+    }
+
+    /**
+     * The value of the most recent KEY or STRING event.
+     * @return
+     */
+    public String string() {
+        return string;
+    }
+
+    /**
+     * The value of the most recent NUMBER event.
+     * @return
+     */
+    public long number() {
+        return number;
+    }
+
+    /**
+     * The value of the most recent DECIMAL event.
+     * @return
+     */
+    public double decimal() {
+        return decimal;
+    }
+
+    private JSONValue build(Event event) {
+        switch (event) {
+            case START_OBJECT:
+                var object = new JSONObject();
+                for (var e = next(); e != Event.END_OBJECT; e = next()) {
+                    var key = string;
+                    object.put(key, build(next()));
+                }
+                return object;
+            case START_ARRAY:
+                var array = new JSONArray();
+                for (var e = next(); e != Event.END_ARRAY; e = next()) {
+                    array.add(build(e));
+                }
+                return array;
+            case STRING:
+                return new JSONString(string);
+            case NUMBER:
+                return new JSONNumber(number);
+            case DECIMAL:
+                return new JSONDecimal(decimal);
+            case TRUE:
+                return new JSONBoolean(true);
+            case FALSE:
+                return new JSONBoolean(false);
+            case NULL:
+                return new JSONNull();
+            default:
+                throw failure("unexpected " + event);
+        }
+    }
+
+    /**
+     * Reads the next complete value, including all nested values.
+     * @return null if there is no more input
+     */
+    public JSONValue readValue() {
+        if (!hasNext()) {
+            return null;
+        }
+        return build(next());
+    }
+
+    /**
+     * Parses a complete document consisting of a single top-level value.
+     * @return null if the input is empty
+     */
+    JSONValue parse() {
+        var ret = readValue();
+        hasNext();
+        return ret;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
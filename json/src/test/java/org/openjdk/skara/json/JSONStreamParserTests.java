@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JSONStreamParserTests {
+    /**
+     * Hands out at most one byte per read, to exercise buffer boundaries.
+     */
+    private static class TrickleInputStream extends InputStream {
+        private final byte[] data;
+        private int pos = 0;
+
+        TrickleInputStream(String s) {
+            data = s.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int read() {
+            return pos < data.length ? data[pos++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= data.length) {
+                return -1;
+            }
+            b[off] = data[pos++];
+            return 1;
+        }
+    }
+
+    private static JSONValue parse(String s) {
+        var fromBuffer = JSON.parse(ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8)));
+        var fromStream = JSON.parse(new TrickleInputStream(s));
+        assertEquals(String.valueOf(fromBuffer), String.valueOf(fromStream));
+        return fromBuffer;
+    }
+
+    @Test
+    void sameResultAsStringParser() {
+        var inputs = List.of(
+                "true",
+                "  false \n",
+                "17",
+                "-42",
+                "0",
+                "3.25",
+                "-1.5e3",
+                "1E-2",
+                "\"Hello, JSON\"",
+                "null",
+                "[]",
+                "{}",
+                "[1, 2, 3]",
+                "{\"a\": 1, \"b\": [true, false, null], \"c\": {\"d\": \"e\"}}",
+                "[{\"id\": 1, \"name\": \"x\"}, {\"id\": 2, \"name\": \"y\"}]",
+                "\"escapes: \\\" \\\\ \\/ \\b \\f \\n \\r \\t \\u00e5\"",
+                "\"unicode: \u00e5\u00e4\u00f6 \u20ac \ud83d\ude00\"",
+                "\"surrogates: \\ud83d\\ude00\"",
+                " [ { \"nested\" : [ [ [ 1 ] ] ] } ] ");
+        for (var input : inputs) {
+            var expected = JSON.parse(input);
+            assertEquals(expected.toString(), parse(input).toString(), input);
+        }
+    }
+
+    @Test
+    void emptyInput() {
+        assertNull(parse(""));
+        assertNull(parse("   \n"));
+    }
+
+    @Test
+    void events() {
+        var parser = new JSONStreamParser(ByteBuffer.wrap("{\"a\": [1, 2.5, \"x\"], \"b\": null}".getBytes(StandardCharsets.UTF_8)));
+        var events = new ArrayList<JSONStreamParser.Event>();
+        while (parser.hasNext()) {
+            var event = parser.next();
+            events.add(event);
+            if (event == JSONStreamParser.Event.KEY && parser.string().equals("a")) {
+                assertEquals(JSONStreamParser.Event.START_ARRAY, parser.next());
+                assertEquals(JSONStreamParser.Event.NUMBER, parser.next());
+                assertEquals(1, parser.number());
+                assertEquals(JSONStreamParser.Event.DECIMAL, parser.next());
+                assertEquals(2.5, parser.decimal());
+                assertEquals(JSONStreamParser.Event.STRING, parser.next());
+                assertEquals("x", parser.string());
+                assertEquals(JSONStreamParser.Event.END_ARRAY, parser.next());
+            }
+        }
+        assertEquals(List.of(JSONStreamParser.Event.START_OBJECT,
+                             JSONStreamParser.Event.KEY,
+                             JSONStreamParser.Event.KEY,
+                             JSONStreamParser.Event.NULL,
+                             JSONStreamParser.Event.END_OBJECT), events);
+    }
+
+    @Test
+    void largeNumbers() {
+        assertEquals(Long.MAX_VALUE, parse(Long.toString(Long.MAX_VALUE)).asLong());
+        assertThrows(RuntimeException.class, () -> parse("92233720368547758070"));
+    }
+
+    @Test
+    void invalidInput() {
+        var inputs = List.of("{", "[1, 2", "{\"a\" 1}", "{1: 2}", "\"unterminated", "tru", "[1 2]",
+                             "01", "1.", "-", "1e", "{} {}", "[1,]", "\"\\x\"");
+        for (var input : inputs) {
+            assertThrows(IllegalStateException.class, () -> parse(input), input);
+        }
+    }
+}
@@ -34,6 +34,15 @@ public class MailingListServerFactory {
     public static MailingListServer createMailmanServer(URI archive, String smtp, Duration sendInterval) {
         return new MailmanServer(archive, smtp, sendInterval);
     }
+
+    /**
+     * Creates a server that queues outgoing messages in the given journal file and delivers
+     * them in the background.
+     */
+    public static MailingListServer createMailmanServer(URI archive, String smtp, Duration sendInterval, Path outboxJournal) {
+        return new MailmanServer(archive, smtp, sendInterval, outboxJournal);
+    }
+
     public static MailingListServer createMboxFileServer(Path file) {
         return new MboxFileListServer(file);
     }
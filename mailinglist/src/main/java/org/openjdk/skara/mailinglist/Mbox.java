@@ -30,45 +30,163 @@ import java.util.*;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.stream.*;
 
 public class Mbox {
     private final static Logger log = Logger.getLogger("org.openjdk.skara.mailinglist");
 
-    private final static Pattern mboxMessagePattern = Pattern.compile(
-            "^(From (?:.(?!^\\R^From ))*)", Pattern.MULTILINE | Pattern.DOTALL);
     private final static DateTimeFormatter ctimeFormat = DateTimeFormatter.ofPattern(
             "EEE LLL dd HH:mm:ss yyyy", Locale.US);
     private final static Pattern fromStringEncodePattern = Pattern.compile("^(>*From )", Pattern.MULTILINE);
-    private final static Pattern fromStringDecodePattern = Pattern.compile("^>(>*From )", Pattern.MULTILINE);
-
-    private static List<Email> splitMbox(String mbox, EmailAddress sender) {
-        // Initial split
-        var messages = mboxMessagePattern.matcher(mbox).results()
-                                         .map(match -> match.group(1))
-                                         .filter(message -> message.length() > 0)
-                                         .map(Mbox::decodeFromStrings)
-                                         .collect(Collectors.toList());
-
-        // Pipermail can occasionally fail to encode 'From ' in message bodies, try to handle this
-        var messageBuilder = new StringBuilder();
-        var parsedMails = new ArrayList<Email>();
-        Collections.reverse(messages);
-        for (var message : messages) {
-            messageBuilder.insert(0, message);
-            try {
-                var email = Email.from(Email.parse(messageBuilder.toString()));
-                if (sender != null) {
-                    email.sender(sender);
+
+    /**
+     * Splits an mbox into raw messages in a single pass over its lines. A message starts with a
+     * line beginning with "From " that is either the first such line or follows an empty line.
+     */
+    private static class Splitter implements Iterator<Email> {
+        private final BufferedReader reader;
+        private final EmailAddress sender;
+        private String nextStart = null;
+        private boolean eof = false;
+
+        private Email previous = null;
+        private String previousRaw = null;
+        private Email next = null;
+
+        Splitter(Reader reader, EmailAddress sender) {
+            this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+            this.sender = sender;
+        }
+
+        private static String decodeFromString(String line) {
+            if (line.startsWith(">")) {
+                var i = 1;
+                while (i < line.length() && line.charAt(i) == '>') {
+                    i++;
+                }
+                if (line.startsWith("From ", i)) {
+                    return line.substring(1);
+                }
+            }
+            return line;
+        }
+
+        private String nextMessage() throws IOException {
+            if (nextStart == null) {
+                if (eof) {
+                    return null;
                 }
-                parsedMails.add(email.build());
-                messageBuilder.setLength(0);
-            } catch (RuntimeException ignored) {
+                String line;
+                while ((line = reader.readLine()) != null && !line.startsWith("From ")) {
+                    // Skip anything before the first message
+                }
+                if (line == null) {
+                    eof = true;
+                    return null;
+                }
+                nextStart = line;
+            }
+
+            var message = new StringBuilder(nextStart).append('\n');
+            nextStart = null;
+            var previousEmpty = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (previousEmpty && line.startsWith("From ")) {
+                    // The separating empty line is not part of the message
+                    message.setLength(message.length() - 1);
+                    nextStart = line;
+                    return message.toString();
+                }
+                message.append(decodeFromString(line)).append('\n');
+                previousEmpty = line.isEmpty();
             }
+            eof = true;
+            return message.toString();
         }
 
-        Collections.reverse(parsedMails);
-        return parsedMails;
+        private Email parse(String raw) {
+            var email = Email.from(Email.parse(raw));
+            if (sender != null) {
+                email.sender(sender);
+            }
+            return email.build();
+        }
+
+        private Email computeNext() throws IOException {
+            while (true) {
+                var raw = nextMessage();
+                if (raw == null) {
+                    var ret = previous;
+                    previous = null;
+                    return ret;
+                }
+                Email email;
+                try {
+                    email = parse(raw);
+                } catch (RuntimeException e) {
+                    // Pipermail can occasionally fail to encode 'From ' in message bodies, in
+                    // which case the remainder belongs to the previous message
+                    if (previousRaw != null) {
+                        try {
+                            previous = parse(previousRaw + raw);
+                            previousRaw = previousRaw + raw;
+                        } catch (RuntimeException ignored) {
+                        }
+                    }
+                    continue;
+                }
+                var ret = previous;
+                previous = email;
+                previousRaw = raw;
+                if (ret != null) {
+                    return ret;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = computeNext();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Email next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var ret = next;
+            next = null;
+            return ret;
+        }
+    }
+
+    /**
+     * Reads the messages of an mbox lazily, in the order they appear.
+     * @param reader
+     * @param sender if non-null, set as the sender of all messages
+     * @return
+     */
+    public static Stream<Email> streamMbox(Reader reader, EmailAddress sender) {
+        var splitter = new Splitter(reader, sender);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(splitter, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Splits an mbox into the messages it contains, in the order they appear.
+     * @param mbox
+     * @param sender if non-null, set as the sender of all messages
+     * @return
+     */
+    public static List<Email> splitMbox(String mbox, EmailAddress sender) {
+        return streamMbox(new StringReader(mbox), sender).collect(Collectors.toList());
     }
 
     private static String encodeFromStrings(String body) {
@@ -76,17 +194,20 @@ public class Mbox {
         return fromStringMatcher.replaceAll(">$1");
     }
 
-    private static String decodeFromStrings(String body) {
-        var fromStringMatcher = fromStringDecodePattern.matcher(body);
-        return fromStringMatcher.replaceAll("$1");
-    }
-
     public static List<Conversation> parseMbox(String mbox) {
         return parseMbox(mbox, null);
     }
 
     public static List<Conversation> parseMbox(String mbox, EmailAddress sender) {
-        var emails = splitMbox(mbox, sender);
+        return conversations(splitMbox(mbox, sender));
+    }
+
+    /**
+     * Groups messages into conversations, based on their In-Reply-To headers.
+     * @param emails messages in the order they appear in an mbox
+     * @return
+     */
+    public static List<Conversation> conversations(List<Email> emails) {
         var idToMail = emails.stream().collect(Collectors.toMap(Email::id, Function.identity(), (a, b) -> a));
         var idToConversation = idToMail.values().stream()
                                        .filter(email -> !email.hasHeader("In-Reply-To"))
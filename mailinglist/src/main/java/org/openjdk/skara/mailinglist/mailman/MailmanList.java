@@ -24,10 +24,12 @@ package org.openjdk.skara.mailinglist.mailman;
 
 import org.openjdk.skara.email.*;
 import org.openjdk.skara.mailinglist.*;
+import org.openjdk.skara.network.HttpClientPool;
 
 import java.io.*;
 import java.net.URI;
 import java.net.http.*;
+import java.nio.charset.StandardCharsets;
 import java.time.*;
 import java.util.*;
 import java.util.concurrent.*;
@@ -38,9 +40,31 @@ public class MailmanList implements MailingList {
     private final MailmanServer server;
     private final EmailAddress listAddress;
     private final Logger log = Logger.getLogger("org.openjdk.skara.mailinglist");
-    private final ConcurrentMap<URI, HttpResponse<String>> pageCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<URI, MonthlyArchive> archives = new ConcurrentHashMap<>();
     private List<Conversation> cachedConversations = new ArrayList<>();
 
+    // Number of already consumed bytes requested again to detect archives that were rewritten
+    private static final int OVERLAP = 64;
+
+    /**
+     * The messages parsed so far from one monthly archive. Monthly archives only grow by new
+     * messages being appended, so all but the last message are final and only the bytes from
+     * the start of the last message onwards have to be fetched and parsed again.
+     */
+    private static class MonthlyArchive {
+        private String etag = null;
+        private long consumed = 0;
+        private byte[] overlap = new byte[0];
+        private final List<Email> emails = new ArrayList<>();
+        private List<Email> last = List.of();
+
+        List<Email> emails() {
+            var ret = new ArrayList<>(emails);
+            ret.addAll(last);
+            return ret;
+        }
+    }
+
     MailmanList(MailmanServer server, EmailAddress name) {
         this.server = server;
         this.listAddress = name;
@@ -72,31 +96,20 @@ public class MailmanList implements MailingList {
         return ret;
     }
 
-    private Optional<HttpResponse<String>> getPage(HttpClient client, URI uri) {
+    private HttpResponse<byte[]> send(URI uri, MonthlyArchive archive, boolean ranged) {
         var requestBuilder = HttpRequest.newBuilder(uri)
                                         .timeout(Duration.ofSeconds(30))
                                         .GET();
-
-        var cached = pageCache.get(uri);
-        if (cached != null) {
-            var etag = cached.headers().firstValue("ETag");
-            etag.ifPresent(s -> requestBuilder.header("If-None-Match", s));
+        if (archive.etag != null) {
+            requestBuilder.header("If-None-Match", archive.etag);
+        }
+        if (ranged && archive.consumed > 0) {
+            requestBuilder.header("Range", "bytes=" + (archive.consumed - archive.overlap.length) + "-");
         }
 
         var request = requestBuilder.build();
         try {
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() == 200) {
-                pageCache.put(uri, response);
-                return Optional.of(response);
-            } else if (response.statusCode() == 304) {
-                return Optional.of(response);
-            } else if (response.statusCode() == 404) {
-                log.fine("Page not found for " + uri);
-                return Optional.empty();
-            } else {
-                throw new RuntimeException("Bad response received: " + response);
-            }
+            return HttpClientPool.send(request, HttpResponse.BodyHandlers.ofByteArray());
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         } catch (InterruptedException e) {
@@ -104,46 +117,137 @@ public class MailmanList implements MailingList {
         }
     }
 
-    @Override
-    public List<Conversation> conversations(Duration maxAge) {
-        var client = HttpClient.newHttpClient();
+    /**
+     * Fetches the part of a monthly archive that has not yet been consumed.
+     * @param uri
+     * @param archive
+     * @return the new content, or empty if the archive has not changed or does not exist
+     */
+    private Optional<byte[]> fetchNew(URI uri, MonthlyArchive archive) {
+        var response = send(uri, archive, true);
+        if (response.statusCode() == 416) {
+            log.info("Archive " + uri + " is shorter than expected, fetching it again");
+            response = send(uri, archive, false);
+        }
+
+        if (response.statusCode() == 304) {
+            return Optional.empty();
+        } else if (response.statusCode() == 404) {
+            log.fine("Page not found for " + uri);
+            archive.etag = null;
+            return Optional.empty();
+        } else if (response.statusCode() != 200 && response.statusCode() != 206) {
+            throw new RuntimeException("Bad response received: " + response);
+        }
+
+        archive.etag = response.headers().firstValue("ETag").orElse(null);
+        var body = response.body();
+        if (response.statusCode() == 200) {
+            archive.consumed = 0;
+            archive.overlap = new byte[0];
+            archive.emails.clear();
+            return Optional.of(body);
+        }
 
+        // Make sure that the already consumed content has not been rewritten
+        var overlap = archive.overlap;
+        if (body.length < overlap.length || !Arrays.equals(overlap, Arrays.copyOf(body, overlap.length))) {
+            log.info("Archive " + uri + " has been rewritten, fetching it again");
+            archive.etag = null;
+            archive.consumed = 0;
+            archive.overlap = new byte[0];
+            archive.emails.clear();
+            return fetchNew(uri, archive);
+        }
+        return Optional.of(Arrays.copyOfRange(body, overlap.length, body.length));
+    }
+
+    private static boolean isMessageStart(byte[] content, int index) {
+        var from = "\n\nFrom ".getBytes(StandardCharsets.US_ASCII);
+        if (index + from.length > content.length) {
+            return false;
+        }
+        for (int i = 0; i < from.length; ++i) {
+            if (content[index + i] != from[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses newly appended content into an archive. Everything up to the last message that
+     * can be parsed on its own is final, the last message is parsed again on the next update.
+     * @param archive
+     * @param content
+     */
+    private void consume(MonthlyArchive archive, byte[] content) {
+        var lastStart = 0;
+        var last = List.<Email>of();
+        for (int i = content.length - 1; i > 0; --i) {
+            if (isMessageStart(content, i)) {
+                var candidate = Mbox.splitMbox(new String(content, i + 1, content.length - i - 1, StandardCharsets.UTF_8), listAddress);
+                if (!candidate.isEmpty()) {
+                    lastStart = i + 1;
+                    last = candidate;
+                    break;
+                }
+            }
+        }
+        if (lastStart == 0) {
+            last = Mbox.splitMbox(new String(content, StandardCharsets.UTF_8), listAddress);
+        } else {
+            archive.emails.addAll(Mbox.splitMbox(new String(content, 0, lastStart, StandardCharsets.UTF_8), listAddress));
+            var consumed = new byte[archive.overlap.length + lastStart];
+            System.arraycopy(archive.overlap, 0, consumed, 0, archive.overlap.length);
+            System.arraycopy(content, 0, consumed, archive.overlap.length, lastStart);
+            archive.overlap = Arrays.copyOfRange(consumed, Math.max(0, consumed.length - OVERLAP), consumed.length);
+            archive.consumed += lastStart;
+        }
+        archive.last = last;
+    }
+
+    @Override
+    public synchronized List<Conversation> conversations(Duration maxAge) {
         // Order pages by most recent first
         var potentialPages = getMonthRange(maxAge).stream()
                                                   .sorted(Comparator.reverseOrder())
+                                                  .map(month -> server.getMbox(listAddress.localPart(), month))
                                                   .collect(Collectors.toList());
+        archives.keySet().retainAll(potentialPages);
 
-        var actualPages = new LinkedList<String>();
+        var actualPages = new LinkedList<MonthlyArchive>();
         var useCached = false;
         var newContent = false;
-        for (var month : potentialPages) {
-            URI mboxUri = server.getMbox(listAddress.localPart(), month);
-
+        for (var mboxUri : potentialPages) {
             if (useCached) {
-                var cachedResponse = pageCache.get(mboxUri);
-                if (cachedResponse == null) {
+                var cachedArchive = archives.get(mboxUri);
+                if (cachedArchive == null) {
                     break;
                 } else {
-                    actualPages.addFirst(cachedResponse.body());
+                    actualPages.addFirst(cachedArchive);
                 }
             } else {
-                var mboxResponse = getPage(client, mboxUri);
-                if (mboxResponse.isEmpty()) {
-                    break;
-                }
-                if (mboxResponse.get().statusCode() == 304) {
-                    actualPages.addFirst(pageCache.get(mboxUri).body());
+                var archive = archives.computeIfAbsent(mboxUri, uri -> new MonthlyArchive());
+                var content = fetchNew(mboxUri, archive);
+                if (content.isPresent()) {
+                    consume(archive, content.get());
+                    actualPages.addFirst(archive);
+                    newContent = true;
+                } else if (archive.etag != null) {
+                    actualPages.addFirst(archive);
                     useCached = true;
                 } else {
-                    actualPages.addFirst(mboxResponse.get().body());
-                    newContent = true;
+                    archives.remove(mboxUri);
+                    break;
                 }
             }
         }
 
         if (newContent) {
-            var concatenatedMbox = String.join("", actualPages);
-            var mails = Mbox.parseMbox(concatenatedMbox, listAddress);
+            var mails = Mbox.conversations(actualPages.stream()
+                                                      .flatMap(archive -> archive.emails().stream())
+                                                      .collect(Collectors.toList()));
             var threshold = ZonedDateTime.now().minus(maxAge);
             cachedConversations = mails.stream()
                                        .filter(mail -> mail.first().date().isAfter(threshold))
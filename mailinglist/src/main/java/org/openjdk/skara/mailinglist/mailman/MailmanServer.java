@@ -28,21 +28,57 @@ import org.openjdk.skara.mailinglist.*;
 
 import java.io.*;
 import java.net.URI;
+import java.nio.file.Path;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
-import java.util.Locale;
+import java.util.*;
+import java.util.concurrent.*;
 
 public class MailmanServer implements MailingListServer {
+    private static final Duration queuedSendTimeout = Duration.ofMinutes(1);
+    private static final ConcurrentMap<Path, Outbox> outboxes = new ConcurrentHashMap<>();
+
+    private static class Outbox {
+        private final String smtpServer;
+        private final Duration sendInterval;
+        private final MailQueue queue;
+
+        Outbox(Path journal, String smtpServer, Duration sendInterval) {
+            this.smtpServer = smtpServer;
+            this.sendInterval = sendInterval;
+            queue = new MailQueue(journal, (recipients, email) -> SMTPPool.send(smtpServer, recipients, email, queuedSendTimeout),
+                                  sendInterval);
+        }
+    }
+
     private final URI archive;
     private final String smtpServer;
-    private volatile Instant lastSend;
-    private Duration sendInterval;
+    private final TokenBucket limiter;
+    private final MailQueue outbox;
 
     public MailmanServer(URI archive, String smtpServer, Duration sendInterval) {
         this.archive = archive;
         this.smtpServer = smtpServer;
-        this.sendInterval = sendInterval;
-        lastSend = Instant.EPOCH;
+        limiter = new TokenBucket(sendInterval);
+        outbox = null;
+    }
+
+    /**
+     * Messages posted through this server are queued in the given journal and delivered in the
+     * background. Servers created with the same journal share a single queue, and must therefore
+     * use the same SMTP server and send interval.
+     * @throws IllegalArgumentException if the journal is already used with a different SMTP server or send interval
+     */
+    public MailmanServer(URI archive, String smtpServer, Duration sendInterval, Path outboxJournal) {
+        this.archive = archive;
+        this.smtpServer = smtpServer;
+        limiter = null;
+        var shared = outboxes.computeIfAbsent(outboxJournal.toAbsolutePath(), journal -> new Outbox(journal, smtpServer, sendInterval));
+        if (!shared.smtpServer.equals(smtpServer) || !shared.sendInterval.equals(sendInterval)) {
+            throw new IllegalArgumentException("Mail queue " + outboxJournal + " is already used with SMTP server " +
+                                               shared.smtpServer + " and send interval " + shared.sendInterval);
+        }
+        outbox = shared.queue;
     }
 
     URI getMbox(String listName, ZonedDateTime month) {
@@ -51,15 +87,13 @@ public class MailmanServer implements MailingListServer {
     }
 
     void sendMessage(EmailAddress recipientList, Email message) {
-        while (lastSend.plus(sendInterval).isAfter(Instant.now())) {
-            try {
-                Thread.sleep(sendInterval.dividedBy(10).toMillis());
-            } catch (InterruptedException ignored) {
-            }
+        if (outbox != null) {
+            outbox.enqueue(List.of(recipientList), message);
+            return;
         }
-        lastSend = Instant.now();
+        limiter.acquire();
         try {
-            SMTP.send(smtpServer, recipientList, message);
+            SMTPPool.send(smtpServer, recipientList, message);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.mailinglist.mailman;
+
+import java.time.*;
+
+/**
+ * Allows one permit per interval, with bursts of up to a given number of permits. Callers
+ * reserve their slot while holding the lock and then sleep outside of it, so concurrent
+ * senders are spaced out without polling.
+ */
+class TokenBucket {
+    private final Duration interval;
+    private final int capacity;
+    private final Clock clock;
+    private double tokens;
+    private Instant lastRefill;
+
+    TokenBucket(Duration interval, int capacity, Clock clock) {
+        this.interval = interval;
+        this.capacity = capacity;
+        this.clock = clock;
+        this.tokens = capacity;
+        this.lastRefill = clock.instant();
+    }
+
+    TokenBucket(Duration interval) {
+        this(interval, 1, Clock.systemUTC());
+    }
+
+    /**
+     * Takes a permit, possibly one that has not been earned yet.
+     * @return how long to wait before the permit may be used
+     */
+    synchronized Duration reserve() {
+        if (interval.isZero() || interval.isNegative()) {
+            return Duration.ZERO;
+        }
+        var now = clock.instant();
+        var elapsed = Duration.between(lastRefill, now);
+        if (!elapsed.isNegative()) {
+            tokens = Math.min(capacity, tokens + (double) elapsed.toNanos() / interval.toNanos());
+            lastRefill = now;
+        }
+        tokens -= 1;
+        if (tokens >= 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos((long) Math.ceil(-tokens * interval.toNanos()));
+    }
+
+    void acquire() {
+        var wait = reserve();
+        if (wait.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(wait.toMillis(), wait.toNanosPart() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
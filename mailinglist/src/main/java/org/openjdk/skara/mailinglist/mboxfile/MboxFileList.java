@@ -85,16 +85,16 @@ public class MboxFileList implements MailingList {
 
     @Override
     public List<Conversation> conversations(Duration maxAge) {
-        String mbox;
-        try {
-            mbox = Files.readString(file, StandardCharsets.UTF_8);
-        } catch (IOException e) {
+        List<Email> emails;
+        try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            emails = Mbox.streamMbox(reader, null).collect(Collectors.toList());
+        } catch (IOException | UncheckedIOException e) {
             log.info("Failed to open mbox file");
             log.throwing("MboxFileList", "conversations", e);
             return new LinkedList<>();
         }
         var cutoff = Instant.now().minus(maxAge);
-        return Mbox.parseMbox(mbox).stream()
+        return Mbox.conversations(emails).stream()
                 .filter(email -> email.first().date().toInstant().isAfter(cutoff))
                 .collect(Collectors.toList());
     }
@@ -138,6 +138,53 @@ class MailmanTests {
         }
     }
 
+    @Test
+    void incremental() throws IOException {
+        try (var testServer = new TestMailmanServer()) {
+            var listAddress = testServer.createList("test");
+            var mailmanServer = MailingListServerFactory.createMailmanServer(testServer.getArchive(), testServer.getSMTP(),
+                                                                             Duration.ZERO);
+            var mailmanList = mailmanServer.getList(listAddress);
+            var sender = EmailAddress.from("Test", "test@test.email");
+            var first = Email.create(sender, "First", "Body 1")
+                             .recipient(EmailAddress.parse(listAddress))
+                             .build();
+            mailmanList.post(first);
+            testServer.processIncoming();
+            assertEquals(1, mailmanList.conversations(Duration.ofDays(1)).size());
+            assertFalse(testServer.lastResponsePartial());
+
+            var second = Email.create(sender, "Second", "Body 2")
+                              .recipient(EmailAddress.parse(listAddress))
+                              .build();
+            mailmanList.post(second);
+            testServer.processIncoming();
+            assertEquals(2, mailmanList.conversations(Duration.ofDays(1)).size());
+
+            // A reply to a message that has already been consumed
+            var reply = Email.create(sender, "Re: First", "Reply")
+                             .recipient(EmailAddress.parse(listAddress))
+                             .header("In-Reply-To", first.id().toString())
+                             .build();
+            mailmanList.post(reply);
+            testServer.processIncoming();
+            // Only the content after the first message is fetched again
+            var conversations = mailmanList.conversations(Duration.ofDays(1));
+            assertTrue(testServer.lastResponsePartial());
+            assertEquals(2, conversations.size());
+            var conversation = conversations.stream()
+                                            .filter(c -> c.first().id().equals(first.id()))
+                                            .findAny().orElseThrow();
+            var replies = conversation.replies(conversation.first());
+            assertEquals(1, replies.size());
+            assertEquals("Reply", replies.get(0).body());
+
+            // Nothing new
+            assertEquals(2, mailmanList.conversations(Duration.ofDays(1)).size());
+            assertTrue(testServer.lastResponseCached());
+        }
+    }
+
     @Test
     void interval() throws IOException {
         try (var testServer = new TestMailmanServer()) {
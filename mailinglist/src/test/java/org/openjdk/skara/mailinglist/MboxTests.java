@@ -27,10 +27,11 @@ import org.openjdk.skara.test.TemporaryDirectory;
 
 import org.junit.jupiter.api.Test;
 
-import java.io.IOException;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.time.Duration;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -184,4 +185,27 @@ class MboxTests {
             assertTrue(conversation.first().body().contains("this point onwards"), conversation.first().body());
         }
     }
+
+    @Test
+    void streamed() {
+        var sender = EmailAddress.from("Test", "test@test.email");
+        var first = Email.create(sender, "First", "Body 1").build();
+        var second = Email.create(sender, "Second", "Body 2\n\nFrom here on it is still the second message").build();
+        var third = Email.create(sender, "Third", "Body 3\n>From an escaped line").build();
+        var mbox = "Preamble that is not part of any message\n" +
+                Mbox.fromMail(first) +
+                // An unencoded From line, as pipermail occasionally produces
+                Mbox.fromMail(second).replace(">From here", "From here") +
+                Mbox.fromMail(third);
+
+        var emails = Mbox.streamMbox(new StringReader(mbox), null).collect(Collectors.toList());
+        assertEquals(3, emails.size());
+        assertEquals(first.id(), emails.get(0).id());
+        assertEquals("Body 1", emails.get(0).body());
+        assertEquals(second.id(), emails.get(1).id());
+        assertTrue(emails.get(1).body().contains("Body 2"), emails.get(1).body());
+        assertTrue(emails.get(1).body().contains("From here on it is still"), emails.get(1).body());
+        assertEquals(third.id(), emails.get(2).id());
+        assertEquals("Body 3\n>From an escaped line", emails.get(2).body());
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.network;
+
+import javax.net.ssl.SSLSession;
+import java.net.URI;
+import java.net.http.*;
+import java.util.*;
+
+/**
+ * A successful response reconstructed from a cache entry after the server answered a
+ * conditional request with 304 Not Modified.
+ */
+class CachedResponse implements HttpResponse<byte[]> {
+    private final HttpResponse<byte[]> notModified;
+    private final RestResponseCache.Entry entry;
+    private final HttpHeaders headers;
+
+    CachedResponse(HttpResponse<byte[]> notModified, RestResponseCache.Entry entry) {
+        this.notModified = notModified;
+        this.entry = entry;
+
+        var map = new HashMap<>(notModified.headers().map());
+        map.keySet().removeIf(name -> name.equalsIgnoreCase("Link"));
+        entry.link().ifPresent(link -> map.put("Link", List.of(link)));
+        headers = HttpHeaders.of(map, (name, value) -> true);
+    }
+
+    @Override
+    public int statusCode() {
+        return 200;
+    }
+
+    @Override
+    public HttpRequest request() {
+        return notModified.request();
+    }
+
+    @Override
+    public Optional<HttpResponse<byte[]>> previousResponse() {
+        return Optional.of(notModified);
+    }
+
+    @Override
+    public HttpHeaders headers() {
+        return headers;
+    }
+
+    @Override
+    public byte[] body() {
+        return entry.body();
+    }
+
+    @Override
+    public Optional<SSLSession> sslSession() {
+        return notModified.sslSession();
+    }
+
+    @Override
+    public URI uri() {
+        return notModified.uri();
+    }
+
+    @Override
+    public HttpClient.Version version() {
+        return notModified.version();
+    }
+}
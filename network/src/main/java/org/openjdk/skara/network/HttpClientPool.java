@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.network;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.*;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide registry of shared HttpClient instances, one per remote host. Reusing
+ * the same client lets the underlying connection pool keep connections alive and
+ * multiplex HTTP/2 streams, instead of paying a new TCP and TLS handshake per request.
+ */
+public class HttpClientPool {
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final int EXECUTOR_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private static final Logger log = Logger.getLogger("org.openjdk.skara.network");
+    private static final ConcurrentMap<Key, HttpClient> clients = new ConcurrentHashMap<>();
+    private static final AtomicLong created = new AtomicLong();
+    private static final AtomicLong reused = new AtomicLong();
+    private static final ExecutorService executor =
+            Executors.newFixedThreadPool(EXECUTOR_THREADS, new DaemonThreadFactory("http-client"));
+    private static final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private static final Semaphore unlimited = new Semaphore(Integer.MAX_VALUE);
+    private static volatile int maxRequestsPerHost = 0;
+
+    private static class Key {
+        private final String scheme;
+        private final String host;
+        private final int port;
+        private final Duration connectTimeout;
+
+        Key(URI uri, Duration connectTimeout) {
+            this.scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase();
+            this.host = uri.getHost() == null ? "" : uri.getHost().toLowerCase();
+            this.port = uri.getPort();
+            this.connectTimeout = connectTimeout;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            var other = (Key) o;
+            return port == other.port &&
+                    scheme.equals(other.scheme) &&
+                    host.equals(other.host) &&
+                    connectTimeout.equals(other.connectTimeout);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scheme, host, port, connectTimeout);
+        }
+
+        @Override
+        public String toString() {
+            return scheme + "://" + host + (port == -1 ? "" : ":" + port);
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            var thread = new Thread(r, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private HttpClientPool() {
+    }
+
+    private static HttpClient create(Key key) {
+        log.fine("Creating shared HTTP client for " + key);
+        created.incrementAndGet();
+        return HttpClient.newBuilder()
+                         .version(HttpClient.Version.HTTP_2)
+                         .followRedirects(HttpClient.Redirect.NEVER)
+                         .connectTimeout(key.connectTimeout)
+                         .executor(executor)
+                         .build();
+    }
+
+    /**
+     * Returns the shared client for the host that the given uri refers to. All clients run
+     * their asynchronous work on the same bounded set of daemon threads.
+     * @param uri any uri on the remote host, only its scheme, host and port are used
+     * @param connectTimeout timeout for establishing new connections
+     * @return the client for the host, created on first use
+     */
+    public static HttpClient client(URI uri, Duration connectTimeout) {
+        var key = new Key(uri, connectTimeout);
+        var existing = clients.get(key);
+        if (existing != null) {
+            reused.incrementAndGet();
+            return existing;
+        }
+        return clients.computeIfAbsent(key, HttpClientPool::create);
+    }
+
+    /**
+     * Returns the shared client for the host that the given uri refers to, using the default
+     * connect timeout.
+     * @param uri any uri on the remote host
+     * @return the client for the host, created on first use
+     */
+    public static HttpClient client(URI uri) {
+        return client(uri, DEFAULT_CONNECT_TIMEOUT);
+    }
+
+    /**
+     * Sends a request on the shared client for its host, holding one of the host's request
+     * permits while the request is in flight.
+     * @param request the request to send
+     * @param handler handles the response body
+     * @param connectTimeout timeout for establishing a new connection
+     * @param <T> type of the response body
+     * @return the response
+     * @throws IOException if the request fails
+     * @throws InterruptedException if interrupted while waiting for a permit or the response
+     */
+    public static <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler,
+                                           Duration connectTimeout) throws IOException, InterruptedException {
+        var client = client(request.uri(), connectTimeout);
+        var permits = requestPermits(request.uri());
+        permits.acquire();
+        try {
+            return client.send(request, handler);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Sends a request on the shared client for its host, using the default connect timeout.
+     * @param request the request to send
+     * @param handler handles the response body
+     * @param <T> type of the response body
+     * @return the response
+     * @throws IOException if the request fails
+     * @throws InterruptedException if interrupted while waiting for a permit or the response
+     */
+    public static <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        return send(request, handler, DEFAULT_CONNECT_TIMEOUT);
+    }
+
+    /**
+     * Limits the number of requests that may be in flight to a single host at the same time.
+     * @param max a value of zero or less removes the limit
+     */
+    public static void setMaxRequestsPerHost(int max) {
+        maxRequestsPerHost = max;
+        hostPermits.clear();
+    }
+
+    /**
+     * Returns the permits that must be held while sending a request to the host that the given
+     * uri refers to. The same instance must be used to release the permit after acquiring it.
+     * @param uri any uri on the remote host
+     * @return the permits for the host, or a semaphore without limit if no limit is configured
+     */
+    public static Semaphore requestPermits(URI uri) {
+        var max = maxRequestsPerHost;
+        if (max <= 0) {
+            return unlimited;
+        }
+        var host = uri.getHost() == null ? "" : uri.getHost().toLowerCase();
+        return hostPermits.computeIfAbsent(host, h -> new Semaphore(max, true));
+    }
+
+    /**
+     * Number of clients (and thereby connection pools) that have been created.
+     * @return the number of created clients
+     */
+    public static long created() {
+        return created.get();
+    }
+
+    /**
+     * Number of times an already existing client (and its open connections) has been reused.
+     * @return the number of reuses
+     */
+    public static long reused() {
+        return reused.get();
+    }
+}
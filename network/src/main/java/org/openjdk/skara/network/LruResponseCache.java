@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.network;
+
+import org.openjdk.skara.json.JSON;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+class LruResponseCache implements RestResponseCache {
+    private final long maxBytes;
+    private final Path folder;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Logger log = Logger.getLogger("org.openjdk.skara.network");
+    private long currentBytes = 0;
+
+    LruResponseCache(long maxBytes, Path folder) {
+        this.maxBytes = maxBytes;
+        this.folder = folder;
+        if (folder != null) {
+            load();
+        }
+    }
+
+    private static String fileName(String key) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            var hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+            var ret = new StringBuilder();
+            for (var b : hash) {
+                ret.append(String.format("%02x", b));
+            }
+            return ret.append(".json").toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void load() {
+        try {
+            Files.createDirectories(folder);
+            List<Path> files;
+            try (var stream = Files.list(folder)) {
+                files = stream.filter(f -> f.getFileName().toString().endsWith(".json"))
+                              .sorted(Comparator.comparing(f -> f.toFile().lastModified()))
+                              .collect(Collectors.toList());
+            }
+            for (var file : files) {
+                try {
+                    var json = JSON.parse(Files.readString(file, StandardCharsets.UTF_8));
+                    var entry = new Entry(json.contains("etag") ? json.get("etag").asString() : null,
+                                          json.contains("last_modified") ? json.get("last_modified").asString() : null,
+                                          json.contains("link") ? json.get("link").asString() : null,
+                                          json.get("body").asString().getBytes(StandardCharsets.UTF_8));
+                    for (var evicted : insert(json.get("key").asString(), entry)) {
+                        remove(evicted);
+                    }
+                } catch (RuntimeException | IOException e) {
+                    log.warning("Discarding unreadable cache entry " + file + " (" + e.getMessage() + ")");
+                    Files.deleteIfExists(file);
+                }
+            }
+            log.fine("Loaded " + entries.size() + " cached responses from " + folder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void store(String key, Entry entry) {
+        var json = JSON.object().put("key", key).put("body", new String(entry.body(), StandardCharsets.UTF_8));
+        entry.etag().ifPresent(etag -> json.put("etag", etag));
+        entry.lastModified().ifPresent(lastModified -> json.put("last_modified", lastModified));
+        entry.link().ifPresent(link -> json.put("link", link));
+        try {
+            var file = folder.resolve(fileName(key));
+            var tmp = folder.resolve(file.getFileName() + ".tmp");
+            Files.writeString(tmp, json.toString(), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warning("Failed to persist cached response for " + key + " (" + e.getMessage() + ")");
+        }
+    }
+
+    private void remove(String key) {
+        try {
+            Files.deleteIfExists(folder.resolve(fileName(key)));
+        } catch (IOException e) {
+            log.warning("Failed to remove cached response for " + key + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Adds an entry to the in-memory index, evicting the least recently used entries if needed.
+     * @return the keys of the evicted entries
+     */
+    private List<String> insert(String key, Entry entry) {
+        var evicted = new ArrayList<String>();
+        var previous = entries.put(key, entry);
+        if (previous != null) {
+            currentBytes -= previous.size();
+        }
+        currentBytes += entry.size();
+
+        var iterator = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            var eldest = iterator.next();
+            currentBytes -= eldest.getValue().size();
+            iterator.remove();
+            evicted.add(eldest.getKey());
+        }
+        return evicted;
+    }
+
+    @Override
+    public synchronized Optional<Entry> get(String key) {
+        return Optional.ofNullable(entries.get(key));
+    }
+
+    @Override
+    public void put(String key, Entry entry) {
+        if (entry.size() > maxBytes) {
+            return;
+        }
+        List<String> evicted;
+        synchronized (this) {
+            evicted = insert(key, entry);
+        }
+        if (folder == null) {
+            return;
+        }
+
+        // The files only matter after a restart, so they are updated without holding the lock.
+        // A racing update of the same key can at worst lose that entry on disk.
+        for (var evictedKey : evicted) {
+            remove(evictedKey);
+        }
+        store(key, entry);
+    }
+}
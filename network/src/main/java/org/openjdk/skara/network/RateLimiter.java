@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.network;
+
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.time.format.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Keeps track of the remaining request budget for one set of credentials on one host, and
+ * throttles callers as the budget runs low. The budget is refilled by the server at the reset
+ * time it reports, so once the remaining budget falls below a threshold, requests are spread
+ * out evenly over the time left until the reset (a token bucket refilled at the rate the server
+ * allows). Interactive callers may use the whole budget, while normal and background callers
+ * leave a reserve untouched for them.
+ */
+public class RateLimiter {
+    public enum Priority {
+        INTERACTIVE,
+        NORMAL,
+        BACKGROUND
+    }
+
+    private static final double THROTTLE_FRACTION = 0.25;
+    private static final double NORMAL_RESERVE_FRACTION = 0.05;
+    private static final double BACKGROUND_RESERVE_FRACTION = 0.20;
+    private static final Duration SECONDARY_LIMIT_BACKOFF = Duration.ofSeconds(60);
+
+    private static final ThreadLocal<Priority> priority = ThreadLocal.withInitial(() -> Priority.NORMAL);
+    private static final ConcurrentMap<String, RateLimiter> limiters = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final Clock clock;
+    private final Logger log = Logger.getLogger("org.openjdk.skara.network");
+    private final int[] waiting = new int[Priority.values().length];
+
+    private int limit = -1;
+    private int remaining = -1;
+    private Instant resetAt;
+    private Instant blockedUntil;
+    private Instant lastGrant = Instant.EPOCH;
+    private Duration totalWait = Duration.ZERO;
+    private long granted = 0;
+
+    RateLimiter(String name, Clock clock) {
+        this.name = name;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the rate limiter for the given credential identity.
+     * @param identity
+     * @return
+     */
+    static RateLimiter get(String identity) {
+        return limiters.computeIfAbsent(identity, id -> new RateLimiter(id, Clock.systemUTC()));
+    }
+
+    /**
+     * All rate limiters created so far, by credential identity.
+     * @return
+     */
+    public static Map<String, RateLimiter> limiters() {
+        return Collections.unmodifiableMap(new TreeMap<>(limiters));
+    }
+
+    /**
+     * Sets the priority of requests made by the current thread.
+     * @param newPriority
+     */
+    public static void setPriority(Priority newPriority) {
+        priority.set(newPriority);
+    }
+
+    public static Priority priority() {
+        return priority.get();
+    }
+
+    Duration delay(Priority priority, Instant now) {
+        if (blockedUntil != null) {
+            if (blockedUntil.isAfter(now)) {
+                return Duration.between(now, blockedUntil);
+            }
+            blockedUntil = null;
+        }
+        if (limit <= 0 || resetAt == null) {
+            return Duration.ZERO;
+        }
+        if (!resetAt.isAfter(now)) {
+            // The server has refilled the budget by now
+            remaining = limit;
+            resetAt = null;
+            return Duration.ZERO;
+        }
+
+        int reserve;
+        switch (priority) {
+            case INTERACTIVE:
+                reserve = 0;
+                break;
+            case NORMAL:
+                reserve = (int) (limit * NORMAL_RESERVE_FRACTION);
+                break;
+            default:
+                reserve = (int) (limit * BACKGROUND_RESERVE_FRACTION);
+                break;
+        }
+        var available = remaining - reserve;
+        if (available <= 0) {
+            return Duration.between(now, resetAt);
+        }
+        if (priority == Priority.INTERACTIVE || remaining > limit * THROTTLE_FRACTION) {
+            return Duration.ZERO;
+        }
+
+        // Running low - spread what is left evenly until the reset
+        var spacing = Duration.between(now, resetAt).dividedBy(available);
+        var next = lastGrant.plus(spacing);
+        return next.isAfter(now) ? Duration.between(now, next) : Duration.ZERO;
+    }
+
+    /**
+     * Blocks until the current thread may send a request.
+     */
+    public void acquire() {
+        var callerPriority = priority();
+        var start = clock.instant();
+        synchronized (this) {
+            waiting[callerPriority.ordinal()]++;
+            try {
+                while (true) {
+                    var delay = delay(callerPriority, clock.instant());
+                    if (delay.isZero() || delay.isNegative()) {
+                        break;
+                    }
+                    log.fine("Throttling " + callerPriority + " request to " + name + " for " + delay);
+                    wait(Math.max(1, delay.toMillis()));
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                waiting[callerPriority.ordinal()]--;
+            }
+            if (remaining > 0) {
+                remaining--;
+            }
+            lastGrant = clock.instant();
+            granted++;
+            totalWait = totalWait.plus(Duration.between(start, lastGrant));
+        }
+    }
+
+    private static Optional<Integer> intHeader(HttpResponse<?> response, String... names) {
+        for (var name : names) {
+            var value = response.headers().firstValue(name);
+            if (value.isPresent()) {
+                try {
+                    return Optional.of(Integer.parseInt(value.get().trim()));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Optional<Instant> retryAfter(HttpResponse<?> response, Instant now) {
+        var value = response.headers().firstValue("Retry-After");
+        if (value.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(now.plusSeconds(Long.parseLong(value.get().trim())));
+        } catch (NumberFormatException e) {
+            try {
+                return Optional.of(ZonedDateTime.parse(value.get().trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+            } catch (DateTimeParseException ignored) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    private static String bodyText(HttpResponse<?> response) {
+        var body = response.body();
+        if (body instanceof byte[]) {
+            return new String((byte[]) body, StandardCharsets.UTF_8);
+        }
+        return body == null ? "" : body.toString();
+    }
+
+    /**
+     * Updates the budget from the headers of a response.
+     * @param response
+     * @return true if the request was rejected due to rate limiting and should be retried
+     */
+    public synchronized boolean update(HttpResponse<?> response) {
+        var now = clock.instant();
+        var newLimit = intHeader(response, "x-ratelimit-limit", "RateLimit-Limit");
+        var newRemaining = intHeader(response, "x-ratelimit-remaining", "RateLimit-Remaining");
+        var newReset = intHeader(response, "x-ratelimit-reset", "RateLimit-Reset");
+        if (newLimit.isPresent() && newRemaining.isPresent() && newReset.isPresent()) {
+            limit = newLimit.get();
+            remaining = newRemaining.get();
+            resetAt = Instant.ofEpochSecond(newReset.get());
+            log.fine("Rate limit: " + limit + " - remaining: " + remaining);
+        }
+
+        var status = response.statusCode();
+        if (status != 429 && status != 403) {
+            return false;
+        }
+        var retryAfter = retryAfter(response, now);
+        var body = bodyText(response).toLowerCase();
+        var secondary = body.contains("secondary rate limit") || body.contains("abuse detection");
+        if (status == 403 && retryAfter.isEmpty() && remaining != 0 && !secondary) {
+            // An ordinary permission error
+            return false;
+        }
+
+        if (retryAfter.isPresent()) {
+            blockedUntil = retryAfter.get();
+        } else if (remaining == 0 && resetAt != null && resetAt.isAfter(now)) {
+            blockedUntil = resetAt;
+        } else {
+            blockedUntil = now.plus(SECONDARY_LIMIT_BACKOFF);
+        }
+        log.warning("Rate limit exceeded for " + name + " - blocking requests until " + blockedUntil);
+        notifyAll();
+        return true;
+    }
+
+    public synchronized int limit() {
+        return limit;
+    }
+
+    /**
+     * The remaining budget, or -1 if not yet known.
+     * @return
+     */
+    public synchronized int remaining() {
+        return remaining;
+    }
+
+    /**
+     * Number of callers currently waiting for permission to send a request.
+     * @return
+     */
+    public synchronized int queueDepth() {
+        return Arrays.stream(waiting).sum();
+    }
+
+    public synchronized int queueDepth(Priority priority) {
+        return waiting[priority.ordinal()];
+    }
+
+    /**
+     * Total time that callers have spent waiting for permission to send a request.
+     * @return
+     */
+    public synchronized Duration totalWait() {
+        return totalWait;
+    }
+
+    public synchronized long granted() {
+        return granted;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiter:" + name;
+    }
+}
@@ -27,11 +27,15 @@ import org.openjdk.skara.json.*;
 import java.io.*;
 import java.net.URI;
 import java.net.http.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.stream.*;
 
 public class RestRequest {
     private enum RequestType {
@@ -66,7 +70,10 @@ public class RestRequest {
         private final Map<String, String> headers = new HashMap<>();
         private JSONValue body;
         private int maxPages;
+        private int maxParallelPages;
         private ErrorTransform onError;
+        private RestResponseCache cache;
+        private boolean useDefaultCache;
 
         private QueryBuilder(RequestType queryType, String endpoint) {
             this.queryType = queryType;
@@ -74,7 +81,17 @@ public class RestRequest {
 
             body = null;
             maxPages = Integer.MAX_VALUE;
+            maxParallelPages = DEFAULT_MAX_PARALLEL_PAGES;
             onError = null;
+            cache = null;
+            useDefaultCache = true;
+        }
+
+        private RestResponseCache responseCache() {
+            if (queryType != RequestType.GET) {
+                return null;
+            }
+            return useDefaultCache ? defaultCache : cache;
         }
 
         private JSONValue composedBody() {
@@ -133,6 +150,17 @@ public class RestRequest {
             return this;
         }
 
+        /**
+         * When the number of pages of a paginated result is known up front, fetch up to this
+         * number of pages concurrently.
+         * @param count 1 means that pages are fetched one after another
+         * @return
+         */
+        public QueryBuilder maxParallelPages(int count) {
+            maxParallelPages = count;
+            return this;
+        }
+
         /**
          * If an http error code is returned, apply the given function to the response to obtain a valid
          * return value instead of throwing an exception.
@@ -144,6 +172,18 @@ public class RestRequest {
             return this;
         }
 
+        /**
+         * Use the given cache to store and revalidate the responses of this GET request,
+         * instead of the default cache.
+         * @param responseCache null disables caching
+         * @return
+         */
+        public QueryBuilder cache(RestResponseCache responseCache) {
+            cache = responseCache;
+            useDefaultCache = false;
+            return this;
+        }
+
         public QueryBuilder header(String name, String value) {
             headers.put(name, value);
             return this;
@@ -160,20 +200,138 @@ public class RestRequest {
         public String executeUnparsed() throws IOException {
             return RestRequest.this.executeUnparsed(this);
         }
+
+        /**
+         * Executes the request and returns the elements of the (possibly paginated) result array.
+         * Pages are fetched lazily as the stream is consumed, so that no further requests are made
+         * once the caller stops consuming it. An error transformed by {@link #onError(ErrorTransform)}
+         * only takes the place of the result if it occurs for the first page. Elements of earlier pages
+         * have already been consumed when a later page fails, so that throws an exception instead.
+         * @return
+         */
+        public Stream<JSONValue> stream() {
+            var iterator = new PageIterator(this);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+        }
     }
 
+    private class PageIterator implements Iterator<JSONValue> {
+        private final QueryBuilder queryBuilder;
+        private Iterator<JSONValue> current;
+        private URI next;
+        private int pages;
+        private boolean done;
+
+        PageIterator(QueryBuilder queryBuilder) {
+            this.queryBuilder = queryBuilder;
+            current = Collections.emptyIterator();
+            next = null;
+            pages = 0;
+            done = false;
+        }
+
+        private void fetch() throws IOException {
+            HttpRequest.Builder request;
+            if (pages == 0) {
+                request = createRequest(queryBuilder.queryType, queryBuilder.endpoint, queryBuilder.composedBody(),
+                                        queryBuilder.params, queryBuilder.headers);
+            } else {
+                request = getHttpRequestBuilder(next).GET();
+            }
+            var response = sendRequest(request, queryBuilder.responseCache());
+            pages++;
+
+            var errorTransform = transformBadResponse(response, queryBuilder);
+            if (errorTransform.isPresent()) {
+                if (pages > 1) {
+                    throw new RuntimeException("Request for page " + pages + " returned bad status: " + response.statusCode());
+                }
+                var error = errorTransform.get();
+                current = error.isArray() ? error.stream().iterator() : List.of(error).iterator();
+                done = true;
+                return;
+            }
+
+            var link = response.headers().firstValue("Link");
+            if (link.isEmpty() && pages > 1) {
+                throw new RuntimeException("Initial paginated response no longer paginated");
+            }
+            current = parseResponse(response).stream().iterator();
+            if (link.isEmpty() || pages >= queryBuilder.maxPages) {
+                done = true;
+                return;
+            }
+            var links = parseLink(link.get());
+            if (links.containsKey("next")) {
+                next = URI.create(links.get("next"));
+            } else {
+                done = true;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && !done) {
+                try {
+                    fetch();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public JSONValue next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+
+    private static final int DEFAULT_MAX_PARALLEL_PAGES = 4;
+    private static final ExecutorService pageExecutor = Executors.newCachedThreadPool(runnable -> {
+        var thread = new Thread(runnable, "rest-page-fetcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static volatile RestResponseCache defaultCache = null;
+
     private final URI apiBase;
+    private final String authId;
     private final AuthenticationGenerator authGen;
     private final Logger log = Logger.getLogger("org.openjdk.skara.host.network");
 
-    public RestRequest(URI apiBase, AuthenticationGenerator authGen) {
+    /**
+     * Creates a new request base.
+     * @param apiBase
+     * @param authId stable identity of the credentials used by authGen, used to separate cached
+     *               responses for different users. If null, the generated headers are used instead.
+     * @param authGen
+     */
+    public RestRequest(URI apiBase, String authId, AuthenticationGenerator authGen) {
         this.apiBase = apiBase;
+        this.authId = authId;
         this.authGen = authGen;
     }
 
+    public RestRequest(URI apiBase, AuthenticationGenerator authGen) {
+        this(apiBase, null, authGen);
+    }
+
     public RestRequest(URI apiBase) {
-        this.apiBase = apiBase;
-        this.authGen = null;
+        this(apiBase, null, null);
+    }
+
+    /**
+     * Sets the cache used for GET requests that do not specify a cache of their own. No such
+     * cache is used unless one is set here.
+     * @param cache null disables caching
+     */
+    public static void setDefaultCache(RestResponseCache cache) {
+        defaultCache = cache;
     }
 
     /**
@@ -182,7 +340,7 @@ public class RestRequest {
      * @return
      */
     public RestRequest restrict(String endpoint) {
-        return new RestRequest(URIBuilder.base(apiBase).appendPath(endpoint).build(), authGen);
+        return new RestRequest(URIBuilder.base(apiBase).appendPath(endpoint).build(), authId, authGen);
     }
 
     private URIBuilder getEndpointURI(String endpoint) {
@@ -200,36 +358,35 @@ public class RestRequest {
         return builder;
     }
 
-    private void logRateLimit(HttpHeaders headers) {
-        if ((!headers.firstValue("x-ratelimit-limit").isPresent()) ||
-                (!headers.firstValue("x-ratelimit-remaining").isPresent()) ||
-                (!headers.firstValue("x-ratelimit-reset").isPresent())) {
-            return;
-        }
-
-        var limit = Integer.valueOf(headers.firstValue("x-ratelimit-limit").get());
-        var remaining = Integer.valueOf(headers.firstValue("x-ratelimit-remaining").get());
-        var reset = Integer.valueOf(headers.firstValue("x-ratelimit-reset").get());
-
-        log.fine("Rate limit: " + limit + " - remaining: " + remaining);
-    }
-
     private Duration retryBackoffStep = Duration.ofSeconds(1);
 
     void setRetryBackoffStep(Duration duration) {
         retryBackoffStep = duration;
     }
 
-    private HttpResponse<String> sendRequest(HttpRequest request) throws IOException {
-        HttpResponse<String> response;
+    private HttpResponse<byte[]> sendRequest(HttpRequest request) throws IOException {
+        var rateLimiter = RateLimiter.get(authIdentity() + " " + request.uri().getHost());
+        var rateLimitedCount = 0;
+        while (true) {
+            rateLimiter.acquire();
+            var response = sendRequestWithRetries(request);
+            if (!rateLimiter.update(response) || rateLimitedCount >= 3) {
+                return response;
+            }
+            rateLimitedCount++;
+            log.info("Request to " + request.uri() + " was rate limited - retrying");
+        }
+    }
+
+    private HttpResponse<byte[]> sendRequestWithRetries(HttpRequest request) throws IOException {
+        HttpResponse<byte[]> response;
 
         var retryCount = 0;
         while (true) {
             try {
-                var client = HttpClient.newBuilder()
-                                       .connectTimeout(Duration.ofSeconds(10))
-                                       .build();
-                response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                // Read the complete body before returning, so that truncated responses are retried.
+                // It is kept as raw bytes, which are parsed without decoding them into a String first.
+                response = HttpClientPool.send(request, HttpResponse.BodyHandlers.ofByteArray());
                 break;
             } catch (InterruptedException | IOException e) {
                 if (retryCount < 5) {
@@ -248,32 +405,89 @@ public class RestRequest {
             retryCount++;
         }
 
-        logRateLimit(response.headers());
         return response;
     }
 
-    private JSONValue parseResponse(HttpResponse<String> response) {
-        if (response.body().isEmpty()) {
+    private String authIdentity() {
+        if (authId != null) {
+            return authId;
+        }
+        if (authGen == null) {
+            return "anonymous";
+        }
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            for (var header : authGen.getAuthHeaders()) {
+                digest.update(header.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return Base64.getUrlEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private String cacheKey(URI uri) {
+        return authIdentity() + " " + uri;
+    }
+
+    /**
+     * Sends a request, revalidating a previously cached response if possible. A 304 Not Modified
+     * response is replaced by the cached content, so that callers never observe it.
+     */
+    private HttpResponse<byte[]> sendRequest(HttpRequest.Builder requestBuilder, RestResponseCache cache) throws IOException {
+        var request = requestBuilder.build();
+        if (cache == null) {
+            return sendRequest(request);
+        }
+
+        var key = cacheKey(request.uri());
+        var cached = cache.get(key);
+        if (cached.isPresent()) {
+            cached.get().etag().ifPresent(etag -> requestBuilder.header("If-None-Match", etag));
+            cached.get().lastModified().ifPresent(lastModified -> requestBuilder.header("If-Modified-Since", lastModified));
+            request = requestBuilder.build();
+        }
+
+        var response = sendRequest(request);
+        if (response.statusCode() == 304 && cached.isPresent()) {
+            log.finer("Cached response still valid for " + request.uri());
+            return new CachedResponse(response, cached.get());
+        }
+        if (response.statusCode() == 200) {
+            var etag = response.headers().firstValue("ETag");
+            var lastModified = response.headers().firstValue("Last-Modified");
+            if (etag.isPresent() || lastModified.isPresent()) {
+                cache.put(key, new RestResponseCache.Entry(etag.orElse(null), lastModified.orElse(null),
+                                                           response.headers().firstValue("Link").orElse(null),
+                                                           response.body()));
+            }
+        }
+        return response;
+    }
+
+    private JSONValue parseResponse(HttpResponse<byte[]> response) {
+        if (response.body().length == 0) {
             return JSON.of();
         }
-        return JSON.parse(response.body());
+        return JSON.parse(ByteBuffer.wrap(response.body()));
     }
 
-    private Optional<JSONValue> transformBadResponse(HttpResponse<String> response, QueryBuilder queryBuilder) {
+    private Optional<JSONValue> transformBadResponse(HttpResponse<byte[]> response, QueryBuilder queryBuilder) {
         if (response.statusCode() >= 400) {
             if (queryBuilder.onError == null) {
                 log.warning(queryBuilder.toString());
-                log.warning(response.body());
+                log.warning(new String(response.body(), StandardCharsets.UTF_8));
                 throw new RuntimeException("Request returned bad status: " + response.statusCode());
             } else {
-                return Optional.of(queryBuilder.onError.onError(response));
+                return Optional.of(queryBuilder.onError.onError(new StringResponse(response)));
             }
         } else {
             return Optional.empty();
         }
     }
 
-    private HttpRequest createRequest(RequestType requestType, String endpoint, JSONValue body,
+    private HttpRequest.Builder createRequest(RequestType requestType, String endpoint, JSONValue body,
                                       List<QueryBuilder.Param> params, Map<String, String> headers) {
         var uriBuilder = URIBuilder.base(apiBase);
         if (endpoint != null && !endpoint.isEmpty()) {
@@ -295,10 +509,11 @@ public class RestRequest {
             requestBuilder.method(requestType.name(), HttpRequest.BodyPublishers.ofString(body.toString()));
         }
         headers.forEach(requestBuilder::header);
-        return requestBuilder.build();
+        return requestBuilder;
     }
 
     private final Pattern linkPattern = Pattern.compile("<(.*?)>; rel=\"(.*?)\"");
+    private final Pattern pagePattern = Pattern.compile("([?&]page=)(\\d+)");
 
     private Map<String, String> parseLink(String link) {
         return linkPattern.matcher(link).results()
@@ -308,7 +523,7 @@ public class RestRequest {
     private JSONValue execute(QueryBuilder queryBuilder) throws IOException {
         var request = createRequest(queryBuilder.queryType, queryBuilder.endpoint, queryBuilder.composedBody(),
                                     queryBuilder.params, queryBuilder.headers);
-        var response = sendRequest(request);
+        var response = sendRequest(request, queryBuilder.responseCache());
         var errorTransform = transformBadResponse(response, queryBuilder);
         if (errorTransform.isPresent()) {
             return errorTransform.get();
@@ -325,10 +540,20 @@ public class RestRequest {
         ret.add(parsedResponse);
 
         var links = parseLink(link.get());
+        var pageUris = remainingPageUris(links, queryBuilder.maxPages - 1);
+        if (queryBuilder.maxParallelPages > 1 && pageUris.size() > 1) {
+            var pages = fetchPages(pageUris, queryBuilder);
+            if (pages.isError) {
+                return pages.values.get(0);
+            }
+            pages.values.forEach(page -> ret.add(page.asArray()));
+            return new JSONArray(ret.stream().flatMap(JSONArray::stream).toArray(JSONValue[]::new));
+        }
+
         while (links.containsKey("next") && ret.size() < queryBuilder.maxPages) {
             var uri = URI.create(links.get("next"));
-            request = getHttpRequestBuilder(uri).GET().build();
-            response = sendRequest(request);
+            request = getHttpRequestBuilder(uri).GET();
+            response = sendRequest(request, queryBuilder.responseCache());
 
             // If an error occurs during paginated parsing, we have to discard all previous data
             errorTransform = transformBadResponse(response, queryBuilder);
@@ -347,14 +572,97 @@ public class RestRequest {
         return new JSONArray(ret.stream().flatMap(JSONArray::stream).toArray(JSONValue[]::new));
     }
 
+    /**
+     * If the pagination header refers to both the next and the last page by page number, returns
+     * the uris of all remaining pages (at most maxCount). Otherwise the pages can only be discovered
+     * one at a time, and an empty list is returned.
+     */
+    private List<URI> remainingPageUris(Map<String, String> links, int maxCount) {
+        if (!links.containsKey("next") || !links.containsKey("last")) {
+            return List.of();
+        }
+        var nextMatcher = pagePattern.matcher(links.get("next"));
+        var lastMatcher = pagePattern.matcher(links.get("last"));
+        if (!nextMatcher.find() || !lastMatcher.find()) {
+            return List.of();
+        }
+        var first = Integer.parseInt(nextMatcher.group(2));
+        var last = Integer.parseInt(lastMatcher.group(2));
+
+        var ret = new ArrayList<URI>();
+        for (int page = first; page <= last && ret.size() < maxCount; ++page) {
+            var uri = links.get("next").substring(0, nextMatcher.start()) +
+                    nextMatcher.group(1) + page +
+                    links.get("next").substring(nextMatcher.end());
+            ret.add(URI.create(uri));
+        }
+        return ret;
+    }
+
+    private static class Pages {
+        boolean isError = false;
+        List<JSONValue> values = new ArrayList<>();
+    }
+
+    /**
+     * Fetches the given pages concurrently, at most queryBuilder.maxParallelPages at a time,
+     * and returns the parsed pages in the original order. If any page fails, the transformed
+     * error is returned instead.
+     */
+    private Pages fetchPages(List<URI> uris, QueryBuilder queryBuilder) throws IOException {
+        var permits = new Semaphore(queryBuilder.maxParallelPages);
+        var priority = RateLimiter.priority();
+        var futures = new ArrayList<Future<HttpResponse<byte[]>>>();
+        try {
+            for (var uri : uris) {
+                permits.acquire();
+                futures.add(pageExecutor.submit(() -> {
+                    RateLimiter.setPriority(priority);
+                    try {
+                        return sendRequest(getHttpRequestBuilder(uri).GET(), queryBuilder.responseCache());
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            var ret = new Pages();
+            for (var future : futures) {
+                var response = future.get();
+                var errorTransform = transformBadResponse(response, queryBuilder);
+                if (errorTransform.isPresent()) {
+                    ret.isError = true;
+                    ret.values = List.of(errorTransform.get());
+                    return ret;
+                }
+                if (response.headers().firstValue("Link").isEmpty()) {
+                    throw new RuntimeException("Initial paginated response no longer paginated");
+                }
+                ret.values.add(parseResponse(response));
+            }
+            return ret;
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
     private String executeUnparsed(QueryBuilder queryBuilder) throws IOException {
         var request = createRequest(queryBuilder.queryType, queryBuilder.endpoint, queryBuilder.composedBody(),
                                     queryBuilder.params, queryBuilder.headers);
-        var response = sendRequest(request);
+        var response = sendRequest(request, queryBuilder.responseCache());
         if (response.statusCode() >= 400) {
             throw new IOException("Bad response: " + response.statusCode());
         }
-        return response.body();
+        return new String(response.body(), StandardCharsets.UTF_8);
     }
 
     public QueryBuilder get(String endpoint) {
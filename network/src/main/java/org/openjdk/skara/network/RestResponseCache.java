@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.network;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Storage for responses to GET requests that can be revalidated with the server
+ * through conditional requests (If-None-Match / If-Modified-Since).
+ */
+public interface RestResponseCache {
+    class Entry {
+        private final String etag;
+        private final String lastModified;
+        private final String link;
+        private final byte[] body;
+
+        public Entry(String etag, String lastModified, String link, byte[] body) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.link = link;
+            this.body = body;
+        }
+
+        public Optional<String> etag() {
+            return Optional.ofNullable(etag);
+        }
+
+        public Optional<String> lastModified() {
+            return Optional.ofNullable(lastModified);
+        }
+
+        /**
+         * The pagination header of the cached response, if any.
+         * @return
+         */
+        public Optional<String> link() {
+            return Optional.ofNullable(link);
+        }
+
+        public byte[] body() {
+            return body;
+        }
+
+        /**
+         * Approximate number of bytes of memory occupied by this entry.
+         * @return
+         */
+        long size() {
+            return body.length + 2L * ((etag == null ? 0 : etag.length()) +
+                    (lastModified == null ? 0 : lastModified.length()) +
+                    (link == null ? 0 : link.length()));
+        }
+    }
+
+    /**
+     * Returns the cached entry for the given key, if present.
+     * @param key
+     * @return
+     */
+    Optional<Entry> get(String key);
+
+    void put(String key, Entry entry);
+
+    /**
+     * Creates a cache that keeps the most recently used entries in memory.
+     * @param maxBytes approximate upper bound of the memory used by cached entries
+     * @return
+     */
+    static RestResponseCache inMemory(long maxBytes) {
+        return new LruResponseCache(maxBytes, null);
+    }
+
+    /**
+     * Creates a cache that keeps the most recently used entries in memory, and mirrors them
+     * to the given folder so that the cache survives restarts.
+     * @param folder
+     * @param maxBytes approximate upper bound of the memory and disk used by cached entries
+     * @return
+     */
+    static RestResponseCache persistent(Path folder, long maxBytes) {
+        return new LruResponseCache(maxBytes, folder);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpClientPoolTests {
+    @Test
+    void sameHostSharesClient() {
+        var first = HttpClientPool.client(URI.create("https://pool.example.com/a"));
+        var second = HttpClientPool.client(URI.create("https://POOL.example.com/b/c?d=e"));
+        assertSame(first, second);
+    }
+
+    @Test
+    void differentHostsUseDifferentClients() {
+        var first = HttpClientPool.client(URI.create("https://one.example.com/"));
+        var second = HttpClientPool.client(URI.create("https://two.example.com/"));
+        var third = HttpClientPool.client(URI.create("https://one.example.com:8443/"));
+        assertNotSame(first, second);
+        assertNotSame(first, third);
+    }
+
+    @Test
+    void connectTimeoutIsPartOfKey() {
+        var uri = URI.create("https://timeout.example.com/");
+        var first = HttpClientPool.client(uri);
+        var second = HttpClientPool.client(uri, Duration.ofSeconds(30));
+        assertNotSame(first, second);
+        assertEquals(Duration.ofSeconds(30), second.connectTimeout().orElseThrow());
+    }
+
+    @Test
+    void requestPermitsPerHost() {
+        try {
+            HttpClientPool.setMaxRequestsPerHost(2);
+            var permits = HttpClientPool.requestPermits(URI.create("https://permits.example.com/a"));
+            assertSame(permits, HttpClientPool.requestPermits(URI.create("https://PERMITS.example.com:8443/b")));
+            assertNotSame(permits, HttpClientPool.requestPermits(URI.create("https://other.example.com/")));
+            assertTrue(permits.tryAcquire(2));
+            assertFalse(permits.tryAcquire());
+            permits.release(2);
+        } finally {
+            HttpClientPool.setMaxRequestsPerHost(0);
+        }
+        var unlimited = HttpClientPool.requestPermits(URI.create("https://permits.example.com/a"));
+        assertTrue(unlimited.tryAcquire(1000));
+        unlimited.release(1000);
+    }
+
+    @Test
+    void countersTrackReuse() throws IOException {
+        try (var receiver = new RestReceiver()) {
+            var request = new RestRequest(receiver.getEndpoint());
+            request.post("/test").execute();
+            var created = HttpClientPool.created();
+            var reused = HttpClientPool.reused();
+            request.post("/test").execute();
+            request.post("/test").execute();
+            assertEquals(created, HttpClientPool.created());
+            assertTrue(HttpClientPool.reused() >= reused + 2);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.network;
+
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLSession;
+import java.net.URI;
+import java.net.http.*;
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTests {
+    private static class Response implements HttpResponse<String> {
+        private final int status;
+        private final Map<String, List<String>> headers = new HashMap<>();
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        Response header(String name, Object value) {
+            headers.put(name, List.of(value.toString()));
+            return this;
+        }
+
+        @Override
+        public int statusCode() {
+            return status;
+        }
+
+        @Override
+        public HttpRequest request() {
+            return null;
+        }
+
+        @Override
+        public Optional<HttpResponse<String>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return HttpHeaders.of(headers, (name, value) -> true);
+        }
+
+        @Override
+        public String body() {
+            return body;
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return null;
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+
+    private final Instant now = Instant.ofEpochSecond(1000000);
+    private final Clock clock = Clock.fixed(now, ZoneOffset.UTC);
+
+    private Response budget(int limit, int remaining, Duration untilReset) {
+        return new Response(200, "")
+                .header("x-ratelimit-limit", limit)
+                .header("x-ratelimit-remaining", remaining)
+                .header("x-ratelimit-reset", now.plus(untilReset).getEpochSecond());
+    }
+
+    @Test
+    void unknownBudget() {
+        var limiter = new RateLimiter("test", clock);
+        assertEquals(Duration.ZERO, limiter.delay(RateLimiter.Priority.BACKGROUND, now));
+        assertFalse(limiter.update(new Response(200, "")));
+        assertEquals(-1, limiter.remaining());
+    }
+
+    @Test
+    void plentyOfBudget() {
+        var limiter = new RateLimiter("test", clock);
+        assertFalse(limiter.update(budget(5000, 4000, Duration.ofMinutes(30))));
+        assertEquals(4000, limiter.remaining());
+        assertEquals(Duration.ZERO, limiter.delay(RateLimiter.Priority.BACKGROUND, now));
+    }
+
+    @Test
+    void throttleWhenLow() {
+        var limiter = new RateLimiter("test", clock);
+        limiter.update(budget(1000, 100, Duration.ofSeconds(600)));
+
+        assertEquals(Duration.ZERO, limiter.delay(RateLimiter.Priority.INTERACTIVE, now));
+        // 100 remaining, 50 of which are reserved for interactive callers
+        var normal = limiter.delay(RateLimiter.Priority.NORMAL, now);
+        assertEquals(Duration.ZERO, normal);
+        limiter.acquire();
+        // 99 remaining leaves 49 above the reserve, spread evenly over the 600 seconds until the reset
+        assertEquals(Duration.ofSeconds(600).dividedBy(49), limiter.delay(RateLimiter.Priority.NORMAL, now));
+        // Background callers leave 200 in reserve, more than what is left
+        assertEquals(Duration.ofSeconds(600), limiter.delay(RateLimiter.Priority.BACKGROUND, now));
+    }
+
+    @Test
+    void refillAfterReset() {
+        var limiter = new RateLimiter("test", clock);
+        limiter.update(budget(1000, 0, Duration.ofSeconds(10)));
+        assertEquals(Duration.ofSeconds(10), limiter.delay(RateLimiter.Priority.INTERACTIVE, now));
+        assertEquals(Duration.ZERO, limiter.delay(RateLimiter.Priority.BACKGROUND, now.plusSeconds(10)));
+        assertEquals(1000, limiter.remaining());
+    }
+
+    @Test
+    void retryAfter() {
+        var limiter = new RateLimiter("test", clock);
+        assertTrue(limiter.update(new Response(429, "").header("Retry-After", 30)));
+        assertEquals(Duration.ofSeconds(30), limiter.delay(RateLimiter.Priority.INTERACTIVE, now));
+        assertEquals(Duration.ZERO, limiter.delay(RateLimiter.Priority.INTERACTIVE, now.plusSeconds(30)));
+    }
+
+    @Test
+    void secondaryRateLimit() {
+        var limiter = new RateLimiter("test", clock);
+        assertTrue(limiter.update(new Response(403, "{\"message\": \"You have exceeded a secondary rate limit\"}")));
+        assertTrue(limiter.delay(RateLimiter.Priority.INTERACTIVE, now).compareTo(Duration.ZERO) > 0);
+    }
+
+    @Test
+    void permissionDenied() {
+        var limiter = new RateLimiter("test", clock);
+        limiter.update(budget(1000, 900, Duration.ofSeconds(10)));
+        assertFalse(limiter.update(new Response(403, "{\"message\": \"Must have admin rights\"}")));
+        assertEquals(Duration.ZERO, limiter.delay(RateLimiter.Priority.BACKGROUND, now));
+    }
+}
@@ -33,6 +33,9 @@ import java.net.*;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -96,6 +99,61 @@ class RestReceiver implements AutoCloseable {
     }
 }
 
+class PaginatedReceiver implements AutoCloseable {
+    private final HttpServer server;
+    private final int pageCount;
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    PaginatedReceiver(int pageCount) throws IOException {
+        this(pageCount, 0);
+    }
+
+    /**
+     * @param failingPage page that is answered with an error, 0 for none
+     */
+    PaginatedReceiver(int pageCount, int failingPage) throws IOException {
+        this.pageCount = pageCount;
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        server = HttpServer.create(address, 0);
+        server.createContext("/test", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            requestCount.incrementAndGet();
+            var query = exchange.getRequestURI().getQuery();
+            var page = query != null && query.startsWith("page=") ? Integer.parseInt(query.substring(5)) : 1;
+            if (page == failingPage) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            var base = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/test";
+            var link = "<" + base + "?page=" + pageCount + ">; rel=\"last\"";
+            if (page < pageCount) {
+                link = "<" + base + "?page=" + (page + 1) + ">; rel=\"next\", " + link;
+            }
+            exchange.getResponseHeaders().add("Link", link);
+            var body = ("[" + (page * 2 - 1) + "," + (page * 2) + "]").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+    }
+
+    URI getEndpoint() {
+        return URIBuilder.base("http://" + server.getAddress().getHostString() + ":" +  server.getAddress().getPort() + "/test").build();
+    }
+
+    int getRequestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
+
 class RestRequestTests {
     @Test
     void simpleRequest() throws IOException {
@@ -138,6 +196,19 @@ class RestRequestTests {
         }
     }
 
+    @Test
+    void transformErrorStream() throws IOException {
+        try (var receiver = new RestReceiver("{}", 400)) {
+            var request = new RestRequest(receiver.getEndpoint());
+            var response = request.post("/test")
+                                  .onError(r -> JSON.object().put("transformed", true))
+                                  .stream()
+                                  .collect(Collectors.toList());
+            assertEquals(1, response.size());
+            assertTrue(response.get(0).contains("transformed"));
+        }
+    }
+
     @Test
     void parseError() throws IOException {
         try (var receiver = new RestReceiver("{{bad_json", 200)) {
@@ -154,4 +225,80 @@ class RestRequestTests {
             assertEquals("{{bad", response);
         }
     }
+
+    @Test
+    void paginatedParallel() throws IOException {
+        try (var receiver = new PaginatedReceiver(10)) {
+            var request = new RestRequest(receiver.getEndpoint());
+            var result = request.get().maxParallelPages(3).execute().asArray();
+            assertEquals(20, result.size());
+            for (int i = 0; i < 20; ++i) {
+                assertEquals(i + 1, result.get(i).asInt());
+            }
+            assertEquals(10, receiver.getRequestCount());
+        }
+    }
+
+    @Test
+    void paginatedSequential() throws IOException {
+        try (var receiver = new PaginatedReceiver(5)) {
+            var request = new RestRequest(receiver.getEndpoint());
+            var result = request.get().maxParallelPages(1).execute().asArray();
+            assertEquals(10, result.size());
+            assertEquals(10, result.get(9).asInt());
+        }
+    }
+
+    @Test
+    void paginatedMaxPages() throws IOException {
+        try (var receiver = new PaginatedReceiver(10)) {
+            var request = new RestRequest(receiver.getEndpoint());
+            var result = request.get().maxPages(4).execute().asArray();
+            assertEquals(8, result.size());
+            assertEquals(8, result.get(7).asInt());
+            assertEquals(4, receiver.getRequestCount());
+        }
+    }
+
+    @Test
+    void paginatedStream() throws IOException {
+        try (var receiver = new PaginatedReceiver(10)) {
+            var request = new RestRequest(receiver.getEndpoint());
+            var firstFive = request.get().stream()
+                                   .limit(5)
+                                   .map(JSONValue::asInt)
+                                   .collect(Collectors.toList());
+            assertEquals(List.of(1, 2, 3, 4, 5), firstFive);
+            assertEquals(3, receiver.getRequestCount());
+
+            assertEquals(20, request.get().stream().count());
+        }
+    }
+
+    @Test
+    void paginatedStreamErrorOnLaterPage() throws IOException {
+        try (var receiver = new PaginatedReceiver(5, 3)) {
+            var request = new RestRequest(receiver.getEndpoint());
+            var consumed = new ArrayList<Integer>();
+            assertThrows(RuntimeException.class, () ->
+                    request.get()
+                           .onError(r -> JSON.object().put("transformed", true))
+                           .stream()
+                           .forEach(value -> consumed.add(value.asInt())));
+            assertEquals(List.of(1, 2, 3, 4), consumed);
+        }
+    }
+
+    @Test
+    void paginatedStreamErrorOnFirstPage() throws IOException {
+        try (var receiver = new PaginatedReceiver(5, 1)) {
+            var request = new RestRequest(receiver.getEndpoint());
+            var result = request.get()
+                                .onError(r -> JSON.object().put("transformed", true))
+                                .stream()
+                                .collect(Collectors.toList());
+            assertEquals(1, result.size());
+            assertTrue(result.get(0).get("transformed").asBoolean());
+        }
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.network;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RestResponseCacheTests {
+    @Test
+    void evictLeastRecentlyUsed() {
+        var cache = RestResponseCache.inMemory(40);
+        cache.put("a", new RestResponseCache.Entry("1", null, null, "0123456789".getBytes(StandardCharsets.UTF_8)));
+        cache.put("b", new RestResponseCache.Entry("2", null, null, "0123456789".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(cache.get("a").isPresent());
+        cache.put("c", new RestResponseCache.Entry("3", null, null, "0123456789".getBytes(StandardCharsets.UTF_8)));
+        cache.put("d", new RestResponseCache.Entry("4", null, null, "0123456789".getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(cache.get("a").isPresent());
+        assertFalse(cache.get("b").isPresent());
+        assertTrue(cache.get("d").isPresent());
+    }
+
+    @Test
+    void persistAcrossInstances() throws IOException {
+        var folder = Files.createTempDirectory("restcache");
+        var cache = RestResponseCache.persistent(folder, 1024);
+        cache.put("key", new RestResponseCache.Entry("\"etag\"", "yesterday", "<next>; rel=\"next\"", "[1]".getBytes(StandardCharsets.UTF_8)));
+
+        var reloaded = RestResponseCache.persistent(folder, 1024);
+        var entry = reloaded.get("key").orElseThrow();
+        assertEquals("\"etag\"", entry.etag().orElseThrow());
+        assertEquals("yesterday", entry.lastModified().orElseThrow());
+        assertEquals("<next>; rel=\"next\"", entry.link().orElseThrow());
+        assertEquals("[1]", new String(entry.body(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void revalidateWithEtag() throws IOException {
+        var requests = new AtomicInteger();
+        var notModified = new AtomicInteger();
+        var server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/test", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            requests.incrementAndGet();
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                var body = "[1,2,3]".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            var uri = URIBuilder.base("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/test").build();
+            var request = new RestRequest(uri);
+            var cache = RestResponseCache.inMemory(1024);
+
+            var first = request.get().cache(cache).execute();
+            var second = request.get().cache(cache).execute();
+            assertEquals(3, first.asArray().size());
+            assertEquals(first.toString(), second.toString());
+            assertEquals(2, requests.get());
+            assertEquals(1, notModified.get());
+
+            request.get().cache(null).execute();
+            assertEquals(1, notModified.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.storage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * File backed storage for large sets. The file is a log with one item per line, where a later
+ * line replaces any earlier line with the same key. Updates only append the changed items, and
+ * the file is rewritten in the serializer's canonical form once the log has grown to more than
+ * twice the number of live items. The serializer must therefore write one item per line.
+ */
+class AppendOnlyFileStorage<T> implements Storage<T> {
+    private static final int minimumCompactionSize = 64;
+
+    private final Path file;
+    private final StorageSerializer<T> serializer;
+    private final StorageDeserializer<T> deserializer;
+    private final Function<T, ?> key;
+
+    private Map<Object, T> index;
+    private Set<T> current;
+    private int logLines;
+    private boolean endsWithNewline;
+
+    AppendOnlyFileStorage(Path file, StorageSerializer<T> serializer, StorageDeserializer<T> deserializer, Function<T, ?> key) {
+        this.file = file;
+        this.serializer = serializer;
+        this.deserializer = deserializer;
+        this.key = key;
+    }
+
+    private void load() {
+        index = new HashMap<>();
+        logLines = 0;
+        endsWithNewline = true;
+
+        String content;
+        try {
+            content = Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return;
+        }
+        content.lines().forEach(line -> {
+            logLines++;
+            for (var item : deserializer.deserialize(line)) {
+                index.put(key.apply(item), item);
+            }
+        });
+        endsWithNewline = content.isEmpty() || content.endsWith("\n");
+    }
+
+    private void compact() throws IOException {
+        var compacted = serializer.serialize(List.of(), current());
+        var tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmpFile, compacted, StandardCharsets.UTF_8);
+        Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logLines = (int) compacted.lines().count();
+        endsWithNewline = compacted.isEmpty() || compacted.endsWith("\n");
+    }
+
+    @Override
+    public Set<T> current() {
+        if (index == null) {
+            load();
+        }
+        if (current == null) {
+            current = Collections.unmodifiableSet(new HashSet<>(index.values()));
+        }
+        return current;
+    }
+
+    @Override
+    public void put(Collection<T> items) {
+        if (index == null) {
+            load();
+        }
+
+        var added = new ArrayList<T>();
+        for (var item : items) {
+            var itemKey = key.apply(item);
+            if (!item.equals(index.get(itemKey))) {
+                index.put(itemKey, item);
+                added.add(item);
+            }
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        current = null;
+
+        var delta = serializer.serialize(added, Set.of());
+        try {
+            if (logLines > minimumCompactionSize && logLines + added.size() > 2 * index.size()) {
+                compact();
+                return;
+            }
+            var text = endsWithNewline ? delta : "\n" + delta;
+            if (!text.endsWith("\n")) {
+                text += "\n";
+            }
+            Files.writeString(file, text, StandardCharsets.UTF_8,
+                              StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+            logLines += (int) delta.lines().count();
+            endsWithNewline = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
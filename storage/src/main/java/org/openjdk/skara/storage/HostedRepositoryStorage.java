@@ -27,7 +27,9 @@ import org.openjdk.skara.vcs.*;
 
 import java.io.*;
 import java.nio.file.*;
+import java.time.*;
 import java.util.*;
+import java.util.function.Function;
 
 class HostedRepositoryStorage<T> implements Storage<T> {
     private final HostedRepository hostedRepository;
@@ -39,12 +41,24 @@ class HostedRepositoryStorage<T> implements Storage<T> {
     private final Repository localRepository;
     private final StorageSerializer<T> serializer;
     private final StorageDeserializer<T> deserializer;
+    private final Duration writeBehind;
+    private final Function<T, ?> key;
+    private final List<T> pending = new ArrayList<>();
+    private final Map<Object, T> pendingByKey = new HashMap<>();
 
     private Hash hash;
     private RepositoryStorage<T> repositoryStorage;
     private Set<T> current;
+    private Set<T> pendingCurrent;
+    private Instant pendingSince;
+    private Set<T> indexed;
+    private Map<Object, T> index;
 
     HostedRepositoryStorage(HostedRepository repository, Path localStorage, String ref, String fileName, String authorName, String authorEmail, String message, StorageSerializer<T> serializer, StorageDeserializer<T> deserializer) {
+        this(repository, localStorage, ref, fileName, authorName, authorEmail, message, serializer, deserializer, null, null);
+    }
+
+    HostedRepositoryStorage(HostedRepository repository, Path localStorage, String ref, String fileName, String authorName, String authorEmail, String message, StorageSerializer<T> serializer, StorageDeserializer<T> deserializer, Duration writeBehind, Function<T, ?> key) {
         this.hostedRepository = repository;
         this.ref = ref;
         this.fileName = fileName;
@@ -53,6 +67,8 @@ class HostedRepositoryStorage<T> implements Storage<T> {
         this.message = message;
         this.serializer = serializer;
         this.deserializer = deserializer;
+        this.writeBehind = writeBehind;
+        this.key = key;
 
         try {
             Repository localRepository;
@@ -67,29 +83,121 @@ class HostedRepositoryStorage<T> implements Storage<T> {
             }
             this.localRepository = localRepository;
             hash = localRepository.head();
-            repositoryStorage = new RepositoryStorage<>(localRepository, fileName, authorName, authorEmail, message, serializer, deserializer);
+            repositoryStorage = new RepositoryStorage<>(localRepository, fileName, authorName, authorEmail, message, serializer, deserializer, key);
             current = current();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * The stored items by key, only rebuilt when the stored set has changed.
+     */
+    private Map<Object, T> index() {
+        var stored = repositoryStorage.current();
+        if (stored != indexed) {
+            index = new HashMap<>();
+            for (var item : stored) {
+                index.put(key.apply(item), item);
+            }
+            indexed = stored;
+        }
+        return index;
+    }
+
     @Override
     public Set<T> current() {
-        return repositoryStorage.current();
+        if (pending.isEmpty()) {
+            return repositoryStorage.current();
+        }
+        if (pendingCurrent == null) {
+            if (key != null) {
+                var overlaid = new HashMap<>(index());
+                overlaid.putAll(pendingByKey);
+                pendingCurrent = Collections.unmodifiableSet(new HashSet<>(overlaid.values()));
+            } else {
+                var serialized = serializer.serialize(pending, repositoryStorage.current());
+                pendingCurrent = Collections.unmodifiableSet(deserializer.deserialize(serialized));
+            }
+        }
+        return pendingCurrent;
+    }
+
+    private void putKeyed(Collection<T> items) {
+        var changed = false;
+        for (var item : items) {
+            var itemKey = key.apply(item);
+            var existing = pendingByKey.containsKey(itemKey) ? pendingByKey.get(itemKey) : index().get(itemKey);
+            if (!item.equals(existing)) {
+                pendingByKey.put(itemKey, item);
+                pending.add(item);
+                changed = true;
+            }
+        }
+        if (changed) {
+            pendingCurrent = null;
+        }
     }
 
     @Override
     public void put(Collection<T> items) {
+        if (writeBehind == null) {
+            pending.addAll(items);
+            try {
+                flush();
+            } finally {
+                clearPending();
+            }
+            return;
+        }
+
+        var pendingCount = pending.size();
+        if (key != null) {
+            putKeyed(items);
+        } else {
+            var before = current();
+            pending.addAll(items);
+            pendingCurrent = null;
+            if (before.equals(current())) {
+                pending.subList(pendingCount, pending.size()).clear();
+                pendingCurrent = before;
+            }
+        }
+        if (pending.size() == pendingCount) {
+            // Nothing new, no need to keep these around
+            return;
+        }
+        if (pendingSince == null) {
+            pendingSince = Instant.now();
+        }
+        if (Instant.now().isAfter(pendingSince.plus(writeBehind))) {
+            flush();
+        }
+    }
+
+    private void clearPending() {
+        pending.clear();
+        pendingByKey.clear();
+        pendingCurrent = null;
+        pendingSince = null;
+    }
+
+    @Override
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
         int retryCount = 0;
         IOException lastException = null;
         Hash lastRemoteHash = null;
 
         while (retryCount < 10) {
-            // Update our local storage
-            repositoryStorage.put(items);
+            // Update our local storage with everything that is pending as a single commit
+            repositoryStorage.put(pending);
             var updated = repositoryStorage.current();
             if (current.equals(updated)) {
+                clearPending();
                 return;
             }
 
@@ -99,6 +207,7 @@ class HostedRepositoryStorage<T> implements Storage<T> {
                 localRepository.push(updatedHash, hostedRepository.url(), ref);
                 hash = updatedHash;
                 current = updated;
+                clearPending();
                 return;
             } catch (IOException e) {
                 lastException = e;
@@ -107,8 +216,10 @@ class HostedRepositoryStorage<T> implements Storage<T> {
                 try {
                     var remoteHash = localRepository.fetch(hostedRepository.url(), ref);
                     if (!remoteHash.equals(lastRemoteHash)) {
-                        localRepository.checkout(remoteHash, true);
-                        repositoryStorage = new RepositoryStorage<>(localRepository, fileName, authorName, authorEmail, message, serializer, deserializer);
+                        // Merge the pending items into the remote set on the next attempt
+                        repositoryStorage.rebase(remoteHash);
+                        current = repositoryStorage.current();
+                        pendingCurrent = null;
                         lastRemoteHash = remoteHash;
 
                         // We are making progress catching up with remote changes, don't update the retryCount
@@ -22,10 +22,11 @@
  */
 package org.openjdk.skara.storage;
 
-import org.openjdk.skara.vcs.Repository;
+import org.openjdk.skara.vcs.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.Function;
 
 class RepositoryStorage<T> implements Storage<T> {
     private final Repository repository;
@@ -33,16 +34,27 @@ class RepositoryStorage<T> implements Storage<T> {
     private final String authorName;
     private final String authorEmail;
     private final String message;
-    private final FileStorage<T> fileStorage;
+    private final StorageSerializer<T> serializer;
+    private final StorageDeserializer<T> deserializer;
+    private final Function<T, ?> key;
+
+    private Storage<T> fileStorage;
 
     private Set<T> current;
 
     RepositoryStorage(Repository repository, String fileName, String authorName, String authorEmail, String message, StorageSerializer<T> serializer, StorageDeserializer<T> deserializer) {
+        this(repository, fileName, authorName, authorEmail, message, serializer, deserializer, null);
+    }
+
+    RepositoryStorage(Repository repository, String fileName, String authorName, String authorEmail, String message, StorageSerializer<T> serializer, StorageDeserializer<T> deserializer, Function<T, ?> key) {
         this.repository = repository;
         this.fileName = fileName;
         this.authorEmail = authorEmail;
         this.authorName = authorName;
         this.message = message;
+        this.serializer = serializer;
+        this.deserializer = deserializer;
+        this.key = key;
 
         try {
             if (!repository.isHealthy()) {
@@ -53,13 +65,21 @@ class RepositoryStorage<T> implements Storage<T> {
         }
 
         try {
-            fileStorage = new FileStorage<>(repository.root().resolve(fileName), serializer, deserializer);
+            fileStorage = fileStorage();
             current = current();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    private Storage<T> fileStorage() throws IOException {
+        var file = repository.root().resolve(fileName);
+        if (key != null) {
+            return new AppendOnlyFileStorage<>(file, serializer, deserializer, key);
+        }
+        return new FileStorage<>(file, serializer, deserializer);
+    }
+
     @Override
     public Set<T> current() {
         return fileStorage.current();
@@ -80,4 +100,16 @@ class RepositoryStorage<T> implements Storage<T> {
             throw new UncheckedIOException(e);
         }
     }
+
+    /**
+     * Move the storage to the given commit, discarding any local changes. Items that are put
+     * after this are merged into the set stored in that commit.
+     * @param hash
+     * @throws IOException
+     */
+    void rebase(Hash hash) throws IOException {
+        repository.checkout(hash, true);
+        fileStorage = fileStorage();
+        current = current();
+    }
 }
@@ -43,4 +43,11 @@ public interface Storage<T> {
     default void put(T item) {
         put(List.of(item));
     }
+
+    /**
+     * Write any updates that have been deferred by a write-behind storage to permanent storage.
+     * Storage instances without write-behind always write updates immediately.
+     */
+    default void flush() {
+    }
 }
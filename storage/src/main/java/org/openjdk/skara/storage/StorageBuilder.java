@@ -25,6 +25,8 @@ package org.openjdk.skara.storage;
 import org.openjdk.skara.forge.HostedRepository;
 
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Function;
 
 public class StorageBuilder<T> {
     private final String fileName;
@@ -36,6 +38,8 @@ public class StorageBuilder<T> {
     private String remoteMessage;
     private StorageSerializer<T> serializer;
     private StorageDeserializer<T> deserializer;
+    private Duration writeBehind;
+    private Function<T, ?> key;
 
     /**
      * Create a StorageBuilder instance that will use the given fileName to store data.
@@ -87,6 +91,30 @@ public class StorageBuilder<T> {
         return this;
     }
 
+    /**
+     * Defer updates to the remote repository. Updates are collected in memory and written as a
+     * single commit when Storage::flush is called, or by the first update made after the oldest
+     * deferred update has waited for more than maxDelay. Only applies to remote repositories.
+     * @param maxDelay
+     * @return
+     */
+    public StorageBuilder<T> writeBehind(Duration maxDelay) {
+        writeBehind = maxDelay;
+        return this;
+    }
+
+    /**
+     * Store items in an append-only log instead of rewriting the whole file on every update.
+     * An item replaces any earlier item with the same key. The serializer must write one item
+     * per line, and the deserializer must accept a single line.
+     * @param key
+     * @return
+     */
+    public StorageBuilder<T> appendOnly(Function<T, ?> key) {
+        this.key = key;
+        return this;
+    }
+
     /**
      * Create a Storage instance.
      * @param localFolder
@@ -94,7 +122,9 @@ public class StorageBuilder<T> {
      */
     public Storage<T> materialize(Path localFolder) {
         if (remoteRepository != null) {
-            return new HostedRepositoryStorage<>(remoteRepository, localFolder, remoteRef, fileName, remoteAuthorName, remoteAuthorEmail, remoteMessage, serializer, deserializer);
+            return new HostedRepositoryStorage<>(remoteRepository, localFolder, remoteRef, fileName, remoteAuthorName, remoteAuthorEmail, remoteMessage, serializer, deserializer, writeBehind, key);
+        } else if (key != null) {
+            return new AppendOnlyFileStorage<>(localFolder.resolve(fileName), serializer, deserializer, key);
         } else {
             return new FileStorage<>(localFolder.resolve(fileName), serializer, deserializer);
         }
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppendOnlyFileStorageTests {
+    // Stores "key=value" entries, where a new value for a key replaces the old one
+    private AppendOnlyFileStorage<String> entryStorage(Path fileName) {
+        return new AppendOnlyFileStorage<>(fileName, (added, cur) -> {
+                                               var entries = new TreeMap<String, String>();
+                                               Stream.concat(cur.stream(), added.stream())
+                                                     .forEach(entry -> entries.put(entry.split("=")[0], entry));
+                                               return String.join("\n", entries.values());
+                                           },
+                                           cur -> cur.lines()
+                                                     .filter(str -> !str.isEmpty())
+                                                     .collect(Collectors.toSet()),
+                                           entry -> entry.split("=")[0]);
+    }
+
+    @Test
+    void simple() throws IOException {
+        var tmpFile = Files.createTempFile("appendonlystorage", ".txt");
+        var storage = entryStorage(tmpFile);
+
+        assertEquals(Set.of(), storage.current());
+        storage.put("a=1");
+        assertEquals(Set.of("a=1"), storage.current());
+        storage.put(List.of("b=2", "c=3"));
+        assertEquals(Set.of("a=1", "b=2", "c=3"), storage.current());
+
+        Files.delete(tmpFile);
+    }
+
+    @Test
+    void appendsOnlyChanges() throws IOException {
+        var tmpFile = Files.createTempFile("appendonlystorage", ".txt");
+        var storage = entryStorage(tmpFile);
+
+        storage.put(List.of("a=1", "b=2"));
+        var current = storage.current();
+        storage.put("a=1");
+        assertSame(current, storage.current());
+        storage.put("a=3");
+        assertEquals(Set.of("a=3", "b=2"), storage.current());
+        assertEquals(List.of("a=1", "b=2", "a=3"), Files.readAllLines(tmpFile));
+
+        var newStorage = entryStorage(tmpFile);
+        assertEquals(Set.of("a=3", "b=2"), newStorage.current());
+
+        Files.delete(tmpFile);
+    }
+
+    @Test
+    void compaction() throws IOException {
+        var tmpFile = Files.createTempFile("appendonlystorage", ".txt");
+        var storage = entryStorage(tmpFile);
+
+        for (int i = 0; i < 200; ++i) {
+            storage.put("a=" + i);
+        }
+        assertEquals(Set.of("a=199"), storage.current());
+        assertTrue(Files.readAllLines(tmpFile).size() < 100);
+
+        var newStorage = entryStorage(tmpFile);
+        assertEquals(Set.of("a=199"), newStorage.current());
+
+        Files.delete(tmpFile);
+    }
+
+    @Test
+    void readsExistingFileStorage() throws IOException {
+        var tmpFile = Files.createTempFile("appendonlystorage", ".txt");
+        Files.writeString(tmpFile, "a=1\nb=2");
+        var storage = entryStorage(tmpFile);
+
+        assertEquals(Set.of("a=1", "b=2"), storage.current());
+        storage.put("c=3");
+        assertEquals(List.of("a=1", "b=2", "c=3"), Files.readAllLines(tmpFile));
+
+        Files.delete(tmpFile);
+    }
+}
@@ -27,34 +27,92 @@ import org.openjdk.skara.email.*;
 import java.io.*;
 import java.net.*;
 import java.time.*;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.util.regex.Pattern;
 
 public class SMTPServer implements AutoCloseable {
     private final ServerSocket serverSocket;
     private final Thread acceptThread;
     private final ConcurrentLinkedDeque<Email> emails = new ConcurrentLinkedDeque<>();
-
-    private static Pattern ehloPattern = Pattern.compile("^EHLO .*$");
-    private static Pattern mailFromPattern = Pattern.compile("^MAIL FROM:.*$");
-    private static Pattern rcptToPattern = Pattern.compile("^RCPT TO:<.*$");
-    private static Pattern dataPattern = Pattern.compile("^DATA$");
-    private static Pattern messageEndPattern = Pattern.compile("^\\.$");
-    private static Pattern quitPattern = Pattern.compile("^QUIT$");
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicReference<String> rejection = new AtomicReference<>();
 
     private final static Pattern encodeQuotedPrintablePattern = Pattern.compile("([^\\x00-\\x7f]+)");
     private final static Pattern headerPattern = Pattern.compile("[^A-Za-z0-9-]+: .+");
 
-    private class AcceptThread implements Runnable {
-        private void handleSession(SMTPSession session) throws IOException {
-            session.sendCommand("220 localhost SMTP", ehloPattern);
-            session.sendCommand("250 HELP", mailFromPattern);
-            session.sendCommand("250 FROM OK", rcptToPattern);
-            session.sendCommand("250 RCPT OK", dataPattern);
-            session.sendCommand("354 Enter message now, end with .");
-            var message = session.readLinesUntil(messageEndPattern);
-            session.sendCommand("250 MESSAGE OK", quitPattern);
+    private class SessionThread implements Runnable {
+        private final Socket socket;
+
+        SessionThread(Socket socket) {
+            this.socket = socket;
+        }
+
+        private void reply(Writer out, String line) throws IOException {
+            out.write(line + "\r\n");
+            out.flush();
+        }
+
+        private List<String> readMessage(BufferedReader in) throws IOException {
+            var ret = new ArrayList<String>();
+            while (true) {
+                var line = in.readLine();
+                if (line == null) {
+                    throw new EOFException();
+                }
+                if (line.equals(".")) {
+                    return ret;
+                }
+                ret.add(line);
+            }
+        }
+
+        private void handleSession(BufferedReader in, Writer out) throws IOException {
+            reply(out, "220 localhost SMTP");
+            var inTransaction = false;
+            var recipients = 0;
+            while (true) {
+                var command = in.readLine();
+                if (command == null || command.equals("QUIT")) {
+                    return;
+                }
+                var rejectionReply = rejection.getAndSet(null);
+                if (rejectionReply != null) {
+                    reply(out, rejectionReply);
+                    // Wait for the client to give up on the connection
+                    while (in.readLine() != null) {
+                    }
+                    return;
+                }
+                if (command.startsWith("EHLO ")) {
+                    reply(out, "250-localhost");
+                    reply(out, "250-PIPELINING");
+                    reply(out, "250 HELP");
+                } else if (command.startsWith("MAIL FROM:")) {
+                    inTransaction = true;
+                    recipients = 0;
+                    reply(out, "250 FROM OK");
+                } else if (command.startsWith("RCPT TO:<") && inTransaction) {
+                    recipients++;
+                    reply(out, "250 RCPT OK");
+                } else if (command.equals("DATA") && recipients > 0) {
+                    reply(out, "354 Enter message now, end with .");
+                    var message = readMessage(in);
+                    emails.addLast(parse(message));
+                    inTransaction = false;
+                    reply(out, "250 MESSAGE OK");
+                } else if (command.equals("RSET") || command.equals("NOOP")) {
+                    inTransaction = false;
+                    reply(out, "250 OK");
+                } else {
+                    reply(out, "503 Bad sequence of commands");
+                }
+            }
+        }
 
+        private Email parse(List<String> message) {
             // Email headers are only 7-bit safe, ensure that we break any high ascii passing through
             var inHeader = true;
             var mailBody = new StringBuilder();
@@ -78,20 +136,34 @@ public class SMTPServer implements AutoCloseable {
                 mailBody.append("\n");
             }
 
-            var email = Email.parse(mailBody.toString());
-            emails.addLast(email);
+            return Email.parse(mailBody.toString());
         }
 
+        @Override
+        public void run() {
+            try (socket;
+                 var input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                 var output = new OutputStreamWriter(socket.getOutputStream())) {
+                handleSession(input, output);
+            } catch (IOException e) {
+                // Connection closed
+            } finally {
+                sockets.remove(socket);
+            }
+        }
+    }
+
+    private class AcceptThread implements Runnable {
         @Override
         public void run() {
             while (!serverSocket.isClosed()) {
                 try {
-                    try (var socket = serverSocket.accept();
-                         var input = new InputStreamReader(socket.getInputStream());
-                         var output = new OutputStreamWriter(socket.getOutputStream())) {
-                        var session = new SMTPSession(input, output, Duration.ofMinutes(10));
-                        handleSession(session);
-                    }
+                    var socket = serverSocket.accept();
+                    sockets.add(socket);
+                    connections.incrementAndGet();
+                    var sessionThread = new Thread(new SessionThread(socket));
+                    sessionThread.setDaemon(true);
+                    sessionThread.start();
                 } catch (SocketException e) {
                     // Socket closed
                 } catch (IOException e) {
@@ -127,8 +199,38 @@ public class SMTPServer implements AutoCloseable {
         return emails.removeFirst();
     }
 
+    /**
+     * Number of client connections accepted so far.
+     * @return
+     */
+    public int connections() {
+        return connections.get();
+    }
+
+    /**
+     * Closes all currently open client connections, as an idle timeout on a real server would.
+     * @throws IOException
+     */
+    public void disconnectAll() throws IOException {
+        for (var socket : sockets) {
+            socket.close();
+        }
+    }
+
+    /**
+     * Answers the next command received on any connection with the given reply and ignores the rest of
+     * that session, as a server that closes idle connections with a 421 reply would.
+     * @param reply
+     */
+    public void rejectNextCommand(String reply) {
+        rejection.set(reply);
+    }
+
     @Override
     public void close() throws IOException {
         serverSocket.close();
+        for (var socket : sockets) {
+            socket.close();
+        }
     }
 }
@@ -37,6 +37,7 @@ import java.util.stream.Collectors;
 public class TestHost implements Forge, IssueTracker {
     private final int currentUser;
     private HostData data;
+    private boolean batchFetch = false;
 
     private static class HostData {
         final List<HostUser> users = new ArrayList<>();
@@ -137,6 +138,20 @@ public class TestHost implements Forge, IssueTracker {
         return false;
     }
 
+    /**
+     * Stand-in for forges that fetch the state of all open pull requests in one query: the pull
+     * requests returned by TestHostedRepository::pullRequests will then have their reviews,
+     * comments, review comments, labels and head checks captured at the time of the listing.
+     * @param enabled
+     */
+    public void setBatchFetch(boolean enabled) {
+        batchFetch = enabled;
+    }
+
+    boolean batchFetch() {
+        return batchFetch;
+    }
+
     void close() {
         if (currentUser == 0) {
             data.folders.forEach(TemporaryDirectory::close);
@@ -69,9 +69,24 @@ public class TestHostedRepository extends TestIssueProject implements HostedRepo
 
     @Override
     public List<PullRequest> pullRequests() {
+        if (host.batchFetch()) {
+            return host.getPullRequests(this).stream()
+                       .map(this::prefetched)
+                       .collect(Collectors.toList());
+        }
         return new ArrayList<>(host.getPullRequests(this));
     }
 
+    private PullRequest prefetched(TestPullRequest pr) {
+        var snapshot = PullRequestSnapshot.of(pr);
+        snapshot.reviews();
+        snapshot.comments();
+        snapshot.reviewComments();
+        snapshot.labels();
+        snapshot.checks(snapshot.headHash());
+        return snapshot;
+    }
+
     @Override
     public List<PullRequest> findPullRequestsWithComment(String author, String body) {
         return pullRequests().stream()
@@ -148,6 +163,11 @@ public class TestHostedRepository extends TestIssueProject implements HostedRepo
         return Optional.empty();
     }
 
+    @Override
+    public boolean supportsWebHooks() {
+        return false;
+    }
+
     @Override
     public HostedRepository fork() {
         throw new RuntimeException("not implemented yet");
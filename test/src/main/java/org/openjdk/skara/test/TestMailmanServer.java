@@ -42,8 +42,10 @@ public class TestMailmanServer implements AutoCloseable {
     private final Map<String, Path> lists = new HashMap<>();
 
     private boolean lastResponseCached;
+    private boolean lastResponsePartial;
 
     static private final Pattern listPathPattern = Pattern.compile("^/test/(.*?)/.*");
+    static private final Pattern rangePattern = Pattern.compile("^bytes=(\\d+)-$");
 
     private class Handler implements HttpHandler {
         @Override
@@ -55,6 +57,7 @@ public class TestMailmanServer implements AutoCloseable {
             var list = lists.get(listMatcher.group(1));
             var response = Files.readString(list);
             lastResponseCached = false;
+            lastResponsePartial = false;
 
             try {
                 var digest = MessageDigest.getInstance("SHA-256");
@@ -71,6 +74,24 @@ public class TestMailmanServer implements AutoCloseable {
                 }
 
                 var responseBytes = response.getBytes(StandardCharsets.UTF_8);
+                if (exchange.getRequestHeaders().containsKey("Range")) {
+                    var rangeMatcher = rangePattern.matcher(exchange.getRequestHeaders().getFirst("Range"));
+                    if (rangeMatcher.matches()) {
+                        var start = Integer.parseInt(rangeMatcher.group(1));
+                        if (start >= responseBytes.length) {
+                            exchange.sendResponseHeaders(416, -1);
+                            return;
+                        }
+                        exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + (responseBytes.length - 1) + "/" + responseBytes.length);
+                        responseBytes = Arrays.copyOfRange(responseBytes, start, responseBytes.length);
+                        lastResponsePartial = true;
+                        exchange.sendResponseHeaders(206, responseBytes.length);
+                        OutputStream outputStream = exchange.getResponseBody();
+                        outputStream.write(responseBytes);
+                        outputStream.close();
+                        return;
+                    }
+                }
                 exchange.sendResponseHeaders(200, responseBytes.length);
                 OutputStream outputStream = exchange.getResponseBody();
                 outputStream.write(responseBytes);
@@ -138,4 +159,8 @@ public class TestMailmanServer implements AutoCloseable {
     public boolean lastResponseCached() {
         return lastResponseCached;
     }
+
+    public boolean lastResponsePartial() {
+        return lastResponsePartial;
+    }
 }
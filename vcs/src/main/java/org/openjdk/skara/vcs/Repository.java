@@ -32,7 +32,7 @@ import java.nio.file.Files;
 import java.time.ZonedDateTime;
 import java.util.*;
 
-public interface Repository extends ReadOnlyRepository {
+public interface Repository extends ReadOnlyRepository, AutoCloseable {
     Repository init() throws IOException;
     void checkout(Hash h, boolean force) throws IOException;
     default void checkout(Hash h) throws IOException {
@@ -202,4 +202,12 @@ public interface Repository extends ReadOnlyRepository {
             GitRepository.mirror(from, to) :
             HgRepository.clone(from, to, true); // hg does not have concept of "mirror"
     }
+
+    /**
+     * Releases any helper processes kept running for this repository. The repository
+     * can still be used afterwards, the processes are then started again on demand.
+     */
+    @Override
+    default void close() {
+    }
 }
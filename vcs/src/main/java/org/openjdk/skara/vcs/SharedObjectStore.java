@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.vcs;
+
+import org.openjdk.skara.process.Execution;
+import org.openjdk.skara.process.Process;
+
+import java.io.IOException;
+import java.net.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * A node-wide cache of git objects, consisting of one bare repository per remote. When enabled, fetches
+ * into a git repository first update the store for the remote, the repository then borrows objects
+ * from the store through <code>objects/info/alternates</code> and fetches from the store instead of
+ * the remote, so that objects are only transferred over the network once per node.
+ *
+ * Objects are only removed from the store by {@link #maintain(Duration)}. Since a repository that
+ * borrows objects breaks if they are removed, maintenance first records what each borrowing repository
+ * references as refs of the store, so that only objects no borrower needs are removed.
+ *
+ * Every operation on a store is done while holding a lock file next to it, so that several processes
+ * on the same node can use the same stores.
+ */
+public class SharedObjectStore {
+    private static volatile SharedObjectStore current;
+
+    private final Path root;
+    private final Logger log = Logger.getLogger("org.openjdk.skara.vcs");
+    private final ConcurrentMap<Path, Object> locks = new ConcurrentHashMap<>();
+
+    public SharedObjectStore(Path root) {
+        this.root = root.toAbsolutePath();
+    }
+
+    /**
+     * Makes all git repositories in this process use a shared object store located at <code>root</code>.
+     * @param root
+     * @return
+     */
+    public static SharedObjectStore enable(Path root) {
+        current = new SharedObjectStore(root);
+        return current;
+    }
+
+    public static void disable() {
+        current = null;
+    }
+
+    public static Optional<SharedObjectStore> current() {
+        return Optional.ofNullable(current);
+    }
+
+    /**
+     * The bare repository used for objects fetched from the given remote.
+     * @param remote
+     * @return
+     */
+    public Path storeFor(URI remote) {
+        // Credentials are not part of the name, they may change without the content changing
+        var host = remote.getHost() == null ? "local" : remote.getHost().toLowerCase();
+        var path = remote.getPath() == null ? "" : remote.getPath();
+        return root.resolve(URLEncoder.encode(host + path, StandardCharsets.UTF_8));
+    }
+
+    private static Execution.Result await(Execution execution) throws IOException {
+        try (execution) {
+            var result = execution.await();
+            if (result.status() != 0) {
+                throw new IOException("Unexpected exit code\n" + result);
+            }
+            return result;
+        }
+    }
+
+    private static Execution execute(Path cwd, String... args) {
+        var cmd = new ArrayList<String>();
+        cmd.add("git");
+        cmd.addAll(Arrays.asList(args));
+        return Process.capture(cmd.toArray(new String[0])).workdir(cwd).execute();
+    }
+
+    private static List<String> git(Path cwd, String... args) throws IOException {
+        return await(execute(cwd, args)).stdout();
+    }
+
+    private static boolean succeeds(Path cwd, String... args) {
+        try (var execution = execute(cwd, args)) {
+            return execution.await().status() == 0;
+        }
+    }
+
+    private interface StoreOperation<T> {
+        T run() throws IOException;
+    }
+
+    private <T> T locked(Path store, StoreOperation<T> operation) throws IOException {
+        // A file lock is held by the whole process, so threads must first be serialized by a monitor
+        synchronized (locks.computeIfAbsent(store, s -> new Object())) {
+            Files.createDirectories(root);
+            var lockFile = root.resolve(store.getFileName().toString() + ".lock");
+            try (var channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // Released when the channel is closed
+                channel.lock();
+                return operation.run();
+            }
+        }
+    }
+
+    private void initialize(Path store) throws IOException {
+        if (Files.exists(store.resolve("HEAD"))) {
+            return;
+        }
+        Files.createDirectories(store);
+        git(store, "init", "--bare", "--quiet");
+        // Keep a record of every ref update, so that objects that were once fetched stay reachable until expired
+        git(store, "config", "core.logAllRefUpdates", "always");
+        // Garbage collection is done by maintain, never as a side effect of a fetch
+        git(store, "config", "gc.auto", "0");
+    }
+
+    private static Set<String> readLines(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return new LinkedHashSet<>();
+        }
+        return new LinkedHashSet<>(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    private static void writeLines(Path file, Set<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            Files.deleteIfExists(file);
+        } else {
+            Files.createDirectories(file.getParent());
+            Files.write(file, lines, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Fetches the source of the given refspec from the remote into its store, and lets the repository
+     * owning the given alternates file borrow the objects of the store.
+     * @param remote
+     * @param refspec
+     * @param alternates the <code>objects/info/alternates</code> file of the borrowing repository
+     * @return a refspec equivalent to <code>refspec</code> when fetching from the store instead of the remote
+     * @throws IOException
+     */
+    public String update(URI remote, String refspec, Path alternates) throws IOException {
+        var store = storeFor(remote);
+        var force = refspec.startsWith("+");
+        var source = force ? refspec.substring(1) : refspec;
+        var separator = source.indexOf(':');
+        var destination = separator >= 0 ? source.substring(separator) : "";
+        if (separator >= 0) {
+            source = source.substring(0, separator);
+        }
+        // An empty source means HEAD of the remote
+        var fetched = source.isEmpty() ? "HEAD" : source;
+        var cached = "refs/cache/" + (fetched.startsWith("refs/") ? fetched.substring(5) : fetched);
+
+        return locked(store, () -> {
+            initialize(store);
+            log.fine("Updating shared object store " + store + " with " + refspec);
+            git(store, "fetch", "--quiet", "--tags", remote.toString(), "+" + fetched + ":" + cached);
+
+            // Registered while locked, so that maintain cannot miss a repository that is about to borrow
+            var borrowers = store.resolve("borrowers");
+            var registered = readLines(borrowers);
+            if (registered.add(alternates.toAbsolutePath().toString())) {
+                writeLines(borrowers, registered);
+            }
+            var entries = readLines(alternates);
+            if (entries.add(store.resolve("objects").toString())) {
+                writeLines(alternates, entries);
+            }
+
+            return (force ? "+" : "") + cached + destination;
+        });
+    }
+
+    private static String borrowerRefs(String borrower) {
+        return "refs/borrowers/" + UUID.nameUUIDFromBytes(borrower.getBytes(StandardCharsets.UTF_8)) + "/";
+    }
+
+    /**
+     * Makes everything the repository owning the given alternates file references reachable from refs of
+     * the store under <code>prefix</code>. This only reads from the borrowing repository, so it is safe
+     * while the repository is in use. Objects that only exist in the borrowing repository are copied into
+     * the store, as they may depend on borrowed objects.
+     * @return the names of the refs outside of <code>prefix + "refs/"</code> that were written
+     */
+    private Set<String> recordBorrowedObjects(Path store, Path alternates, String prefix) throws IOException {
+        var written = new HashSet<String>();
+        if (!readLines(alternates).contains(store.resolve("objects").toString())) {
+            return written;
+        }
+        // The alternates file is located at <git dir>/objects/info/alternates
+        var gitDir = alternates.getParent().getParent().getParent();
+        log.fine("Recording objects borrowed from " + store + " by " + gitDir);
+
+        var fetch = new ArrayList<>(List.of("fetch", "--quiet", "--no-tags", "--prune", gitDir.toString(),
+                                            "+refs/*:" + prefix + "refs/*"));
+        // A detached HEAD is not covered by any ref
+        if (succeeds(gitDir, "--git-dir=" + gitDir, "rev-parse", "--verify", "--quiet", "HEAD")) {
+            fetch.add("+HEAD:" + prefix + "HEAD");
+            written.add(prefix + "HEAD");
+        }
+        git(store, fetch.toArray(new String[0]));
+
+        // Fetched objects that have not been checked out or merged yet are only referenced by FETCH_HEAD,
+        // the store has them since they were fetched through it
+        var fetchHead = gitDir.resolve("FETCH_HEAD");
+        if (Files.exists(fetchHead)) {
+            var i = 0;
+            for (var line : Files.readAllLines(fetchHead, StandardCharsets.UTF_8)) {
+                var fields = line.split("\t");
+                if (fields.length < 2 || !fields[1].isEmpty()) {
+                    // Marked as not-for-merge, such as tags
+                    continue;
+                }
+                var ref = prefix + "fetched/" + i++;
+                if (succeeds(store, "update-ref", ref, fields[0])) {
+                    written.add(ref);
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Expires ref history older than <code>pruneAge</code> and removes objects that have been unreachable
+     * for at least as long from all stores. Everything that repositories borrowing objects from a store
+     * reference is first recorded as refs of the store, so that pruning the store cannot corrupt them.
+     * @param pruneAge
+     * @throws IOException
+     */
+    public void maintain(Duration pruneAge) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        List<Path> stores;
+        try (var entries = Files.list(root)) {
+            stores = entries.filter(p -> Files.exists(p.resolve("HEAD"))).collect(Collectors.toList());
+        }
+
+        var expiry = pruneAge.isZero() ? "now" : pruneAge.toSeconds() + ".seconds.ago";
+        for (var store : stores) {
+            locked(store, () -> {
+                var borrowers = store.resolve("borrowers");
+                var remaining = new LinkedHashSet<String>();
+                var prefixes = new HashSet<String>();
+                var written = new HashSet<String>();
+                var failed = false;
+                for (var borrower : readLines(borrowers)) {
+                    var alternates = Path.of(borrower);
+                    if (!Files.exists(alternates)) {
+                        continue;
+                    }
+                    remaining.add(borrower);
+                    var prefix = borrowerRefs(borrower);
+                    prefixes.add(prefix);
+                    try {
+                        written.addAll(recordBorrowedObjects(store, alternates, prefix));
+                    } catch (IOException e) {
+                        log.warning("Failed to record objects borrowed by " + alternates + ": " + e.getMessage());
+                        failed = true;
+                    }
+                }
+                writeLines(borrowers, remaining);
+                if (failed) {
+                    log.warning("Not garbage collecting shared object store " + store + " - a borrower depends on it");
+                    return null;
+                }
+
+                // Refs of repositories that no longer borrow, or that they no longer have, are dropped
+                for (var ref : git(store, "for-each-ref", "--format=%(refname)", "refs/borrowers/")) {
+                    var prefix = ref.substring(0, ref.indexOf('/', "refs/borrowers/".length()) + 1);
+                    var kept = prefixes.contains(prefix) && (ref.startsWith(prefix + "refs/") || written.contains(ref));
+                    if (!kept) {
+                        git(store, "update-ref", "-d", ref);
+                    }
+                }
+
+                log.fine("Garbage collecting shared object store " + store);
+                git(store, "reflog", "expire", "--expire=" + expiry, "--expire-unreachable=" + expiry, "--all");
+                git(store, "gc", "--quiet", "--prune=" + expiry);
+                return null;
+            });
+        }
+    }
+}
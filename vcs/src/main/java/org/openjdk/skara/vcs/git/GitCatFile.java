@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.vcs.git;
+
+import org.openjdk.skara.vcs.Hash;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * A long-lived {@code git cat-file --batch} session for a repository. Objects are
+ * requested over a pipe and read straight into memory, instead of starting one or
+ * more processes per object. The processes are started on first use and stopped
+ * when the session is closed or has been idle for a while.
+ */
+class GitCatFile implements AutoCloseable {
+    private static final Logger log = Logger.getLogger("org.openjdk.skara.vcs.git");
+    private static final Duration IDLE_TIMEOUT = Duration.ofSeconds(30);
+    private static final int MAX_CACHED_TREES = 256;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ScheduledExecutorService idleChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+        var thread = new Thread(r, "git-cat-file-idle-checker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static class Header {
+        private final Hash hash;
+        private final String type;
+        private final long size;
+
+        private Header(Hash hash, String type, long size) {
+            this.hash = hash;
+            this.type = type;
+            this.size = size;
+        }
+
+        Hash hash() {
+            return hash;
+        }
+
+        String type() {
+            return type;
+        }
+
+        long size() {
+            return size;
+        }
+    }
+
+    static class TreeEntry {
+        private final String mode;
+        private final String name;
+        private final Hash hash;
+
+        private TreeEntry(String mode, String name, Hash hash) {
+            this.mode = mode;
+            this.name = name;
+            this.hash = hash;
+        }
+
+        String mode() {
+            return mode;
+        }
+
+        String name() {
+            return name;
+        }
+
+        Hash hash() {
+            return hash;
+        }
+
+        boolean isTree() {
+            return mode.equals("40000");
+        }
+    }
+
+    private static class Pipe {
+        private final java.lang.Process process;
+        private final OutputStream input;
+        private final InputStream output;
+
+        private Pipe(java.lang.Process process) {
+            this.process = process;
+            this.input = new BufferedOutputStream(process.getOutputStream());
+            this.output = new BufferedInputStream(process.getInputStream(), 64 * 1024);
+        }
+
+        private Header request(String rev) throws IOException {
+            input.write(rev.getBytes(StandardCharsets.UTF_8));
+            input.write('\n');
+            input.flush();
+
+            var line = readLine();
+            var parts = line.split(" ");
+            if (parts.length != 3) {
+                // "<rev> missing" or "<rev> ambiguous"
+                return null;
+            }
+            try {
+                return new Header(new Hash(parts[0]), parts[1], Long.parseLong(parts[2]));
+            } catch (NumberFormatException e) {
+                throw new IOException("Unexpected output from git cat-file: " + line);
+            }
+        }
+
+        private String readLine() throws IOException {
+            var bytes = new ByteArrayOutputStream();
+            int b;
+            while ((b = output.read()) != '\n') {
+                if (b == -1) {
+                    throw new IOException("git cat-file exited unexpectedly");
+                }
+                bytes.write(b);
+            }
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+
+        private void copy(long size, OutputStream to) throws IOException {
+            var buffer = new byte[8192];
+            var remaining = size;
+            while (remaining > 0) {
+                var read = output.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1) {
+                    throw new IOException("git cat-file exited unexpectedly");
+                }
+                to.write(buffer, 0, read);
+                remaining -= read;
+            }
+            if (output.read() != '\n') {
+                throw new IOException("Missing object terminator from git cat-file");
+            }
+        }
+
+        private void skip(long size) throws IOException {
+            copy(size, OutputStream.nullOutputStream());
+        }
+
+        private byte[] read(long size) throws IOException {
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("Object too large to read into memory: " + size + " bytes");
+            }
+            var bytes = output.readNBytes((int) size);
+            if (bytes.length != size) {
+                throw new IOException("git cat-file exited unexpectedly");
+            }
+            if (output.read() != '\n') {
+                throw new IOException("Missing object terminator from git cat-file");
+            }
+            return bytes;
+        }
+
+        private void close() {
+            try {
+                input.close();
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (IOException | InterruptedException e) {
+                process.destroyForcibly();
+            }
+            try {
+                output.close();
+            } catch (IOException e) {
+                // the process is gone, nothing more to do
+            }
+        }
+    }
+
+    private final Path dir;
+    private final Map<String, List<TreeEntry>> trees = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<TreeEntry>> eldest) {
+            return size() > MAX_CACHED_TREES;
+        }
+    };
+
+    private Pipe batch;
+    private Pipe batchCheck;
+    private long lastUsed;
+    private ScheduledFuture<?> idleCheck;
+
+    GitCatFile(Path dir) {
+        this.dir = dir;
+    }
+
+    private Pipe start(String mode) throws IOException {
+        var cmd = List.of("git", "cat-file", mode);
+        log.fine("Executing " + String.join(" ", cmd));
+        var pb = new ProcessBuilder(cmd);
+        pb.directory(dir.toFile());
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        var pipe = new Pipe(pb.start());
+        if (idleCheck == null) {
+            var period = IDLE_TIMEOUT.toMillis() / 2;
+            idleCheck = idleChecker.scheduleWithFixedDelay(this::closeIfIdle, period, period, TimeUnit.MILLISECONDS);
+        }
+        return pipe;
+    }
+
+    private Pipe batch() throws IOException {
+        lastUsed = System.nanoTime();
+        if (batch == null) {
+            batch = start("--batch");
+        }
+        return batch;
+    }
+
+    private Pipe batchCheck() throws IOException {
+        lastUsed = System.nanoTime();
+        if (batchCheck == null) {
+            batchCheck = start("--batch-check");
+        }
+        return batchCheck;
+    }
+
+    private synchronized void closeIfIdle() {
+        if (System.nanoTime() - lastUsed > IDLE_TIMEOUT.toNanos()) {
+            close();
+        }
+    }
+
+    /**
+     * Returns true if any git cat-file process is currently running for this session.
+     */
+    synchronized boolean isOpen() {
+        return batch != null || batchCheck != null;
+    }
+
+    /**
+     * Returns the hash, type and size of the object named by the given revision,
+     * or an empty optional if no such object exists. An already running --batch
+     * process is reused rather than starting a --batch-check process next to it.
+     */
+    synchronized Optional<Header> info(String rev) throws IOException {
+        try {
+            if (batchCheck == null && batch != null) {
+                var pipe = batch();
+                var header = pipe.request(rev);
+                if (header != null) {
+                    pipe.skip(header.size());
+                }
+                return Optional.ofNullable(header);
+            }
+            return Optional.ofNullable(batchCheck().request(rev));
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the contents of the object named by the given revision, or an empty
+     * optional if no such object exists.
+     */
+    synchronized Optional<byte[]> read(String rev) throws IOException {
+        try {
+            var pipe = batch();
+            var header = pipe.request(rev);
+            if (header == null) {
+                return Optional.empty();
+            }
+            return Optional.of(pipe.read(header.size()));
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the contents of the object named by the given revision to a file.
+     * Returns false if no such object exists.
+     */
+    synchronized boolean copy(String rev, Path to) throws IOException {
+        try {
+            var pipe = batch();
+            var header = pipe.request(rev);
+            if (header == null) {
+                return false;
+            }
+            try (var output = Files.newOutputStream(to)) {
+                pipe.copy(header.size(), output);
+            }
+            return true;
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the entries of the tree named by the given revision, or an empty
+     * optional if no such tree exists. Trees are cached, so the revision should
+     * name an immutable object such as a full hash.
+     */
+    synchronized Optional<List<TreeEntry>> tree(String rev) throws IOException {
+        var cached = trees.get(rev);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        try {
+            var pipe = batch();
+            var header = pipe.request(rev);
+            if (header == null) {
+                return Optional.empty();
+            }
+            var content = pipe.read(header.size());
+            if (!header.type().equals("tree")) {
+                throw new IOException(rev + " is a " + header.type() + ", not a tree");
+            }
+            var entries = parseTree(content, header.hash().hex().length() / 2);
+            trees.put(rev, entries);
+            return Optional.of(entries);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private static List<TreeEntry> parseTree(byte[] content, int hashLength) throws IOException {
+        var entries = new ArrayList<TreeEntry>();
+        var i = 0;
+        while (i < content.length) {
+            var space = indexOf(content, (byte) ' ', i);
+            var nul = indexOf(content, (byte) 0, space + 1);
+            if (space == -1 || nul == -1 || nul + 1 + hashLength > content.length) {
+                throw new IOException("Malformed tree object");
+            }
+            var mode = new String(content, i, space - i, StandardCharsets.US_ASCII);
+            var name = new String(content, space + 1, nul - space - 1, StandardCharsets.UTF_8);
+            var hex = new char[hashLength * 2];
+            for (var j = 0; j < hashLength; j++) {
+                var b = content[nul + 1 + j];
+                hex[2 * j] = HEX[(b >> 4) & 0xf];
+                hex[2 * j + 1] = HEX[b & 0xf];
+            }
+            entries.add(new TreeEntry(mode, name, new Hash(new String(hex))));
+            i = nul + 1 + hashLength;
+        }
+        return entries;
+    }
+
+    private static int indexOf(byte[] bytes, byte b, int from) {
+        for (var i = from; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (idleCheck != null) {
+            idleCheck.cancel(false);
+            idleCheck = null;
+        }
+        if (batch != null) {
+            batch.close();
+            batch = null;
+        }
+        if (batchCheck != null) {
+            batchCheck.close();
+            batchCheck = null;
+        }
+        trees.clear();
+    }
+}
@@ -29,7 +29,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
 
-class GitCombinedDiffParser {
+public class GitCombinedDiffParser {
     private final List<Hash> bases;
     private final int numParents;
     private final Hash head;
@@ -46,13 +46,17 @@ class GitCombinedDiffParser {
     private List<List<Hunk>> parseSingleFileMultiParentDiff(UnixStreamReader reader, List<PatchHeader> headers) throws IOException {
         assert line.startsWith("diff --combined");
 
-        while ((line = reader.readLine()) != null &&
-                !line.startsWith("@@@") &&
-                !line.startsWith("diff --combined") &&
-                !line.equals(delimiter)) {
+        while (reader.next()) {
             // Skip all diff header lines (we already have them via the raw headers)
             // Note: this will also skip 'Binary files differ...' on purpose
+            var current = reader.line();
+            if (current.startsWith("@@@") ||
+                current.startsWith("diff --combined") ||
+                current.contentEquals(delimiter)) {
+                break;
+            }
         }
+        line = reader.lastLine();
 
         var hunksPerParent = new ArrayList<List<Hunk>>(numParents);
         for (int i = 0; i < numParents; i++) {
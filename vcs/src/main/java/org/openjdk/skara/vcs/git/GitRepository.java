@@ -40,6 +40,7 @@ import java.util.stream.Collectors;
 public class GitRepository implements Repository {
     private final Path dir;
     private final Logger log = Logger.getLogger("org.openjdk.skara.vcs.git");
+    private final GitCatFile catFile;
     private Path cachedRoot = null;
 
     private java.lang.Process start(String... cmd) throws IOException {
@@ -109,6 +110,12 @@ public class GitRepository implements Repository {
 
     public GitRepository(Path dir) {
         this.dir = dir.toAbsolutePath();
+        this.catFile = new GitCatFile(this.dir);
+    }
+
+    @Override
+    public void close() {
+        catFile.close();
     }
 
     public List<Branch> branches() throws IOException {
@@ -171,7 +178,23 @@ public class GitRepository implements Repository {
 
     @Override
     public Optional<Commit> lookup(Hash h) throws IOException {
-        var commits = commits(h.hex(), 1).asList();
+        // Only worth asking cat-file first if a session is already running, otherwise it would
+        // take two processes instead of one to look up an existing commit
+        if (catFile.isOpen() && catFile.info(h.hex() + "^{commit}").isEmpty()) {
+            return Optional.empty();
+        }
+        List<Commit> commits;
+        try {
+            commits = commits(h.hex(), 1).asList();
+        } catch (IOException e) {
+            // git log fails on unknown revisions
+            try (var p = capture("git", "cat-file", "-e", h.hex() + "^{commit}")) {
+                if (p.await().status() != 0) {
+                    return Optional.empty();
+                }
+            }
+            throw e;
+        }
         if (commits.size() != 1) {
             return Optional.empty();
         }
@@ -319,6 +342,7 @@ public class GitRepository implements Repository {
     @Override
     public Repository reinitialize() throws IOException {
         cachedRoot = null;
+        catFile.close();
 
         Files.walk(dir)
              .map(Path::toFile)
@@ -328,14 +352,36 @@ public class GitRepository implements Repository {
         return init();
     }
 
-    @Override
-    public Hash fetch(URI uri, String refspec) throws IOException {
-        try (var p = capture("git", "fetch", "--recurse-submodules=on-demand", "--tags", uri.toString(), refspec)) {
+    private Path alternatesFile() throws IOException {
+        try (var p = capture("git", "rev-parse", "--git-path", "objects/info/alternates")) {
+            return dir.resolve(await(p).stdout().get(0)).toAbsolutePath();
+        }
+    }
+
+    private Hash fetch(String source, String refspec) throws IOException {
+        try (var p = capture("git", "fetch", "--recurse-submodules=on-demand", "--tags", source, refspec)) {
             await(p);
             return resolve("FETCH_HEAD").get();
         }
     }
 
+    @Override
+    public Hash fetch(URI uri, String refspec) throws IOException {
+        var store = SharedObjectStore.current();
+        if (store.isPresent()) {
+            try {
+                // The objects are already present through the alternates, so nothing is transferred again
+                var storeRefspec = store.get().update(uri, refspec, alternatesFile());
+                return fetch(store.get().storeFor(uri).toString(), storeRefspec);
+            } catch (IOException e) {
+                // The shared store is only an optimization, fetch from the remote instead
+                log.warning("Failed to use shared object store for " + uri + ": " + e.getMessage());
+            }
+        }
+
+        return fetch(uri.toString(), refspec);
+    }
+
     @Override
     public void fetchAll() throws IOException {
         try (var p = capture("git", "fetch", "--recurse-submodules=on-demand", "--tags", "--prune", "--prune-tags", "--all")) {
@@ -375,6 +421,7 @@ public class GitRepository implements Repository {
     @Override
     public Repository init() throws IOException {
         cachedRoot = null;
+        catFile.close();
 
         if (!Files.exists(dir)) {
             Files.createDirectories(dir);
@@ -757,8 +804,78 @@ public class GitRepository implements Repository {
         }
     }
 
+    private static boolean isTreePath(Path path) {
+        var normalized = path.normalize();
+        var s = normalized.toString();
+        return !normalized.isAbsolute() &&
+               !normalized.startsWith("..") &&
+               s.indexOf('*') == -1 && s.indexOf('?') == -1 && s.indexOf('[') == -1;
+    }
+
+    private List<GitCatFile.TreeEntry> tree(Hash hash) throws IOException {
+        return catFile.tree(hash.hex()).orElseThrow(() -> new IOException("Tree " + hash.hex() + " not found"));
+    }
+
+    private void collectFiles(Hash commit, List<GitCatFile.TreeEntry> tree, String prefix, Map<String, FileEntry> result) throws IOException {
+        for (var entry : tree) {
+            var path = prefix + entry.name();
+            if (entry.isTree()) {
+                collectFiles(commit, tree(entry.hash()), path + "/", result);
+            } else {
+                result.put(path, new FileEntry(commit, FileType.fromOctal(entry.mode()), entry.hash(), Path.of(path)));
+            }
+        }
+    }
+
+    private void collectFiles(Hash commit, List<GitCatFile.TreeEntry> root, Path path, Map<String, FileEntry> result) throws IOException {
+        var normalized = path.normalize();
+        if (normalized.toString().isEmpty()) {
+            collectFiles(commit, root, "", result);
+            return;
+        }
+
+        var tree = root;
+        var prefix = "";
+        for (var i = 0; i < normalized.getNameCount(); i++) {
+            var name = normalized.getName(i).toString();
+            var entry = tree.stream().filter(e -> e.name().equals(name)).findFirst();
+            if (entry.isEmpty()) {
+                return;
+            }
+            var isLast = i == normalized.getNameCount() - 1;
+            if (entry.get().isTree()) {
+                tree = tree(entry.get().hash());
+                prefix += name + "/";
+                if (isLast) {
+                    collectFiles(commit, tree, prefix, result);
+                }
+            } else if (isLast) {
+                var filename = prefix + name;
+                result.put(filename, new FileEntry(commit, FileType.fromOctal(entry.get().mode()), entry.get().hash(), Path.of(filename)));
+            } else {
+                return;
+            }
+        }
+    }
+
     @Override
     public List<FileEntry> files(Hash hash, List<Path> paths) throws IOException {
+        if (paths.stream().allMatch(GitRepository::isTreePath)) {
+            // Walk the trees over the cat-file session, the result is ordered like the output of ls-tree
+            var root = catFile.tree(hash.hex() + "^{tree}")
+                              .orElseThrow(() -> new IOException("Commit " + hash.hex() + " not found"));
+            var result = new TreeMap<String, FileEntry>((a, b) -> Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8),
+                                                                                           b.getBytes(StandardCharsets.UTF_8)));
+            if (paths.isEmpty()) {
+                collectFiles(hash, root, "", result);
+            } else {
+                for (var path : paths) {
+                    collectFiles(hash, root, path, result);
+                }
+            }
+            return new ArrayList<>(result.values());
+        }
+
         if (paths.isEmpty()) {
             return allFiles(hash, paths);
         }
@@ -777,17 +894,6 @@ public class GitRepository implements Repository {
         return entries;
     }
 
-    private Path unpackFile(String blob) throws IOException {
-        try (var p = capture("git", "unpack-file", blob)) {
-            var res = await(p);
-            if (res.stdout().size() != 1) {
-                throw new IOException("Unexpected output\n" + res);
-            }
-
-            return Path.of(root().toString(), res.stdout().get(0));
-        }
-    }
-
     @Override
     public Optional<byte[]> show(Path path, Hash hash) throws IOException {
         var entries = files(hash, path);
@@ -803,9 +909,8 @@ public class GitRepository implements Repository {
             var content = "Subproject commit " + entry.hash().hex() + " " + entry.path().toString();
             return Optional.of(content.getBytes(StandardCharsets.UTF_8));
         } else if (type.isRegular()) {
-            var tmp = unpackFile(entry.hash().hex());
-            var content = Files.readAllBytes(tmp);
-            Files.delete(tmp);
+            var content = catFile.read(entry.hash().hex())
+                                 .orElseThrow(() -> new IOException("Blob " + entry.hash().hex() + " not found"));
             return Optional.of(content);
         }
 
@@ -816,9 +921,10 @@ public class GitRepository implements Repository {
     public void dump(FileEntry entry, Path to) throws IOException {
         var type = entry.type();
         if (type.isRegular()) {
-            var path = unpackFile(entry.hash().hex());
             Files.createDirectories(to.getParent());
-            Files.move(path, to, StandardCopyOption.REPLACE_EXISTING);
+            if (!catFile.copy(entry.hash().hex(), to)) {
+                throw new IOException("Blob " + entry.hash().hex() + " not found");
+            }
         }
     }
 
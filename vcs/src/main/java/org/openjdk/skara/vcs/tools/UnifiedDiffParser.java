@@ -127,11 +127,15 @@ public class UnifiedDiffParser {
             var targetLines = new ArrayList<String>();
             var targetHasNewlineAtEndOfFile = true;
             var hasSeenLinesWithPlusPrefix = false;
-            while ((line = reader.readLine()) != null &&
-                   !line.startsWith("@@") &&
-                   !line.startsWith("diff") &&
-                   !line.equals(delimiter)) {
-                if (line.equals("\\ No newline at end of file")) {
+            while (reader.next()) {
+                // Only decode the content of the line, not the line itself
+                var current = reader.line();
+                if (current.startsWith("@@") ||
+                    current.startsWith("diff") ||
+                    current.contentEquals(delimiter)) {
+                    break;
+                }
+                if (current.contentEquals("\\ No newline at end of file")) {
                     if (!hasSeenLinesWithPlusPrefix) {
                         sourceHasNewlineAtEndOfFile = false;
                     } else {
@@ -140,15 +144,16 @@ public class UnifiedDiffParser {
                     continue;
                 }
 
-                if (line.startsWith("-")) {
-                    sourceLines.add(line.substring(1)); // skip initial '-'
-                } else if (line.startsWith("+")) {
+                if (current.startsWith("-")) {
+                    sourceLines.add(current.substring(1)); // skip initial '-'
+                } else if (current.startsWith("+")) {
                     hasSeenLinesWithPlusPrefix = true;
-                    targetLines.add(line.substring(1)); // skip initial '+'
+                    targetLines.add(current.substring(1)); // skip initial '+'
                 } else {
-                    throw new IllegalStateException("Unexpected diff line: " + line);
+                    throw new IllegalStateException("Unexpected diff line: " + current);
                 }
             }
+            line = reader.lastLine();
             hunks.add(new Hunk(GitRange.fromString(sourceRange), sourceLines, sourceHasNewlineAtEndOfFile,
                                GitRange.fromString(targetRange), targetLines, targetHasNewlineAtEndOfFile));
         }
@@ -161,13 +166,17 @@ public class UnifiedDiffParser {
             throw new IllegalStateException("Unexpected diff line: " + line);
         }
 
-        while ((line = reader.readLine()) != null &&
-                !line.startsWith("@@") &&
-                !line.startsWith("GIT binary patch") &&
-                !line.startsWith("diff") &&
-                !line.equals(delimiter)) {
+        while (reader.next()) {
             // ignore extended headers, we have the data via the 'raw' lines
+            var current = reader.line();
+            if (current.startsWith("@@") ||
+                current.startsWith("GIT binary patch") ||
+                current.startsWith("diff") ||
+                current.contentEquals(delimiter)) {
+                break;
+            }
         }
+        line = reader.lastLine();
 
         if (line != null && line.startsWith("GIT binary patch")) {
             return parseSingleFileBinaryHunks(reader);
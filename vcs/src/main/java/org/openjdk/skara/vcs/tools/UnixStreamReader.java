@@ -22,42 +22,232 @@
  */
 package org.openjdk.skara.vcs.tools;
 
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.io.*;
+import java.lang.invoke.*;
 import java.util.Arrays;
 
+/**
+ * Reads '\n' terminated lines from a stream. The stream is read in large chunks
+ * into a reusable buffer, and the current line can be inspected through
+ * {@link #line()} without decoding it into a {@code String}.
+ */
 public class UnixStreamReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long NEWLINES = 0x0a0a0a0a0a0a0a0aL;
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * A view of the current line, without the terminating newline. The view is only
+     * valid until the next line is read. Lines that only contain ASCII characters are
+     * accessed directly in the buffer, other lines are decoded as UTF-8 on demand.
+     */
+    public final class Line implements CharSequence {
+        private int start;
+        private int end;
+        private String decoded;
+        private int ascii;
+
+        private void set(int start, int end) {
+            this.start = start;
+            this.end = end;
+            this.decoded = null;
+            this.ascii = -1;
+        }
+
+        private boolean isAscii() {
+            if (ascii == -1) {
+                ascii = 1;
+                for (var i = start; i < end; i++) {
+                    if (buffer[i] < 0) {
+                        ascii = 0;
+                        break;
+                    }
+                }
+            }
+            return ascii == 1;
+        }
+
+        /**
+         * Returns the length of the line in bytes.
+         */
+        public int byteLength() {
+            return end - start;
+        }
+
+        /**
+         * Returns the byte at the given index of the line.
+         */
+        public byte byteAt(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return buffer[start + index];
+        }
+
+        /**
+         * Returns true if the line starts with the given prefix.
+         */
+        public boolean startsWith(String prefix) {
+            var length = prefix.length();
+            if (length > end - start) {
+                return false;
+            }
+            for (var i = 0; i < length; i++) {
+                var c = prefix.charAt(i);
+                if (c >= 0x80) {
+                    return toString().startsWith(prefix);
+                }
+                if (buffer[start + i] != (byte) c) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns true if the line is equal to the given string.
+         */
+        public boolean contentEquals(String s) {
+            return s != null && s.length() == end - start && startsWith(s);
+        }
+
+        /**
+         * Returns the line from the given character index as a string.
+         */
+        public String substring(int beginIndex) {
+            if (beginIndex < 0 || beginIndex > end - start) {
+                throw new IndexOutOfBoundsException(beginIndex);
+            }
+            for (var i = start; i < start + beginIndex; i++) {
+                if (buffer[i] < 0) {
+                    return toString().substring(beginIndex);
+                }
+            }
+            return new String(buffer, start + beginIndex, end - start - beginIndex, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int length() {
+            return isAscii() ? end - start : toString().length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (isAscii()) {
+                return (char) byteAt(index);
+            }
+            return toString().charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int beginIndex, int endIndex) {
+            return toString().subSequence(beginIndex, endIndex);
+        }
+
+        @Override
+        public String toString() {
+            if (decoded == null) {
+                decoded = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+            }
+            return decoded;
+        }
+    }
+
     private final InputStream stream;
+    private final Line line;
 
     private byte[] buffer;
-    private String lastLine;
+    private int position;
+    private int limit;
+    private boolean eof;
+    private boolean hasLine;
 
     public UnixStreamReader(InputStream stream) {
         this.stream = stream;
-        this.buffer = new byte[128];
-        this.lastLine = null;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.line = new Line();
     }
 
-    public String readLine() throws IOException {
-        var index = 0;
-        var res = stream.read();
-        while (res != -1) {
-            if (res == (int) '\n') {
-                lastLine = new String(buffer, 0, index, StandardCharsets.UTF_8);
-                return lastLine;
-            } else {
-                if (index == buffer.length) {
-                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
-                }
-                buffer[index] = (byte) res;
-                index++;
+    private static int indexOfNewline(byte[] bytes, int from, int to) {
+        var i = from;
+        // Look at eight bytes at a time, a byte in word is zero where the input has a newline
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            var word = (long) LONGS.get(bytes, i) ^ NEWLINES;
+            var found = (word - ONES) & ~word & HIGH_BITS;
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (bytes[i] == '\n') {
+                return i;
             }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the unread bytes to the start of the buffer, growing it if it is full,
+     * and reads more bytes from the stream. Returns the number of bytes the unread
+     * data was moved.
+     */
+    private int fill() throws IOException {
+        var shift = position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        var read = stream.read(buffer, limit, buffer.length - limit);
+        if (read == -1) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+        return shift;
+    }
 
-            res = stream.read();
+    /**
+     * Advances to the next line, which is then available via {@link #line()}.
+     * Returns false if the end of the stream has been reached. A trailing line
+     * without a terminating newline is ignored.
+     */
+    public boolean next() throws IOException {
+        var from = position;
+        while (true) {
+            var newline = indexOfNewline(buffer, from, limit);
+            if (newline != -1) {
+                line.set(position, newline);
+                position = newline + 1;
+                hasLine = true;
+                return true;
+            }
+            if (eof) {
+                position = limit;
+                hasLine = false;
+                return false;
+            }
+            from = limit;
+            from -= fill();
         }
+    }
 
-        lastLine = null;
-        return lastLine;
+    /**
+     * Returns a view of the current line, or null if there is no current line.
+     */
+    public Line line() {
+        return hasLine ? line : null;
+    }
+
+    public String readLine() throws IOException {
+        return next() ? line.toString() : null;
     }
 
     public byte[] read(int n) throws IOException {
@@ -67,13 +257,19 @@ public class UnixStreamReader {
     }
 
     public void read(byte[] b) throws IOException {
-        var read = 0;
+        var read = Math.min(limit - position, b.length);
+        System.arraycopy(buffer, position, b, 0, read);
+        position += read;
         while (read != b.length) {
-            read += stream.read(b, read, b.length - read);
+            var n = stream.read(b, read, b.length - read);
+            if (n == -1) {
+                throw new EOFException();
+            }
+            read += n;
         }
     }
 
     public String lastLine() {
-        return lastLine;
+        return hasLine ? line.toString() : null;
     }
 }
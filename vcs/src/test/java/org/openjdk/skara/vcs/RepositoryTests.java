@@ -1665,6 +1665,92 @@ public class RepositoryTests {
         }
     }
 
+    @Test
+    void testFilesInSubdirectories() throws IOException {
+        try (var dir = new TemporaryDirectory()) {
+            var r = Repository.init(dir.path(), VCS.GIT);
+            var names = List.of("z", "a/c/d.txt", "a.c", "a/b.txt", "a-b", "bin/run.sh");
+            for (var name : names) {
+                var f = dir.path().resolve(name);
+                Files.createDirectories(f.getParent());
+                Files.writeString(f, name + "\n");
+                r.add(f);
+            }
+            var hash = r.commit("Initial commit", "duke", "duke@openjdk.org");
+
+            // Same order as 'git ls-tree -r'
+            var paths = r.files(hash).stream().map(FileEntry::path).collect(Collectors.toList());
+            assertEquals(List.of(Path.of("a-b"), Path.of("a.c"), Path.of("a/b.txt"), Path.of("a/c/d.txt"),
+                                 Path.of("bin/run.sh"), Path.of("z")), paths);
+
+            paths = r.files(hash, Path.of("z"), Path.of("a"), Path.of("missing"), Path.of("a/c/d.txt"))
+                     .stream().map(FileEntry::path).collect(Collectors.toList());
+            assertEquals(List.of(Path.of("a/b.txt"), Path.of("a/c/d.txt"), Path.of("z")), paths);
+
+            assertEquals(Optional.of(List.of("a/c/d.txt")), r.lines(Path.of("a/c/d.txt"), hash));
+            assertEquals(Optional.empty(), r.lines(Path.of("a/c/missing.txt"), hash));
+        }
+    }
+
+    @Test
+    void testShowAndDumpBinaryContent() throws IOException {
+        try (var dir = new TemporaryDirectory()) {
+            var r = Repository.init(dir.path(), VCS.GIT);
+            var f = dir.path().resolve("data.bin");
+            var content = new byte[200_000];
+            new Random(17).nextBytes(content);
+            Files.write(f, content);
+            r.add(f);
+            var first = r.commit("First", "duke", "duke@openjdk.org");
+
+            var updated = Arrays.copyOf(content, 1000);
+            Files.write(f, updated);
+            r.add(f);
+            var second = r.commit("Second", "duke", "duke@openjdk.org");
+
+            assertArrayEquals(content, r.show(Path.of("data.bin"), first).orElseThrow());
+            assertArrayEquals(updated, r.show(Path.of("data.bin"), second).orElseThrow());
+
+            var tmp = dir.path().resolve("dumped").resolve("data.bin");
+            r.dump(r.files(first, Path.of("data.bin")).get(0), tmp);
+            assertArrayEquals(content, Files.readAllBytes(tmp));
+        }
+    }
+
+    @Test
+    void testLookupUnknownCommit() throws IOException {
+        try (var dir = new TemporaryDirectory()) {
+            var r = Repository.init(dir.path(), VCS.GIT);
+            var f = dir.path().resolve("README");
+            Files.writeString(f, "Hello\n");
+            r.add(f);
+            var hash = r.commit("Initial commit", "duke", "duke@openjdk.org");
+
+            assertEquals(Optional.empty(), r.lookup(new Hash("0123456789012345678901234567890123456789")));
+            assertEquals(hash, r.lookup(hash).orElseThrow().hash());
+        }
+    }
+
+    @Test
+    void testCloseAndReuse() throws IOException {
+        try (var dir = new TemporaryDirectory()) {
+            var r = Repository.init(dir.path(), VCS.GIT);
+            var f = dir.path().resolve("README");
+            Files.writeString(f, "Hello\n");
+            r.add(f);
+            var hash = r.commit("Initial commit", "duke", "duke@openjdk.org");
+
+            assertEquals(List.of("Hello"), r.lines(Path.of("README"), hash).orElseThrow());
+            assertEquals(Optional.empty(), r.lookup(new Hash("0123456789012345678901234567890123456789")));
+            r.close();
+
+            // Helper processes are started again on demand
+            assertEquals(List.of("Hello"), r.lines(Path.of("README"), hash).orElseThrow());
+            assertEquals(hash, r.lookup(hash).orElseThrow().hash());
+            r.close();
+        }
+    }
+
     @ParameterizedTest
     @EnumSource(VCS.class)
     void testStatus(VCS vcs) throws IOException {
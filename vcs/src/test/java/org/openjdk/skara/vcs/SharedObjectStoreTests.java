@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.vcs;
+
+import org.openjdk.skara.test.TemporaryDirectory;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedObjectStoreTests {
+    private static List<Path> localObjects(Path repo) throws IOException {
+        try (var files = Files.walk(repo.resolve(".git").resolve("objects"))) {
+            return files.filter(Files::isRegularFile)
+                        .filter(p -> !p.getParent().getFileName().toString().equals("info"))
+                        .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void fetchBorrowsObjectsFromStore() throws IOException {
+        try (var originDir = new TemporaryDirectory();
+             var storeDir = new TemporaryDirectory();
+             var scratchDir = new TemporaryDirectory()) {
+            var originPath = originDir.path().resolve("origin.git");
+            // Computed before the folder exists, so that the uri does not get a trailing slash
+            var originUri = originPath.toUri();
+            var origin = Repository.init(originPath, VCS.GIT);
+            var readme = originPath.resolve("README");
+            Files.writeString(readme, "Hello\n");
+            origin.add(readme);
+            var first = origin.commit("Initial commit", "duke", "duke@openjdk.org");
+            var branch = origin.currentBranch().orElseThrow().name();
+
+            var store = SharedObjectStore.enable(storeDir.path());
+            try {
+                var scratchPath = scratchDir.path().resolve("scratch");
+                var local = Repository.materialize(scratchPath, originUri, branch);
+                assertEquals(first, local.head());
+                assertEquals("Hello\n", Files.readString(scratchPath.resolve("README")));
+
+                var alternates = scratchPath.resolve(".git").resolve("objects").resolve("info").resolve("alternates");
+                var storeObjects = store.storeFor(originUri).resolve("objects");
+                assertEquals(List.of(storeObjects.toString()), Files.readAllLines(alternates, StandardCharsets.UTF_8));
+                assertEquals(List.of(), localObjects(scratchPath));
+
+                Files.writeString(readme, "Hello again\n");
+                origin.add(readme);
+                var second = origin.commit("Second commit", "duke", "duke@openjdk.org");
+                assertEquals(second, local.fetch(originUri, branch));
+                assertEquals(List.of(), localObjects(scratchPath));
+                assertEquals(1, Files.readAllLines(alternates, StandardCharsets.UTF_8).size());
+
+                store.maintain(Duration.ZERO);
+                assertEquals(List.of(), localObjects(scratchPath));
+                local.checkout(second, true);
+                assertEquals("Hello again\n", Files.readString(scratchPath.resolve("README")));
+                assertTrue(local.isHealthy());
+            } finally {
+                SharedObjectStore.disable();
+            }
+        }
+    }
+
+    @Test
+    void maintainKeepsObjectsOfBorrowers() throws IOException {
+        try (var originDir = new TemporaryDirectory();
+             var storeDir = new TemporaryDirectory();
+             var scratchDir = new TemporaryDirectory()) {
+            var originPath = originDir.path().resolve("origin.git");
+            var originUri = originPath.toUri();
+            var origin = Repository.init(originPath, VCS.GIT);
+            var readme = originPath.resolve("README");
+            Files.writeString(readme, "Hello\n");
+            origin.add(readme);
+            var first = origin.commit("Initial commit", "duke", "duke@openjdk.org");
+            var branch = origin.currentBranch().orElseThrow().name();
+
+            var store = SharedObjectStore.enable(storeDir.path());
+            try {
+                var scratchPath = scratchDir.path().resolve("scratch");
+                var local = Repository.materialize(scratchPath, originUri, branch);
+                assertEquals(first, local.head());
+
+                // Rewriting the branch makes the first commit unreachable in the store
+                Files.writeString(readme, "Rewritten\n");
+                origin.add(readme);
+                var rewritten = origin.amend("Rewritten commit", "duke", "duke@openjdk.org");
+                var other = Repository.materialize(scratchDir.path().resolve("other"), originUri, branch);
+                assertEquals(rewritten, other.head());
+
+                store.maintain(Duration.ZERO);
+                assertEquals(List.of(), localObjects(scratchPath));
+                assertTrue(local.isHealthy());
+                assertEquals(first, local.lookup(first).orElseThrow().hash());
+                local.checkout(first, true);
+                assertEquals("Hello\n", Files.readString(scratchPath.resolve("README")));
+            } finally {
+                SharedObjectStore.disable();
+            }
+        }
+    }
+}
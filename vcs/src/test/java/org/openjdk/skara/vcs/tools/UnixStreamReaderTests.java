@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.skara.vcs.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnixStreamReaderTests {
+    private static class TrickleInputStream extends FilterInputStream {
+        TrickleInputStream(byte[] bytes) {
+            super(new ByteArrayInputStream(bytes));
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 3));
+        }
+    }
+
+    private static UnixStreamReader reader(String s) {
+        return new UnixStreamReader(new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<String> readAll(UnixStreamReader reader) throws IOException {
+        var lines = new ArrayList<String>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    @Test
+    void simple() throws IOException {
+        var reader = reader("first\n\nthird\nunterminated");
+        assertEquals(List.of("first", "", "third"), readAll(reader));
+        assertNull(reader.lastLine());
+        assertNull(reader.line());
+    }
+
+    @Test
+    void newlineAtEveryOffset() throws IOException {
+        var random = new Random(42);
+        var expected = new ArrayList<String>();
+        var sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            var line = "x".repeat(random.nextInt(20)) + (i % 7 == 0 ? "åäö" : "");
+            expected.add(line);
+            sb.append(line).append('\n');
+        }
+        var bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected, readAll(new UnixStreamReader(new ByteArrayInputStream(bytes))));
+        assertEquals(expected, readAll(new UnixStreamReader(new TrickleInputStream(bytes))));
+    }
+
+    @Test
+    void lineLargerThanBuffer() throws IOException {
+        var long1 = "a".repeat(200_000);
+        var long2 = "b".repeat(70_000);
+        var bytes = (long1 + "\nshort\n" + long2 + "\n").getBytes(StandardCharsets.UTF_8);
+        assertEquals(List.of(long1, "short", long2), readAll(new UnixStreamReader(new TrickleInputStream(bytes))));
+    }
+
+    @Test
+    void lineView() throws IOException {
+        var reader = reader("diff --git a/x b/x\n+åäö\n@@ -1 +1 @@\n");
+
+        assertTrue(reader.next());
+        var line = reader.line();
+        assertTrue(line.startsWith("diff --git"));
+        assertFalse(line.startsWith("diff --combined"));
+        assertTrue(line.contentEquals("diff --git a/x b/x"));
+        assertFalse(line.contentEquals(null));
+        assertEquals(18, line.length());
+        assertEquals('g', line.charAt(7));
+        assertEquals("a/x b/x", line.substring(11));
+
+        assertTrue(reader.next());
+        line = reader.line();
+        assertTrue(line.startsWith("+"));
+        assertTrue(line.startsWith("+å"));
+        assertEquals(4, line.length());
+        assertEquals(7, line.byteLength());
+        assertEquals('ä', line.charAt(2));
+        assertEquals("åäö", line.substring(1));
+        assertEquals("+åäö", line.toString());
+        assertEquals("+åäö", reader.lastLine());
+
+        assertTrue(reader.next());
+        assertTrue(reader.line().startsWith("@@"));
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void readAfterLine() throws IOException {
+        var reader = reader("size 5\nhellorest\nnext\n");
+        assertEquals("size 5", reader.readLine());
+        assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), reader.read(5));
+        assertEquals("rest", reader.readLine());
+        assertEquals("next", reader.readLine());
+        assertNull(reader.readLine());
+        assertThrows(EOFException.class, () -> reader.read(1));
+    }
+}